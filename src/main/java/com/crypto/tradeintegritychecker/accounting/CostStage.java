@@ -0,0 +1,24 @@
+package com.crypto.tradeintegritychecker.accounting;
+
+/** The stages of an integrity check that a {@link RequestCost} breaks its cost down into */
+public enum CostStage {
+  /** Rate limit waits, upstream calls and decoding their responses */
+  FETCH("fetch"),
+  /** Matching trades to their candlesticks */
+  GROUP("group"),
+  /** Running the validation rules */
+  RULES("rules"),
+  /** The CSV and capture exports written alongside every check */
+  CSV_WRITE("csv");
+
+  private final String metricName;
+
+  CostStage(String metricName) {
+    this.metricName = metricName;
+  }
+
+  /** The name used for the stage in the Server-Timing header */
+  public String getMetricName() {
+    return metricName;
+  }
+}
@@ -0,0 +1,251 @@
+package com.crypto.tradeintegritychecker.accounting;
+
+import com.crypto.tradeintegritychecker.execution.Deadline;
+import com.crypto.tradeintegritychecker.model.integrity.StageCost;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Operators;
+import reactor.util.context.Context;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Wall time, CPU time and allocated bytes of one request, broken down by {@link CostStage}. The
+ * account is carried on the request's thread like its {@link Deadline}, and over to forked tasks
+ * by the checker executor. On the reactive WebClient path it travels in the Reactor context under
+ * this class, and the response decoding done on the event loop is charged to it through
+ * {@link #measureSignals}.
+ *
+ * <p>CPU and allocation come from the JVM's per-thread counters, and are left at zero where the
+ * JVM does not provide them, e.g. on virtual threads
+ */
+public final class RequestCost {
+
+  public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+  private static final ThreadLocal<RequestCost> CURRENT = new ThreadLocal<>();
+  private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+  private static final Measurement NO_MEASUREMENT = () -> {};
+
+  private final long startNanos = System.nanoTime();
+  private final Map<CostStage, StageAccumulator> stages = new EnumMap<>(CostStage.class);
+
+  public RequestCost() {
+    for (CostStage stage : CostStage.values()) {
+      stages.put(stage, new StageAccumulator());
+    }
+  }
+
+  /** @return the account of the current thread, or null when its work is not being accounted */
+  public static RequestCost current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Charges the current thread's work to the account until the returned scope is closed. A null
+   * account leaves the current one in place
+   */
+  public static Scope enter(RequestCost cost) {
+    RequestCost previous = CURRENT.get();
+    if (isNull(cost) || cost == previous) {
+      return () -> {};
+    }
+    CURRENT.set(cost);
+    return () -> {
+      if (isNull(previous)) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    };
+  }
+
+  /** Measures the current thread's work on the stage, a no-op when no account is current */
+  public static Measurement measure(CostStage stage) {
+    RequestCost current = CURRENT.get();
+    return isNull(current) ? NO_MEASUREMENT : current.start(stage, true);
+  }
+
+  /**
+   * Charges the CPU and allocation of whatever handles the source's signals to the stage, on
+   * whichever thread delivers them. Wall time is not counted, the thread waiting on the result
+   * already covers it
+   */
+  public <T> Flux<T> measureSignals(Flux<T> source, CostStage stage) {
+    return source.transform(
+        Operators.<T, T>lift(
+            (scannable, subscriber) -> new MeasuredSubscriber<>(subscriber, stage)));
+  }
+
+  /** Costs of the stages that ran, in stage order */
+  public List<StageCost> snapshot() {
+    List<StageCost> costs = new ArrayList<>();
+    stages.forEach(
+        (stage, accumulator) -> {
+          if (accumulator.hasRun()) {
+            costs.add(accumulator.toStageCost(stage));
+          }
+        });
+    return costs;
+  }
+
+  /**
+   * The breakdown as a Server-Timing header value, one metric per stage that ran plus the total
+   * wall time so far, e.g. {@code fetch;dur=182.4;desc="cpu=3.1ms alloc=524288B", total;dur=190.2}
+   */
+  public String toServerTiming() {
+    StringBuilder header = new StringBuilder();
+    for (StageCost cost : snapshot()) {
+      header
+          .append(cost.getStage())
+          .append(";dur=")
+          .append(millis(cost.getWallMs()))
+          .append(";desc=\"cpu=")
+          .append(millis(cost.getCpuMs()))
+          .append("ms alloc=")
+          .append(cost.getAllocatedBytes())
+          .append("B\", ");
+    }
+    return header
+        .append("total;dur=")
+        .append(millis(toMillis(System.nanoTime() - startNanos)))
+        .toString();
+  }
+
+  private Measurement start(CostStage stage, boolean countWall) {
+    StageAccumulator accumulator = stages.get(stage);
+    long wallStart = System.nanoTime();
+    long cpuStart = threadCpuTime();
+    long allocatedStart = threadAllocatedBytes();
+    return () -> {
+      long wallEnd = System.nanoTime();
+      accumulator.add(
+          countWall ? wallStart : Long.MAX_VALUE,
+          countWall ? wallEnd : Long.MIN_VALUE,
+          Math.max(0, threadCpuTime() - cpuStart),
+          Math.max(0, threadAllocatedBytes() - allocatedStart));
+    };
+  }
+
+  private static long threadCpuTime() {
+    return THREADS.isCurrentThreadCpuTimeSupported()
+        ? Math.max(0, THREADS.getCurrentThreadCpuTime())
+        : 0;
+  }
+
+  private static long threadAllocatedBytes() {
+    if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+      return 0;
+    }
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+    return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()
+        ? Math.max(0, threads.getThreadAllocatedBytes(Thread.currentThread().getId()))
+        : 0;
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  private static String millis(double millis) {
+    return String.format(Locale.ROOT, "%.1f", millis);
+  }
+
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  /** Charges the work done since it was started when closed */
+  public interface Measurement extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  /**
+   * Stages can run on several threads at once, e.g. the candlestick and trade fetches, so CPU and
+   * allocation are summed while wall time spans the earliest start to the latest end
+   */
+  private static class StageAccumulator {
+
+    private final AtomicLong firstStartNanos = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong lastEndNanos = new AtomicLong(Long.MIN_VALUE);
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder measurements = new LongAdder();
+
+    void add(long wallStart, long wallEnd, long cpu, long allocated) {
+      firstStartNanos.accumulateAndGet(wallStart, Math::min);
+      lastEndNanos.accumulateAndGet(wallEnd, Math::max);
+      cpuNanos.add(cpu);
+      allocatedBytes.add(allocated);
+      measurements.increment();
+    }
+
+    boolean hasRun() {
+      return measurements.sum() > 0;
+    }
+
+    StageCost toStageCost(CostStage stage) {
+      long first = firstStartNanos.get();
+      long last = lastEndNanos.get();
+      return StageCost.builder()
+          .stage(stage.getMetricName())
+          .wallMs(first == Long.MAX_VALUE ? 0 : toMillis(last - first))
+          .cpuMs(toMillis(cpuNanos.sum()))
+          .allocatedBytes(allocatedBytes.sum())
+          .build();
+    }
+  }
+
+  private class MeasuredSubscriber<T> implements CoreSubscriber<T> {
+
+    private final CoreSubscriber<? super T> actual;
+    private final CostStage stage;
+
+    MeasuredSubscriber(CoreSubscriber<? super T> actual, CostStage stage) {
+      this.actual = actual;
+      this.stage = stage;
+    }
+
+    @Override
+    public Context currentContext() {
+      return actual.currentContext();
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      actual.onSubscribe(subscription);
+    }
+
+    @Override
+    public void onNext(T value) {
+      try (Measurement measurement = start(stage, false)) {
+        actual.onNext(value);
+      }
+    }
+
+    @Override
+    public void onError(Throwable error) {
+      actual.onError(error);
+    }
+
+    @Override
+    public void onComplete() {
+      try (Measurement measurement = start(stage, false)) {
+        actual.onComplete();
+      }
+    }
+  }
+}
@@ -0,0 +1,162 @@
+package com.crypto.tradeintegritychecker.admission;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit that adapts to observed latency, in the manner of a gradient limiter. While
+ * latency stays close to the latency seen without queueing the limit probes upwards, and as soon
+ * as requests start to queue - which shows up as latency rising above that baseline - the limit is
+ * cut back, so the node keeps serving at the concurrency it can sustain rather than collapsing
+ * under a burst.
+ *
+ * <p>Each sample moves the limit towards {@code limit * gradient + sqrt(limit)}, where the
+ * gradient is the baseline latency over the sample latency, scaled by the tolerance and clamped
+ * to [0.5, 1]. The baseline is the best latency seen over the last one to two windows, so it
+ * follows a genuine change in upstream speed without drifting up under sustained queueing. Failed
+ * requests cut the limit straight away
+ */
+public class AdaptiveConcurrencyLimiter {
+
+  private static final double DROP_BACKOFF = 0.9;
+  // Weight of each sample in the recent latency behind the Retry-After hint
+  private static final double RECENT_WEIGHT = 0.1;
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final double tolerance;
+  private final double smoothing;
+  private final long baselineWindowNanos;
+  private final LongSupplier nanoClock;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile double limit;
+
+  // Guarded by this
+  private double windowMinLatencyNanos = Double.MAX_VALUE;
+  private double previousWindowMinLatencyNanos = Double.MAX_VALUE;
+  private long windowStartNanos;
+  private double recentLatencyNanos;
+
+  public AdaptiveConcurrencyLimiter(
+      int initialLimit,
+      int minLimit,
+      int maxLimit,
+      double tolerance,
+      double smoothing,
+      Duration baselineWindow) {
+    this(initialLimit, minLimit, maxLimit, tolerance, smoothing, baselineWindow, System::nanoTime);
+  }
+
+  AdaptiveConcurrencyLimiter(
+      int initialLimit,
+      int minLimit,
+      int maxLimit,
+      double tolerance,
+      double smoothing,
+      Duration baselineWindow,
+      LongSupplier nanoClock) {
+    if (minLimit < 1 || maxLimit < minLimit) {
+      throw new IllegalArgumentException("Concurrency limits require 1 <= min <= max");
+    }
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.tolerance = tolerance;
+    this.smoothing = smoothing;
+    this.baselineWindowNanos = baselineWindow.toNanos();
+    this.nanoClock = nanoClock;
+    this.limit = clamp(initialLimit);
+    this.windowStartNanos = nanoClock.getAsLong();
+  }
+
+  /** @return a permit to complete once the request is done, or null when the limit is reached */
+  public Permit tryAcquire() {
+    while (true) {
+      int current = inFlight.get();
+      if (current >= (int) limit) {
+        return null;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return new Permit(nanoClock.getAsLong(), current + 1);
+      }
+    }
+  }
+
+  public int getLimit() {
+    return (int) limit;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  /** A rejected caller should wait about as long as a request currently takes, at least 1s */
+  public synchronized long getRetryAfterSeconds() {
+    return Math.max(1, (long) Math.ceil(recentLatencyNanos / TimeUnit.SECONDS.toNanos(1)));
+  }
+
+  private synchronized void onSample(long latencyNanos, int inFlightAtStart, long nowNanos) {
+    double latency = Math.max(1, latencyNanos);
+    recentLatencyNanos =
+        recentLatencyNanos == 0
+            ? latency
+            : recentLatencyNanos + (latency - recentLatencyNanos) * RECENT_WEIGHT;
+    if (nowNanos - windowStartNanos >= baselineWindowNanos) {
+      previousWindowMinLatencyNanos = windowMinLatencyNanos;
+      windowMinLatencyNanos = Double.MAX_VALUE;
+      windowStartNanos = nowNanos;
+    }
+    windowMinLatencyNanos = Math.min(windowMinLatencyNanos, latency);
+    double baseline = Math.min(windowMinLatencyNanos, previousWindowMinLatencyNanos);
+
+    double gradient = Math.max(0.5, Math.min(1.0, tolerance * baseline / latency));
+    double target = limit * gradient + Math.sqrt(limit);
+    double next = limit * (1 - smoothing) + target * smoothing;
+    // A limit that was barely used says nothing about how much higher it could safely go
+    if (inFlightAtStart < limit / 2) {
+      next = Math.min(next, limit);
+    }
+    limit = clamp(next);
+  }
+
+  private synchronized void onDrop() {
+    limit = clamp(limit * DROP_BACKOFF);
+  }
+
+  private double clamp(double value) {
+    return Math.max(minLimit, Math.min(maxLimit, value));
+  }
+
+  /** One admitted request. Exactly one of {@link #release()} or {@link #drop()} takes effect */
+  public final class Permit {
+
+    private final long startNanos;
+    private final int inFlightAtStart;
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    private Permit(long startNanos, int inFlightAtStart) {
+      this.startNanos = startNanos;
+      this.inFlightAtStart = inFlightAtStart;
+    }
+
+    /** The request succeeded, its latency is fed back into the limit */
+    public void release() {
+      if (completed.compareAndSet(false, true)) {
+        inFlight.decrementAndGet();
+        long now = nanoClock.getAsLong();
+        onSample(now - startNanos, inFlightAtStart, now);
+      }
+    }
+
+    /** The request failed or timed out, which is taken as a sign of overload */
+    public void drop() {
+      if (completed.compareAndSet(false, true)) {
+        inFlight.decrementAndGet();
+        onDrop();
+      }
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package com.crypto.tradeintegritychecker.admission;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/** Puts the run-checker endpoints behind admission control, the liveness check stays open */
+@Configuration
+@RequiredArgsConstructor
+public class AdmissionConfig implements WebMvcConfigurer {
+
+  private final AdmissionInterceptor admissionInterceptor;
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry
+        .addInterceptor(admissionInterceptor)
+        .addPathPatterns("/run-checker/**")
+        .excludePathPatterns("/run-checker");
+  }
+}
@@ -0,0 +1,131 @@
+package com.crypto.tradeintegritychecker.admission;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Admission control for the run-checker endpoints. Interactive checks and batch runs each have
+ * their own {@link AdaptiveConcurrencyLimiter}, so a flood of one cannot starve the other. A
+ * request over its limit is answered straight away with a 503 and a Retry-After hint - queueing it
+ * would only hold its memory while it waits and add to the latency of everything behind it
+ */
+@Slf4j
+@Component
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+  private static final String PERMIT_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".permit";
+  private static final String BATCH_PATH = "/run-checker/batch/";
+
+  public enum TrafficClass {
+    INTERACTIVE,
+    BATCH
+  }
+
+  private final boolean enabled;
+  private final Map<TrafficClass, AdaptiveConcurrencyLimiter> limiters =
+      new EnumMap<>(TrafficClass.class);
+  private final Map<TrafficClass, Counter> rejections = new EnumMap<>(TrafficClass.class);
+
+  public AdmissionInterceptor(IntegrityCheckerProperties properties, MeterRegistry meterRegistry) {
+    IntegrityCheckerProperties.Admission config = properties.getAdmission();
+    this.enabled = config.isEnabled();
+    register(TrafficClass.INTERACTIVE, config.getInteractive(), config, meterRegistry);
+    register(TrafficClass.BATCH, config.getBatch(), config, meterRegistry);
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+      throws IOException {
+    if (!enabled) {
+      return true;
+    }
+    TrafficClass trafficClass = classify(request);
+    AdaptiveConcurrencyLimiter limiter = limiters.get(trafficClass);
+    AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+    if (permit == null) {
+      rejections.get(trafficClass).increment();
+      log.debug(
+          "Shedding {} request {} at concurrency limit {}",
+          trafficClass,
+          request.getRequestURI(),
+          limiter.getLimit());
+      response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+      response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(limiter.getRetryAfterSeconds()));
+      response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+      response.getWriter().write("Too many concurrent checks, retry later");
+      return false;
+    }
+    request.setAttribute(PERMIT_ATTRIBUTE, permit);
+    return true;
+  }
+
+  @Override
+  public void afterCompletion(
+      HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    Object permit = request.getAttribute(PERMIT_ATTRIBUTE);
+    if (!(permit instanceof AdaptiveConcurrencyLimiter.Permit)) {
+      return;
+    }
+    request.removeAttribute(PERMIT_ATTRIBUTE);
+    // Server errors are as much a sign of overload as slow responses
+    if (ex != null || response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+      ((AdaptiveConcurrencyLimiter.Permit) permit).drop();
+    } else {
+      ((AdaptiveConcurrencyLimiter.Permit) permit).release();
+    }
+  }
+
+  public AdaptiveConcurrencyLimiter getLimiter(TrafficClass trafficClass) {
+    return limiters.get(trafficClass);
+  }
+
+  private TrafficClass classify(HttpServletRequest request) {
+    String path = request.getRequestURI().substring(request.getContextPath().length());
+    return path.startsWith(BATCH_PATH) ? TrafficClass.BATCH : TrafficClass.INTERACTIVE;
+  }
+
+  private void register(
+      TrafficClass trafficClass,
+      IntegrityCheckerProperties.ConcurrencyLimit limit,
+      IntegrityCheckerProperties.Admission config,
+      MeterRegistry meterRegistry) {
+    AdaptiveConcurrencyLimiter limiter =
+        new AdaptiveConcurrencyLimiter(
+            limit.getInitialLimit(),
+            limit.getMinLimit(),
+            limit.getMaxLimit(),
+            config.getTolerance(),
+            config.getSmoothing(),
+            config.getBaselineWindow());
+    limiters.put(trafficClass, limiter);
+    String tag = trafficClass.name().toLowerCase();
+    rejections.put(
+        trafficClass,
+        Counter.builder("integrity.admission.rejected")
+            .description("Requests shed at the concurrency limit")
+            .tag("class", tag)
+            .register(meterRegistry));
+    Gauge.builder("integrity.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+        .description("Current adaptive concurrency limit")
+        .tag("class", tag)
+        .register(meterRegistry);
+    Gauge.builder("integrity.admission.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+        .description("Admitted requests still in progress")
+        .tag("class", tag)
+        .register(meterRegistry);
+  }
+}
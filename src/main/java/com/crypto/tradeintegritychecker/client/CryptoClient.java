@@ -1,29 +1,57 @@
 package com.crypto.tradeintegritychecker.client;
 
+import com.crypto.tradeintegritychecker.accounting.CostStage;
+import com.crypto.tradeintegritychecker.accounting.RequestCost;
+import com.crypto.tradeintegritychecker.execution.Deadline;
+import com.crypto.tradeintegritychecker.execution.DeadlineExceededException;
+import com.crypto.tradeintegritychecker.flightrecorder.UpstreamFetchEvent;
+import com.crypto.tradeintegritychecker.marketdata.MarketDataSource;
 import com.crypto.tradeintegritychecker.model.request.Timeframe;
 import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
 import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.recording.UpstreamRecorder;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
+import reactor.util.context.Context;
 
+import java.nio.ByteBuffer;
+import java.util.function.ToIntFunction;
+
+import static java.util.Objects.isNull;
+
+/** The live market data source, the crypto.com public REST API */
 @Slf4j
 @Service
-public class CryptoClient {
+@RequiredArgsConstructor
+public class CryptoClient implements MarketDataSource {
 
     private static final String BASE_URL = "https://api.crypto.com/v2/public";
     private static final String GET_CANDLESTICKS = "/get-candlestick";
     private static final String GET_TRADES = "/get-trades";
 
 
+    private final UpstreamRateLimiter rateLimiter;
+    private final UpstreamRecorder recorder;
+
     private final WebClient cryptoClient = WebClient.builder()
             .baseUrl(BASE_URL)
+            .filter(this::recordResponse)
+            .filter(this::accountResponse)
             .build();
 
+    @Override
     public CandleStickResponse getCandlestickData(String instrumentName, Timeframe timeFrame) {
         log.info("Querying crypto.com candlestick endpoint for Instrument: {} and Timeframe: {}", instrumentName, timeFrame.getTimeframeString());
+        rateLimiter.acquire(UpstreamRateLimiter.CANDLESTICK_ENDPOINT);
         return cryptoClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path(GET_CANDLESTICKS)
@@ -31,27 +59,144 @@ public class CryptoClient {
                         .queryParam("timeframe", timeFrame.getTimeframeString())
                         .build(instrumentName, timeFrame.getTimeframeString()))
                 .retrieve()
-                .bodyToMono(CandleStickResponse.class).block();
+                .bodyToMono(CandleStickResponse.class)
+                .as(response -> await(response,
+                        UpstreamFetchEvent.start(GET_CANDLESTICKS, instrumentName, timeFrame.getTimeframeString()),
+                        CryptoClient::candlestickCount));
     }
 
+    /**
+     * Requests only the most recent {@code depth} candles, used when the caller already knows which
+     * time window it is able to validate
+     */
+    @Override
+    public CandleStickResponse getCandlestickData(String instrumentName, Timeframe timeFrame, int depth) {
+        log.info("Querying crypto.com candlestick endpoint for Instrument: {}, Timeframe: {} and depth: {}", instrumentName, timeFrame.getTimeframeString(), depth);
+        rateLimiter.acquire(UpstreamRateLimiter.CANDLESTICK_ENDPOINT);
+        return cryptoClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path(GET_CANDLESTICKS)
+                        .queryParam("instrument_name", instrumentName)
+                        .queryParam("timeframe", timeFrame.getTimeframeString())
+                        .queryParam("depth", depth)
+                        .build())
+                .retrieve()
+                .bodyToMono(CandleStickResponse.class)
+                .as(response -> await(response,
+                        UpstreamFetchEvent.start(GET_CANDLESTICKS, instrumentName, timeFrame.getTimeframeString()),
+                        CryptoClient::candlestickCount));
+    }
+
+    @Override
     public GetTradesResponse getTradesByInstrument(String instrumentName) {
         log.info("Querying crypto.com getTrades endpoint for Instrument: {}", instrumentName);
+        rateLimiter.acquire(UpstreamRateLimiter.TRADES_ENDPOINT);
         return cryptoClient.get()
                 .uri(uriBuilder -> uriBuilder
                         .path(GET_TRADES)
                         .queryParam("instrument_name", instrumentName)
                         .build())
                 .retrieve()
-                .bodyToMono(GetTradesResponse.class).block();
+                .bodyToMono(GetTradesResponse.class)
+                .as(response -> await(response,
+                        UpstreamFetchEvent.start(GET_TRADES, instrumentName, null),
+                        CryptoClient::tradeCount));
     }
 
-    @Async
+    @Override
     public GetTradesResponse getTrades() {
         log.info("Querying crypto.com getTrades endpoint for all instrument types");
+        rateLimiter.acquire(UpstreamRateLimiter.TRADES_ENDPOINT);
         return cryptoClient.get()
                 .uri(GET_TRADES)
                 .retrieve()
-                .bodyToMono(GetTradesResponse.class).block();
+                .bodyToMono(GetTradesResponse.class)
+                .as(response -> await(response,
+                        UpstreamFetchEvent.start(GET_TRADES, null, null),
+                        CryptoClient::tradeCount));
     }
 
+    /** Blocks for the response, completing the flight recorder event with the records returned */
+    private <T> T await(Mono<T> response, UpstreamFetchEvent event, ToIntFunction<T> records) {
+        T result = null;
+        try {
+            result = block(response);
+            return result;
+        } finally {
+            event.complete(isNull(result) ? -1 : records.applyAsInt(result));
+        }
+    }
+
+    /**
+     * Blocks for the response, at most until the caller's {@link Deadline}. Running out of time
+     * cancels the request rather than leaving it to complete in the background. The caller's
+     * {@link RequestCost} rides along in the Reactor context for {@link #accountResponse}
+     */
+    private <T> T block(Mono<T> response) {
+        RequestCost cost = RequestCost.current();
+        if (!isNull(cost)) {
+            response = response.contextWrite(Context.of(RequestCost.class, cost));
+        }
+        Deadline deadline = Deadline.current();
+        if (isNull(deadline)) {
+            return response.block();
+        }
+        return response
+                .timeout(deadline.remaining(), Mono.error(() ->
+                        new DeadlineExceededException("Deadline passed waiting for a crypto.com response")))
+                .block();
+    }
+
+    private static int candlestickCount(CandleStickResponse response) {
+        return isNull(response.getResult()) || isNull(response.getResult().getData())
+                ? 0
+                : response.getResult().getData().size();
+    }
+
+    private static int tradeCount(GetTradesResponse response) {
+        return isNull(response.getResult()) || isNull(response.getResult().getData())
+                ? 0
+                : response.getResult().getData().size();
+    }
+
+    /**
+     * Hands a copy of each raw response body to the recorder before it is decoded, so the capture
+     * holds exactly what the exchange sent
+     */
+    private Mono<ClientResponse> recordResponse(ClientRequest request, ExchangeFunction next) {
+        if (!recorder.isEnabled()) {
+            return next.exchange(request);
+        }
+        return next.exchange(request)
+                .map(response -> response.mutate()
+                        .body(body -> DataBufferUtils.join(body)
+                                .doOnNext(joined -> recorder.record(request.url(), copyOf(joined)))
+                                .flux())
+                        .build());
+    }
+
+    /**
+     * Charges the event loop's work on the response body, decoding included, to the fetch stage of
+     * the request's cost account, since none of it runs on the thread waiting for the response
+     */
+    private Mono<ClientResponse> accountResponse(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(context -> {
+            RequestCost cost = context.getOrDefault(RequestCost.class, null);
+            if (isNull(cost)) {
+                return next.exchange(request);
+            }
+            return next.exchange(request)
+                    .map(response -> response.mutate()
+                            .body(body -> cost.measureSignals(body, CostStage.FETCH))
+                            .build());
+        });
+    }
+
+    //Reads through a separate view so the buffer is left unread for the decoder
+    private static byte[] copyOf(DataBuffer buffer) {
+        ByteBuffer view = buffer.asByteBuffer();
+        byte[] bytes = new byte[view.remaining()];
+        view.get(bytes);
+        return bytes;
+    }
 }
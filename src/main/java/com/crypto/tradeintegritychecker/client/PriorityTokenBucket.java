@@ -0,0 +1,128 @@
+package com.crypto.tradeintegritychecker.client;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token bucket with a prioritised wait queue. Permits are handed out strictly in queue order -
+ * highest priority first, then arrival order - so a steady stream of background calls can never
+ * starve an interactive request, and a waiting caller never loses its place to a newcomer of the
+ * same priority.
+ */
+public class PriorityTokenBucket {
+
+    private static final long MIN_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final double permitsPerNano;
+    private final double capacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+
+    private double tokens;
+    private long lastRefillNanos;
+    private long arrivalSequence;
+
+    public PriorityTokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate limit requires a positive rate and a burst of at least 1");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = burst;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Blocks until a permit is granted to the caller
+     *
+     * @return the time spent waiting, in nanoseconds
+     */
+    public long acquire(UpstreamPriority priority) throws InterruptedException {
+        return acquire(priority, Long.MAX_VALUE);
+    }
+
+    /**
+     * Blocks until a permit is granted to the caller or the timeout passes, in which case the
+     * caller gives up its place in the queue
+     *
+     * @return the time spent waiting in nanoseconds, or -1 if no permit was granted in time
+     */
+    public long acquire(UpstreamPriority priority, long timeoutNanos) throws InterruptedException {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            Waiter waiter = new Waiter(priority, arrivalSequence++);
+            waiters.add(waiter);
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    refill(now);
+                    if (waiters.peek() == waiter && tokens >= 1) {
+                        waiters.poll();
+                        tokens -= 1;
+                        // Wake the next in line so it can check for a spare token
+                        stateChanged.signalAll();
+                        return now - start;
+                    }
+                    long remaining = timeoutNanos - (now - start);
+                    if (remaining <= 0) {
+                        leave(waiter);
+                        return -1;
+                    }
+                    stateChanged.awaitNanos(
+                            Math.min(remaining, Math.max(nanosUntilNextToken(), MIN_WAIT_NANOS)));
+                }
+            } catch (InterruptedException e) {
+                leave(waiter);
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //Whoever was queued behind the departing waiter may now be first in line
+    private void leave(Waiter waiter) {
+        waiters.remove(waiter);
+        stateChanged.signalAll();
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+    }
+
+    private long nanosUntilNextToken() {
+        return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+    }
+
+    private static class Waiter implements Comparable<Waiter> {
+
+        private final UpstreamPriority priority;
+        private final long sequence;
+
+        private Waiter(UpstreamPriority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.crypto.tradeintegritychecker.client;
+
+/**
+ * Scheduling priority for upstream calls. Lower ordinal goes first when requests queue for a rate
+ * limit permit, so interactive API calls overtake batch and scheduled work
+ */
+public enum UpstreamPriority {
+
+    INTERACTIVE,
+    BACKGROUND;
+
+    private static final ThreadLocal<UpstreamPriority> CURRENT =
+            ThreadLocal.withInitial(() -> BACKGROUND);
+
+    //Threads that never entered a scope are treated as background work
+    public static UpstreamPriority current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Marks upstream calls made by the current thread with this priority until the returned scope
+     * is closed, at which point the previous priority is restored
+     */
+    public Scope enter() {
+        UpstreamPriority previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> CURRENT.set(previous);
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
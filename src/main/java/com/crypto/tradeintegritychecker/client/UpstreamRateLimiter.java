@@ -0,0 +1,92 @@
+package com.crypto.tradeintegritychecker.client;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.execution.Deadline;
+import com.crypto.tradeintegritychecker.execution.DeadlineExceededException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Holds one {@link PriorityTokenBucket} per crypto.com endpoint so that sustained throughput sits
+ * at the exchange rate limit instead of oscillating through 429 back-offs.
+ *
+ * <p>Callers are queued using the {@link UpstreamPriority} of the current thread
+ */
+@Slf4j
+@Component
+public class UpstreamRateLimiter {
+
+    public static final String CANDLESTICK_ENDPOINT = "get-candlestick";
+    public static final String TRADES_ENDPOINT = "get-trades";
+
+    private final boolean enabled;
+    private final Map<String, PriorityTokenBucket> buckets = new HashMap<>();
+    private final Map<String, Map<UpstreamPriority, Timer>> waitTimers = new HashMap<>();
+
+    public UpstreamRateLimiter(IntegrityCheckerProperties properties, MeterRegistry meterRegistry) {
+        IntegrityCheckerProperties.RateLimit rateLimit = properties.getRateLimit();
+        this.enabled = rateLimit.isEnabled();
+        register(CANDLESTICK_ENDPOINT, rateLimit.getCandlestick(), meterRegistry);
+        register(TRADES_ENDPOINT, rateLimit.getTrades(), meterRegistry);
+    }
+
+    /**
+     * Blocks the calling thread until the endpoint has capacity for one more request, giving up if
+     * the caller's {@link Deadline} passes first
+     *
+     * @param endpoint one of {@link #CANDLESTICK_ENDPOINT} or {@link #TRADES_ENDPOINT}
+     */
+    public void acquire(String endpoint) {
+        if (!enabled) {
+            return;
+        }
+        UpstreamPriority priority = UpstreamPriority.current();
+        Deadline deadline = Deadline.current();
+        try {
+            long waitedNanos = isNull(deadline)
+                    ? buckets.get(endpoint).acquire(priority)
+                    : buckets.get(endpoint).acquire(priority, deadline.remaining().toNanos());
+            if (waitedNanos < 0) {
+                throw new DeadlineExceededException("Deadline passed waiting for a " + endpoint + " rate limit permit");
+            }
+            waitTimers.get(endpoint).get(priority).record(waitedNanos, TimeUnit.NANOSECONDS);
+            if (waitedNanos > TimeUnit.SECONDS.toNanos(1)) {
+                log.info("Waited {} ms for a {} permit at {} priority",
+                        TimeUnit.NANOSECONDS.toMillis(waitedNanos), endpoint, priority);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a " + endpoint + " rate limit permit", e);
+        }
+    }
+
+    private void register(String endpoint, IntegrityCheckerProperties.Bucket config, MeterRegistry meterRegistry) {
+        PriorityTokenBucket bucket = new PriorityTokenBucket(config.getPermitsPerSecond(), config.getBurst());
+        buckets.put(endpoint, bucket);
+
+        Gauge.builder("integrity.upstream.queue.depth", bucket, PriorityTokenBucket::getQueueDepth)
+                .description("Upstream requests waiting for a rate limit permit")
+                .tag("endpoint", endpoint)
+                .register(meterRegistry);
+
+        Map<UpstreamPriority, Timer> timers = new EnumMap<>(UpstreamPriority.class);
+        for (UpstreamPriority priority : UpstreamPriority.values()) {
+            timers.put(priority, Timer.builder("integrity.upstream.queue.wait")
+                    .description("Time spent waiting for a rate limit permit")
+                    .tag("endpoint", endpoint)
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry));
+        }
+        waitTimers.put(endpoint, timers);
+    }
+}
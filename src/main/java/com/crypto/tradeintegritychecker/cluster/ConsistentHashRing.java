@@ -0,0 +1,60 @@
+package com.crypto.tradeintegritychecker.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable consistent hash ring. Each node is placed at a number of virtual points, and a key is
+ * owned by the first node clockwise from the key's hash, so adding or removing a node only moves
+ * the keys adjacent to that node's points
+ */
+public class ConsistentHashRing {
+
+  private final NavigableMap<Long, String> ring = new TreeMap<>();
+  private final Set<String> nodes;
+
+  public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+    this.nodes = Collections.unmodifiableSet(new TreeSet<>(nodes));
+    for (String node : this.nodes) {
+      for (int i = 0; i < virtualNodes; i++) {
+        ring.put(hash(node + "#" + i), node);
+      }
+    }
+  }
+
+  public Set<String> getNodes() {
+    return nodes;
+  }
+
+  /** @return the owning node, or null when the ring is empty */
+  public String ownerOf(String key) {
+    if (ring.isEmpty()) {
+      return null;
+    }
+    Map.Entry<Long, String> owner = ring.ceilingEntry(hash(key));
+    return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+  }
+
+  // First 8 bytes of the MD5 digest, well spread and identical on every node and JVM
+  private static long hash(String value) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+      long hash = 0;
+      for (int i = 0; i < 8; i++) {
+        hash = (hash << 8) | (digest[i] & 0xFF);
+      }
+      return hash;
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("MD5 is required to be available on every JVM", e);
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package com.crypto.tradeintegritychecker.cluster;
+
+import com.crypto.tradeintegritychecker.accounting.RequestCost;
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.execution.Deadline;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Relays requests for instruments owned by another node. Forwarded requests are marked with
+ * {@link #FORWARDED_HEADER} and always evaluated by the receiver, so nodes that briefly disagree on
+ * membership cannot bounce a request back and forth.
+ *
+ * <p>Whatever the owner answers is relayed, errors included. An owner that cannot be reached is
+ * answered with 502, and one that does not answer within the forward timeout with 504
+ */
+@Slf4j
+@Component
+public class ShardForwarder {
+
+  public static final String FORWARDED_HEADER = "X-Integrity-Checker-Forwarded";
+
+  private static final List<String> RELAYED_HEADERS =
+      List.of(HttpHeaders.RETRY_AFTER, RequestCost.SERVER_TIMING_HEADER);
+
+  private static final ParameterizedTypeReference<Map<String, JsonNode>> BATCH_RESPONSE =
+      new ParameterizedTypeReference<Map<String, JsonNode>>() {};
+
+  // Responses between nodes are gzipped, the relay hands the decompressed body on
+  private final WebClient webClient =
+      WebClient.builder()
+          .clientConnector(new ReactorClientHttpConnector(HttpClient.create().compress(true)))
+          .build();
+
+  private final Duration forwardTimeout;
+
+  public ShardForwarder(IntegrityCheckerProperties properties) {
+    this.forwardTimeout = properties.getSharding().getForwardTimeout();
+  }
+
+  /**
+   * Relays a single instrument check, returning the owner's response body untouched. The time left
+   * on the deadline, if any, is passed on as the owner's budget so it returns a partial summary
+   * in time rather than the relay giving up on it. The caller's Accept header is passed on so the
+   * owner answers in the format the caller asked for
+   */
+  public ResponseEntity<byte[]> forwardCheck(
+      String owner,
+      String instrumentName,
+      String interval,
+      Deadline deadline,
+      boolean debug,
+      String accept) {
+    log.info("Forwarding integrity check for Instrument: {} to owning node {}", instrumentName, owner);
+    // At least 1 ms, the owner rejects a budget of zero
+    String budget =
+        isNull(deadline) ? "" : "&budgetMs=" + Math.max(1, deadline.remaining().toMillis());
+    ResponseEntity<byte[]> response =
+        webClient
+            .get()
+            .uri(
+                owner + "/run-checker/{instrumentName}/{interval}?debug={debug}" + budget,
+                instrumentName,
+                interval,
+                debug)
+            .header(FORWARDED_HEADER, "true")
+            .headers(headers -> headers.set(HttpHeaders.ACCEPT, isNull(accept) ? "*/*" : accept))
+            .exchangeToMono(owned -> owned.toEntity(byte[].class))
+            .timeout(forwardTimeout)
+            .onErrorResume(
+                TimeoutException.class,
+                e -> Mono.just(unanswered(owner, HttpStatus.GATEWAY_TIMEOUT, e)))
+            .onErrorResume(
+                WebClientRequestException.class,
+                e -> Mono.just(unanswered(owner, HttpStatus.BAD_GATEWAY, e)))
+            .block();
+    // Only the status, type, retry hint, cost breakdown and body are relayed, transport headers
+    // belong to the owner's connection
+    ResponseEntity.BodyBuilder relayed =
+        ResponseEntity.status(response.getStatusCode())
+            .contentType(response.getHeaders().getContentType());
+    for (String header : RELAYED_HEADERS) {
+      String value = response.getHeaders().getFirst(header);
+      if (!isNull(value)) {
+        relayed.header(header, value);
+      }
+    }
+    return relayed.body(response.getBody());
+  }
+
+  /**
+   * Relays the owner's share of a batch, keyed by instrument like a local batch result. The batch
+   * fails with the owner's status if the owner's share fails
+   */
+  public Map<String, JsonNode> forwardBatch(String owner, List<String> instrumentNames, String interval) {
+    log.info("Forwarding batch of {} instruments to owning node {}", instrumentNames.size(), owner);
+    return webClient
+        .get()
+        .uri(
+            owner + "/run-checker/batch/{interval}?instruments={instruments}",
+            interval,
+            String.join(",", instrumentNames))
+        .header(FORWARDED_HEADER, "true")
+        .retrieve()
+        .bodyToMono(BATCH_RESPONSE)
+        .timeout(forwardTimeout)
+        .onErrorMap(
+            WebClientResponseException.class,
+            e -> new ResponseStatusException(e.getStatusCode(), owner + " failed its share", e))
+        .onErrorMap(
+            TimeoutException.class,
+            e -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, owner + " timed out", e))
+        .onErrorMap(
+            WebClientRequestException.class,
+            e -> new ResponseStatusException(HttpStatus.BAD_GATEWAY, owner + " is unreachable", e))
+        .block();
+  }
+
+  private ResponseEntity<byte[]> unanswered(String owner, HttpStatus status, Throwable cause) {
+    log.warn("Forwarding to owning node {} failed: {}", owner, cause.toString());
+    return ResponseEntity.status(status).build();
+  }
+}
@@ -0,0 +1,138 @@
+package com.crypto.tradeintegritychecker.cluster;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Decides which checker node owns an instrument. Membership comes from a static list or from a
+ * file that is re-read periodically - when the membership changes the ring is rebuilt and the
+ * instruments adjacent to the added or removed node move, everything else stays put
+ */
+@Slf4j
+@Component
+public class ShardRouter {
+
+  private final IntegrityCheckerProperties.Sharding config;
+  private volatile ConsistentHashRing ring;
+  private ScheduledExecutorService membershipRefresher;
+
+  public ShardRouter(IntegrityCheckerProperties properties) {
+    this.config = properties.getSharding();
+  }
+
+  @PostConstruct
+  public void init() {
+    if (!config.isEnabled()) {
+      return;
+    }
+    refreshMembership();
+    if (!isNull(config.getMembershipFile())) {
+      membershipRefresher =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "shard-membership");
+                thread.setDaemon(true);
+                return thread;
+              });
+      long interval = config.getMembershipRefreshInterval().toMillis();
+      membershipRefresher.scheduleWithFixedDelay(
+          this::refreshMembership, interval, interval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (membershipRefresher != null) {
+      membershipRefresher.shutdownNow();
+    }
+  }
+
+  public boolean isEnabled() {
+    return config.isEnabled();
+  }
+
+  public String getSelf() {
+    return config.getSelf();
+  }
+
+  public Set<String> getMembers() {
+    ConsistentHashRing current = ring;
+    return isNull(current) ? Collections.singleton(config.getSelf()) : current.getNodes();
+  }
+
+  public String ownerOf(String instrumentName) {
+    ConsistentHashRing current = ring;
+    String owner = isNull(current) ? null : current.ownerOf(instrumentName);
+    return isNull(owner) ? config.getSelf() : owner;
+  }
+
+  /** True when sharding is off, or this node owns the instrument */
+  public boolean isLocal(String instrumentName) {
+    return !config.isEnabled() || config.getSelf().equals(ownerOf(instrumentName));
+  }
+
+  /** Groups instruments by owning node, preserving the requested order within each group */
+  public Map<String, List<String>> partitionByOwner(Collection<String> instrumentNames) {
+    Map<String, List<String>> byOwner = new LinkedHashMap<>();
+    for (String instrument : instrumentNames) {
+      String owner = config.isEnabled() ? ownerOf(instrument) : config.getSelf();
+      byOwner.computeIfAbsent(owner, node -> new ArrayList<>()).add(instrument);
+    }
+    return byOwner;
+  }
+
+  void refreshMembership() {
+    List<String> nodes;
+    try {
+      nodes = isNull(config.getMembershipFile()) ? config.getNodes() : readMembershipFile();
+    } catch (IOException e) {
+      log.warn(
+          "Unable to read membership file {}, keeping current membership",
+          config.getMembershipFile());
+      return;
+    }
+    Set<String> members = new HashSet<>(nodes);
+    if (members.isEmpty()) {
+      // A node always owns at least its own work
+      members.add(config.getSelf());
+    }
+    ConsistentHashRing current = ring;
+    if (current == null || !current.getNodes().equals(members)) {
+      if (current != null) {
+        log.info("Shard membership changed from {} to {}, rebalancing", current.getNodes(), members);
+      }
+      ring = new ConsistentHashRing(members, config.getVirtualNodes());
+      if (!members.contains(config.getSelf())) {
+        log.warn("This node {} is not in the shard membership {}", config.getSelf(), members);
+      }
+    }
+  }
+
+  private List<String> readMembershipFile() throws IOException {
+    return Files.readAllLines(Paths.get(config.getMembershipFile())).stream()
+        .map(String::trim)
+        .filter(line -> !line.isEmpty() && !line.startsWith("#"))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,116 @@
+package com.crypto.tradeintegritychecker.codec;
+
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Decodes run-checker responses for Java consumers, whichever format and content encoding the
+ * checker answered with. Send {@link #ACCEPT} and {@link #ACCEPT_ENCODING} with the request and
+ * hand the response body to {@link #decode} along with its Content-Type and Content-Encoding
+ * headers. Only Jackson and its Smile and CBOR data formats are needed on the consumer's side.
+ *
+ * <p>Fields added to the summary by newer checkers are ignored, so consumers can upgrade later
+ */
+public class IntegritySummaryDecoder {
+
+  public static final String SMILE = "application/x-jackson-smile";
+  public static final String CBOR = "application/cbor";
+  public static final String JSON = "application/json";
+
+  /** Smile is the most compact, JSON is still accepted from checkers without binary support */
+  public static final String ACCEPT = SMILE + ", " + CBOR + ";q=0.9, " + JSON + ";q=0.8";
+  public static final String ACCEPT_ENCODING = "gzip, deflate";
+
+  private final ObjectMapper smileMapper =
+      new SmileMapper(smileFactory())
+          .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+  private final ObjectMapper cborMapper =
+      new CBORMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+  private final ObjectMapper jsonMapper =
+      new JsonMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+  public IntegritySummary decode(byte[] body, String contentType, String contentEncoding)
+      throws IOException {
+    return decode(new ByteArrayInputStream(body), contentType, contentEncoding);
+  }
+
+  public IntegritySummary decode(InputStream body, String contentType, String contentEncoding)
+      throws IOException {
+    try (InputStream decoded = decompress(body, contentEncoding)) {
+      return mapperFor(contentType).readValue(decoded, IntegritySummary.class);
+    }
+  }
+
+  /**
+   * Decodes any other response, e.g. a batch run with
+   * {@code new TypeReference<Map<String, IntegritySummary>>() {}}
+   */
+  public <T> T decode(
+      InputStream body, String contentType, String contentEncoding, TypeReference<T> type)
+      throws IOException {
+    try (InputStream decoded = decompress(body, contentEncoding)) {
+      return mapperFor(contentType).readValue(decoded, type);
+    }
+  }
+
+  /**
+   * Repeated string values are written once and referenced after, on top of Smile's default of
+   * doing so for field names. The checker's responses repeat instruments, rules and sides a lot
+   */
+  static SmileFactory smileFactory() {
+    return SmileFactory.builder()
+        .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+        .build();
+  }
+
+  private ObjectMapper mapperFor(String contentType) throws IOException {
+    if (isNull(contentType)) {
+      return jsonMapper;
+    }
+    String mediaType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+    if (mediaType.equals(SMILE)) {
+      return smileMapper;
+    }
+    if (mediaType.equals(CBOR)) {
+      return cborMapper;
+    }
+    if (mediaType.equals(JSON) || mediaType.endsWith("+json")) {
+      return jsonMapper;
+    }
+    throw new IOException("Unsupported response content type " + contentType);
+  }
+
+  private static InputStream decompress(InputStream body, String contentEncoding)
+      throws IOException {
+    String encoding =
+        isNull(contentEncoding) ? "" : contentEncoding.trim().toLowerCase(Locale.ROOT);
+    switch (encoding) {
+      case "":
+      case "identity":
+        return body;
+      case "gzip":
+      case "x-gzip":
+        return new GZIPInputStream(body);
+      case "deflate":
+        return new InflaterInputStream(body);
+      default:
+        throw new IOException("Unsupported response content encoding " + contentEncoding);
+    }
+  }
+}
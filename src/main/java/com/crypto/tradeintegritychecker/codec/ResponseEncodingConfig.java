@@ -0,0 +1,34 @@
+package com.crypto.tradeintegritychecker.codec;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Binary alternatives to JSON for every response, chosen by the caller's Accept header. Smile and
+ * CBOR write field names and BigDecimals compactly, and Smile also writes repeated strings such as
+ * the instrument, rule and side once per document. JSON stays the default for callers that do not
+ * ask. Compression for all three is switched on with the {@code server.compression.*} properties
+ *
+ * <p>These replace the converters Spring registers by default, so both formats pick up the
+ * application's Jackson configuration
+ */
+@Configuration
+public class ResponseEncodingConfig {
+
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(
+      Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2SmileHttpMessageConverter(
+        builder.factory(IntegritySummaryDecoder.smileFactory()).build());
+  }
+
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(
+      Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+  }
+}
@@ -0,0 +1,362 @@
+package com.crypto.tradeintegritychecker.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tunables for the checker, bound from the {@code integrity-checker.*} properties. Every value
+ * has a default so the application runs without any configuration
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "integrity-checker")
+public class IntegrityCheckerProperties {
+
+  private RateLimit rateLimit = new RateLimit();
+  private Batch batch = new Batch();
+  private FetchPlanner fetchPlanner = new FetchPlanner();
+  private History history = new History();
+  private Stream stream = new Stream();
+  private Sharding sharding = new Sharding();
+  private Pipeline pipeline = new Pipeline();
+  private Execution execution = new Execution();
+  private Export export = new Export();
+  private Recording recording = new Recording();
+  private Journal journal = new Journal();
+  private ViolationLog violationLog = new ViolationLog();
+  private Deviations deviations = new Deviations();
+  private Registry registry = new Registry();
+  private Snapshot snapshot = new Snapshot();
+  private Admission admission = new Admission();
+  private FlightRecorder flightRecorder = new FlightRecorder();
+  private MarketData marketData = new MarketData();
+
+  /**
+   * Client side token buckets for the crypto.com public endpoints. The exchange allows 100
+   * requests per second per endpoint, so the defaults keep rate + burst within one second's quota
+   */
+  @Data
+  public static class RateLimit {
+
+    private boolean enabled = true;
+    private Bucket candlestick = new Bucket();
+    private Bucket trades = new Bucket();
+  }
+
+  @Data
+  public static class Bucket {
+
+    /** Sustained number of upstream requests allowed per second */
+    private double permitsPerSecond = 90;
+
+    /** Number of requests that may be issued back to back after an idle period */
+    private int burst = 10;
+  }
+
+  @Data
+  public static class Batch {
+
+    /** Where batch runs source their trades from */
+    private TradesSource tradesSource = TradesSource.PER_INSTRUMENT;
+  }
+
+  /**
+   * Fetches trades first and then requests only the candles overlapping them. Saves most of the
+   * candlestick payload at the cost of running the two upstream calls one after the other
+   */
+  @Data
+  public static class FetchPlanner {
+
+    private boolean enabled = false;
+
+    /** Extra candles requested either side of the window covered by the trades */
+    private int marginCandles = 2;
+  }
+
+  /**
+   * Append-only store of every run's summary and violations, indexed for range queries. Off unless
+   * enabled, as it writes to the working directory and keeps its index in memory
+   */
+  @Data
+  public static class History {
+
+    private boolean enabled = false;
+    private String directory = "history";
+
+    /** Runs evaluated longer than this before the latest run are dropped from the index */
+    private Duration retention = Duration.ofDays(30);
+
+    /** Most runs kept across all instruments, the oldest are dropped first */
+    private int maxRuns = 100_000;
+  }
+
+  /**
+   * Continuous ingestion from the exchange's market data WebSocket, evaluating each candle once it
+   * has closed instead of polling the REST endpoints
+   */
+  @Data
+  public static class Stream {
+
+    private boolean enabled = false;
+    private String url = "wss://stream.crypto.com/v2/market";
+    private List<String> instruments = new ArrayList<>();
+
+    /** Candlestick interval to subscribe to, in the exchange format e.g. 1m, 5m, 1h */
+    private String timeframe = "1m";
+
+    /** The exchange asks clients to pause after connecting before sending any request */
+    private Duration subscribeDelay = Duration.ofSeconds(1);
+
+    /** Reconnect when nothing, not even a heartbeat, has been received for this long */
+    private Duration idleTimeout = Duration.ofSeconds(60);
+
+    private Duration initialReconnectDelay = Duration.ofSeconds(1);
+    private Duration maxReconnectDelay = Duration.ofSeconds(30);
+
+    /** How long after a candle closes to wait for late trades before evaluating it */
+    private Duration evaluationDelay = Duration.ofSeconds(2);
+
+    /** Retries of a failed backfill, backing off between them like reconnects do */
+    private int backfillRetries = 4;
+
+    /**
+     * A connection gap still open this long after it started is given up on. Its candles are
+     * skipped as not analysed and coverage restarts after it, rather than every later candle being
+     * held back
+     */
+    private Duration maxGap = Duration.ofMinutes(10);
+  }
+
+  /**
+   * Splits instruments across several checker nodes by consistent hashing. Nodes are identified
+   * by their base URL, which is also where requests for instruments they own are forwarded
+   */
+  @Data
+  public static class Sharding {
+
+    private boolean enabled = false;
+
+    /** This node's own entry in the membership list */
+    private String self = "http://localhost:8080";
+
+    /** Static membership, used when no membership file is configured */
+    private List<String> nodes = new ArrayList<>();
+
+    /** Optional file listing one node per line, re-read periodically so nodes can join or leave */
+    private String membershipFile;
+
+    private Duration membershipRefreshInterval = Duration.ofSeconds(10);
+
+    /** Points per node on the hash ring, more points give a more even split */
+    private int virtualNodes = 128;
+
+    /** How long a forwarded request waits on the owning node before answering 504 */
+    private Duration forwardTimeout = Duration.ofSeconds(30);
+  }
+
+  /**
+   * Staged fetch/evaluate pipeline used by batch runs. Each lane has one fetch thread handing
+   * fetched data to its evaluation workers through a preallocated ring buffer
+   */
+  @Data
+  public static class Pipeline {
+
+    private boolean enabled = false;
+    private int lanes = 2;
+    private int evaluationWorkers = 2;
+
+    /** Slots per lane's ring buffer, must be a power of two */
+    private int ringCapacity = 64;
+
+    /** Instruments each lane queues before submitters block */
+    private int intakeCapacity = 256;
+
+    private WaitStrategyType waitStrategy = WaitStrategyType.BLOCKING;
+  }
+
+  /** Threads that instrument fetches and evaluations run on */
+  @Data
+  public static class Execution {
+
+    private ExecutionMode mode = ExecutionMode.PLATFORM;
+
+    /** Threads in each level of the platform mode pools, also the number of instruments a batch checks at once */
+    private int platformPoolSize = 16;
+
+    /** Tasks each platform mode pool queues while its threads are busy, further tasks are rejected */
+    private int platformQueueCapacity = 1024;
+
+    /** Deadline for the upstream fetches of a single instrument check */
+    private Duration callTimeout = Duration.ofSeconds(10);
+
+    /** Deadline for every instrument in a batch run to complete */
+    private Duration batchTimeout = Duration.ofMinutes(10);
+  }
+
+  @Data
+  public static class Export {
+
+    /** Also write each run's data as a compressed columnar capture, which can be reloaded later */
+    private boolean columnar = false;
+  }
+
+  /** Raw upstream responses appended to a compressed capture log, for replay after the fact */
+  @Data
+  public static class Recording {
+
+    private boolean enabled = false;
+    private String directory = "recordings";
+
+    /** Responses waiting for the recording thread, further responses are dropped from the capture */
+    private int queueCapacity = 1024;
+  }
+
+  /** Memory-mapped, append-only journal of violations that other processes can tail */
+  @Data
+  public static class Journal {
+
+    private boolean enabled = false;
+    private String directory = "journal";
+
+    /** Records per segment file, each record takes 80 bytes */
+    private int segmentRecords = 65536;
+
+    /** Segments kept on disk, the oldest are deleted as new ones are created */
+    private int retainedSegments = 16;
+  }
+
+  /** Per instrument and rule limit on logged violations, the excess is summarised as a count */
+  @Data
+  public static class ViolationLog {
+
+    private int maxPerWindow = 10;
+    private Duration window = Duration.ofMinutes(1);
+  }
+
+  /**
+   * Quantile sketches of candle versus trade deviations. Each key takes at most 8 bytes per bin,
+   * and quantiles are accurate to the relative accuracy
+   */
+  @Data
+  public static class Deviations {
+
+    private double relativeAccuracy = 0.02;
+    private int maxBins = 512;
+  }
+
+  /** Budget for all per-instrument state, least recently checked instruments are evicted first */
+  @Data
+  public static class Registry {
+
+    private DataSize memoryBudget = DataSize.ofMegabytes(64);
+  }
+
+  /** Periodic snapshots of the streaming buffers, restored on startup */
+  @Data
+  public static class Snapshot {
+
+    private boolean enabled = false;
+    private String directory = "snapshots";
+    private Duration interval = Duration.ofSeconds(30);
+  }
+
+  /**
+   * Latency-adaptive concurrency limits on the run-checker endpoints. Requests over the limit are
+   * turned away with a 503 and Retry-After rather than queued
+   */
+  @Data
+  public static class Admission {
+
+    private boolean enabled = true;
+    private ConcurrencyLimit interactive = new ConcurrencyLimit(20, 4, 200);
+    private ConcurrencyLimit batch = new ConcurrencyLimit(4, 1, 16);
+
+    /** How far latency may rise above the best recently seen before the limit is cut */
+    private double tolerance = 1.5;
+
+    /** Span over which the best latency is tracked, so the baseline can follow a slower upstream */
+    private Duration baselineWindow = Duration.ofMinutes(1);
+
+    /** Weight of each latency sample when moving the limit, lower is steadier */
+    private double smoothing = 0.2;
+  }
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class ConcurrencyLimit {
+
+    /** Requests admitted at once before any latency has been observed */
+    private int initialLimit = 20;
+    private int minLimit = 1;
+    private int maxLimit = 200;
+  }
+
+  /** In-process continuous flight recording with the checker's own events enabled */
+  @Data
+  public static class FlightRecorder {
+
+    private boolean enabled = false;
+    private String directory = "flight-recordings";
+    private Duration maxAge = Duration.ofHours(6);
+    private DataSize maxSize = DataSize.ofMegabytes(256);
+  }
+
+  /** Where candlesticks and trades are read from, and how far batches read ahead */
+  @Data
+  public static class MarketData {
+
+    private MarketDataSourceType source = MarketDataSourceType.REST;
+
+    /** Read by the FILES and CAPTURES sources */
+    private String directory = "market-data";
+
+    /**
+     * Instruments a batch fetches ahead of the ones being evaluated, so the next instrument's data
+     * is ready by the time it is needed. 0 fetches each instrument only when it is evaluated
+     */
+    private int readAheadDepth = 2;
+  }
+
+  public enum ExecutionMode {
+    /** Fixed pools of platform threads, one for each level of nested tasks */
+    PLATFORM,
+    /** A virtual thread per task, requires Java 21 and falls back to platform mode otherwise */
+    VIRTUAL
+  }
+
+  public enum WaitStrategyType {
+    /** Lowest hand-off latency, keeps a core busy for every waiting thread */
+    BUSY_SPIN,
+    /** Spins briefly, then yields the core between checks */
+    YIELDING,
+    /** Spins, yields, then parks for short intervals - low CPU with sub-millisecond latency */
+    SLEEPING,
+    /** Parks until signalled, the cheapest option when the pipeline is mostly idle */
+    BLOCKING
+  }
+
+  public enum TradesSource {
+    /** One get-trades request per instrument, returning up to 200 trades each */
+    PER_INSTRUMENT,
+    /** One get-trades request per batch, partitioned by instrument name */
+    ALL_INSTRUMENT_FEED
+  }
+
+  public enum MarketDataSourceType {
+    /** The crypto.com public REST API */
+    REST,
+    /** JSON or CSV candlestick and trade files, one pair per instrument */
+    FILES,
+    /** Columnar captures written with export.columnar, the latest per instrument */
+    CAPTURES
+  }
+}
@@ -0,0 +1,49 @@
+package com.crypto.tradeintegritychecker.controller;
+
+import com.crypto.tradeintegritychecker.sketch.DeviationSketches;
+import com.crypto.tradeintegritychecker.sketch.DeviationSummary;
+import com.crypto.tradeintegritychecker.sketch.KeyedDeviationSketch;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Deviation distributions since startup. The raw sketches can be fetched from one node and posted
+ * to another, or kept from an earlier run and posted back, to merge them
+ */
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/deviations")
+public class DeviationController {
+
+  private final DeviationSketches deviationSketches;
+
+  @GetMapping
+  public ResponseEntity<List<DeviationSummary>> getSummaries(
+      @RequestParam(required = false) String instrumentName) {
+    return ResponseEntity.ok(deviationSketches.summaries(instrumentName));
+  }
+
+  @GetMapping("/sketches")
+  public ResponseEntity<List<KeyedDeviationSketch>> getSketches() {
+    return ResponseEntity.ok(deviationSketches.export());
+  }
+
+  /**
+   * Adds the posted sketches to this node's. Not idempotent: every post is counted again, so the
+   * same export posted twice, or an export of sketches this node already merged, double counts
+   * those candles. Post each export once
+   */
+  @PostMapping("/sketches")
+  public ResponseEntity<Void> mergeSketches(@RequestBody List<KeyedDeviationSketch> sketches) {
+    deviationSketches.merge(sketches);
+    return ResponseEntity.noContent().build();
+  }
+}
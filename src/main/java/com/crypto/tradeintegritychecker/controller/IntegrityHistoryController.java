@@ -0,0 +1,63 @@
+package com.crypto.tradeintegritychecker.controller;
+
+import com.crypto.tradeintegritychecker.history.HistoryAggregate;
+import com.crypto.tradeintegritychecker.history.IntegrityHistoryStore;
+import com.crypto.tradeintegritychecker.history.IntegrityRunRecord;
+import com.crypto.tradeintegritychecker.history.ViolationRecord;
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+/**
+ * Read-only queries over persisted integrity runs. Ranges are epoch milliseconds, inclusive of
+ * {@code from} and exclusive of {@code to}, and default to all of history
+ */
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/history/{instrumentName}/{interval}")
+public class IntegrityHistoryController {
+
+  private final IntegrityHistoryStore historyStore;
+
+  @GetMapping("/runs")
+  public ResponseEntity<List<IntegrityRunRecord>> getRuns(
+      @PathVariable String instrumentName,
+      @PathVariable String interval,
+      @RequestParam(defaultValue = "0") long from,
+      @RequestParam(defaultValue = "" + Long.MAX_VALUE) long to) {
+    return ResponseEntity.ok(
+        historyStore.findRuns(
+            instrumentName, Timeframe.getTimeframeFromString(interval), from, to));
+  }
+
+  @GetMapping("/violations")
+  public ResponseEntity<List<ViolationRecord>> getViolations(
+      @PathVariable String instrumentName,
+      @PathVariable String interval,
+      @RequestParam(required = false) ValidationRule rule,
+      @RequestParam(defaultValue = "0") long from,
+      @RequestParam(defaultValue = "" + Long.MAX_VALUE) long to) {
+    return ResponseEntity.ok(
+        historyStore.findViolations(
+            instrumentName, Timeframe.getTimeframeFromString(interval), rule, from, to));
+  }
+
+  @GetMapping("/aggregate")
+  public ResponseEntity<HistoryAggregate> getAggregate(
+      @PathVariable String instrumentName,
+      @PathVariable String interval,
+      @RequestParam(defaultValue = "0") long from,
+      @RequestParam(defaultValue = "" + Long.MAX_VALUE) long to) {
+    return ResponseEntity.ok(
+        historyStore.aggregate(
+            instrumentName, Timeframe.getTimeframeFromString(interval), from, to));
+  }
+}
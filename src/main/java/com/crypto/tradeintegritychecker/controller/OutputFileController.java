@@ -0,0 +1,193 @@
+package com.crypto.tradeintegritychecker.controller;
+
+import com.crypto.tradeintegritychecker.writer.OutputFile;
+import com.crypto.tradeintegritychecker.writer.OutputFiles;
+import lombok.RequiredArgsConstructor;
+import org.apache.tomcat.util.http.parser.AcceptEncoding;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Lists and serves the CSV and capture files from the output folder. On Tomcat plain downloads are
+ * handed to the connector's sendfile support, so the kernel copies the file straight to the socket
+ * and no request thread waits on the transfer. Byte ranges are supported that way too, CSVs can be
+ * gzipped on the fly for clients that accept it, and anything else is served by Spring's resource
+ * and resource region support
+ */
+@RequiredArgsConstructor
+@RestController
+@RequestMapping("/files")
+public class OutputFileController {
+
+  static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+  static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  private static final String GZIP = "gzip";
+  private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+  private final OutputFiles outputFiles;
+
+  @GetMapping
+  public ResponseEntity<List<OutputFile>> listFiles() throws IOException {
+    return ResponseEntity.ok(outputFiles.list());
+  }
+
+  /**
+   * Downloads a file, handing it to sendfile where the connector supports it. Otherwise Spring
+   * serves the resource, answering a Range header with a 206 of the requested regions
+   */
+  @GetMapping("/{fileName}")
+  public ResponseEntity<Resource> downloadFile(
+      @PathVariable String fileName,
+      @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+      HttpServletRequest request)
+      throws IOException {
+    Path file = outputFiles.resolve(fileName);
+    long length = Files.size(file);
+    MediaType mediaType = mediaType(fileName);
+
+    if (length > 0 && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+      // Multipart byte ranges are rarely used by download clients, those get the whole file instead
+      List<HttpRange> ranges =
+          isNull(range) ? Collections.emptyList() : HttpRange.parseRanges(range);
+      return sendfile(request, file, length, mediaType, ranges.size() == 1 ? ranges.get(0) : null);
+    }
+    return ResponseEntity.ok()
+        .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+        .contentType(mediaType)
+        .body(new FileSystemResource(file));
+  }
+
+  /**
+   * Whole CSV downloads from clients that send an Accept-Encoding, gzipped when gzip is accepted.
+   * Range requests are left to {@link #downloadFile}, ranges apply to the uncompressed file
+   */
+  @GetMapping(
+      value = "/{fileName:.+\\.csv}",
+      headers = {HttpHeaders.ACCEPT_ENCODING, "!" + HttpHeaders.RANGE})
+  public ResponseEntity<StreamingResponseBody> downloadCsv(
+      @PathVariable String fileName,
+      @RequestHeader(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding)
+      throws IOException {
+    Path file = outputFiles.resolve(fileName);
+    if (!acceptsGzip(acceptEncoding)) {
+      return ResponseEntity.ok()
+          .contentType(mediaType(fileName))
+          .contentLength(Files.size(file))
+          .body(out -> Files.copy(file, out));
+    }
+    return gzipped(file, mediaType(fileName));
+  }
+
+  @ExceptionHandler(NoSuchFileException.class)
+  public ResponseEntity<Void> fileNotFound() {
+    return ResponseEntity.notFound().build();
+  }
+
+  @ExceptionHandler(IllegalArgumentException.class)
+  public ResponseEntity<Void> rangeNotSatisfiable() {
+    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).build();
+  }
+
+  /**
+   * Sets the Tomcat sendfile attributes and returns headers only. The connector sends the file
+   * once the response is committed, the request thread is released straight away
+   */
+  private <T> ResponseEntity<T> sendfile(
+      HttpServletRequest request, Path file, long length, MediaType mediaType, HttpRange range) {
+    long start = nonNull(range) ? range.getRangeStart(length) : 0;
+    long end = nonNull(range) ? range.getRangeEnd(length) : length - 1;
+    if (start >= length || start > end) {
+      throw new IllegalArgumentException("Range " + range + " is outside of " + length + " bytes");
+    }
+    request.setAttribute(SENDFILE_FILENAME, file.toString());
+    request.setAttribute(SENDFILE_START, start);
+    request.setAttribute(SENDFILE_END, end + 1);
+
+    ResponseEntity.BodyBuilder response =
+        nonNull(range)
+            ? ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length)
+            : ResponseEntity.ok();
+    return response
+        .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+        .contentType(mediaType)
+        .contentLength(end - start + 1)
+        .build();
+  }
+
+  /** Compresses while streaming, asynchronously so the request thread is not held for the copy */
+  private ResponseEntity<StreamingResponseBody> gzipped(Path file, MediaType mediaType) {
+    StreamingResponseBody body =
+        out -> {
+          try (InputStream in = Files.newInputStream(file);
+              GZIPOutputStream gzip = new GZIPOutputStream(out, GZIP_BUFFER_SIZE)) {
+            in.transferTo(gzip);
+          }
+        };
+    return ResponseEntity.ok()
+        .header(HttpHeaders.CONTENT_ENCODING, GZIP)
+        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+        .contentType(mediaType)
+        .body(body);
+  }
+
+  private static MediaType mediaType(String fileName) {
+    return MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM);
+  }
+
+  /**
+   * Whether gzip is acceptable by its quality value, parsed with Tomcat's header parser. An
+   * explicit gzip entry wins over the wildcard, and a quality of 0 refuses the coding
+   */
+  private boolean acceptsGzip(String acceptEncoding) {
+    if (isNull(acceptEncoding)) {
+      return false;
+    }
+    List<AcceptEncoding> codings;
+    try {
+      codings = AcceptEncoding.parse(new StringReader(acceptEncoding));
+    } catch (IOException e) {
+      return false;
+    }
+    Double wildcard = null;
+    for (AcceptEncoding coding : codings) {
+      if (GZIP.equalsIgnoreCase(coding.getEncoding())) {
+        return coding.getQuality() > 0;
+      }
+      if ("*".equals(coding.getEncoding())) {
+        wildcard = coding.getQuality();
+      }
+    }
+    return nonNull(wildcard) && wildcard > 0;
+  }
+}
@@ -0,0 +1,30 @@
+package com.crypto.tradeintegritychecker.controller;
+
+import com.crypto.tradeintegritychecker.recording.ReplayReport;
+import com.crypto.tradeintegritychecker.recording.ReplaySource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * Replays a recorded upstream capture through the checker. Speed 1 is the recorded pace, N is N
+ * times faster and 0 replays as fast as possible
+ */
+@RequiredArgsConstructor
+@RestController
+public class ReplayController {
+
+  private final ReplaySource replaySource;
+
+  @GetMapping("/replay/{fileName}")
+  public ResponseEntity<ReplayReport> replay(
+      @PathVariable String fileName, @RequestParam(defaultValue = "0") double speed)
+      throws IOException, InterruptedException {
+    return ResponseEntity.ok(replaySource.replay(fileName, speed));
+  }
+}
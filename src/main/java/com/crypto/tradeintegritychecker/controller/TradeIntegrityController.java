@@ -1,28 +1,159 @@
 package com.crypto.tradeintegritychecker.controller;
 
+import com.crypto.tradeintegritychecker.accounting.RequestCost;
 import com.crypto.tradeintegritychecker.client.CryptoClient;
+import com.crypto.tradeintegritychecker.client.UpstreamPriority;
+import com.crypto.tradeintegritychecker.cluster.ShardForwarder;
+import com.crypto.tradeintegritychecker.cluster.ShardRouter;
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.execution.CheckerExecutor;
+import com.crypto.tradeintegritychecker.execution.Deadline;
+import com.crypto.tradeintegritychecker.execution.TaskScope;
 import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
 import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.service.BatchIntegrityService;
+import com.crypto.tradeintegritychecker.service.IntegrityCheckCoalescer;
 import com.crypto.tradeintegritychecker.service.IntegrityService;
+import com.crypto.tradeintegritychecker.writer.ColumnarFileWriter;
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
 /** Controller class created to facilitate manual testing */
 @RequiredArgsConstructor
 @RestController
 public class TradeIntegrityController {
 
   private final IntegrityService integrityService;
+  private final IntegrityCheckCoalescer integrityCheckCoalescer;
+  private final BatchIntegrityService batchIntegrityService;
   private final CryptoClient cryptoClient;
+  private final ShardRouter shardRouter;
+  private final ShardForwarder shardForwarder;
+  private final ColumnarFileWriter columnarFileWriter;
+  private final CheckerExecutor checkerExecutor;
+  private final IntegrityCheckerProperties properties;
 
+  /**
+   * The response carries a Server-Timing header breaking the request's wall time, CPU time and
+   * allocation down by stage. A caller that joined an evaluation already in flight is only charged
+   * for its own work
+   *
+   * @param budgetMs optional latency budget. Once it runs out, outstanding upstream calls and rule
+   *     evaluation are abandoned and a summary flagged as partial is returned
+   * @param debug also returns the per-stage costs in the summary
+   */
   @GetMapping("/run-checker/{instrumentName}/{interval}")
-  public ResponseEntity<IntegritySummary> runTradeIntegrityChecker(
+  public ResponseEntity<?> runTradeIntegrityChecker(
       @PathVariable String instrumentName,
-      @PathVariable String interval) {
-    return ResponseEntity.ok(integrityService.evaluateDataIntegrity(instrumentName, interval));
+      @PathVariable String interval,
+      @RequestParam(required = false) Long budgetMs,
+      @RequestParam(defaultValue = "false") boolean debug,
+      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+      @RequestHeader(value = ShardForwarder.FORWARDED_HEADER, required = false) String forwarded) {
+    if (nonNull(budgetMs) && budgetMs <= 0) {
+      return ResponseEntity.badRequest().body("budgetMs must be positive");
+    }
+    Deadline deadline = isNull(budgetMs) ? null : Deadline.after(Duration.ofMillis(budgetMs));
+    if (isNull(forwarded) && !shardRouter.isLocal(instrumentName)) {
+      return shardForwarder.forwardCheck(
+          shardRouter.ownerOf(instrumentName), instrumentName, interval, deadline, debug, accept);
+    }
+    RequestCost cost = new RequestCost();
+    IntegritySummary summary;
+    // Interactive calls are served ahead of batch and scheduled work when upstream is saturated
+    try (UpstreamPriority.Scope scope = UpstreamPriority.INTERACTIVE.enter();
+        Deadline.Scope deadlineScope = Deadline.enter(deadline);
+        RequestCost.Scope costScope = RequestCost.enter(cost)) {
+      summary = integrityCheckCoalescer.evaluateDataIntegrity(instrumentName, interval);
+    }
+    // Coalesced callers share the summary, so the costs go on a copy
+    if (debug && nonNull(summary)) {
+      summary = summary.toBuilder().costs(cost.snapshot()).build();
+    }
+    return ResponseEntity.ok()
+        .header(RequestCost.SERVER_TIMING_HEADER, cost.toServerTiming())
+        .body(summary);
+  }
+
+  /**
+   * Batch runs are background work, so they queue behind interactive calls for upstream permits.
+   * Instruments owned by other nodes are forwarded to them concurrently while this node evaluates
+   * its own share, and the summaries come back in the order requested
+   */
+  @SneakyThrows
+  @GetMapping("/run-checker/batch/{interval}")
+  public ResponseEntity<Map<String, Object>> runBatchTradeIntegrityChecker(
+      @PathVariable String interval,
+      @RequestParam List<String> instruments,
+      @RequestHeader(value = ShardForwarder.FORWARDED_HEADER, required = false) String forwarded) {
+    Timeframe timeframe = Timeframe.getTimeframeFromString(interval);
+    Map<String, Object> summaries = new LinkedHashMap<>();
+    if (nonNull(forwarded)) {
+      summaries.putAll(batchIntegrityService.evaluateDataIntegrity(instruments, timeframe));
+      return ResponseEntity.ok(summaries);
+    }
+    Map<String, List<String>> shares = shardRouter.partitionByOwner(instruments);
+    Map<String, Object> evaluated = new HashMap<>();
+    List<Future<Map<String, JsonNode>>> remoteShares = new ArrayList<>();
+    try (TaskScope scope =
+        checkerExecutor.openScope(properties.getExecution().getBatchTimeout())) {
+      shares.forEach(
+          (owner, ownedInstruments) -> {
+            if (!owner.equals(shardRouter.getSelf())) {
+              remoteShares.add(
+                  scope.fork(() -> shardForwarder.forwardBatch(owner, ownedInstruments, interval)));
+            }
+          });
+      List<String> localInstruments = shares.get(shardRouter.getSelf());
+      if (nonNull(localInstruments)) {
+        evaluated.putAll(batchIntegrityService.evaluateDataIntegrity(localInstruments, timeframe));
+      }
+      try {
+        scope.join();
+      } catch (ExecutionException e) {
+        // Relay the owner's failure, e.g. its status, rather than the wrapper
+        throw e.getCause();
+      }
+    }
+    for (Future<Map<String, JsonNode>> share : remoteShares) {
+      evaluated.putAll(share.get());
+    }
+    instruments.forEach(
+        instrument -> {
+          if (evaluated.containsKey(instrument)) {
+            summaries.put(instrument, evaluated.get(instrument));
+          }
+        });
+    return ResponseEntity.ok(summaries);
+  }
+
+  /** Re-runs the checker against a columnar capture previously exported to the output folder */
+  @GetMapping("/run-checker/capture/{fileName}")
+  public ResponseEntity<IntegritySummary> runTradeIntegrityCheckerOnCapture(
+      @PathVariable String fileName) throws IOException {
+    return ResponseEntity.ok(
+        integrityService.evaluateCapture(columnarFileWriter.readCapture(fileName)));
   }
 
   @GetMapping("/run-checker")
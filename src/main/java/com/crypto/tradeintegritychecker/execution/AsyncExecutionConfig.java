@@ -0,0 +1,20 @@
+package com.crypto.tradeintegritychecker.execution;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+
+import java.util.concurrent.Executor;
+
+/** Runs any {@code @Async} method in the same execution mode as the integrity checks */
+@Configuration
+@RequiredArgsConstructor
+public class AsyncExecutionConfig implements AsyncConfigurer {
+
+  private final CheckerExecutor checkerExecutor;
+
+  @Override
+  public Executor getAsyncExecutor() {
+    return checkerExecutor;
+  }
+}
@@ -0,0 +1,194 @@
+package com.crypto.tradeintegritychecker.execution;
+
+import com.crypto.tradeintegritychecker.accounting.RequestCost;
+import com.crypto.tradeintegritychecker.client.UpstreamPriority;
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.marketdata.MarketDataSource;
+import com.crypto.tradeintegritychecker.marketdata.ReadAheadContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Runs instrument fetches and evaluations in the configured execution mode. In virtual mode every
+ * task gets its own virtual thread, so blocking on upstream calls costs next to nothing and
+ * thousands of checks can be in flight without sizing a pool. Platform mode keeps fixed pools of
+ * warm threads and caps batch concurrency at the pool size, and is the fallback on JVMs without
+ * virtual threads.
+ *
+ * <p>In platform mode every level of nesting gets a pool of its own: tasks submitted from outside
+ * the executor run on the first pool, tasks forked by those on the second, and so on. A task only
+ * ever waits on tasks of a deeper level, so a full pool cannot deadlock on nested scopes. Tasks
+ * queue while their pool is busy, and are rejected once the queue is full
+ *
+ * <p>The submitting thread's {@link UpstreamPriority}, {@link Deadline}, {@link RequestCost} and
+ * {@link ReadAheadContext read-ahead plan} are carried over to the task
+ */
+@Slf4j
+@Component
+public class CheckerExecutor implements Executor {
+
+  // Nesting level of the pool thread, unset on threads outside the executor
+  private static final ThreadLocal<Integer> LEVEL = new ThreadLocal<>();
+
+  private final ExecutorService virtualThreads;
+  private final ConcurrentMap<Integer, ExecutorService> platformPools = new ConcurrentHashMap<>();
+  private final int platformPoolSize;
+  private final int platformQueueCapacity;
+  private volatile boolean shutdown;
+  private final IntegrityCheckerProperties.ExecutionMode mode;
+  private final Duration callTimeout;
+  private final int maxConcurrentChecks;
+
+  public CheckerExecutor(IntegrityCheckerProperties properties) {
+    IntegrityCheckerProperties.Execution config = properties.getExecution();
+    this.callTimeout = config.getCallTimeout();
+    this.platformPoolSize = config.getPlatformPoolSize();
+    this.platformQueueCapacity = config.getPlatformQueueCapacity();
+    this.virtualThreads =
+        config.getMode() == IntegrityCheckerProperties.ExecutionMode.VIRTUAL
+            ? newVirtualThreadPerTaskExecutor()
+            : null;
+    this.mode =
+        virtualThreads != null
+            ? IntegrityCheckerProperties.ExecutionMode.VIRTUAL
+            : IntegrityCheckerProperties.ExecutionMode.PLATFORM;
+    this.maxConcurrentChecks =
+        mode == IntegrityCheckerProperties.ExecutionMode.VIRTUAL
+            ? Integer.MAX_VALUE
+            : config.getPlatformPoolSize();
+    log.info("Running integrity checks on {} threads", mode.name().toLowerCase());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    shutdown = true;
+    if (virtualThreads != null) {
+      virtualThreads.shutdownNow();
+    }
+    platformPools.values().forEach(ExecutorService::shutdownNow);
+  }
+
+  public IntegrityCheckerProperties.ExecutionMode getMode() {
+    return mode;
+  }
+
+  /** How many instrument checks a batch should run at once, unbounded on virtual threads */
+  public int getMaxConcurrentChecks() {
+    return maxConcurrentChecks;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    UpstreamPriority priority = UpstreamPriority.current();
+    Deadline deadline = Deadline.current();
+    RequestCost cost = RequestCost.current();
+    MarketDataSource.ReadAhead readAhead = ReadAheadContext.current();
+    getExecutorService()
+        .execute(
+            () -> {
+              try (UpstreamPriority.Scope scope = priority.enter();
+                  Deadline.Scope deadlineScope = Deadline.enter(deadline);
+                  RequestCost.Scope costScope = RequestCost.enter(cost);
+                  ReadAheadContext.Scope readAheadScope = ReadAheadContext.enter(readAhead)) {
+                task.run();
+              }
+            });
+  }
+
+  /** Opens a scope whose forks must all complete within the configured per-call deadline */
+  public TaskScope openScope() {
+    return openScope(callTimeout);
+  }
+
+  /** The timeout is cut short if the caller's {@link Deadline} comes first */
+  public TaskScope openScope(Duration timeout) {
+    return new TaskScope(this, Deadline.limit(timeout));
+  }
+
+  /** Carries the caller's context over to the task, with its deadline cut short by the scope's */
+  <T> Callable<T> withCallerContext(Callable<T> task, Deadline scopeDeadline) {
+    UpstreamPriority priority = UpstreamPriority.current();
+    Deadline deadline = Deadline.current();
+    RequestCost cost = RequestCost.current();
+    MarketDataSource.ReadAhead readAhead = ReadAheadContext.current();
+    return () -> {
+      try (UpstreamPriority.Scope scope = priority.enter();
+          Deadline.Scope deadlineScope = Deadline.enter(deadline);
+          Deadline.Scope scopeDeadlineScope = Deadline.enter(scopeDeadline);
+          RequestCost.Scope costScope = RequestCost.enter(cost);
+          ReadAheadContext.Scope readAheadScope = ReadAheadContext.enter(readAhead)) {
+        return task.call();
+      }
+    };
+  }
+
+  /** The executor for tasks submitted from the current thread */
+  ExecutorService getExecutorService() {
+    if (virtualThreads != null) {
+      return virtualThreads;
+    }
+    if (shutdown) {
+      throw new RejectedExecutionException("Checker executor has been shut down");
+    }
+    Integer level = LEVEL.get();
+    return platformPools.computeIfAbsent(isNull(level) ? 0 : level + 1, this::newPlatformPool);
+  }
+
+  /**
+   * Virtual threads arrived in Java 21 while this service still targets 11, so the factory is
+   * looked up at runtime rather than referenced directly
+   */
+  private static ExecutorService newVirtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      log.warn(
+          "Virtual threads are not available on Java {}, falling back to a platform thread pool",
+          System.getProperty("java.specification.version"));
+      return null;
+    }
+  }
+
+  private ExecutorService newPlatformPool(int level) {
+    return new ThreadPoolExecutor(
+        platformPoolSize,
+        platformPoolSize,
+        0,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(platformQueueCapacity),
+        platformThreadFactory(level));
+  }
+
+  private static ThreadFactory platformThreadFactory(int level) {
+    AtomicInteger threadCount = new AtomicInteger();
+    return runnable -> {
+      Thread thread =
+          new Thread(
+              () -> {
+                LEVEL.set(level);
+                runnable.run();
+              },
+              "integrity-checker-" + level + "-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
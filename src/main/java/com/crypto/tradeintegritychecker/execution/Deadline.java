@@ -0,0 +1,88 @@
+package com.crypto.tradeintegritychecker.execution;
+
+import com.crypto.tradeintegritychecker.client.UpstreamPriority;
+
+import java.time.Duration;
+
+import static java.util.Objects.isNull;
+
+/**
+ * The latency budget of the request being served, carried on its thread like the
+ * {@link UpstreamPriority}. Task scopes, rate limit waits, upstream calls and rule evaluation all
+ * honour the current deadline, so work that can no longer finish in time is abandoned and the
+ * caller gets back whatever was completed
+ */
+public final class Deadline {
+
+  private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+  private final long deadlineNanos;
+
+  private Deadline(long deadlineNanos) {
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  public static Deadline after(Duration budget) {
+    return new Deadline(System.nanoTime() + budget.toNanos());
+  }
+
+  /** @return the deadline of the current thread, or null when its work is unbounded */
+  public static Deadline current() {
+    return CURRENT.get();
+  }
+
+  /** True when the current thread has a deadline and it has passed */
+  public static boolean isCurrentExpired() {
+    Deadline current = CURRENT.get();
+    return !isNull(current) && current.isExpired();
+  }
+
+  /** The timeout, shortened to the time left before the current deadline if there is one */
+  public static Duration limit(Duration timeout) {
+    Deadline current = CURRENT.get();
+    if (isNull(current)) {
+      return timeout;
+    }
+    Duration remaining = current.remaining();
+    return remaining.compareTo(timeout) < 0 ? remaining : timeout;
+  }
+
+  /**
+   * Applies the deadline to the current thread until the returned scope is closed. A nested
+   * deadline can only shorten the budget, and a null deadline leaves the current one in place
+   */
+  public static Scope enter(Deadline deadline) {
+    Deadline previous = CURRENT.get();
+    if (isNull(deadline)
+        || (!isNull(previous) && previous.deadlineNanos - deadline.deadlineNanos <= 0)) {
+      return () -> {};
+    }
+    CURRENT.set(deadline);
+    return () -> {
+      if (isNull(previous)) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    };
+  }
+
+  /** True when this deadline passes no earlier than the other */
+  public boolean covers(Deadline other) {
+    return deadlineNanos - other.deadlineNanos >= 0;
+  }
+
+  public boolean isExpired() {
+    return deadlineNanos - System.nanoTime() <= 0;
+  }
+
+  /** Time left before the deadline, zero once it has passed */
+  public Duration remaining() {
+    return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+  }
+
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
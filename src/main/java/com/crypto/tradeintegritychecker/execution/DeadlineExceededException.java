@@ -0,0 +1,9 @@
+package com.crypto.tradeintegritychecker.execution;
+
+/** Thrown by work abandoned because the current {@link Deadline} passed before it completed */
+public class DeadlineExceededException extends RuntimeException {
+
+  public DeadlineExceededException(String message) {
+    super(message);
+  }
+}
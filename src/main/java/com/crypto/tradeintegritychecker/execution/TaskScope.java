@@ -0,0 +1,89 @@
+package com.crypto.tradeintegritychecker.execution;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Groups the subtasks of one unit of work, such as the candlestick and trade fetches of an
+ * instrument check. Forks run under the scope's {@link Deadline}, so upstream calls and rule checks
+ * give up once it passes. {@link #join()} waits for every fork within the deadline, and if any
+ * fork fails or the deadline passes the remaining forks are interrupted, which also cancels their
+ * in-flight upstream requests. Closing the scope cancels anything still running, so no fork can
+ * outlive the code that started it
+ *
+ * <pre>
+ * try (TaskScope scope = checkerExecutor.openScope()) {
+ *   Future&lt;A&gt; a = scope.fork(...);
+ *   Future&lt;B&gt; b = scope.fork(...);
+ *   scope.join();
+ *   use(a.get(), b.get());
+ * }
+ * </pre>
+ */
+public class TaskScope implements AutoCloseable {
+
+  private final CheckerExecutor executor;
+  private final CompletionService<Object> completionService;
+  private final List<Future<?>> forks = new ArrayList<>();
+  private final Deadline deadline;
+
+  TaskScope(CheckerExecutor executor, Duration timeout) {
+    this.executor = executor;
+    this.completionService = new ExecutorCompletionService<>(executor.getExecutorService());
+    this.deadline = Deadline.after(timeout);
+  }
+
+  /**
+   * Starts the task on the executor, never on the calling thread
+   *
+   * @throws RejectedExecutionException if the executor's queue is full
+   */
+  @SuppressWarnings("unchecked")
+  public <T> Future<T> fork(Callable<T> task) {
+    Future<T> fork =
+        (Future<T>)
+            completionService.submit((Callable<Object>) executor.withCallerContext(task, deadline));
+    forks.add(fork);
+    return fork;
+  }
+
+  /**
+   * Waits for every fork, in completion order so that the first failure is seen straight away
+   *
+   * @throws ExecutionException with the cause of the first fork to fail
+   * @throws TimeoutException if the forks did not all complete before the deadline
+   */
+  public void join() throws InterruptedException, ExecutionException, TimeoutException {
+    try {
+      for (int completed = 0; completed < forks.size(); completed++) {
+        Future<Object> fork =
+            completionService.poll(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+        if (fork == null) {
+          throw new TimeoutException("Subtasks did not complete before the deadline");
+        }
+        fork.get();
+      }
+    } catch (InterruptedException | ExecutionException | TimeoutException e) {
+      cancelAll();
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() {
+    cancelAll();
+  }
+
+  private void cancelAll() {
+    forks.forEach(fork -> fork.cancel(true));
+  }
+}
@@ -0,0 +1,63 @@
+package com.crypto.tradeintegritychecker.flightrecorder;
+
+import com.crypto.tradeintegritychecker.model.integrity.CandlestickTradeData;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timestamp;
+
+import static java.util.Objects.isNull;
+
+/**
+ * The validation rules run against one candlestick. Emitted for every candle, so the bundled
+ * settings only record those over a threshold
+ */
+@Name("com.crypto.tradeintegritychecker.CandleEvaluation")
+@Label("Candle Evaluation")
+@Category({"Trade Integrity Checker", "Evaluation"})
+@Description("Validation rules run against a single candlestick and its trades")
+public class CandleEvaluationEvent extends Event {
+
+  @Label("Instrument")
+  String instrument;
+
+  @Label("Timeframe")
+  String timeframe;
+
+  @Label("Candle End Time")
+  @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+  long candleEndTime;
+
+  @Label("Trades")
+  int trades;
+
+  @Label("Violations")
+  int violations;
+
+  @Label("Fixed-Point Window")
+  @Description("Whether the reducing rules ran over fixed-point columns rather than BigDecimals")
+  boolean fixedPointWindow;
+
+  public static CandleEvaluationEvent start() {
+    CandleEvaluationEvent event = new CandleEvaluationEvent();
+    event.begin();
+    return event;
+  }
+
+  /** Fields are only read from the candle when the event is recorded */
+  public void complete(CandlestickTradeData candle, int violations, boolean fixedPointWindow) {
+    end();
+    if (shouldCommit()) {
+      this.instrument = candle.getInstrument();
+      this.timeframe =
+          isNull(candle.getTimeframe()) ? null : candle.getTimeframe().getTimeframeString();
+      this.candleEndTime = isNull(candle.getEndTime()) ? 0 : candle.getEndTime();
+      this.trades = candle.getTrades().size();
+      this.violations = violations;
+      this.fixedPointWindow = fixedPointWindow;
+      commit();
+    }
+  }
+}
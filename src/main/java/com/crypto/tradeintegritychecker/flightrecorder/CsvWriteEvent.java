@@ -0,0 +1,51 @@
+package com.crypto.tradeintegritychecker.flightrecorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Building and writing one of the CSV files in the output folder */
+@Name("com.crypto.tradeintegritychecker.CsvWrite")
+@Label("CSV Write")
+@Category({"Trade Integrity Checker", "Output"})
+@Description("CSV file built and written to the output folder")
+public class CsvWriteEvent extends Event {
+
+  @Label("File")
+  String file;
+
+  @Label("Instrument")
+  String instrument;
+
+  @Label("Rows")
+  int rows;
+
+  @Label("Size")
+  @DataAmount
+  long size;
+
+  @Label("Succeeded")
+  boolean succeeded;
+
+  public static CsvWriteEvent start() {
+    CsvWriteEvent event = new CsvWriteEvent();
+    event.begin();
+    return event;
+  }
+
+  /** @param instrument null when the file is not specific to one instrument */
+  public void complete(String file, String instrument, int rows, long size, boolean succeeded) {
+    end();
+    if (shouldCommit()) {
+      this.file = file;
+      this.instrument = instrument;
+      this.rows = rows;
+      this.size = size;
+      this.succeeded = succeeded;
+      commit();
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.crypto.tradeintegritychecker.flightrecorder;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Optionally keeps a continuous flight recording of the JDK's default events plus the checker's
+ * own, configured by the bundled {@value #PROFILE} profile. The recording holds the last
+ * {@code max-age} of data and is written to the configured directory on shutdown, or can be
+ * dumped at any time with {@code jcmd <pid> JFR.dump name=integrity-checker}.
+ *
+ * <p>The events are emitted either way, so a recording started with
+ * {@code -XX:StartFlightRecording} and the same profile picks them up without this being enabled
+ */
+@Slf4j
+@Component
+public class IntegrityFlightRecorder {
+
+  static final String PROFILE = "/jfr/integrity-checker.jfc";
+  static final String RECORDING_NAME = "integrity-checker";
+
+  private final IntegrityCheckerProperties.FlightRecorder config;
+  private Recording recording;
+
+  public IntegrityFlightRecorder(IntegrityCheckerProperties properties) {
+    this.config = properties.getFlightRecorder();
+  }
+
+  @PostConstruct
+  public void init() throws IOException, ParseException {
+    if (!config.isEnabled()) {
+      return;
+    }
+    Path directory = Paths.get(config.getDirectory());
+    Files.createDirectories(directory);
+    String fileTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+
+    recording = new Recording(settings());
+    recording.setName(RECORDING_NAME);
+    recording.setToDisk(true);
+    recording.setMaxAge(config.getMaxAge());
+    recording.setMaxSize(config.getMaxSize().toBytes());
+    recording.setDestination(directory.resolve(RECORDING_NAME + fileTime + ".jfr"));
+    recording.setDumpOnExit(true);
+    recording.start();
+    log.info(
+        "Started flight recording {}, keeping the last {} up to {}",
+        RECORDING_NAME,
+        config.getMaxAge(),
+        config.getMaxSize());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (recording != null) {
+      // Stopping writes the recording to its destination
+      recording.stop();
+      log.info("Flight recording written to {}", recording.getDestination());
+      recording.close();
+    }
+  }
+
+  /** The JDK's default settings with the bundled profile layered on top */
+  static Map<String, String> settings() throws IOException, ParseException {
+    Map<String, String> settings =
+        new HashMap<>(Configuration.getConfiguration("default").getSettings());
+    try (Reader profile =
+        new InputStreamReader(
+            IntegrityFlightRecorder.class.getResourceAsStream(PROFILE), StandardCharsets.UTF_8)) {
+      settings.putAll(Configuration.create(profile).getSettings());
+    }
+    return settings;
+  }
+}
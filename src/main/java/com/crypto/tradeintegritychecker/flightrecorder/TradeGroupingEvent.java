@@ -0,0 +1,49 @@
+package com.crypto.tradeintegritychecker.flightrecorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Matching an instrument's trades to the candlesticks they were booked in */
+@Name("com.crypto.tradeintegritychecker.TradeGrouping")
+@Label("Trade Grouping")
+@Category({"Trade Integrity Checker", "Evaluation"})
+@Description("Trades of one integrity check grouped into their candlesticks")
+public class TradeGroupingEvent extends Event {
+
+  @Label("Instrument")
+  String instrument;
+
+  @Label("Timeframe")
+  String timeframe;
+
+  @Label("Candlesticks")
+  int candlesticks;
+
+  @Label("Trades")
+  int trades;
+
+  @Label("Matched Trades")
+  @Description("Trades that fell within one of the candlesticks")
+  int matchedTrades;
+
+  public static TradeGroupingEvent start(String instrument, String timeframe) {
+    TradeGroupingEvent event = new TradeGroupingEvent();
+    event.instrument = instrument;
+    event.timeframe = timeframe;
+    event.begin();
+    return event;
+  }
+
+  public void complete(int candlesticks, int trades, int matchedTrades) {
+    end();
+    if (shouldCommit()) {
+      this.candlesticks = candlesticks;
+      this.trades = trades;
+      this.matchedTrades = matchedTrades;
+      commit();
+    }
+  }
+}
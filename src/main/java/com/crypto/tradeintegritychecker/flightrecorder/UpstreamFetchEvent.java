@@ -0,0 +1,51 @@
+package com.crypto.tradeintegritychecker.flightrecorder;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** A single crypto.com request, from being sent to its response being decoded or failing */
+@Name("com.crypto.tradeintegritychecker.UpstreamFetch")
+@Label("Upstream Fetch")
+@Category({"Trade Integrity Checker", "Upstream"})
+@Description("Request to a crypto.com public endpoint, rate limit wait excluded")
+public class UpstreamFetchEvent extends Event {
+
+  @Label("Endpoint")
+  String endpoint;
+
+  @Label("Instrument")
+  String instrument;
+
+  @Label("Timeframe")
+  String timeframe;
+
+  @Label("Records")
+  @Description("Candlesticks or trades returned")
+  int records;
+
+  @Label("Succeeded")
+  boolean succeeded;
+
+  /** Creates and begins the event, the all-instrument feed has no instrument or timeframe */
+  public static UpstreamFetchEvent start(String endpoint, String instrument, String timeframe) {
+    UpstreamFetchEvent event = new UpstreamFetchEvent();
+    event.endpoint = endpoint;
+    event.instrument = instrument;
+    event.timeframe = timeframe;
+    event.begin();
+    return event;
+  }
+
+  /** @param records the number returned, or -1 when the request failed */
+  public void complete(int records) {
+    end();
+    if (shouldCommit()) {
+      this.records = Math.max(0, records);
+      this.succeeded = records >= 0;
+      commit();
+    }
+  }
+}
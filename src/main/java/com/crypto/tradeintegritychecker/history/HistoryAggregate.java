@@ -0,0 +1,26 @@
+package com.crypto.tradeintegritychecker.history;
+
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Totals for one instrument and timeframe over a time range. Violations are counted once per
+ * candle and rule, even when overlapping runs reported the same break
+ */
+@Data
+@Builder
+public class HistoryAggregate {
+
+  private String instrumentName;
+  private Timeframe timeframe;
+  private long from;
+  private long to;
+  private int numRuns;
+  private long numCandlesticksAnalyzed;
+  private int numIntegrityBreaks;
+  private Map<ValidationRule, Integer> integrityBreaksByRule;
+}
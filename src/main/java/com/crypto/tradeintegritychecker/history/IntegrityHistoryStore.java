@@ -0,0 +1,381 @@
+package com.crypto.tradeintegritychecker.history;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.integrity.IntegrityCheckCompletedEvent;
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.integrity.IntegrityViolation;
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Embedded, file-backed history of integrity runs. Every completed run is appended as one JSON
+ * line, and on startup the file is replayed into in-memory indexes keyed by instrument, timeframe,
+ * rule and candle time, so historical questions are answered by index lookups rather than by
+ * re-running the checks. Runs past the retention or the run limit are dropped from the index, and
+ * the file is rewritten without them once they make up half of it. A break is current until a
+ * later run analyzes its candle again without reporting it
+ */
+@Slf4j
+@Component
+public class IntegrityHistoryStore {
+
+  private static final String HISTORY_FILENAME = "integrity-history.jsonl";
+
+  private final boolean enabled;
+  private final Path historyFile;
+  private final long retentionMillis;
+  private final int maxRuns;
+  private final ObjectMapper objectMapper;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<SeriesKey, NavigableMap<Long, List<IntegrityRunRecord>>> runsByTime =
+      new HashMap<>();
+  private final Map<SeriesKey, Map<ValidationRule, NavigableMap<Long, ViolationRecord>>>
+      violationsByCandle = new HashMap<>();
+  // Every indexed run in the order it was appended, oldest first
+  private final Deque<IntegrityRunRecord> retainedRuns = new ArrayDeque<>();
+
+  private long nextRunId = 1;
+  private int droppedSinceCompaction;
+  private BufferedWriter writer;
+
+  public IntegrityHistoryStore(IntegrityCheckerProperties properties, ObjectMapper objectMapper) {
+    this.enabled = properties.getHistory().isEnabled();
+    this.historyFile = Paths.get(properties.getHistory().getDirectory(), HISTORY_FILENAME);
+    this.retentionMillis = properties.getHistory().getRetention().toMillis();
+    this.maxRuns = properties.getHistory().getMaxRuns();
+    this.objectMapper = objectMapper;
+  }
+
+  @PostConstruct
+  public void open() throws IOException {
+    if (!enabled) {
+      return;
+    }
+    Files.createDirectories(historyFile.getParent());
+    boolean unreadable = false;
+    if (Files.exists(historyFile)) {
+      int loaded = 0;
+      try (BufferedReader reader = Files.newBufferedReader(historyFile, StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.isEmpty()) {
+            continue;
+          }
+          try {
+            IntegrityRunRecord run = objectMapper.readValue(line, IntegrityRunRecord.class);
+            index(run);
+            nextRunId = Math.max(nextRunId, run.getRunId() + 1);
+            loaded++;
+          } catch (IOException e) {
+            // A crash mid-append can leave a torn final line, everything before it is intact
+            log.warn("Skipping unreadable integrity history entry in {}", historyFile);
+            unreadable = true;
+          }
+        }
+      }
+      evict();
+      log.info(
+          "Loaded {} integrity runs from {}, {} retained",
+          loaded,
+          historyFile,
+          retainedRuns.size());
+    }
+    if (unreadable || droppedSinceCompaction > 0) {
+      compact();
+    } else {
+      openWriter();
+    }
+  }
+
+  @PreDestroy
+  public void close() throws IOException {
+    lock.writeLock().lock();
+    try {
+      if (writer != null) {
+        writer.close();
+        writer = null;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @EventListener
+  public void onIntegrityCheckCompleted(IntegrityCheckCompletedEvent event) {
+    if (!enabled || event.isReplayed() || event.getSummary() == null) {
+      return;
+    }
+    lock.writeLock().lock();
+    try {
+      IntegrityRunRecord run = toRunRecord(nextRunId++, event);
+      if (writer != null) {
+        writer.write(objectMapper.writeValueAsString(run));
+        writer.newLine();
+        writer.flush();
+      }
+      index(run);
+      evict();
+      // Rewriting the file only once dropped runs make up half of it keeps appends amortized
+      if (writer != null
+          && droppedSinceCompaction > 0
+          && droppedSinceCompaction >= retainedRuns.size()) {
+        compact();
+      }
+    } catch (IOException e) {
+      log.error("Unable to persist integrity run for {} to {}", event.getInstrumentName(), historyFile, e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /** Runs evaluated within [from, to) */
+  public List<IntegrityRunRecord> findRuns(
+      String instrumentName, Timeframe timeframe, long from, long to) {
+    lock.readLock().lock();
+    try {
+      NavigableMap<Long, List<IntegrityRunRecord>> runs =
+          runsByTime.get(new SeriesKey(instrumentName, timeframe));
+      if (runs == null) {
+        return Collections.emptyList();
+      }
+      return runs.subMap(from, true, to, false).values().stream()
+          .flatMap(List::stream)
+          .collect(Collectors.toList());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Distinct rule breaks for candles starting within [from, to), ordered by candle time
+   *
+   * @param rule optional, null returns breaks for every rule
+   */
+  public List<ViolationRecord> findViolations(
+      String instrumentName, Timeframe timeframe, ValidationRule rule, long from, long to) {
+    lock.readLock().lock();
+    try {
+      Map<ValidationRule, NavigableMap<Long, ViolationRecord>> byRule =
+          violationsByCandle.get(new SeriesKey(instrumentName, timeframe));
+      if (byRule == null) {
+        return Collections.emptyList();
+      }
+      List<ViolationRecord> violations = new ArrayList<>();
+      byRule.forEach(
+          (violationRule, byCandle) -> {
+            if (rule == null || rule == violationRule) {
+              violations.addAll(byCandle.subMap(from, true, to, false).values());
+            }
+          });
+      violations.sort((a, b) -> Long.compare(a.getCandleTime(), b.getCandleTime()));
+      return violations;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Run totals by evaluation time and distinct rule breaks by candle time, both within [from, to) */
+  public HistoryAggregate aggregate(
+      String instrumentName, Timeframe timeframe, long from, long to) {
+    lock.readLock().lock();
+    try {
+      SeriesKey key = new SeriesKey(instrumentName, timeframe);
+      List<IntegrityRunRecord> runs = findRuns(instrumentName, timeframe, from, to);
+
+      Map<ValidationRule, Integer> breaksByRule = new EnumMap<>(ValidationRule.class);
+      violationsByCandle
+          .getOrDefault(key, Collections.emptyMap())
+          .forEach(
+              (rule, byCandle) -> {
+                int count = byCandle.subMap(from, true, to, false).size();
+                if (count > 0) {
+                  breaksByRule.put(rule, count);
+                }
+              });
+
+      return HistoryAggregate.builder()
+          .instrumentName(instrumentName)
+          .timeframe(timeframe)
+          .from(from)
+          .to(to)
+          .numRuns(runs.size())
+          .numCandlesticksAnalyzed(
+              runs.stream().mapToLong(IntegrityRunRecord::getNumCandlesticksAnalyzed).sum())
+          .numIntegrityBreaks(breaksByRule.values().stream().mapToInt(Integer::intValue).sum())
+          .integrityBreaksByRule(breaksByRule)
+          .build();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private void index(IntegrityRunRecord run) {
+    SeriesKey key = new SeriesKey(run.getInstrumentName(), run.getTimeframe());
+    retainedRuns.addLast(run);
+    runsByTime
+        .computeIfAbsent(key, k -> new TreeMap<>())
+        .computeIfAbsent(run.getEvaluatedAt(), k -> new ArrayList<>(1))
+        .add(run);
+
+    // Overlapping runs re-validate the same candles, so the breaks earlier runs reported within
+    // this run's candles are replaced by whatever this run reports, possibly nothing
+    Map<ValidationRule, NavigableMap<Long, ViolationRecord>> byRule =
+        violationsByCandle.computeIfAbsent(key, k -> new EnumMap<>(ValidationRule.class));
+    if (run.getFirstCandleAnalyzed() != null && run.getLastCandleAnalyzed() != null) {
+      byRule
+          .values()
+          .forEach(
+              byCandle ->
+                  byCandle
+                      .subMap(run.getFirstCandleAnalyzed(), true, run.getLastCandleAnalyzed(), true)
+                      .clear());
+    }
+    run.getViolations()
+        .forEach(
+            violation ->
+                byRule
+                    .computeIfAbsent(violation.getRule(), k -> new TreeMap<>())
+                    .put(violation.getCandleTime(), violation));
+  }
+
+  /** Drops the oldest runs until what is left is within both the retention and the run limit */
+  private void evict() {
+    if (retainedRuns.isEmpty()) {
+      return;
+    }
+    long cutoff = retainedRuns.getLast().getEvaluatedAt() - retentionMillis;
+    while (!retainedRuns.isEmpty()
+        && (retainedRuns.size() > maxRuns || retainedRuns.getFirst().getEvaluatedAt() < cutoff)) {
+      unindex(retainedRuns.removeFirst());
+      droppedSinceCompaction++;
+    }
+  }
+
+  private void unindex(IntegrityRunRecord run) {
+    SeriesKey key = new SeriesKey(run.getInstrumentName(), run.getTimeframe());
+    NavigableMap<Long, List<IntegrityRunRecord>> seriesRuns = runsByTime.get(key);
+    List<IntegrityRunRecord> atTime = seriesRuns.get(run.getEvaluatedAt());
+    atTime.remove(run);
+    if (atTime.isEmpty()) {
+      seriesRuns.remove(run.getEvaluatedAt());
+    }
+    if (seriesRuns.isEmpty()) {
+      runsByTime.remove(key);
+    }
+
+    // Breaks are only dropped while this run is still the one reporting them
+    Map<ValidationRule, NavigableMap<Long, ViolationRecord>> byRule = violationsByCandle.get(key);
+    run.getViolations()
+        .forEach(
+            violation -> {
+              NavigableMap<Long, ViolationRecord> byCandle = byRule.get(violation.getRule());
+              if (byCandle != null) {
+                byCandle.remove(violation.getCandleTime(), violation);
+                if (byCandle.isEmpty()) {
+                  byRule.remove(violation.getRule());
+                }
+              }
+            });
+    if (seriesRuns.isEmpty() && byRule.values().stream().allMatch(Map::isEmpty)) {
+      violationsByCandle.remove(key);
+    }
+  }
+
+  /** Rewrites the file with only the retained runs, replacing it in one move */
+  private void compact() throws IOException {
+    if (writer != null) {
+      writer.close();
+      writer = null;
+    }
+    Path compacted = historyFile.resolveSibling(HISTORY_FILENAME + ".tmp");
+    try (BufferedWriter out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+      for (IntegrityRunRecord run : retainedRuns) {
+        out.write(objectMapper.writeValueAsString(run));
+        out.newLine();
+      }
+    }
+    Files.move(
+        compacted,
+        historyFile,
+        StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+    log.info(
+        "Compacted {} to {} runs, dropping {}",
+        historyFile,
+        retainedRuns.size(),
+        droppedSinceCompaction);
+    droppedSinceCompaction = 0;
+    openWriter();
+  }
+
+  private void openWriter() throws IOException {
+    writer =
+        Files.newBufferedWriter(
+            historyFile,
+            StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.APPEND);
+  }
+
+  private IntegrityRunRecord toRunRecord(long runId, IntegrityCheckCompletedEvent event) {
+    IntegritySummary summary = event.getSummary();
+    List<ViolationRecord> violations = new ArrayList<>();
+    for (IntegrityViolation violation : summary.getDataIntegrityBreaks()) {
+      violations.add(
+          new ViolationRecord(
+              runId,
+              violation.getValidationRule(),
+              violation.getCandleStickTradeData().getEndTime(),
+              event.getEvaluatedAt()));
+    }
+    return new IntegrityRunRecord(
+        runId,
+        event.getInstrumentName(),
+        event.getTimeframe(),
+        event.getEvaluatedAt(),
+        summary.getNumTrades(),
+        summary.getNumCandlesticks(),
+        summary.getNumCandlesticksAnalyzed(),
+        summary.getNumIntegrityBreaks(),
+        summary.getFirstCandleAnalyzed(),
+        summary.getLastCandleAnalyzed(),
+        violations);
+  }
+
+  @Value
+  private static class SeriesKey {
+    String instrumentName;
+    Timeframe timeframe;
+  }
+}
@@ -0,0 +1,29 @@
+package com.crypto.tradeintegritychecker.history;
+
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/** One persisted integrity run, written as a single line of the history file */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IntegrityRunRecord {
+
+  private long runId;
+  private String instrumentName;
+  private Timeframe timeframe;
+  private long evaluatedAt;
+  private int numTrades;
+  private int numCandlesticks;
+  private int numCandlesticksAnalyzed;
+  private int numIntegrityBreaks;
+
+  // Times of the first and last candles analyzed, null when none were
+  private Long firstCandleAnalyzed;
+  private Long lastCandleAnalyzed;
+  private List<ViolationRecord> violations;
+}
@@ -0,0 +1,20 @@
+package com.crypto.tradeintegritychecker.history;
+
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Key fields of a persisted rule break, the candle and trade payloads are not kept */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ViolationRecord {
+
+  private long runId;
+  private ValidationRule rule;
+
+  // Start time of the offending candle, as reported in the candlestick "t" attribute
+  private long candleTime;
+  private long evaluatedAt;
+}
@@ -0,0 +1,25 @@
+package com.crypto.tradeintegritychecker.journal;
+
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * One violation as stored in the journal. {@code expected} is the candle's value for the broken
+ * rule and {@code actual} the value derived from the trades, either may be null when the rule has
+ * no single offending value
+ */
+@Value
+public class JournalEntry {
+
+  long sequence;
+  long evaluatedAt;
+  String instrumentName;
+  Timeframe timeframe;
+  ValidationRule rule;
+  long candleEndTime;
+  BigDecimal expected;
+  BigDecimal actual;
+}
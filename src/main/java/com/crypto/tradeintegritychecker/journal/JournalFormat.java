@@ -0,0 +1,203 @@
+package com.crypto.tradeintegritychecker.journal;
+
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * On-disk layout shared by the journal writer and its tailers. A segment is a fixed size file, a
+ * 64 byte header followed by {@code capacity} fixed size records:
+ *
+ * <pre>
+ *  0 int   committed, written last with release semantics so a reader never sees a partial record
+ *  4 byte  timeframe ordinal
+ *  5 byte  rule ordinal
+ *  6 byte  expected scale, NO_VALUE when absent
+ *  7 byte  actual scale, NO_VALUE when absent
+ *  8 long  sequence
+ * 16 long  evaluatedAt
+ * 24 long  candle end time
+ * 32 long  expected unscaled value
+ * 40 long  actual unscaled value
+ * 48 32    instrument name, US-ASCII, zero padded
+ * </pre>
+ *
+ * The header's magic is likewise written last, so a segment whose magic is not yet visible is
+ * still being created. Segments are named after the sequence of their first record, so the segment
+ * following one is found from its name and capacity alone
+ */
+final class JournalFormat {
+
+  static final int MAGIC = 0x494A4E4C;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 64;
+  static final int RECORD_SIZE = 80;
+  static final String SEGMENT_PREFIX = "violations-";
+  static final String SEGMENT_SUFFIX = ".journal";
+
+  private static final int HEADER_MAGIC = 0;
+  private static final int HEADER_VERSION = 4;
+  private static final int HEADER_RECORD_SIZE = 8;
+  private static final int HEADER_CAPACITY = 12;
+  private static final int HEADER_BASE_SEQUENCE = 16;
+
+  private static final int COMMITTED = 0;
+  private static final int TIMEFRAME = 4;
+  private static final int RULE = 5;
+  private static final int EXPECTED_SCALE = 6;
+  private static final int ACTUAL_SCALE = 7;
+  private static final int SEQUENCE = 8;
+  private static final int EVALUATED_AT = 16;
+  private static final int CANDLE_END_TIME = 24;
+  private static final int EXPECTED = 32;
+  private static final int ACTUAL = 40;
+  private static final int INSTRUMENT = 48;
+  private static final int INSTRUMENT_LENGTH = 32;
+
+  private static final byte NO_VALUE = Byte.MIN_VALUE;
+  private static final MathContext LONG_PRECISION = new MathContext(18);
+  private static final Timeframe[] TIMEFRAMES = Timeframe.values();
+  private static final ValidationRule[] RULES = ValidationRule.values();
+
+  // Every record starts on a 16 byte boundary, so the flag is always an aligned int
+  private static final VarHandle INT_VIEW =
+      MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private JournalFormat() {}
+
+  static String segmentName(long baseSequence) {
+    return String.format("%s%020d%s", SEGMENT_PREFIX, baseSequence, SEGMENT_SUFFIX);
+  }
+
+  /** @return the base sequence encoded in a segment's name, or -1 if it is not a segment */
+  static long baseSequenceOf(Path segment) {
+    String name = segment.getFileName().toString();
+    if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+      return -1;
+    }
+    try {
+      return Long.parseLong(
+          name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  static long segmentSize(int capacity) {
+    return HEADER_SIZE + (long) capacity * RECORD_SIZE;
+  }
+
+  static int recordOffset(int slot) {
+    return HEADER_SIZE + slot * RECORD_SIZE;
+  }
+
+  static void writeHeader(ByteBuffer segment, int capacity, long baseSequence) {
+    segment.putInt(HEADER_VERSION, VERSION);
+    segment.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+    segment.putInt(HEADER_CAPACITY, capacity);
+    segment.putLong(HEADER_BASE_SEQUENCE, baseSequence);
+    INT_VIEW.setRelease(segment, HEADER_MAGIC, MAGIC);
+  }
+
+  /** @return the segment's capacity, or -1 while its header has not been written */
+  static int capacityOf(ByteBuffer segment) throws IOException {
+    if ((int) INT_VIEW.getAcquire(segment, HEADER_MAGIC) != MAGIC) {
+      return -1;
+    }
+    if (segment.getInt(HEADER_VERSION) != VERSION
+        || segment.getInt(HEADER_RECORD_SIZE) != RECORD_SIZE) {
+      throw new IOException("Unsupported violation journal segment version");
+    }
+    return segment.getInt(HEADER_CAPACITY);
+  }
+
+  static boolean isCommitted(ByteBuffer segment, int offset) {
+    return (int) INT_VIEW.getAcquire(segment, offset + COMMITTED) != 0;
+  }
+
+  static void write(
+      ByteBuffer segment,
+      int offset,
+      long sequence,
+      long evaluatedAt,
+      String instrumentName,
+      Timeframe timeframe,
+      ValidationRule rule,
+      long candleEndTime,
+      BigDecimal expected,
+      BigDecimal actual) {
+    BigDecimal expectedValue = representable(expected);
+    BigDecimal actualValue = representable(actual);
+    segment.put(offset + TIMEFRAME, (byte) timeframe.ordinal());
+    segment.put(offset + RULE, (byte) rule.ordinal());
+    segment.put(offset + EXPECTED_SCALE, scaleOf(expectedValue));
+    segment.put(offset + ACTUAL_SCALE, scaleOf(actualValue));
+    segment.putLong(offset + SEQUENCE, sequence);
+    segment.putLong(offset + EVALUATED_AT, evaluatedAt);
+    segment.putLong(offset + CANDLE_END_TIME, candleEndTime);
+    segment.putLong(offset + EXPECTED, unscaledOf(expectedValue));
+    segment.putLong(offset + ACTUAL, unscaledOf(actualValue));
+    byte[] name = instrumentName.getBytes(StandardCharsets.US_ASCII);
+    for (int i = 0; i < INSTRUMENT_LENGTH; i++) {
+      segment.put(offset + INSTRUMENT + i, i < name.length ? name[i] : 0);
+    }
+    INT_VIEW.setRelease(segment, offset + COMMITTED, 1);
+  }
+
+  static JournalEntry read(ByteBuffer segment, int offset) {
+    int nameLength = 0;
+    while (nameLength < INSTRUMENT_LENGTH && segment.get(offset + INSTRUMENT + nameLength) != 0) {
+      nameLength++;
+    }
+    byte[] name = new byte[nameLength];
+    for (int i = 0; i < nameLength; i++) {
+      name[i] = segment.get(offset + INSTRUMENT + i);
+    }
+    return new JournalEntry(
+        segment.getLong(offset + SEQUENCE),
+        segment.getLong(offset + EVALUATED_AT),
+        new String(name, StandardCharsets.US_ASCII),
+        TIMEFRAMES[segment.get(offset + TIMEFRAME)],
+        RULES[segment.get(offset + RULE)],
+        segment.getLong(offset + CANDLE_END_TIME),
+        decimalOf(segment.getLong(offset + EXPECTED), segment.get(offset + EXPECTED_SCALE)),
+        decimalOf(segment.getLong(offset + ACTUAL), segment.get(offset + ACTUAL_SCALE)));
+  }
+
+  // Exchange values fit a long with room to spare, anything wider is rounded to 18 digits
+  private static BigDecimal representable(BigDecimal value) {
+    if (value == null) {
+      return null;
+    }
+    BigDecimal stripped = value.stripTrailingZeros();
+    if (stripped.scale() < 0) {
+      stripped = stripped.setScale(0);
+    }
+    if (stripped.unscaledValue().bitLength() > 63) {
+      stripped = stripped.round(LONG_PRECISION);
+    }
+    return stripped.scale() > Byte.MAX_VALUE || stripped.scale() <= NO_VALUE ? null : stripped;
+  }
+
+  private static byte scaleOf(BigDecimal value) {
+    return value == null ? NO_VALUE : (byte) value.scale();
+  }
+
+  private static long unscaledOf(BigDecimal value) {
+    return value == null ? 0 : value.unscaledValue().longValueExact();
+  }
+
+  private static BigDecimal decimalOf(long unscaled, byte scale) {
+    return scale == NO_VALUE ? null : new BigDecimal(BigInteger.valueOf(unscaled), scale);
+  }
+}
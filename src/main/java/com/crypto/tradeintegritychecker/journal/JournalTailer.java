@@ -0,0 +1,134 @@
+package com.crypto.tradeintegritychecker.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Follows a {@link ViolationJournal} directory, from this or another process on the same host.
+ * Reading is a read of the shared mapping, so a poll costs nothing when there is nothing new and a
+ * record is visible to tailers as soon as the writer commits it. A tailer is not thread safe, each
+ * consumer thread should own one.
+ *
+ * <pre>
+ *   JournalTailer tailer = JournalTailer.fromLatest(Paths.get("journal"));
+ *   while (running) {
+ *     if (tailer.poll(alerting::onViolation, 256) == 0) {
+ *       Thread.sleep(1);
+ *     }
+ *   }
+ * </pre>
+ */
+@Slf4j
+public class JournalTailer {
+
+  private final Path directory;
+  private long nextSequence;
+
+  private MappedByteBuffer segment;
+  private long baseSequence;
+  private int capacity;
+
+  public JournalTailer(Path directory, long fromSequence) {
+    this.directory = directory;
+    this.nextSequence = fromSequence;
+  }
+
+  /** A tailer starting at the oldest retained violation */
+  public static JournalTailer fromStart(Path directory) throws IOException {
+    List<Path> segments = ViolationJournal.listSegments(directory);
+    return new JournalTailer(
+        directory, segments.isEmpty() ? 0 : JournalFormat.baseSequenceOf(segments.get(0)));
+  }
+
+  /** A tailer that only sees violations appended from now on */
+  public static JournalTailer fromLatest(Path directory) throws IOException {
+    JournalTailer tailer = new JournalTailer(directory, 0);
+    List<Path> segments = ViolationJournal.listSegments(directory);
+    if (!segments.isEmpty()) {
+      tailer.nextSequence = JournalFormat.baseSequenceOf(segments.get(segments.size() - 1));
+      tailer.poll(entry -> {}, Integer.MAX_VALUE);
+    }
+    return tailer;
+  }
+
+  /** The sequence of the next violation this tailer will read */
+  public long getNextSequence() {
+    return nextSequence;
+  }
+
+  /**
+   * Hands up to {@code maxEntries} newly committed violations to the consumer, without blocking
+   *
+   * @return the number of violations read, 0 when the tailer has caught up with the writer
+   */
+  public int poll(Consumer<JournalEntry> consumer, int maxEntries) throws IOException {
+    int read = 0;
+    while (read < maxEntries) {
+      if (segment == null && !mapSegment()) {
+        break;
+      }
+      int slot = (int) (nextSequence - baseSequence);
+      if (slot >= capacity) {
+        segment = null;
+        continue;
+      }
+      int offset = JournalFormat.recordOffset(slot);
+      if (!JournalFormat.isCommitted(segment, offset)) {
+        break;
+      }
+      consumer.accept(JournalFormat.read(segment, offset));
+      nextSequence++;
+      read++;
+    }
+    return read;
+  }
+
+  // Maps the segment holding nextSequence, false if the writer has not created it yet
+  private boolean mapSegment() throws IOException {
+    Path holding = null;
+    long holdingBase = -1;
+    for (Path candidate : ViolationJournal.listSegments(directory)) {
+      long base = JournalFormat.baseSequenceOf(candidate);
+      if (holding == null || base <= nextSequence) {
+        holding = candidate;
+        holdingBase = base;
+      }
+    }
+    if (holding == null) {
+      return false;
+    }
+    MappedByteBuffer mapped;
+    try (FileChannel channel = FileChannel.open(holding, StandardOpenOption.READ)) {
+      mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (NoSuchFileException e) {
+      // Removed by retention in the meantime, the next poll picks the following segment
+      return false;
+    }
+    mapped.order(ByteOrder.LITTLE_ENDIAN);
+    int mappedCapacity =
+        mapped.capacity() < JournalFormat.HEADER_SIZE ? -1 : JournalFormat.capacityOf(mapped);
+    if (mappedCapacity < 0 || holdingBase + mappedCapacity <= nextSequence) {
+      return false;
+    }
+    if (holdingBase > nextSequence) {
+      log.warn(
+          "Violations {} to {} were removed from the journal before they were read",
+          nextSequence,
+          holdingBase - 1);
+      nextSequence = holdingBase;
+    }
+    segment = mapped;
+    baseSequence = holdingBase;
+    capacity = mappedCapacity;
+    return true;
+  }
+}
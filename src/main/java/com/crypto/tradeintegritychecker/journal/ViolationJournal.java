@@ -0,0 +1,237 @@
+package com.crypto.tradeintegritychecker.journal;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.integrity.IntegrityCheckCompletedEvent;
+import com.crypto.tradeintegritychecker.model.integrity.IntegrityViolation;
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Append-only, memory-mapped journal of integrity violations. Each violation becomes one fixed
+ * size record in the current segment, see {@link JournalFormat}, and {@link JournalTailer}s in this
+ * or any other process on the host follow the segments as they are written. When a segment is full
+ * the next one is created and the oldest segments beyond the retention limit are deleted.
+ *
+ * <p>Records reach the page cache as soon as they are appended, so they survive a crash of this
+ * process; segments are forced to disk when they are rotated and on shutdown
+ */
+@Slf4j
+@Component
+public class ViolationJournal {
+
+  private final boolean enabled;
+  private final Path directory;
+  private final int segmentRecords;
+  private final int retainedSegments;
+
+  private MappedByteBuffer segment;
+  private long baseSequence;
+  private int capacity;
+  private int nextSlot;
+
+  public ViolationJournal(IntegrityCheckerProperties properties) {
+    IntegrityCheckerProperties.Journal config = properties.getJournal();
+    this.enabled = config.isEnabled();
+    this.directory = Paths.get(config.getDirectory());
+    this.segmentRecords = config.getSegmentRecords();
+    this.retainedSegments = Math.max(1, config.getRetainedSegments());
+  }
+
+  @PostConstruct
+  public synchronized void open() throws IOException {
+    if (!enabled) {
+      return;
+    }
+    Files.createDirectories(directory);
+    List<Path> segments = listSegments(directory);
+    if (segments.isEmpty()) {
+      mapSegment(0);
+      return;
+    }
+    // Carry on from the first free slot of the newest segment
+    mapSegment(JournalFormat.baseSequenceOf(segments.get(segments.size() - 1)));
+    while (nextSlot < capacity
+        && JournalFormat.isCommitted(segment, JournalFormat.recordOffset(nextSlot))) {
+      nextSlot++;
+    }
+    log.info("Violation journal in {} resuming at sequence {}", directory, getNextSequence());
+  }
+
+  @PreDestroy
+  public synchronized void close() {
+    if (segment != null) {
+      segment.force();
+      segment = null;
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /** The sequence the next appended violation will be given */
+  public synchronized long getNextSequence() {
+    return baseSequence + nextSlot;
+  }
+
+  @EventListener
+  public void onIntegrityCheckCompleted(IntegrityCheckCompletedEvent event) {
+    if (!enabled
+        || event.isReplayed()
+        || isNull(event.getSummary())
+        || isNull(event.getSummary().getDataIntegrityBreaks())) {
+      return;
+    }
+    try {
+      for (IntegrityViolation violation : event.getSummary().getDataIntegrityBreaks()) {
+        if (isNull(violation.getValidationRule())) {
+          continue;
+        }
+        append(
+            event.getInstrumentName(),
+            event.getTimeframe(),
+            violation.getValidationRule(),
+            violation.getCandleStickTradeData().getEndTime(),
+            event.getEvaluatedAt(),
+            expectedValue(violation),
+            actualValue(violation));
+      }
+    } catch (IOException e) {
+      log.error(
+          "Unable to journal violations for Instrument: {}: {}",
+          event.getInstrumentName(),
+          e.toString());
+    }
+  }
+
+  /** @return the sequence assigned to the violation */
+  public synchronized long append(
+      String instrumentName,
+      Timeframe timeframe,
+      ValidationRule rule,
+      long candleEndTime,
+      long evaluatedAt,
+      BigDecimal expected,
+      BigDecimal actual)
+      throws IOException {
+    if (segment == null) {
+      throw new IOException("Violation journal is not open");
+    }
+    if (nextSlot == capacity) {
+      rotate();
+    }
+    long sequence = baseSequence + nextSlot;
+    JournalFormat.write(
+        segment,
+        JournalFormat.recordOffset(nextSlot),
+        sequence,
+        evaluatedAt,
+        instrumentName,
+        timeframe,
+        rule,
+        candleEndTime,
+        expected,
+        actual);
+    nextSlot++;
+    return sequence;
+  }
+
+  private void rotate() throws IOException {
+    segment.force();
+    mapSegment(baseSequence + capacity);
+    List<Path> segments = listSegments(directory);
+    for (int i = 0; i < segments.size() - retainedSegments; i++) {
+      // Tailers still reading a deleted segment keep their mapping until they move on
+      Files.deleteIfExists(segments.get(i));
+    }
+  }
+
+  private void mapSegment(long base) throws IOException {
+    Path file = directory.resolve(JournalFormat.segmentName(base));
+    boolean created = !Files.exists(file);
+    try (FileChannel channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long size = created ? JournalFormat.segmentSize(segmentRecords) : channel.size();
+      // The mapping stays valid once the channel is closed
+      MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      mapped.order(ByteOrder.LITTLE_ENDIAN);
+      if (created) {
+        JournalFormat.writeHeader(mapped, segmentRecords, base);
+      }
+      int mappedCapacity = JournalFormat.capacityOf(mapped);
+      if (mappedCapacity < 0) {
+        throw new IOException("Violation journal segment " + file + " has no header");
+      }
+      segment = mapped;
+      baseSequence = base;
+      capacity = mappedCapacity;
+      nextSlot = 0;
+    }
+  }
+
+  /** Segments in the directory, oldest first */
+  static List<Path> listSegments(Path directory) throws IOException {
+    if (!Files.isDirectory(directory)) {
+      return List.of();
+    }
+    try (Stream<Path> files = Files.list(directory)) {
+      return files
+          .filter(file -> JournalFormat.baseSequenceOf(file) >= 0)
+          .sorted(Comparator.comparingLong(JournalFormat::baseSequenceOf))
+          .collect(Collectors.toList());
+    }
+  }
+
+  private static BigDecimal expectedValue(IntegrityViolation violation) {
+    CandleStickData candle = violation.getCandleStickTradeData().getCandlestick();
+    switch (violation.getValidationRule()) {
+      case OPEN:
+      case NO_TRADE_OPEN_CLOSE:
+        return candle.getOpen();
+      case CLOSE:
+        return candle.getClose();
+      case HIGH:
+        return candle.getHigh();
+      case LOW:
+        return candle.getLow();
+      default:
+        return candle.getVolume();
+    }
+  }
+
+  private static BigDecimal actualValue(IntegrityViolation violation) {
+    switch (violation.getValidationRule()) {
+      case VOLUME:
+        return violation.getTradesVolume();
+      case NO_TRADE_OPEN_CLOSE:
+        return violation.getCandleStickTradeData().getCandlestick().getClose();
+      case NO_TRADE_VOLUME:
+        return null;
+      default:
+        return isNull(violation.getTrade()) ? null : violation.getTrade().getTradePrice();
+    }
+  }
+}
@@ -0,0 +1,164 @@
+package com.crypto.tradeintegritychecker.marketdata;
+
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.MarketDataCapture;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.TradeResult;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import com.crypto.tradeintegritychecker.writer.ColumnarCaptureReader;
+import com.crypto.tradeintegritychecker.writer.ColumnarFileWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Serves candlesticks and trades from a directory of columnar captures written by {@link
+ * ColumnarFileWriter}, e.g. the output folder of earlier runs with columnar export enabled. Each
+ * instrument is served from its most recent capture, found by the name the writer gives it, so
+ * new captures can be dropped in between runs.
+ *
+ * <p>A capture holds both halves of a check, so it is read once for the pair of requests rather
+ * than once for each
+ */
+@Slf4j
+public class CaptureDirectoryMarketDataSource implements MarketDataSource {
+
+  private static final String CAPTURE_PREFIX = "Capture";
+  private static final int TIMESTAMP_LENGTH = "yyyyMMddHHmmss".length();
+
+  private final Path directory;
+  private final ConcurrentMap<Path, SharedCapture> openCaptures = new ConcurrentHashMap<>();
+
+  public CaptureDirectoryMarketDataSource(Path directory) {
+    this.directory = directory.toAbsolutePath().normalize();
+  }
+
+  @Override
+  public CandleStickResponse getCandlestickData(String instrumentName, Timeframe timeframe) {
+    CandleStickResponse candles = read(latestCapture(instrumentName)).getCandles();
+    String interval = candles.getResult().getInterval();
+    if (!timeframe.getTimeframeString().equals(interval)) {
+      throw new IllegalArgumentException(
+          "Latest capture of "
+              + instrumentName
+              + " holds "
+              + interval
+              + " candlesticks, not "
+              + timeframe.getTimeframeString());
+    }
+    return candles;
+  }
+
+  @Override
+  public GetTradesResponse getTradesByInstrument(String instrumentName) {
+    return read(latestCapture(instrumentName)).getTrades();
+  }
+
+  /** Trades from every instrument's latest capture, each tagged with its instrument */
+  @Override
+  public GetTradesResponse getTrades() {
+    List<TradesData> trades = new ArrayList<>();
+    latestCaptures()
+        .forEach(
+            (instrumentName, capture) -> {
+              List<TradesData> instrumentTrades = read(capture).getTrades().getResult().getData();
+              if (nonNull(instrumentTrades)) {
+                instrumentTrades.forEach(trade -> trade.setInstrumentName(instrumentName));
+                trades.addAll(instrumentTrades);
+              }
+            });
+    TradeResult result = new TradeResult();
+    result.setData(trades);
+    GetTradesResponse response = new GetTradesResponse();
+    response.setResult(result);
+    return response;
+  }
+
+  private Path latestCapture(String instrumentName) {
+    Path capture = latestCaptures().get(instrumentName);
+    if (isNull(capture)) {
+      throw new UncheckedIOException(
+          new NoSuchFileException(
+              directory.resolve(CAPTURE_PREFIX + instrumentName + "*").toString()));
+    }
+    return capture;
+  }
+
+  // Captures are named Capture<instrument><yyyyMMddHHmmss>.icc, so the last name sorts latest
+  private Map<String, Path> latestCaptures() {
+    Map<String, Path> latest = new TreeMap<>();
+    try (DirectoryStream<Path> files =
+        Files.newDirectoryStream(
+            directory, CAPTURE_PREFIX + "*" + ColumnarFileWriter.CAPTURE_EXTENSION)) {
+      for (Path file : files) {
+        String fileName = file.getFileName().toString();
+        int instrumentEnd =
+            fileName.length() - ColumnarFileWriter.CAPTURE_EXTENSION.length() - TIMESTAMP_LENGTH;
+        if (instrumentEnd <= CAPTURE_PREFIX.length()) {
+          continue;
+        }
+        latest.merge(
+            fileName.substring(CAPTURE_PREFIX.length(), instrumentEnd),
+            file,
+            (current, candidate) ->
+                candidate.getFileName().compareTo(current.getFileName()) > 0 ? candidate : current);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return latest;
+  }
+
+  private MarketDataCapture read(Path file) {
+    SharedCapture shared = openCaptures.computeIfAbsent(file, SharedCapture::new);
+    try {
+      return shared.get();
+    } finally {
+      // Dropped once both halves have been handed out, the next pair reads the file afresh
+      if (shared.halvesLeft.decrementAndGet() <= 0) {
+        openCaptures.remove(file, shared);
+      }
+    }
+  }
+
+  private static class SharedCapture {
+
+    private final Path file;
+    private final AtomicInteger halvesLeft = new AtomicInteger(2);
+    private MarketDataCapture capture;
+
+    SharedCapture(Path file) {
+      this.file = file;
+    }
+
+    synchronized MarketDataCapture get() {
+      if (isNull(capture)) {
+        log.debug("Reading capture {}", file);
+        try (ColumnarCaptureReader reader =
+            new ColumnarCaptureReader(new BufferedInputStream(Files.newInputStream(file)))) {
+          capture = reader.readCapture();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }
+      return capture;
+    }
+  }
+}
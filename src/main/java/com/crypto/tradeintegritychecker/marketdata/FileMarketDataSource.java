@@ -0,0 +1,183 @@
+package com.crypto.tradeintegritychecker.marketdata;
+
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResult;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.Side;
+import com.crypto.tradeintegritychecker.model.response.trades.TradeResult;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.nonNull;
+
+/**
+ * Serves candlesticks and trades from files in a local directory, e.g. responses saved from
+ * upstream or data prepared by hand. Each instrument has a candlestick file per interval and a
+ * trades file, as JSON in upstream's response format or as CSV, JSON being read when both exist:
+ *
+ * <pre>
+ *   ETH_CRO.1m.candlesticks.json    ETH_CRO.trades.json
+ *   BTC_USDT.5m.candlesticks.csv    BTC_USDT.trades.csv
+ * </pre>
+ *
+ * CSV files start with a header row, candlesticks having the columns {@code
+ * endTime,open,close,high,low,volume} and trades {@code
+ * tradeTimestamp,tradePrice,tradeQuantity,side,tradeId}, times in epoch milliseconds. Files are
+ * read on every request, so they can be replaced between runs
+ */
+@Slf4j
+public class FileMarketDataSource implements MarketDataSource {
+
+  static final String CANDLESTICKS_SUFFIX = ".candlesticks";
+  static final String TRADES_SUFFIX = ".trades";
+  static final String JSON_EXTENSION = ".json";
+  static final String CSV_EXTENSION = ".csv";
+
+  private static final String COMMA = ",";
+
+  private final Path directory;
+  private final ObjectMapper objectMapper;
+
+  public FileMarketDataSource(Path directory, ObjectMapper objectMapper) {
+    this.directory = directory.toAbsolutePath().normalize();
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public CandleStickResponse getCandlestickData(String instrumentName, Timeframe timeframe) {
+    String baseName = instrumentName + "." + timeframe.getTimeframeString() + CANDLESTICKS_SUFFIX;
+    try {
+      Path json = directory.resolve(baseName + JSON_EXTENSION);
+      if (Files.isRegularFile(json)) {
+        return objectMapper.readValue(json.toFile(), CandleStickResponse.class);
+      }
+      CandleStickResult result = new CandleStickResult();
+      result.setInstrumentName(instrumentName);
+      result.setInterval(timeframe.getTimeframeString());
+      result.setData(readCandlesticks(directory.resolve(baseName + CSV_EXTENSION)));
+      result.setDepth(result.getData().size());
+      CandleStickResponse response = new CandleStickResponse();
+      response.setResult(result);
+      return response;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public GetTradesResponse getTradesByInstrument(String instrumentName) {
+    try {
+      Path json = directory.resolve(instrumentName + TRADES_SUFFIX + JSON_EXTENSION);
+      if (Files.isRegularFile(json)) {
+        return objectMapper.readValue(json.toFile(), GetTradesResponse.class);
+      }
+      return tradesResponse(
+          instrumentName,
+          readTrades(directory.resolve(instrumentName + TRADES_SUFFIX + CSV_EXTENSION)));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Every instrument's trades file, each trade tagged with its instrument like the live feed */
+  @Override
+  public GetTradesResponse getTrades() {
+    List<TradesData> trades = new ArrayList<>();
+    for (String instrumentName : tradedInstruments()) {
+      List<TradesData> instrumentTrades =
+          getTradesByInstrument(instrumentName).getResult().getData();
+      if (nonNull(instrumentTrades)) {
+        instrumentTrades.forEach(trade -> trade.setInstrumentName(instrumentName));
+        trades.addAll(instrumentTrades);
+      }
+    }
+    return tradesResponse(null, trades);
+  }
+
+  private List<String> tradedInstruments() {
+    List<String> instrumentNames = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+      for (Path file : files) {
+        String fileName = file.getFileName().toString();
+        int suffix = fileName.lastIndexOf(TRADES_SUFFIX + ".");
+        // Instruments with both a JSON and a CSV file are only read once
+        if (suffix > 0 && !instrumentNames.contains(fileName.substring(0, suffix))) {
+          instrumentNames.add(fileName.substring(0, suffix));
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return instrumentNames;
+  }
+
+  private List<CandleStickData> readCandlesticks(Path file) throws IOException {
+    List<CandleStickData> candles = new ArrayList<>();
+    for (String[] row : readRows(file)) {
+      CandleStickData candle = new CandleStickData();
+      candle.setEndTime(Long.parseLong(row[0]));
+      candle.setOpen(new BigDecimal(row[1]));
+      candle.setClose(new BigDecimal(row[2]));
+      candle.setHigh(new BigDecimal(row[3]));
+      candle.setLow(new BigDecimal(row[4]));
+      candle.setVolume(new BigDecimal(row[5]));
+      candles.add(candle);
+    }
+    return candles;
+  }
+
+  private List<TradesData> readTrades(Path file) throws IOException {
+    List<TradesData> trades = new ArrayList<>();
+    for (String[] row : readRows(file)) {
+      TradesData trade = new TradesData();
+      trade.setTradeTimestamp(Long.parseLong(row[0]));
+      trade.setTradePrice(new BigDecimal(row[1]));
+      trade.setTradeQuantity(new BigDecimal(row[2]));
+      trade.setSide(Side.valueOf(row[3]));
+      trade.setTradeId(Long.parseLong(row[4]));
+      trades.add(trade);
+    }
+    return trades;
+  }
+
+  // Every row after the header, skipping blank lines
+  private List<String[]> readRows(Path file) throws IOException {
+    if (!Files.isRegularFile(file)) {
+      throw new NoSuchFileException(file.toString());
+    }
+    List<String[]> rows = new ArrayList<>();
+    try (BufferedReader reader = Files.newBufferedReader(file)) {
+      reader.readLine();
+      for (String line = reader.readLine(); nonNull(line); line = reader.readLine()) {
+        if (!line.trim().isEmpty()) {
+          rows.add(line.trim().split(COMMA));
+        }
+      }
+    }
+    log.debug("Read {} rows from {}", rows.size(), file);
+    return rows;
+  }
+
+  private static GetTradesResponse tradesResponse(String instrumentName, List<TradesData> trades) {
+    TradeResult result = new TradeResult();
+    result.setInstrumentName(instrumentName);
+    result.setData(trades);
+    GetTradesResponse response = new GetTradesResponse();
+    response.setResult(result);
+    return response;
+  }
+}
@@ -0,0 +1,73 @@
+package com.crypto.tradeintegritychecker.marketdata;
+
+import com.crypto.tradeintegritychecker.client.CryptoClient;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResult;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Where the checker reads candlesticks and trades from. {@link CryptoClient} serves them live from
+ * upstream, {@link FileMarketDataSource} and {@link CaptureDirectoryMarketDataSource} from local
+ * data, in the same response objects so the rest of the engine cannot tell them apart. The source
+ * in use is picked by {@code integrity-checker.market-data.source}
+ */
+public interface MarketDataSource {
+
+  ReadAhead NO_READ_AHEAD = () -> {};
+
+  CandleStickResponse getCandlestickData(String instrumentName, Timeframe timeframe);
+
+  /**
+   * Only the most recent {@code depth} candles. Sources that hold the whole window read it and
+   * keep the latest candles
+   */
+  default CandleStickResponse getCandlestickData(
+      String instrumentName, Timeframe timeframe, int depth) {
+    CandleStickResponse candles = getCandlestickData(instrumentName, timeframe);
+    CandleStickResult result = candles.getResult();
+    if (isNull(result) || isNull(result.getData()) || result.getData().size() <= depth) {
+      return candles;
+    }
+    CandleStickResult latest = new CandleStickResult();
+    latest.setInstrumentName(result.getInstrumentName());
+    latest.setInterval(result.getInterval());
+    latest.setDepth(depth);
+    latest.setData(
+        result.getData().subList(result.getData().size() - depth, result.getData().size()));
+    CandleStickResponse trimmed = new CandleStickResponse();
+    trimmed.setResult(latest);
+    return trimmed;
+  }
+
+  GetTradesResponse getTradesByInstrument(String instrumentName);
+
+  /** Recent trades across every instrument, each naming its instrument */
+  GetTradesResponse getTrades();
+
+  /**
+   * Tells the source which instruments a batch is about to fetch and in what order, so sources
+   * that can will fetch ahead of the instrument being evaluated. The plan is made current on the
+   * calling thread, see {@link ReadAheadContext}, and closing the returned handle, on the same
+   * thread, drops whatever was fetched ahead but never asked for
+   */
+  default ReadAhead readAhead(
+      List<String> instrumentNames, Timeframe timeframe, Set<DataType> dataTypes) {
+    return NO_READ_AHEAD;
+  }
+
+  enum DataType {
+    CANDLESTICKS,
+    TRADES
+  }
+
+  interface ReadAhead extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,54 @@
+package com.crypto.tradeintegritychecker.marketdata;
+
+import com.crypto.tradeintegritychecker.client.CryptoClient;
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Picks the {@link MarketDataSource} the checker runs against, wrapped to read ahead for batches
+ * unless the read-ahead depth is 0. The REST client stays a bean of its own, as the stream
+ * backfill always wants live data
+ */
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class MarketDataSourceConfig {
+
+  private final IntegrityCheckerProperties properties;
+
+  @Bean
+  @Primary
+  public MarketDataSource marketDataSource(CryptoClient cryptoClient, ObjectMapper objectMapper) {
+    IntegrityCheckerProperties.MarketData config = properties.getMarketData();
+    Path directory = Paths.get(config.getDirectory());
+    MarketDataSource source;
+    switch (config.getSource()) {
+      case FILES:
+        source = new FileMarketDataSource(directory, objectMapper);
+        break;
+      case CAPTURES:
+        source = new CaptureDirectoryMarketDataSource(directory);
+        break;
+      default:
+        source = cryptoClient;
+    }
+    log.info(
+        "Reading market data from {}{} with a read-ahead depth of {}",
+        config.getSource(),
+        config.getSource() == IntegrityCheckerProperties.MarketDataSourceType.REST
+            ? ""
+            : " in " + directory.toAbsolutePath(),
+        config.getReadAheadDepth());
+    return config.getReadAheadDepth() > 0
+        ? new ReadAheadMarketDataSource(source, config.getReadAheadDepth())
+        : source;
+  }
+}
@@ -0,0 +1,47 @@
+package com.crypto.tradeintegritychecker.marketdata;
+
+import com.crypto.tradeintegritychecker.execution.CheckerExecutor;
+import com.crypto.tradeintegritychecker.execution.Deadline;
+
+import static java.util.Objects.isNull;
+
+/**
+ * The read-ahead plan of the batch the current thread is working for, carried on the thread like
+ * the {@link Deadline} and over to the batch's tasks by the {@link CheckerExecutor}. Data fetched
+ * ahead is only handed to callers working for the plan that fetched it
+ */
+public final class ReadAheadContext {
+
+  private static final ThreadLocal<MarketDataSource.ReadAhead> CURRENT = new ThreadLocal<>();
+
+  private ReadAheadContext() {}
+
+  /** @return the current thread's plan, or null when it is not working for a batch */
+  public static MarketDataSource.ReadAhead current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Makes the plan current until the returned scope is closed. A null plan leaves the current one
+   * in place
+   */
+  public static Scope enter(MarketDataSource.ReadAhead plan) {
+    if (isNull(plan)) {
+      return () -> {};
+    }
+    MarketDataSource.ReadAhead previous = CURRENT.get();
+    CURRENT.set(plan);
+    return () -> {
+      if (isNull(previous)) {
+        CURRENT.remove();
+      } else {
+        CURRENT.set(previous);
+      }
+    };
+  }
+
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,240 @@
+package com.crypto.tradeintegritychecker.marketdata;
+
+import com.crypto.tradeintegritychecker.client.UpstreamPriority;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import lombok.SneakyThrows;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Fetches a batch's next instruments while the current ones are being evaluated. Once a batch
+ * asks for an instrument's data, the data of up to {@code depth} instruments after it is fetched
+ * in the background, so by the time the batch gets to them it is already in memory. Over local
+ * files and captures this keeps a batch busy evaluating rather than waiting on reads, and over
+ * the REST API it hides the round trip behind the previous evaluation.
+ *
+ * <p>Only the full candlestick window and per-instrument trades are read ahead. Requests for a
+ * trimmed window depend on trades that were just fetched, and the all-instrument feed is a single
+ * request per batch, so both go straight to the wrapped source. Fetches made ahead run at the
+ * {@link UpstreamPriority} of the batch that planned them.
+ *
+ * <p>Data fetched ahead belongs to its plan, and is only handed to callers working for that batch
+ * as tracked by the {@link ReadAheadContext}. Other callers, such as an interactive check of an
+ * instrument the batch is about to reach, fetch from the wrapped source and leave the batch's
+ * window where it is
+ */
+@Slf4j
+public class ReadAheadMarketDataSource implements MarketDataSource {
+
+  private final MarketDataSource delegate;
+  private final int depth;
+  private final ExecutorService executorService;
+  private final Set<Plan> plans = ConcurrentHashMap.newKeySet();
+
+  public ReadAheadMarketDataSource(MarketDataSource delegate, int depth) {
+    this.delegate = delegate;
+    this.depth = depth;
+    AtomicInteger threads = new AtomicInteger();
+    // Both halves of every instrument being read ahead can be in flight at once
+    this.executorService =
+        Executors.newFixedThreadPool(
+            2 * depth,
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "market-data-read-ahead-" + threads.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  public void shutdown() {
+    executorService.shutdownNow();
+  }
+
+  @Override
+  public CandleStickResponse getCandlestickData(String instrumentName, Timeframe timeframe) {
+    return take(
+        new Fetch(DataType.CANDLESTICKS, instrumentName, timeframe),
+        () -> delegate.getCandlestickData(instrumentName, timeframe));
+  }
+
+  @Override
+  public CandleStickResponse getCandlestickData(
+      String instrumentName, Timeframe timeframe, int depth) {
+    return delegate.getCandlestickData(instrumentName, timeframe, depth);
+  }
+
+  @Override
+  public GetTradesResponse getTradesByInstrument(String instrumentName) {
+    return take(
+        new Fetch(DataType.TRADES, instrumentName, null),
+        () -> delegate.getTradesByInstrument(instrumentName));
+  }
+
+  @Override
+  public GetTradesResponse getTrades() {
+    return delegate.getTrades();
+  }
+
+  @Override
+  public ReadAhead readAhead(
+      List<String> instrumentNames, Timeframe timeframe, Set<DataType> dataTypes) {
+    if (instrumentNames.isEmpty() || dataTypes.isEmpty()) {
+      return NO_READ_AHEAD;
+    }
+    Plan plan =
+        new Plan(instrumentNames, timeframe, EnumSet.copyOf(dataTypes), UpstreamPriority.current());
+    plans.add(plan);
+    plan.scope = ReadAheadContext.enter(plan);
+    // The batch fetches its first instrument itself, the ones after it are started now
+    plan.fetchAheadOf(0);
+    return plan;
+  }
+
+  /** Fetches made ahead that no batch has taken yet */
+  int pendingFetches() {
+    return plans.stream().mapToInt(plan -> plan.fetchedAhead.size()).sum();
+  }
+
+  /**
+   * Hands out the data if the caller's batch fetched it ahead, waiting for the fetch if it is still
+   * running, and fetches it here otherwise. Either way the batch's instruments after it are then
+   * fetched ahead
+   */
+  @SneakyThrows
+  @SuppressWarnings("unchecked")
+  private <T> T take(Fetch fetch, Supplier<T> call) {
+    MarketDataSource.ReadAhead current = ReadAheadContext.current();
+    if (!(current instanceof Plan) || !plans.contains(current)) {
+      return call.get();
+    }
+    Plan plan = (Plan) current;
+    plan.reached(fetch.getInstrumentName());
+    Future<?> ahead = plan.fetchedAhead.remove(fetch);
+    if (isNull(ahead)) {
+      return call.get();
+    }
+    try {
+      return (T) ahead.get();
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    } catch (InterruptedException e) {
+      ahead.cancel(true);
+      throw e;
+    }
+  }
+
+  @Value
+  private static class Fetch {
+    DataType dataType;
+    String instrumentName;
+    Timeframe timeframe;
+  }
+
+  /** One batch's instruments, in the order it fetches them */
+  private class Plan implements ReadAhead {
+
+    private final List<String> instrumentNames;
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final Timeframe timeframe;
+    private final Set<DataType> dataTypes;
+    private final UpstreamPriority priority;
+    private final AtomicInteger nextToFetch = new AtomicInteger();
+    private final ConcurrentMap<Fetch, Future<?>> fetchedAhead = new ConcurrentHashMap<>();
+    private ReadAheadContext.Scope scope;
+
+    Plan(
+        List<String> instrumentNames,
+        Timeframe timeframe,
+        Set<DataType> dataTypes,
+        UpstreamPriority priority) {
+      this.instrumentNames = instrumentNames;
+      this.timeframe = timeframe;
+      this.dataTypes = dataTypes;
+      this.priority = priority;
+      for (int i = instrumentNames.size() - 1; i >= 0; i--) {
+        positions.put(instrumentNames.get(i), i);
+      }
+    }
+
+    void reached(String instrumentName) {
+      Integer position = positions.get(instrumentName);
+      if (nonNull(position)) {
+        fetchAheadOf(position);
+      }
+    }
+
+    /**
+     * Starts fetching every instrument up to {@code depth} past the one at the position, other
+     * than that one itself, which its caller is about to fetch
+     */
+    void fetchAheadOf(int position) {
+      int last = Math.min(position + depth, instrumentNames.size() - 1);
+      for (int next = nextToFetch.get(); next <= last; next = nextToFetch.get()) {
+        if (nextToFetch.compareAndSet(next, next + 1) && next != position) {
+          start(instrumentNames.get(next));
+        }
+      }
+    }
+
+    private void start(String instrumentName) {
+      if (dataTypes.contains(DataType.CANDLESTICKS)) {
+        start(
+            new Fetch(DataType.CANDLESTICKS, instrumentName, timeframe),
+            () -> delegate.getCandlestickData(instrumentName, timeframe));
+      }
+      if (dataTypes.contains(DataType.TRADES)) {
+        start(
+            new Fetch(DataType.TRADES, instrumentName, null),
+            () -> delegate.getTradesByInstrument(instrumentName));
+      }
+    }
+
+    private void start(Fetch fetch, Callable<?> call) {
+      log.debug(
+          "Reading {} ahead for Instrument: {}", fetch.getDataType(), fetch.getInstrumentName());
+      fetchedAhead.computeIfAbsent(
+          fetch,
+          key ->
+              executorService.submit(
+                  () -> {
+                    try (UpstreamPriority.Scope scope = priority.enter()) {
+                      return call.call();
+                    }
+                  }));
+    }
+
+    @Override
+    public void close() {
+      plans.remove(this);
+      scope.close();
+      // Anything the batch never asked for, e.g. after it failed part way, is cancelled
+      fetchedAhead.forEach(
+          (fetch, future) -> {
+            if (fetchedAhead.remove(fetch, future)) {
+              future.cancel(true);
+            }
+          });
+    }
+  }
+}
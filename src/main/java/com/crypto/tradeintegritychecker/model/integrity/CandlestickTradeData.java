@@ -5,11 +5,13 @@ import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickDa
 import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
 import lombok.Builder;
 import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
 
 import java.util.List;
 
 @Data
 @Builder
+@Jacksonized
 public class CandlestickTradeData {
 
     private String instrument;
@@ -0,0 +1,26 @@
+package com.crypto.tradeintegritychecker.model.integrity;
+
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Published by the IntegrityService once an instrument has been evaluated, so that history,
+ * journalling and other consumers can observe results without being wired into the evaluation.
+ * Replayed evaluations are flagged, as they describe past data rather than a new run
+ */
+@Value
+@AllArgsConstructor
+public class IntegrityCheckCompletedEvent {
+
+    String instrumentName;
+    Timeframe timeframe;
+    long evaluatedAt;
+    IntegritySummary summary;
+    boolean replayed;
+
+    public IntegrityCheckCompletedEvent(
+            String instrumentName, Timeframe timeframe, long evaluatedAt, IntegritySummary summary) {
+        this(instrumentName, timeframe, evaluatedAt, summary, false);
+    }
+}
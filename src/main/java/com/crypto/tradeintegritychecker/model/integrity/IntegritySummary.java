@@ -2,6 +2,7 @@ package com.crypto.tradeintegritychecker.model.integrity;
 
 import lombok.Builder;
 import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
 
 import java.util.List;
 
@@ -10,15 +11,32 @@ import java.util.List;
  * Primary use case is for returning data to the user when calling the API
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
+@Jacksonized
 public class IntegritySummary {
 
+    public static final String MISSING_CANDLESTICKS = "candlesticks";
+    public static final String MISSING_TRADES = "trades";
+
     private int numIntegrityBreaks;
     private int numTrades;
     private int numCandlesticks;
     private int numCandlesticksAnalyzed;
     private List<IntegrityViolation> dataIntegrityBreaks;
 
+    //Set when the caller's latency budget ran out, the counts above then cover only what was evaluated
+    private boolean partial;
+    //Upstream data not fetched in time, MISSING_CANDLESTICKS and/or MISSING_TRADES
+    private List<String> missingData;
+    //Candlesticks fetched but not analyzed in time
+    private int numCandlesticksNotAnalyzed;
+    //Times of the first and last candles analyzed, null when none were
+    private Long firstCandleAnalyzed;
+    private Long lastCandleAnalyzed;
+
+    //Per-stage cost of the request, only filled in when the caller asks for it with debug=true
+    private List<StageCost> costs;
+
     public boolean getIntegrityBreakStatus() {
         if(dataIntegrityBreaks.size() > 0) {
             return true;
@@ -4,16 +4,19 @@ import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickDa
 import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
 import lombok.Builder;
 import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
 
 import java.math.BigDecimal;
 
 
 @Data
 @Builder
+@Jacksonized
 public class IntegrityViolation {
 
     private CandlestickTradeData candleStickTradeData;
     private String rule;
+    private ValidationRule validationRule;
     private TradesData trade;
     private BigDecimal tradesVolume;
 }
@@ -12,4 +12,9 @@ public class IntegrityViolationDetail {
 
     private List<IntegrityViolation> integrityViolations;
     private int numCandlesticksAnalyzed;
+    //Candlesticks skipped because the deadline passed first
+    private int numCandlesticksNotAnalyzed;
+    //Times of the first and last candles analyzed, null when none were
+    private Long firstCandleAnalyzed;
+    private Long lastCandleAnalyzed;
 }
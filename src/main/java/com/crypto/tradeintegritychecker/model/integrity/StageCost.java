@@ -0,0 +1,20 @@
+package com.crypto.tradeintegritychecker.model.integrity;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.jackson.Jacksonized;
+
+/**
+ * What one stage of an integrity check cost. CPU time and allocation are summed over every thread
+ * that worked on the stage, wall time runs from the stage first starting to it last finishing
+ */
+@Data
+@Builder
+@Jacksonized
+public class StageCost {
+
+    private String stage;
+    private double wallMs;
+    private double cpuMs;
+    private long allocatedBytes;
+}
@@ -0,0 +1,17 @@
+package com.crypto.tradeintegritychecker.model.request;
+
+import lombok.Value;
+
+/**
+ * Candle window worth downloading for a set of trades. Times are candle start times, which the
+ * exchange reports in the candlestick "t" attribute
+ */
+@Value
+public class CandlestickFetchPlan {
+
+    long windowStart;
+    long windowEnd;
+
+    //Number of most recent candles to request so that windowStart is included
+    int depth;
+}
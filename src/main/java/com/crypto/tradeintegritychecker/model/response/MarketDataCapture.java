@@ -0,0 +1,13 @@
+package com.crypto.tradeintegritychecker.model.response;
+
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import lombok.Value;
+
+/** Candlestick and trade responses captured together, as reloaded from a columnar export */
+@Value
+public class MarketDataCapture {
+
+    CandleStickResponse candles;
+    GetTradesResponse trades;
+}
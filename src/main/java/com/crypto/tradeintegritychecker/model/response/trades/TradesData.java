@@ -25,4 +25,8 @@ public class TradesData {
 
     @JsonProperty("t")
     private Long tradeTimestamp;
+
+    //Only populated by the all-instrument trades feed
+    @JsonProperty("i")
+    private String instrumentName;
 }
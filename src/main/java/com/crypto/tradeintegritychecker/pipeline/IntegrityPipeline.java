@@ -0,0 +1,263 @@
+package com.crypto.tradeintegritychecker.pipeline;
+
+import com.crypto.tradeintegritychecker.client.UpstreamPriority;
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.execution.Deadline;
+import com.crypto.tradeintegritychecker.marketdata.MarketDataSource;
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.service.IntegrityService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Staged alternative to the inline call chain in {@link IntegrityService}. Work is split into
+ * lanes, each with one fetch thread doing the upstream I/O and a group of evaluation workers
+ * doing the grouping, rule checks and CSV output. The fetch thread is the single producer of its
+ * lane's {@link RingBuffer}, so the next instrument's fetch overlaps with the previous
+ * instrument's evaluation and bursts queue up in the ring rather than on the HTTP threads.
+ *
+ * <p>Instruments are assigned to lanes by hash, so each instrument's runs are fetched in order by
+ * one thread. Any of the lane's workers may evaluate a run though, so with more than one
+ * evaluation worker two runs of the same instrument can be evaluated at once and complete in
+ * either order
+ *
+ * <p>Each fetch runs under the per-call timeout, cut short by the submitter's {@link Deadline}, so
+ * a hung upstream fails that instrument rather than stalling its lane
+ */
+@Slf4j
+@Component
+public class IntegrityPipeline {
+
+  private final IntegrityCheckerProperties.Pipeline config;
+  private final Duration callTimeout;
+  private final IntegrityService integrityService;
+  private final MarketDataSource marketDataSource;
+  private final MeterRegistry meterRegistry;
+  private final List<Lane> lanes = new ArrayList<>();
+
+  private Timer fetchTimer;
+  private Timer handoffTimer;
+  private Timer evaluateTimer;
+  private volatile boolean running;
+
+  public IntegrityPipeline(
+      IntegrityCheckerProperties properties,
+      IntegrityService integrityService,
+      MarketDataSource marketDataSource,
+      MeterRegistry meterRegistry) {
+    this.config = properties.getPipeline();
+    this.callTimeout = properties.getExecution().getCallTimeout();
+    this.integrityService = integrityService;
+    this.marketDataSource = marketDataSource;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @PostConstruct
+  public void start() {
+    if (!config.isEnabled()) {
+      return;
+    }
+    fetchTimer = stageTimer("fetch");
+    handoffTimer = stageTimer("handoff");
+    evaluateTimer = stageTimer("evaluate");
+    running = true;
+    for (int i = 0; i < config.getLanes(); i++) {
+      lanes.add(new Lane(i));
+    }
+    log.info(
+        "Started integrity pipeline with {} lanes of {} evaluation workers, ring capacity {} and {} wait strategy",
+        config.getLanes(),
+        config.getEvaluationWorkers(),
+        config.getRingCapacity(),
+        config.getWaitStrategy());
+  }
+
+  @PreDestroy
+  public void stop() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    lanes.forEach(Lane::stop);
+  }
+
+  public boolean isEnabled() {
+    return running;
+  }
+
+  /**
+   * Queues an instrument for evaluation, blocking while its lane's intake is full
+   *
+   * @return completes with the summary once a worker has evaluated the instrument
+   */
+  public CompletableFuture<IntegritySummary> submit(String instrumentName, Timeframe timeframe) {
+    if (!running) {
+      throw new IllegalStateException("Integrity pipeline is not running");
+    }
+    CompletableFuture<IntegritySummary> result = new CompletableFuture<>();
+    Lane lane = lanes.get(Math.floorMod(instrumentName.hashCode(), lanes.size()));
+    try {
+      lane.intake.put(
+          new FetchRequest(
+              instrumentName, timeframe, UpstreamPriority.current(), Deadline.current(), result));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  private void fetchLoop(Lane lane) {
+    while (running) {
+      FetchRequest request;
+      try {
+        request = lane.intake.take();
+      } catch (InterruptedException e) {
+        return;
+      }
+      long fetchStart = System.nanoTime();
+      GetTradesResponse trades;
+      CandleStickResponse candles;
+      try (UpstreamPriority.Scope scope = request.getPriority().enter();
+          Deadline.Scope submitterDeadline = Deadline.enter(request.getDeadline());
+          Deadline.Scope callDeadline = Deadline.enter(Deadline.after(callTimeout))) {
+        trades = marketDataSource.getTradesByInstrument(request.getInstrumentName());
+        candles =
+            integrityService.getCandlestickDataForTrades(
+                request.getInstrumentName(), request.getTimeframe(), trades);
+      } catch (RuntimeException e) {
+        log.warn("Unable to fetch data for Instrument: {}", request.getInstrumentName(), e);
+        request.getResult().completeExceptionally(e);
+        continue;
+      }
+      fetchTimer.record(System.nanoTime() - fetchStart, TimeUnit.NANOSECONDS);
+
+      try {
+        lane.ring.publish(
+            slot -> {
+              slot.setInstrumentName(request.getInstrumentName());
+              slot.setTimeframe(request.getTimeframe());
+              slot.setTrades(trades);
+              slot.setCandles(candles);
+              slot.setResult(request.getResult());
+              slot.setPublishedAtNanos(System.nanoTime());
+            });
+      } catch (InterruptedException | IllegalStateException e) {
+        request.getResult().completeExceptionally(new CancellationException("Pipeline stopped"));
+        return;
+      }
+    }
+  }
+
+  private void evaluateLoop(Lane lane) {
+    try {
+      while (lane.ring.consume(this::evaluate)) {
+        // Each consume call evaluates one instrument
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void evaluate(MarketDataSlot slot) {
+    handoffTimer.record(System.nanoTime() - slot.getPublishedAtNanos(), TimeUnit.NANOSECONDS);
+    CompletableFuture<IntegritySummary> result = slot.getResult();
+    long evaluateStart = System.nanoTime();
+    try {
+      result.complete(
+          integrityService.evaluateFetchedData(
+              slot.getInstrumentName(), slot.getTimeframe(), slot.getCandles(), slot.getTrades()));
+    } catch (RuntimeException e) {
+      log.warn("Unable to evaluate Instrument: {}", slot.getInstrumentName(), e);
+      result.completeExceptionally(e);
+    } finally {
+      evaluateTimer.record(System.nanoTime() - evaluateStart, TimeUnit.NANOSECONDS);
+      slot.clear();
+    }
+  }
+
+  private Timer stageTimer(String stage) {
+    return Timer.builder("integrity.pipeline.stage.latency")
+        .description("Time spent in each pipeline stage, handoff being the wait in the ring buffer")
+        .tag("stage", stage)
+        .register(meterRegistry);
+  }
+
+  private class Lane {
+
+    private final BlockingQueue<FetchRequest> intake;
+    private final RingBuffer<MarketDataSlot> ring;
+    private final Thread fetcher;
+    private final List<Thread> evaluators = new ArrayList<>();
+
+    Lane(int id) {
+      intake = new ArrayBlockingQueue<>(config.getIntakeCapacity());
+      ring =
+          new RingBuffer<>(
+              config.getRingCapacity(),
+              MarketDataSlot::new,
+              WaitStrategy.create(config.getWaitStrategy()));
+
+      String lane = String.valueOf(id);
+      Gauge.builder("integrity.pipeline.depth", intake, BlockingQueue::size)
+          .description("Instruments waiting in each pipeline stage")
+          .tag("stage", "intake")
+          .tag("lane", lane)
+          .register(meterRegistry);
+      Gauge.builder("integrity.pipeline.depth", ring, RingBuffer::getDepth)
+          .description("Instruments waiting in each pipeline stage")
+          .tag("stage", "handoff")
+          .tag("lane", lane)
+          .register(meterRegistry);
+
+      fetcher = daemon("integrity-pipeline-fetch-" + id, () -> fetchLoop(this));
+      for (int i = 0; i < config.getEvaluationWorkers(); i++) {
+        evaluators.add(daemon("integrity-pipeline-evaluate-" + id + "-" + i, () -> evaluateLoop(this)));
+      }
+    }
+
+    void stop() {
+      fetcher.interrupt();
+      ring.halt();
+      List<FetchRequest> abandoned = new ArrayList<>();
+      intake.drainTo(abandoned);
+      abandoned.forEach(
+          request ->
+              request.getResult().completeExceptionally(new CancellationException("Pipeline stopped")));
+    }
+
+    private Thread daemon(String name, Runnable loop) {
+      Thread thread = new Thread(loop, name);
+      thread.setDaemon(true);
+      thread.start();
+      return thread;
+    }
+  }
+
+  @Value
+  private static class FetchRequest {
+    String instrumentName;
+    Timeframe timeframe;
+    UpstreamPriority priority;
+    Deadline deadline;
+    CompletableFuture<IntegritySummary> result;
+  }
+}
@@ -0,0 +1,30 @@
+package com.crypto.tradeintegritychecker.pipeline;
+
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import lombok.Data;
+
+import java.util.concurrent.CompletableFuture;
+
+/** Reusable ring buffer slot carrying one instrument's fetched data to a rule evaluation worker */
+@Data
+class MarketDataSlot {
+
+  private String instrumentName;
+  private Timeframe timeframe;
+  private CandleStickResponse candles;
+  private GetTradesResponse trades;
+  private CompletableFuture<IntegritySummary> result;
+  private long publishedAtNanos;
+
+  /** Drops the references held by the slot so the payloads can be collected while it sits idle */
+  void clear() {
+    instrumentName = null;
+    timeframe = null;
+    candles = null;
+    trades = null;
+    result = null;
+  }
+}
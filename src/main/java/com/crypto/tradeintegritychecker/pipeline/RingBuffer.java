@@ -0,0 +1,121 @@
+package com.crypto.tradeintegritychecker.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded single-producer/multi-consumer hand-off over a preallocated array of mutable slots.
+ * Every slot carries a sequence number that says whose turn it is: the producer may fill slot
+ * {@code i} for position {@code p} once its sequence equals {@code p}, a consumer may take it once
+ * the sequence equals {@code p + 1}, and releasing it sets {@code p + capacity} for the next lap.
+ * No locks are taken and no objects are allocated per event, each published event is handed to
+ * exactly one consumer
+ *
+ * @param <E> the slot type, written in place by the producer and read in place by a consumer
+ */
+public class RingBuffer<E> {
+
+  private final Object[] slots;
+  private final AtomicLongArray sequences;
+  private final int capacity;
+  private final int mask;
+  private final WaitStrategy waitStrategy;
+
+  // Only ever touched by the producer thread
+  private long producerPosition;
+  private final AtomicLong published = new AtomicLong();
+  private final AtomicLong consumerPosition = new AtomicLong();
+  private volatile boolean halted;
+
+  public RingBuffer(int capacity, Supplier<E> slotFactory, WaitStrategy waitStrategy) {
+    if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException("Ring buffer capacity must be a power of two, was " + capacity);
+    }
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    this.waitStrategy = waitStrategy;
+    this.slots = new Object[capacity];
+    this.sequences = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      slots[i] = slotFactory.get();
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * Fills the next slot in place and makes it visible to consumers, waiting while the ring is
+   * full. Must only be called from the single producer thread
+   *
+   * @throws IllegalStateException if the ring has been halted
+   */
+  public void publish(Consumer<E> writer) throws InterruptedException {
+    long position = producerPosition;
+    int index = (int) (position & mask);
+    waitStrategy.waitUntil(() -> halted || sequences.get(index) == position);
+    if (halted) {
+      throw new IllegalStateException("Ring buffer has been halted");
+    }
+    writer.accept(slotAt(index));
+    producerPosition = position + 1;
+    published.lazySet(position + 1);
+    sequences.lazySet(index, position + 1);
+    waitStrategy.signalAll();
+  }
+
+  /**
+   * Claims the next published slot and hands it to {@code reader}, waiting while the ring is
+   * empty. The slot is only released for reuse once the reader returns
+   *
+   * @return false once the ring has been halted and there is nothing left to consume
+   */
+  public boolean consume(Consumer<E> reader) throws InterruptedException {
+    while (true) {
+      long position = consumerPosition.get();
+      int index = (int) (position & mask);
+      long sequence = sequences.get(index);
+      if (sequence == position + 1) {
+        if (consumerPosition.compareAndSet(position, position + 1)) {
+          try {
+            reader.accept(slotAt(index));
+          } finally {
+            sequences.lazySet(index, position + capacity);
+            waitStrategy.signalAll();
+          }
+          return true;
+        }
+      } else if (sequence < position + 1) {
+        if (halted) {
+          return false;
+        }
+        waitStrategy.waitUntil(() -> halted || isPublished(consumerPosition.get()));
+      }
+      // Otherwise another consumer claimed this position first, retry from the new position
+    }
+  }
+
+  /** Wakes every waiting thread; consumers drain what has been published and then stop */
+  public void halt() {
+    halted = true;
+    waitStrategy.signalAll();
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /** Published events not yet claimed by a consumer */
+  public long getDepth() {
+    return Math.max(0, published.get() - consumerPosition.get());
+  }
+
+  private boolean isPublished(long position) {
+    return sequences.get((int) (position & mask)) == position + 1;
+  }
+
+  @SuppressWarnings("unchecked")
+  private E slotAt(int index) {
+    return (E) slots[index];
+  }
+}
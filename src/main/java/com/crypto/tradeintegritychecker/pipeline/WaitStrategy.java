@@ -0,0 +1,133 @@
+package com.crypto.tradeintegritychecker.pipeline;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * How a {@link RingBuffer} producer or consumer waits when its next slot is not ready. Spinning
+ * strategies give the lowest hand-off latency at the cost of a busy core per waiting thread,
+ * blocking gives the CPU back to the rest of the application
+ */
+public interface WaitStrategy {
+
+  /** Returns once {@code ready} holds, re-checking it whenever another thread signals */
+  void waitUntil(BooleanSupplier ready) throws InterruptedException;
+
+  /** Called after every publish and release so that blocked threads re-check their condition */
+  void signalAll();
+
+  static WaitStrategy create(IntegrityCheckerProperties.WaitStrategyType type) {
+    switch (type) {
+      case BUSY_SPIN:
+        return new BusySpin();
+      case YIELDING:
+        return new Yielding();
+      case SLEEPING:
+        return new Sleeping();
+      case BLOCKING:
+      default:
+        return new Blocking();
+    }
+  }
+
+  class BusySpin implements WaitStrategy {
+
+    @Override
+    public void waitUntil(BooleanSupplier ready) throws InterruptedException {
+      while (!ready.getAsBoolean()) {
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        Thread.onSpinWait();
+      }
+    }
+
+    @Override
+    public void signalAll() {}
+  }
+
+  class Yielding implements WaitStrategy {
+
+    private static final int SPINS = 100;
+
+    @Override
+    public void waitUntil(BooleanSupplier ready) throws InterruptedException {
+      for (int attempt = 0; !ready.getAsBoolean(); attempt++) {
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        if (attempt < SPINS) {
+          Thread.onSpinWait();
+        } else {
+          Thread.yield();
+        }
+      }
+    }
+
+    @Override
+    public void signalAll() {}
+  }
+
+  class Sleeping implements WaitStrategy {
+
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+    private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    @Override
+    public void waitUntil(BooleanSupplier ready) throws InterruptedException {
+      for (int attempt = 0; !ready.getAsBoolean(); attempt++) {
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        if (attempt < SPINS) {
+          Thread.onSpinWait();
+        } else if (attempt < SPINS + YIELDS) {
+          Thread.yield();
+        } else {
+          LockSupport.parkNanos(PARK_NANOS);
+        }
+      }
+    }
+
+    @Override
+    public void signalAll() {}
+  }
+
+  class Blocking implements WaitStrategy {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    @Override
+    public void waitUntil(BooleanSupplier ready) throws InterruptedException {
+      if (ready.getAsBoolean()) {
+        return;
+      }
+      lock.lockInterruptibly();
+      try {
+        // Signals are sent under the lock, so a change made after this check cannot be missed
+        while (!ready.getAsBoolean()) {
+          changed.await();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void signalAll() {
+      lock.lock();
+      try {
+        changed.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package com.crypto.tradeintegritychecker.recording;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/** Reads back the records of a capture written by {@link CaptureLogWriter}, in recording order */
+public class CaptureLogReader implements Closeable {
+
+  private final DataInputStream in;
+
+  public CaptureLogReader(InputStream in) throws IOException {
+    this.in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(in)));
+    if (this.in.readInt() != CaptureLogWriter.MAGIC) {
+      throw new IOException("Not an upstream capture log");
+    }
+  }
+
+  /** @return the next record, or null at the end of the capture */
+  public RecordedResponse next() throws IOException {
+    long recordedAt;
+    try {
+      recordedAt = in.readLong();
+    } catch (EOFException e) {
+      return null;
+    }
+    try {
+      String request = in.readUTF();
+      byte[] payload = new byte[in.readInt()];
+      in.readFully(payload);
+      return new RecordedResponse(recordedAt, request, payload);
+    } catch (EOFException e) {
+      // The recorder stopped mid-record, everything before it is still usable
+      return null;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+}
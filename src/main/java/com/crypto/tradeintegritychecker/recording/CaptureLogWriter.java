@@ -0,0 +1,37 @@
+package com.crypto.tradeintegritychecker.recording;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends {@link RecordedResponse}s to a gzip stream. Every record is sync-flushed, so a capture
+ * that is still being written, or was cut short by a crash, can be read up to its last record
+ */
+public class CaptureLogWriter implements Closeable {
+
+  static final int MAGIC = 0x49435231;
+
+  private final DataOutputStream out;
+
+  public CaptureLogWriter(OutputStream out) throws IOException {
+    this.out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(out), true));
+    this.out.writeInt(MAGIC);
+  }
+
+  public void append(RecordedResponse response) throws IOException {
+    out.writeLong(response.getRecordedAt());
+    out.writeUTF(response.getRequest());
+    out.writeInt(response.getPayload().length);
+    out.write(response.getPayload());
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
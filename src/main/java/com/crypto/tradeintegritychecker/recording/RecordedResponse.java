@@ -0,0 +1,15 @@
+package com.crypto.tradeintegritychecker.recording;
+
+import lombok.Value;
+
+/** One raw upstream response body, with the request it answered and when it was received */
+@Value
+public class RecordedResponse {
+
+  long recordedAt;
+
+  /** Path and query of the request, e.g. /v2/public/get-trades?instrument_name=ETH_CRO */
+  String request;
+
+  byte[] payload;
+}
@@ -0,0 +1,31 @@
+package com.crypto.tradeintegritychecker.recording;
+
+import com.crypto.tradeintegritychecker.execution.Deadline;
+
+/**
+ * Marks the current thread as replaying a recorded capture, carried on the thread like the
+ * {@link Deadline}. A replay re-evaluates data from the past, so its results are tagged and left
+ * out of the integrity history, the violation journal and the deviation sketches
+ */
+public final class Replay {
+
+  private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+  private Replay() {}
+
+  public static boolean isActive() {
+    return Boolean.TRUE.equals(ACTIVE.get());
+  }
+
+  /** Marks evaluations on the current thread as replayed until the returned scope is closed */
+  public static Scope enter() {
+    Boolean previous = ACTIVE.get();
+    ACTIVE.set(Boolean.TRUE);
+    return () -> ACTIVE.set(previous);
+  }
+
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,19 @@
+package com.crypto.tradeintegritychecker.recording;
+
+import lombok.Value;
+
+/** Outcome of replaying a capture, doubling as a throughput measurement when replayed flat out */
+@Value
+public class ReplayReport {
+
+  String capture;
+  double speed;
+  int responsesReplayed;
+  int evaluations;
+  int integrityBreaks;
+  long elapsedMillis;
+
+  public double getEvaluationsPerSecond() {
+    return elapsedMillis == 0 ? evaluations : evaluations * 1000d / elapsedMillis;
+  }
+}
@@ -0,0 +1,180 @@
+package com.crypto.tradeintegritychecker.recording;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.service.IntegrityService;
+import com.crypto.tradeintegritychecker.service.TradeFeedDemultiplexer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+/**
+ * Feeds a capture recorded by {@link UpstreamRecorder} back through {@link IntegrityService}. A
+ * check is replayed once both its candlestick and trade responses have been read, trades from the
+ * all-instrument feed being partitioned for the instruments whose candles follow it, just as in
+ * the live batch run. Replayed evaluations are tagged as such, see {@link Replay}.
+ *
+ * <p>Responses are released at their recorded pace scaled by {@code speed}: 1 is real time, 10 is
+ * ten times faster, and 0 or less replays as fast as possible
+ */
+@Slf4j
+@Service
+public class ReplaySource {
+
+  private static final String CANDLESTICK_PATH = "/get-candlestick";
+  private static final String TRADES_PATH = "/get-trades";
+  private static final String INSTRUMENT_NAME = "instrument_name";
+  private static final String TIMEFRAME = "timeframe";
+
+  private final IntegrityService integrityService;
+  private final TradeFeedDemultiplexer tradeFeedDemultiplexer;
+  private final ObjectMapper objectMapper;
+  private final Path recordingDirectory;
+
+  public ReplaySource(
+      IntegrityService integrityService,
+      TradeFeedDemultiplexer tradeFeedDemultiplexer,
+      ObjectMapper objectMapper,
+      IntegrityCheckerProperties properties) {
+    this.integrityService = integrityService;
+    this.tradeFeedDemultiplexer = tradeFeedDemultiplexer;
+    this.objectMapper = objectMapper;
+    this.recordingDirectory =
+        Paths.get(properties.getRecording().getDirectory()).toAbsolutePath().normalize();
+  }
+
+  /** Replays a capture from the recordings directory */
+  public ReplayReport replay(String fileName, double speed)
+      throws IOException, InterruptedException {
+    Path capture = recordingDirectory.resolve(fileName).normalize();
+    if (!recordingDirectory.equals(capture.getParent()) || !Files.isRegularFile(capture)) {
+      throw new NoSuchFileException(fileName);
+    }
+    return replay(capture, speed);
+  }
+
+  public ReplayReport replay(Path capture, double speed) throws IOException, InterruptedException {
+    log.info("Replaying upstream capture {} at {}", capture, speed > 0 ? speed + "x" : "full speed");
+    Map<String, CandleStickResponse> pendingCandles = new LinkedHashMap<>();
+    Map<String, Timeframe> pendingTimeframes = new HashMap<>();
+    Map<String, GetTradesResponse> pendingTrades = new HashMap<>();
+    GetTradesResponse tradesFeed = null;
+
+    int responses = 0;
+    int evaluations = 0;
+    int integrityBreaks = 0;
+    long replayStarted = System.nanoTime();
+    long firstRecordedAt = -1;
+    try (CaptureLogReader reader = new CaptureLogReader(Files.newInputStream(capture))) {
+      for (RecordedResponse response = reader.next(); nonNull(response); response = reader.next()) {
+        if (firstRecordedAt < 0) {
+          firstRecordedAt = response.getRecordedAt();
+        }
+        if (speed > 0) {
+          awaitReplayTime(replayStarted, (response.getRecordedAt() - firstRecordedAt) / speed);
+        }
+        responses++;
+
+        UriComponents request = UriComponentsBuilder.fromUriString(response.getRequest()).build();
+        String instrumentName = request.getQueryParams().getFirst(INSTRUMENT_NAME);
+        String path = String.valueOf(request.getPath());
+        if (path.endsWith(CANDLESTICK_PATH)) {
+          pendingCandles.put(
+              instrumentName,
+              objectMapper.readValue(response.getPayload(), CandleStickResponse.class));
+          pendingTimeframes.put(
+              instrumentName,
+              Timeframe.getTimeframeFromString(request.getQueryParams().getFirst(TIMEFRAME)));
+        } else if (path.endsWith(TRADES_PATH)) {
+          GetTradesResponse trades =
+              objectMapper.readValue(response.getPayload(), GetTradesResponse.class);
+          if (isNull(instrumentName)) {
+            tradesFeed = trades;
+          } else {
+            pendingTrades.put(instrumentName, trades);
+          }
+        }
+
+        // Evaluate every instrument that now has both halves of its check
+        Iterator<Map.Entry<String, CandleStickResponse>> candles =
+            pendingCandles.entrySet().iterator();
+        while (candles.hasNext()) {
+          Map.Entry<String, CandleStickResponse> candle = candles.next();
+          GetTradesResponse trades = pendingTrades.remove(candle.getKey());
+          if (isNull(trades) && nonNull(tradesFeed)) {
+            trades =
+                tradeFeedDemultiplexer
+                    .partition(tradesFeed, Collections.singletonList(candle.getKey()))
+                    .get(candle.getKey());
+          }
+          if (isNull(trades)) {
+            continue;
+          }
+          candles.remove();
+          IntegritySummary summary;
+          try (Replay.Scope replay = Replay.enter()) {
+            summary =
+                integrityService.evaluateFetchedData(
+                    candle.getKey(),
+                    pendingTimeframes.remove(candle.getKey()),
+                    candle.getValue(),
+                    trades);
+          }
+          evaluations++;
+          integrityBreaks += isNull(summary) ? 0 : summary.getNumIntegrityBreaks();
+        }
+      }
+    }
+    if (!pendingCandles.isEmpty()) {
+      log.warn(
+          "Capture ended before trades were recorded for Instruments: {}",
+          new ArrayList<>(pendingCandles.keySet()));
+    }
+
+    ReplayReport report =
+        new ReplayReport(
+            capture.getFileName().toString(),
+            speed,
+            responses,
+            evaluations,
+            integrityBreaks,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - replayStarted));
+    log.info(
+        "Replayed {} responses as {} evaluations with {} integrity breaks in {} ms ({} evaluations/s)",
+        report.getResponsesReplayed(),
+        report.getEvaluations(),
+        report.getIntegrityBreaks(),
+        report.getElapsedMillis(),
+        String.format("%.1f", report.getEvaluationsPerSecond()));
+    return report;
+  }
+
+  private void awaitReplayTime(long replayStarted, double offsetMillis) throws InterruptedException {
+    long waitNanos =
+        replayStarted + (long) (offsetMillis * TimeUnit.MILLISECONDS.toNanos(1)) - System.nanoTime();
+    if (waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.crypto.tradeintegritychecker.recording;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Appends every raw upstream response to a capture log so that a production run can be replayed
+ * later by {@link ReplaySource}, after the exchange's data has moved on. Each application run
+ * records to its own file in the recordings directory.
+ *
+ * <p>Responses are handed to a dedicated recording thread, as they arrive on the HTTP client's
+ * event loop which must not block on compression and disk writes. If the recording thread falls
+ * behind by more than the queue capacity, further responses are left out of the capture
+ */
+@Slf4j
+@Component
+public class UpstreamRecorder {
+
+  public static final String CAPTURE_EXTENSION = ".capture.gz";
+
+  private final IntegrityCheckerProperties.Recording config;
+  private final ThreadPoolExecutor recordingThread;
+  private final AtomicLong dropped = new AtomicLong();
+  // Only touched by the recording thread, and by close once it has finished
+  private CaptureLogWriter writer;
+  private boolean failed;
+
+  public UpstreamRecorder(IntegrityCheckerProperties properties) {
+    this.config = properties.getRecording();
+    this.recordingThread =
+        new ThreadPoolExecutor(
+            1,
+            1,
+            0,
+            TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(config.getQueueCapacity()),
+            runnable -> {
+              Thread thread = new Thread(runnable, "upstream-recorder");
+              thread.setDaemon(true);
+              return thread;
+            },
+            (runnable, executor) -> {
+              if (dropped.getAndIncrement() == 0) {
+                log.warn("Upstream recording has fallen behind, responses are being left out");
+              }
+            });
+  }
+
+  public boolean isEnabled() {
+    return config.isEnabled();
+  }
+
+  /** Queues the response for the recording thread, never blocking the caller */
+  public void record(URI request, byte[] payload) {
+    String pathAndQuery =
+        isNull(request.getRawQuery())
+            ? request.getRawPath()
+            : request.getRawPath() + "?" + request.getRawQuery();
+    RecordedResponse response =
+        new RecordedResponse(System.currentTimeMillis(), pathAndQuery, payload);
+    recordingThread.execute(() -> write(response));
+  }
+
+  /** Responses left out of the capture because the recording thread had fallen behind */
+  public long getDropped() {
+    return dropped.get();
+  }
+
+  /** Writes out the responses already queued, then closes the capture */
+  @PreDestroy
+  public void close() throws IOException, InterruptedException {
+    recordingThread.shutdown();
+    if (!recordingThread.awaitTermination(10, TimeUnit.SECONDS)) {
+      log.warn("Upstream recording did not finish writing queued responses");
+      recordingThread.shutdownNow();
+      return;
+    }
+    if (!isNull(writer)) {
+      writer.close();
+      writer = null;
+    }
+  }
+
+  private void write(RecordedResponse response) {
+    if (failed) {
+      return;
+    }
+    try {
+      if (isNull(writer)) {
+        writer = openCapture();
+      }
+      writer.append(response);
+    } catch (IOException e) {
+      // Recording is diagnostic only, it must never fail the integrity check it observes
+      log.error("Unable to record upstream response, recording stopped", e);
+      failed = true;
+    }
+  }
+
+  private CaptureLogWriter openCapture() throws IOException {
+    Path directory = Paths.get(config.getDirectory());
+    Files.createDirectories(directory);
+    String fileTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+    Path file = directory.resolve("upstream" + fileTime + CAPTURE_EXTENSION);
+    log.info("Recording upstream responses to {}", file);
+    return new CaptureLogWriter(Files.newOutputStream(file));
+  }
+}
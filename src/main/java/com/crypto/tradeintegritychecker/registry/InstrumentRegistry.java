@@ -0,0 +1,191 @@
+package com.crypto.tradeintegritychecker.registry;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Holds all per-instrument state under one memory budget. Each instrument is interned to a compact
+ * id and a single canonical name, and its state is kept in recency order of the last check; when
+ * the estimated size of all state passes the budget, the least recently checked instruments are
+ * evicted, all of their state at once. An evicted instrument starts again from nothing the next
+ * time it is checked, with a new id.
+ *
+ * <p>State sizes are re-measured each time an instrument is acquired, so a state grown since the
+ * previous check is charged at the next one
+ */
+@Slf4j
+@Component
+public class InstrumentRegistry {
+
+  // Map entries, the entry itself and the canonical name's header, excluding its characters
+  private static final long ENTRY_OVERHEAD_BYTES = 160;
+
+  private final long budgetBytes;
+  private final Counter evictionCounter;
+
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+  private final Map<Integer, Entry> entriesById = new HashMap<>();
+  private int nextId;
+  private long usedBytes;
+
+  public InstrumentRegistry(IntegrityCheckerProperties properties, MeterRegistry meterRegistry) {
+    this.budgetBytes = properties.getRegistry().getMemoryBudget().toBytes();
+    this.evictionCounter =
+        Counter.builder("integrity.instruments.evictions")
+            .description("Instruments whose state was evicted to stay within the memory budget")
+            .register(meterRegistry);
+    Gauge.builder("integrity.instruments.registered", this, InstrumentRegistry::getInstrumentCount)
+        .description("Instruments currently holding state")
+        .register(meterRegistry);
+    Gauge.builder("integrity.instruments.state.bytes", this, InstrumentRegistry::getUsedBytes)
+        .description("Estimated heap held by per-instrument state")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    Gauge.builder("integrity.instruments.state.occupancy", this, InstrumentRegistry::getOccupancy)
+        .description("Fraction of the memory budget in use")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Returns the instrument's state of the given kind, creating it if needed, and marks the
+   * instrument as the most recently checked. May evict other instruments
+   */
+  public synchronized <S extends InstrumentState> S acquire(
+      String instrumentName, StateKey<S> key, Supplier<S> factory) {
+    Entry entry = entryFor(instrumentName);
+    S state = key.cast(entry.states.computeIfAbsent(key, created -> factory.get()));
+    remeasure(entry);
+    evictOverBudget(entry);
+    return state;
+  }
+
+  /**
+   * A copy of every instrument's state of the given kind, least recently checked first. Reading
+   * it does not count as a check
+   */
+  public synchronized <S extends InstrumentState> Map<String, S> states(StateKey<S> key) {
+    Map<String, S> states = new LinkedHashMap<>();
+    for (Entry entry : entries.values()) {
+      InstrumentState state = entry.states.get(key);
+      if (state != null) {
+        states.put(entry.name, key.cast(state));
+      }
+    }
+    return states;
+  }
+
+  /**
+   * The instrument's id, registering it if needed. Ids are small and dense, and identify the
+   * instrument until it is evicted
+   */
+  public synchronized int idOf(String instrumentName) {
+    Entry entry = entryFor(instrumentName);
+    remeasure(entry);
+    evictOverBudget(entry);
+    return entry.id;
+  }
+
+  /**
+   * The canonical instance of the instrument's name, registering it if needed, so data built for
+   * the same instrument shares one string
+   */
+  public synchronized String intern(String instrumentName) {
+    Entry entry = entryFor(instrumentName);
+    remeasure(entry);
+    evictOverBudget(entry);
+    return entry.name;
+  }
+
+  /** @return the canonical name for an id, or null once the instrument has been evicted */
+  public synchronized String nameOf(int id) {
+    Entry entry = entriesById.get(id);
+    return entry == null ? null : entry.name;
+  }
+
+  /** Drops all state held for the instrument */
+  public synchronized void evict(String instrumentName) {
+    Entry entry = entries.remove(instrumentName);
+    if (entry != null) {
+      entriesById.remove(entry.id);
+      usedBytes -= entry.bytes;
+    }
+  }
+
+  public synchronized int getInstrumentCount() {
+    return entries.size();
+  }
+
+  public synchronized long getUsedBytes() {
+    return usedBytes;
+  }
+
+  public long getBudgetBytes() {
+    return budgetBytes;
+  }
+
+  public double getOccupancy() {
+    return budgetBytes == 0 ? 0 : (double) getUsedBytes() / budgetBytes;
+  }
+
+  private Entry entryFor(String instrumentName) {
+    Entry entry = entries.get(instrumentName);
+    if (entry == null) {
+      entry = new Entry(nextId++, instrumentName);
+      entries.put(entry.name, entry);
+      entriesById.put(entry.id, entry);
+    }
+    return entry;
+  }
+
+  private void remeasure(Entry entry) {
+    long bytes = ENTRY_OVERHEAD_BYTES + 2L * entry.name.length();
+    for (InstrumentState state : entry.states.values()) {
+      bytes += state.estimatedBytes();
+    }
+    usedBytes += bytes - entry.bytes;
+    entry.bytes = bytes;
+  }
+
+  // Never evicts the instrument being checked, even if it alone is over the budget
+  private void evictOverBudget(Entry current) {
+    Iterator<Entry> leastRecent = entries.values().iterator();
+    while (usedBytes > budgetBytes && leastRecent.hasNext()) {
+      Entry entry = leastRecent.next();
+      if (entry == current) {
+        continue;
+      }
+      leastRecent.remove();
+      entriesById.remove(entry.id);
+      usedBytes -= entry.bytes;
+      evictionCounter.increment();
+      log.debug(
+          "Evicted state for Instrument: {} ({} bytes) to stay within the {} byte budget",
+          entry.name,
+          entry.bytes,
+          budgetBytes);
+    }
+  }
+
+  private static class Entry {
+
+    private final int id;
+    private final String name;
+    private final Map<StateKey<?>, InstrumentState> states = new HashMap<>(4);
+    private long bytes;
+
+    private Entry(int id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+  }
+}
@@ -0,0 +1,11 @@
+package com.crypto.tradeintegritychecker.registry;
+
+/** Per-instrument state held by the {@link InstrumentRegistry} and counted against its budget */
+public interface InstrumentState {
+
+  /**
+   * Approximate heap retained by this state. Read without the state's own lock, so implementations
+   * should publish it through a volatile field
+   */
+  long estimatedBytes();
+}
@@ -0,0 +1,29 @@
+package com.crypto.tradeintegritychecker.registry;
+
+/**
+ * Identifies one kind of state in the {@link InstrumentRegistry}, so several components can keep
+ * their own state for an instrument. Keys compare by identity, each owner keeps a single constant
+ */
+public final class StateKey<S extends InstrumentState> {
+
+  private final String name;
+  private final Class<S> type;
+
+  private StateKey(String name, Class<S> type) {
+    this.name = name;
+    this.type = type;
+  }
+
+  public static <S extends InstrumentState> StateKey<S> of(String name, Class<S> type) {
+    return new StateKey<>(name, type);
+  }
+
+  S cast(InstrumentState state) {
+    return type.cast(state);
+  }
+
+  @Override
+  public String toString() {
+    return name;
+  }
+}
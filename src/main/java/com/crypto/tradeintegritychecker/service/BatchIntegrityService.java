@@ -0,0 +1,156 @@
+package com.crypto.tradeintegritychecker.service;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.execution.CheckerExecutor;
+import com.crypto.tradeintegritychecker.execution.Deadline;
+import com.crypto.tradeintegritychecker.execution.TaskScope;
+import com.crypto.tradeintegritychecker.marketdata.MarketDataSource;
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.pipeline.IntegrityPipeline;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/** Runs the integrity check over a list of instruments as a single cycle */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BatchIntegrityService {
+
+  private final IntegrityService integrityService;
+  private final MarketDataSource marketDataSource;
+  private final CandlestickFetchPlanner fetchPlanner;
+  private final TradeFeedDemultiplexer tradeFeedDemultiplexer;
+  private final IntegrityPipeline integrityPipeline;
+  private final CheckerExecutor checkerExecutor;
+  private final IntegrityCheckerProperties properties;
+
+  /**
+   * Evaluates every instrument in the batch. Depending on the configured trades source the trades
+   * are either fetched once per instrument, or fetched once for the whole cycle from the
+   * all-instrument feed and fanned out to each evaluation. Instruments are checked concurrently,
+   * through the staged pipeline when it is enabled, and otherwise with the market data source
+   * reading ahead of the instruments being evaluated
+   *
+   * @return summaries keyed by instrument name, in the order requested
+   */
+  public Map<String, IntegritySummary> evaluateDataIntegrity(
+      List<String> instrumentNames, Timeframe timeframe) {
+    IntegrityCheckerProperties.TradesSource tradesSource = properties.getBatch().getTradesSource();
+    log.info(
+        "Beginning batch integrity evaluation of {} instruments using timeframe: {} and trades source: {}",
+        instrumentNames.size(),
+        timeframe.getTimeframeString(),
+        tradesSource);
+
+    if (tradesSource == IntegrityCheckerProperties.TradesSource.ALL_INSTRUMENT_FEED) {
+      Map<String, GetTradesResponse> partitions =
+          tradeFeedDemultiplexer.partition(marketDataSource.getTrades(), instrumentNames);
+      return evaluateConcurrently(
+          instrumentNames,
+          timeframe,
+          candlesReadAhead(),
+          instrument ->
+              integrityService.evaluateDataIntegrity(
+                  instrument, timeframe, partitions.get(instrument)));
+    }
+    if (integrityPipeline.isEnabled()) {
+      // Everything is queued up front so fetches for later instruments overlap earlier evaluations
+      Map<String, CompletableFuture<IntegritySummary>> pending = new LinkedHashMap<>();
+      instrumentNames.forEach(
+          instrument -> pending.put(instrument, integrityPipeline.submit(instrument, timeframe)));
+      return awaitPipeline(pending);
+    }
+    Set<MarketDataSource.DataType> readAhead = candlesReadAhead();
+    readAhead.add(MarketDataSource.DataType.TRADES);
+    return evaluateConcurrently(
+        instrumentNames,
+        timeframe,
+        readAhead,
+        instrument -> integrityService.evaluateDataIntegrity(instrument, timeframe));
+  }
+
+  /**
+   * Collects the pipeline's results in request order. Each fetch fails on its own once the
+   * per-call timeout passes, and the batch as a whole gives up at the batch timeout
+   */
+  @SneakyThrows
+  private Map<String, IntegritySummary> awaitPipeline(
+      Map<String, CompletableFuture<IntegritySummary>> pending) {
+    Deadline deadline = Deadline.after(properties.getExecution().getBatchTimeout());
+    Map<String, IntegritySummary> summaries = new LinkedHashMap<>();
+    try {
+      for (Map.Entry<String, CompletableFuture<IntegritySummary>> result : pending.entrySet()) {
+        summaries.put(
+            result.getKey(),
+            result.getValue().get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS));
+      }
+    } catch (TimeoutException | ExecutionException e) {
+      pending.values().forEach(result -> result.cancel(true));
+      throw e;
+    }
+    return summaries;
+  }
+
+  // Planned candle windows depend on the instrument's trades, so cannot be read ahead
+  private Set<MarketDataSource.DataType> candlesReadAhead() {
+    return fetchPlanner.isEnabled()
+        ? EnumSet.noneOf(MarketDataSource.DataType.class)
+        : EnumSet.of(MarketDataSource.DataType.CANDLESTICKS);
+  }
+
+  /**
+   * Runs one check per instrument on the {@link CheckerExecutor}, as many at once as the execution
+   * mode allows, in the order the market data source was told to read ahead. If any check fails or
+   * the batch deadline passes the remaining checks are cancelled
+   */
+  @SneakyThrows
+  private Map<String, IntegritySummary> evaluateConcurrently(
+      List<String> instrumentNames,
+      Timeframe timeframe,
+      Set<MarketDataSource.DataType> readAhead,
+      Function<String, IntegritySummary> evaluation) {
+    Semaphore permits = new Semaphore(checkerExecutor.getMaxConcurrentChecks());
+    Map<String, Future<IntegritySummary>> checks = new LinkedHashMap<>();
+    try (MarketDataSource.ReadAhead plan =
+            marketDataSource.readAhead(instrumentNames, timeframe, readAhead);
+        TaskScope scope = checkerExecutor.openScope(properties.getExecution().getBatchTimeout())) {
+      for (String instrument : instrumentNames) {
+        permits.acquire();
+        checks.put(
+            instrument,
+            scope.fork(
+                () -> {
+                  try {
+                    return evaluation.apply(instrument);
+                  } finally {
+                    permits.release();
+                  }
+                }));
+      }
+      scope.join();
+    }
+
+    Map<String, IntegritySummary> summaries = new LinkedHashMap<>();
+    for (Map.Entry<String, Future<IntegritySummary>> check : checks.entrySet()) {
+      summaries.put(check.getKey(), check.getValue().get());
+    }
+    return summaries;
+  }
+}
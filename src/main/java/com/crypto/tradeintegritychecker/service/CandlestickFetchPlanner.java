@@ -0,0 +1,93 @@
+package com.crypto.tradeintegritychecker.service;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.request.CandlestickFetchPlan;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Works out which candles can actually be validated against a set of trades. The trades API only
+ * returns the latest 200 trades, so on a 1m check only a handful of the full candle depth ever
+ * overlap them - the rest are downloaded, decoded and then discarded by the rule service
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CandlestickFetchPlanner {
+
+  // Deepest history the candlestick endpoint will return
+  private static final int MAX_DEPTH = 1000;
+
+  private final IntegrityCheckerProperties properties;
+
+  public boolean isEnabled() {
+    return properties.getFetchPlanner().isEnabled();
+  }
+
+  /**
+   * Plans a window spanning the candles of the oldest and newest trade, widened by the configured
+   * margin on both sides. The depth counts back from the candle containing {@code nowMillis}
+   */
+  public CandlestickFetchPlan plan(Timeframe timeframe, List<TradesData> trades, long nowMillis) {
+    long interval = timeframe.getTimeframeMillis();
+    long margin = properties.getFetchPlanner().getMarginCandles() * interval;
+    long currentCandle = candleStart(nowMillis, interval);
+
+    long oldestTrade = currentCandle;
+    long newestTrade = currentCandle;
+    if (!isNull(trades) && !trades.isEmpty()) {
+      oldestTrade = Long.MAX_VALUE;
+      newestTrade = Long.MIN_VALUE;
+      for (TradesData trade : trades) {
+        oldestTrade = Math.min(oldestTrade, trade.getTradeTimestamp());
+        newestTrade = Math.max(newestTrade, trade.getTradeTimestamp());
+      }
+    }
+
+    long windowStart = candleStart(oldestTrade, interval) - margin;
+    long windowEnd = candleStart(newestTrade, interval) + margin;
+    long candlesBack = (currentCandle - windowStart) / interval + 1;
+    int depth = (int) Math.max(1, Math.min(MAX_DEPTH, candlesBack));
+    return new CandlestickFetchPlan(windowStart, windowEnd, depth);
+  }
+
+  /**
+   * Drops any returned candles outside the planned window, in case upstream ignored the requested
+   * depth or the trades are older than the deepest history available
+   */
+  public CandleStickResponse trimToPlan(CandleStickResponse response, CandlestickFetchPlan plan) {
+    if (isNull(response.getResult()) || isNull(response.getResult().getData())) {
+      return response;
+    }
+    List<CandleStickData> candles = response.getResult().getData();
+    List<CandleStickData> windowed =
+        candles.stream()
+            .filter(
+                candle ->
+                    candle.getEndTime() >= plan.getWindowStart()
+                        && candle.getEndTime() <= plan.getWindowEnd())
+            .collect(Collectors.toList());
+    log.info(
+        "Fetch plan kept {} of {} returned candlesticks between {} and {}",
+        windowed.size(),
+        candles.size(),
+        plan.getWindowStart(),
+        plan.getWindowEnd());
+    response.getResult().setData(windowed);
+    return response;
+  }
+
+  private long candleStart(long timestamp, long interval) {
+    return Math.floorDiv(timestamp, interval) * interval;
+  }
+}
@@ -0,0 +1,110 @@
+package com.crypto.tradeintegritychecker.service;
+
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.recording.ReplayReport;
+import com.crypto.tradeintegritychecker.recording.ReplaySource;
+import com.crypto.tradeintegritychecker.writer.ColumnarFileWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Runs one batch from the command line and turns the outcome into a process exit code. Either
+ * checks live instruments, {@code --instruments=ETH_CRO,BTC_USDT [--interval=1m]}, re-evaluates
+ * columnar captures, {@code --captures=/path/a.icc,/path/b.icc}, or replays recorded upstream
+ * traffic, {@code --replay=/path/upstream.capture.gz [--speed=0]}
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class HeadlessBatchRunner {
+
+  public static final int EXIT_CLEAN = 0;
+  public static final int EXIT_INTEGRITY_BREAKS = 1;
+  public static final int EXIT_FAILED = 2;
+
+  private static final String DEFAULT_INTERVAL = "1m";
+
+  private final BatchIntegrityService batchIntegrityService;
+  private final IntegrityService integrityService;
+  private final ColumnarFileWriter columnarFileWriter;
+  private final ReplaySource replaySource;
+
+  public int run(ApplicationArguments args) {
+    List<String> instruments = listOption(args, "instruments");
+    List<String> captures = listOption(args, "captures");
+    List<String> replays = listOption(args, "replay");
+    if (instruments.isEmpty() && captures.isEmpty() && replays.isEmpty()) {
+      log.error(
+          "Nothing to check, pass --instruments=A,B [--interval=1m], --captures=a.icc,b.icc and/or --replay=upstream.capture.gz [--speed=0]");
+      return EXIT_FAILED;
+    }
+
+    Map<String, IntegritySummary> summaries = new LinkedHashMap<>();
+    int replayedBreaks = 0;
+    try {
+      if (!instruments.isEmpty()) {
+        String interval =
+            args.containsOption("interval")
+                ? args.getOptionValues("interval").get(0)
+                : DEFAULT_INTERVAL;
+        summaries.putAll(
+            batchIntegrityService.evaluateDataIntegrity(
+                instruments, Timeframe.getTimeframeFromString(interval)));
+      }
+      for (String capture : captures) {
+        summaries.put(
+            capture,
+            integrityService.evaluateCapture(columnarFileWriter.readCapture(Paths.get(capture))));
+      }
+      // Replays default to full speed, which makes them a throughput benchmark over real traffic
+      double speed =
+          args.containsOption("speed") ? Double.parseDouble(args.getOptionValues("speed").get(0)) : 0;
+      for (String replay : replays) {
+        ReplayReport report = replaySource.replay(Paths.get(replay), speed);
+        replayedBreaks += report.getIntegrityBreaks();
+      }
+    } catch (Exception e) {
+      log.error("Batch run failed", e);
+      return EXIT_FAILED;
+    }
+
+    int integrityBreaks = replayedBreaks;
+    for (Map.Entry<String, IntegritySummary> summary : summaries.entrySet()) {
+      if (isNull(summary.getValue())) {
+        log.warn("{}: no candlestick data, nothing was checked", summary.getKey());
+        continue;
+      }
+      log.info(
+          "{}: {} integrity breaks in {} candlesticks analyzed",
+          summary.getKey(),
+          summary.getValue().getNumIntegrityBreaks(),
+          summary.getValue().getNumCandlesticksAnalyzed());
+      integrityBreaks += summary.getValue().getNumIntegrityBreaks();
+    }
+    return integrityBreaks > 0 ? EXIT_INTEGRITY_BREAKS : EXIT_CLEAN;
+  }
+
+  private List<String> listOption(ApplicationArguments args, String name) {
+    if (!args.containsOption(name)) {
+      return Collections.emptyList();
+    }
+    return args.getOptionValues(name).stream()
+        .flatMap(value -> Arrays.stream(value.split(",")))
+        .map(String::trim)
+        .filter(value -> !value.isEmpty())
+        .collect(Collectors.toList());
+  }
+}
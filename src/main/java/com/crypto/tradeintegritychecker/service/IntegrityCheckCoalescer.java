@@ -0,0 +1,182 @@
+package com.crypto.tradeintegritychecker.service;
+
+import com.crypto.tradeintegritychecker.execution.CheckerExecutor;
+import com.crypto.tradeintegritychecker.execution.Deadline;
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Single-flight wrapper around {@link IntegrityService}. Concurrent callers asking for the same
+ * instrument and timeframe share one in-flight evaluation and all receive its summary, so upstream
+ * calls and CPU per key are capped regardless of how many clients arrive at once.
+ *
+ * <p>The shared evaluation always runs on the {@link CheckerExecutor}, under the {@link Deadline} of
+ * the caller that started it, and its fetches are bound by the per-call timeout. A caller only
+ * joins an evaluation whose deadline covers its own, otherwise it starts a new one that later
+ * callers join instead. Each caller waits for as long as its own budget allows, and if it runs out
+ * first gets a partial summary of whatever the evaluation has fetched so far.
+ *
+ * <p>Nothing is cached - once the in-flight evaluation completes the next caller starts a new one
+ */
+@Slf4j
+@Service
+public class IntegrityCheckCoalescer {
+
+  private final IntegrityService integrityService;
+  private final CheckerExecutor checkerExecutor;
+  private final ConcurrentMap<CoalescingKey, Flight> inFlight =
+      new ConcurrentHashMap<>();
+
+  private final Counter requestCounter;
+  private final Counter evaluationCounter;
+  private final Counter coalescedCounter;
+
+  public IntegrityCheckCoalescer(
+      IntegrityService integrityService,
+      CheckerExecutor checkerExecutor,
+      MeterRegistry meterRegistry) {
+    this.integrityService = integrityService;
+    this.checkerExecutor = checkerExecutor;
+    this.requestCounter =
+        Counter.builder("integrity.coalescing.requests")
+            .description("Integrity check requests received")
+            .register(meterRegistry);
+    this.evaluationCounter =
+        Counter.builder("integrity.coalescing.evaluations")
+            .description("Integrity evaluations actually executed")
+            .register(meterRegistry);
+    this.coalescedCounter =
+        Counter.builder("integrity.coalescing.coalesced")
+            .description("Requests served by joining an in-flight evaluation")
+            .register(meterRegistry);
+    Gauge.builder("integrity.coalescing.ratio", this, IntegrityCheckCoalescer::getCoalescingRatio)
+        .description("Fraction of requests served by an in-flight evaluation")
+        .register(meterRegistry);
+    Gauge.builder("integrity.coalescing.in-flight", inFlight, ConcurrentMap::size)
+        .description("Distinct instrument/timeframe evaluations currently running")
+        .register(meterRegistry);
+  }
+
+  public IntegritySummary evaluateDataIntegrity(String instrumentName, String timeframe) {
+    return evaluateDataIntegrity(instrumentName, Timeframe.getTimeframeFromString(timeframe));
+  }
+
+  public IntegritySummary evaluateDataIntegrity(String instrumentName, Timeframe timeframe) {
+    requestCounter.increment();
+    CoalescingKey key = new CoalescingKey(instrumentName, timeframe);
+    Deadline deadline = Deadline.current();
+    Flight candidate = new Flight(deadline);
+    Flight flight =
+        inFlight.merge(
+            key, candidate, (existing, started) -> existing.covers(deadline) ? existing : started);
+
+    if (flight != candidate) {
+      coalescedCounter.increment();
+      log.info(
+          "Joining in-flight integrity evaluation for Instrument: {} using timeframe: {}",
+          instrumentName,
+          timeframe.getTimeframeString());
+      return awaitShared(flight, instrumentName);
+    }
+
+    evaluationCounter.increment();
+    try {
+      // Carries this caller's deadline over to the evaluation
+      checkerExecutor.execute(() -> evaluateShared(key, flight));
+    } catch (RejectedExecutionException e) {
+      flight.getResult().completeExceptionally(e);
+      inFlight.remove(key, flight);
+      throw e;
+    }
+    return awaitShared(flight, instrumentName);
+  }
+
+  public double getCoalescingRatio() {
+    double requests = requestCounter.count();
+    return requests == 0 ? 0 : coalescedCounter.count() / requests;
+  }
+
+  private void evaluateShared(CoalescingKey key, Flight flight) {
+    IntegritySummary summary;
+    try {
+      summary =
+          integrityService.evaluateDataIntegrity(
+              key.getInstrumentName(), key.getTimeframe(), flight.getProgress());
+    } catch (Throwable t) {
+      inFlight.remove(key, flight);
+      flight.getResult().completeExceptionally(t);
+      return;
+    }
+    // Removed before completing, so a caller that has seen the result never joins this evaluation.
+    // Remove only our own entry, the key may already belong to a newer evaluation
+    inFlight.remove(key, flight);
+    flight.getResult().complete(summary);
+  }
+
+  /**
+   * Waits for the in-flight evaluation, but never past the joining caller's own {@link Deadline} -
+   * a caller whose budget runs out first gets a partial summary of the data fetched so far, while
+   * the evaluation carries on for everyone else
+   */
+  private IntegritySummary awaitShared(Flight flight, String instrumentName) {
+    Deadline deadline = Deadline.current();
+    try {
+      return isNull(deadline)
+          ? flight.getResult().join()
+          : flight.getResult().get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      IntegrityService.FetchProgress progress = flight.getProgress();
+      return integrityService.partialSummary(
+          instrumentName, progress.getCandles(), progress.getTrades());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while joining an in-flight evaluation", e);
+    } catch (CompletionException | ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /** An evaluation in progress, with the deadline it runs under, null when unbounded */
+  @Getter
+  @RequiredArgsConstructor
+  private static class Flight {
+    private final Deadline deadline;
+    private final CompletableFuture<IntegritySummary> result = new CompletableFuture<>();
+    private final IntegrityService.FetchProgress progress = new IntegrityService.FetchProgress();
+
+    boolean covers(Deadline callerDeadline) {
+      return isNull(deadline) || (!isNull(callerDeadline) && deadline.covers(callerDeadline));
+    }
+  }
+
+  @Value
+  private static class CoalescingKey {
+    String instrumentName;
+    Timeframe timeframe;
+  }
+}
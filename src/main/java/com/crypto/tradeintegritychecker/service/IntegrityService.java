@@ -1,31 +1,45 @@
 package com.crypto.tradeintegritychecker.service;
 
-import com.crypto.tradeintegritychecker.client.CryptoClient;
+import com.crypto.tradeintegritychecker.accounting.CostStage;
+import com.crypto.tradeintegritychecker.accounting.RequestCost;
+import com.crypto.tradeintegritychecker.execution.CheckerExecutor;
+import com.crypto.tradeintegritychecker.execution.Deadline;
+import com.crypto.tradeintegritychecker.execution.DeadlineExceededException;
+import com.crypto.tradeintegritychecker.execution.TaskScope;
+import com.crypto.tradeintegritychecker.flightrecorder.TradeGroupingEvent;
+import com.crypto.tradeintegritychecker.marketdata.MarketDataSource;
 import com.crypto.tradeintegritychecker.model.integrity.CandlestickTradeData;
+import com.crypto.tradeintegritychecker.model.integrity.IntegrityCheckCompletedEvent;
 import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
 import com.crypto.tradeintegritychecker.model.integrity.IntegrityViolation;
 import com.crypto.tradeintegritychecker.model.integrity.IntegrityViolationDetail;
+import com.crypto.tradeintegritychecker.model.request.CandlestickFetchPlan;
 import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.MarketDataCapture;
 import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
 import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
 import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResult;
 import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
 import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import com.crypto.tradeintegritychecker.recording.Replay;
+import com.crypto.tradeintegritychecker.writer.ColumnarFileWriter;
 import com.crypto.tradeintegritychecker.writer.CsvFileWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Future;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 
 @Slf4j
@@ -34,44 +48,162 @@ import static java.util.Objects.nonNull;
 public class IntegrityService {
 
   private final CsvFileWriter csvFileWriter;
-  private final CryptoClient cryptoClient;
+  private final ColumnarFileWriter columnarFileWriter;
+  private final MarketDataSource marketDataSource;
   private final RuleService ruleService;
+  private final CandlestickFetchPlanner fetchPlanner;
+  private final ApplicationEventPublisher eventPublisher;
+  private final CheckerExecutor checkerExecutor;
 
   public IntegritySummary evaluateDataIntegrity(String instrumentName, String timeframe) {
     return evaluateDataIntegrity(instrumentName, Timeframe.getTimeframeFromString(timeframe));
   }
 
-  @SneakyThrows
+  /**
+   * Fetches and evaluates the instrument. The fetches are bound by the per-call timeout, cut short
+   * by the caller's {@link Deadline}. If it passes first, the outstanding fetches are cancelled
+   * and a partial summary is returned, naming the data that could not be fetched or the
+   * candlesticks that could not be analyzed in time
+   */
   public IntegritySummary evaluateDataIntegrity(String instrumentName, Timeframe timeframe) {
+    return evaluateDataIntegrity(instrumentName, timeframe, new FetchProgress());
+  }
+
+  /** As above, recording each fetch in the progress as it completes */
+  @SneakyThrows
+  IntegritySummary evaluateDataIntegrity(
+      String instrumentName, Timeframe timeframe, FetchProgress progress) {
     log.info(
         "Beginning data integrity evaluation on Candlestick/Trade data for Instrument: {} using timeframe: {}",
         instrumentName,
         timeframe.getTimeframeString());
-    List<CandlestickTradeData> candlestickTradeData;
 
-    Future<CandleStickResponse> candlestickFuture =
-        getCandlestickDataAsync(instrumentName, timeframe);
-    Future<GetTradesResponse> tradeDataFuture = getTradeDataAsync(instrumentName);
+    // The fetches are cancelled together if either fails or runs past the deadline
+    try (TaskScope scope = checkerExecutor.openScope()) {
+      if (fetchPlanner.isEnabled()) {
+        // Trades are fetched first so that only the candles overlapping them need to be requested
+        scope.fork(
+            () -> {
+              GetTradesResponse trades =
+                  progress.trades(
+                      fetch(() -> marketDataSource.getTradesByInstrument(instrumentName)));
+              return progress.candles(
+                  fetch(() -> getCandlestickDataForTrades(instrumentName, timeframe, trades)));
+            });
+      } else {
+        scope.fork(
+            () ->
+                progress.candles(
+                    fetch(() -> marketDataSource.getCandlestickData(instrumentName, timeframe))));
+        scope.fork(
+            () ->
+                progress.trades(
+                    fetch(() -> marketDataSource.getTradesByInstrument(instrumentName))));
+      }
+      try {
+        scope.join();
+      } catch (TimeoutException e) {
+        return partialSummary(instrumentName, progress.getCandles(), progress.getTrades());
+      } catch (ExecutionException e) {
+        // Only running out of time yields a partial result, any other failure propagates
+        if (!(e.getCause() instanceof DeadlineExceededException)) {
+          throw e;
+        }
+        return partialSummary(instrumentName, progress.getCandles(), progress.getTrades());
+      }
+    }
+
+    return evaluateFetchedData(
+        instrumentName, timeframe, progress.getCandles(), progress.getTrades());
+  }
+
+  /**
+   * Evaluates an instrument against trades that have already been fetched, e.g. its partition of
+   * the all-instrument trades feed. Only the candlesticks are requested from upstream
+   */
+  public IntegritySummary evaluateDataIntegrity(
+      String instrumentName, Timeframe timeframe, GetTradesResponse getTradesResponse) {
+    log.info(
+        "Beginning data integrity evaluation on Candlestick data and {} pre-fetched trades for Instrument: {} using timeframe: {}",
+        getTradesResponse.getResult().getData().size(),
+        instrumentName,
+        timeframe.getTimeframeString());
+    return evaluateFetchedData(
+        instrumentName,
+        timeframe,
+        fetch(() -> getCandlestickDataForTrades(instrumentName, timeframe, getTradesResponse)),
+        getTradesResponse);
+  }
+
+  /** Re-evaluates a previously exported capture, without calling upstream */
+  public IntegritySummary evaluateCapture(MarketDataCapture capture) {
+    CandleStickResult candles = capture.getCandles().getResult();
+    log.info(
+        "Beginning data integrity evaluation on captured Candlestick/Trade data for Instrument: {} using timeframe: {}",
+        candles.getInstrumentName(),
+        candles.getInterval());
+    return evaluateFetchedData(
+        candles.getInstrumentName(),
+        Timeframe.getTimeframeFromString(candles.getInterval()),
+        capture.getCandles(),
+        capture.getTrades());
+  }
 
-    CandleStickResponse candleStickResponseList = candlestickFuture.get();
-    GetTradesResponse getTradesResponseList = tradeDataFuture.get();
+  /**
+   * Fetches the candlesticks to evaluate the given trades against, trimmed to the window covered
+   * by the trades when the fetch planner is enabled
+   */
+  public CandleStickResponse getCandlestickDataForTrades(
+      String instrumentName, Timeframe timeframe, GetTradesResponse getTradesResponse) {
+    if (!fetchPlanner.isEnabled()) {
+      return marketDataSource.getCandlestickData(instrumentName, timeframe);
+    }
+    CandlestickFetchPlan plan =
+        fetchPlanner.plan(
+            timeframe, getTradesResponse.getResult().getData(), System.currentTimeMillis());
+    return fetchPlanner.trimToPlan(
+        marketDataSource.getCandlestickData(instrumentName, timeframe, plan.getDepth()), plan);
+  }
+
+  /**
+   * Groups, validates and summarises data that has already been fetched, publishing the result as
+   * an {@link IntegrityCheckCompletedEvent}
+   *
+   * @return null if no candlestick data was returned
+   */
+  public IntegritySummary evaluateFetchedData(
+      String instrumentName,
+      Timeframe timeframe,
+      CandleStickResponse candleStickResponseList,
+      GetTradesResponse getTradesResponseList) {
+    List<CandlestickTradeData> candlestickTradeData;
 
     // File writer implemented to log candlestick and trade test data - no functional purpose
-    csvFileWriter.writeFileToCsv(candleStickResponseList, getTradesResponseList);
+    try (RequestCost.Measurement measurement = RequestCost.measure(CostStage.CSV_WRITE)) {
+      csvFileWriter.writeFileToCsv(candleStickResponseList, getTradesResponseList);
+      columnarFileWriter.writeCapture(candleStickResponseList, getTradesResponseList);
+    }
 
     // We only want to proceed with processing if we have some candlestick data
     if (nonNull(candleStickResponseList.getResult().getData())) {
-      candlestickTradeData =
-          groupTradeDataIntoCandleSticks(
-              candleStickResponseList.getResult(), getTradesResponseList.getResult().getData());
+      try (RequestCost.Measurement measurement = RequestCost.measure(CostStage.GROUP)) {
+        candlestickTradeData =
+            groupTradeDataIntoCandleSticks(
+                candleStickResponseList.getResult(), getTradesResponseList.getResult().getData());
+      }
     } else {
       log.warn("No data returned for candlesticks, will not proceed with validations");
       return null;
     }
-    return summarizedIntegrityData(
-        ruleService.evaluateGroupedData(candlestickTradeData),
-        candleStickResponseList,
-        getTradesResponseList);
+    IntegritySummary summary =
+        summarizedIntegrityData(
+            ruleService.evaluateGroupedData(candlestickTradeData),
+            candleStickResponseList,
+            getTradesResponseList);
+    eventPublisher.publishEvent(
+        new IntegrityCheckCompletedEvent(
+            instrumentName, timeframe, System.currentTimeMillis(), summary, Replay.isActive()));
+    return summary;
   }
 
   private IntegritySummary summarizedIntegrityData(
@@ -84,11 +216,59 @@ public class IntegrityService {
         .numCandlesticks(candleStickResponseList.getResult().getDepth())
         .numTrades(getTradesResponseList.getResult().getData().size())
         .numCandlesticksAnalyzed(dataIntegrityBreaks.getNumCandlesticksAnalyzed())
+        .numCandlesticksNotAnalyzed(dataIntegrityBreaks.getNumCandlesticksNotAnalyzed())
+        .firstCandleAnalyzed(dataIntegrityBreaks.getFirstCandleAnalyzed())
+        .lastCandleAnalyzed(dataIntegrityBreaks.getLastCandleAnalyzed())
+        .partial(dataIntegrityBreaks.getNumCandlesticksNotAnalyzed() > 0)
         .build();
   }
 
+  /**
+   * Summary for a check whose fetches did not all complete before the deadline. The rules need
+   * both candlesticks and trades, so nothing is analyzed - the summary only records what arrived
+   */
+  IntegritySummary partialSummary(
+      String instrumentName,
+      CandleStickResponse candleStickResponse,
+      GetTradesResponse getTradesResponse) {
+    List<String> missingData = new ArrayList<>();
+    if (isNull(candleStickResponse)) {
+      missingData.add(IntegritySummary.MISSING_CANDLESTICKS);
+    }
+    if (isNull(getTradesResponse)) {
+      missingData.add(IntegritySummary.MISSING_TRADES);
+    }
+    log.warn(
+        "Deadline passed before {} could be fetched for Instrument: {}, returning a partial summary",
+        missingData,
+        instrumentName);
+    boolean hasCandles =
+        nonNull(candleStickResponse) && nonNull(candleStickResponse.getResult());
+    boolean hasTrades =
+        nonNull(getTradesResponse)
+            && nonNull(getTradesResponse.getResult())
+            && nonNull(getTradesResponse.getResult().getData());
+    return IntegritySummary.builder()
+        .dataIntegrityBreaks(Collections.emptyList())
+        .numCandlesticks(hasCandles ? candleStickResponse.getResult().getDepth() : 0)
+        .numTrades(hasTrades ? getTradesResponse.getResult().getData().size() : 0)
+        .partial(true)
+        .missingData(missingData)
+        .build();
+  }
+
+  // Charged to the fetch stage on whichever thread makes the call
+  private static <T> T fetch(Supplier<T> call) {
+    try (RequestCost.Measurement measurement = RequestCost.measure(CostStage.FETCH)) {
+      return call.get();
+    }
+  }
+
   private List<CandlestickTradeData> groupTradeDataIntoCandleSticks(
       CandleStickResult candleStickResult, List<TradesData> tradeList) {
+    TradeGroupingEvent event =
+        TradeGroupingEvent.start(
+            candleStickResult.getInstrumentName(), candleStickResult.getInterval());
     List<CandlestickTradeData> candlestickTradeData = new ArrayList<>();
 
     candleStickResult
@@ -106,6 +286,10 @@ public class IntegrityService {
                       .endTime(candleStick.getEndTime())
                       .build());
             });
+    event.complete(
+        candlestickTradeData.size(),
+        tradeList.size(),
+        candlestickTradeData.stream().mapToInt(data -> data.getTrades().size()).sum());
     return candlestickTradeData;
   }
 
@@ -134,9 +318,10 @@ public class IntegrityService {
             .collect(Collectors.toList());
 
     // Only log the matched trades if we actually have some data to work with.
-    // Client only return 200 trades there is rarely more than a few candles worth
-    if (matchingTradeList.size() > 0) {
-      log.info(
+    // Client only return 200 trades there is rarely more than a few candles worth.
+    // Logged per candle, so kept at debug to stay out of the evaluation's way
+    if (matchingTradeList.size() > 0 && log.isDebugEnabled()) {
+      log.debug(
           "Found {} matching trades for candleStick with close time {}",
           matchingTradeList.size(),
           candleStick.getEndTime());
@@ -154,27 +339,43 @@ public class IntegrityService {
         && tradeData.getTradeTimestamp() >= candleStick.getEndTime();
   }
 
-  @Async
-  private Future<CandleStickResponse> getCandlestickDataAsync(
-      String instrumentName, Timeframe timeframe) {
-    CandleStickResponse candlestickResponse =
-        cryptoClient.getCandlestickData(instrumentName, timeframe);
-    return CompletableFuture.completedFuture(candlestickResponse);
+  public CandleStickResponse getCandlestickData(String instrumentName, Timeframe timeframe) {
+    return marketDataSource.getCandlestickData(instrumentName, timeframe);
   }
 
-  @Async
-  private Future<GetTradesResponse> getTradeDataAsync(String instrumentName) {
-    GetTradesResponse tradesByInstrument = cryptoClient.getTradesByInstrument(instrumentName);
-    return CompletableFuture.completedFuture(tradesByInstrument);
+  public GetTradesResponse getTradeData(String instrumentName) {
+    return marketDataSource.getTradesByInstrument(instrumentName);
   }
 
-  @Async
-  public CandleStickResponse getCandlestickData(String instrumentName, Timeframe timeframe) {
-    return cryptoClient.getCandlestickData(instrumentName, timeframe);
-  }
+  /**
+   * The data a check has fetched so far. Fetches record their response as soon as it arrives, so
+   * a check that runs out of time can still report what it did get. A response arriving once the
+   * fetch's deadline has passed is not recorded, the check has already given up on it
+   */
+  static class FetchProgress {
+    private volatile CandleStickResponse candles;
+    private volatile GetTradesResponse trades;
 
-  @Async
-  public GetTradesResponse getTradeData(String instrumentName) {
-    return cryptoClient.getTradesByInstrument(instrumentName);
+    CandleStickResponse candles(CandleStickResponse candles) {
+      if (!Deadline.isCurrentExpired()) {
+        this.candles = candles;
+      }
+      return candles;
+    }
+
+    GetTradesResponse trades(GetTradesResponse trades) {
+      if (!Deadline.isCurrentExpired()) {
+        this.trades = trades;
+      }
+      return trades;
+    }
+
+    CandleStickResponse getCandles() {
+      return candles;
+    }
+
+    GetTradesResponse getTrades() {
+      return trades;
+    }
   }
 }
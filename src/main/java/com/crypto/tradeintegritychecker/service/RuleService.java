@@ -1,11 +1,16 @@
 package com.crypto.tradeintegritychecker.service;
 
+import com.crypto.tradeintegritychecker.accounting.CostStage;
+import com.crypto.tradeintegritychecker.accounting.RequestCost;
+import com.crypto.tradeintegritychecker.execution.Deadline;
+import com.crypto.tradeintegritychecker.flightrecorder.CandleEvaluationEvent;
 import com.crypto.tradeintegritychecker.model.integrity.CandlestickTradeData;
 import com.crypto.tradeintegritychecker.model.integrity.IntegrityViolation;
 import com.crypto.tradeintegritychecker.model.integrity.IntegrityViolationDetail;
 import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
 import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
 import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import com.crypto.tradeintegritychecker.sketch.DeviationSketches;
 import com.crypto.tradeintegritychecker.writer.CsvFileWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -16,12 +21,16 @@ import java.math.RoundingMode;
 import java.util.*;
 import java.util.stream.Collectors;
 
+import static java.util.Objects.nonNull;
+
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class RuleService {
 
   private final CsvFileWriter csvFileWriter;
+  private final ViolationLogger violationLogger;
+  private final DeviationSketches deviationSketches;
 
   public IntegrityViolationDetail evaluateGroupedData(
       List<CandlestickTradeData> candlestickTradeData) {
@@ -33,13 +42,57 @@ public class RuleService {
     List<CandlestickTradeData> trimmedList =
         removeFirstAndLastElementsFromSortedList(candlestickTradeData);
 
-    trimmedList.stream().forEach(candlestick -> runRuleChecks(candlestick, integrityViolations));
+    // Candles left when the caller's deadline passes are reported as not analyzed
+    int analyzed = 0;
+    try (RequestCost.Measurement measurement = RequestCost.measure(CostStage.RULES)) {
+      for (CandlestickTradeData candlestick : trimmedList) {
+        if (Deadline.isCurrentExpired()) {
+          log.warn(
+              "Deadline passed after analyzing {} of {} candlesticks, returning partial results",
+              analyzed,
+              trimmedList.size());
+          break;
+        }
+        runRuleChecks(candlestick, integrityViolations);
+        analyzed++;
+      }
+    }
 
     // File writing for data gathering purposes only
-    csvFileWriter.writeIntegrityViolationsToFile(integrityViolations);
+    try (RequestCost.Measurement measurement = RequestCost.measure(CostStage.CSV_WRITE)) {
+      csvFileWriter.writeIntegrityViolationsToFile(integrityViolations);
+    }
+    return IntegrityViolationDetail.builder()
+        .integrityViolations(integrityViolations)
+        .numCandlesticksAnalyzed(analyzed)
+        .numCandlesticksNotAnalyzed(trimmedList.size() - analyzed)
+        .firstCandleAnalyzed(analyzed > 0 ? trimmedList.get(0).getEndTime() : null)
+        .lastCandleAnalyzed(analyzed > 0 ? trimmedList.get(analyzed - 1).getEndTime() : null)
+        .build();
+  }
+
+  /**
+   * Runs the rules against candles that are already known to hold a complete set of trades, such
+   * as those assembled from the streaming feed, so no first/last trimming is applied. Candles
+   * without trades are skipped as usual
+   */
+  public IntegrityViolationDetail evaluateCompleteCandles(
+      List<CandlestickTradeData> candlestickTradeData) {
+    List<IntegrityViolation> integrityViolations = new ArrayList<>();
+    List<CandlestickTradeData> tradedCandles =
+        candlestickTradeData.stream()
+            .filter(data -> data.getTrades().size() != 0)
+            .collect(Collectors.toList());
+
+    tradedCandles.forEach(candlestick -> runRuleChecks(candlestick, integrityViolations));
+    LongSummaryStatistics candleTimes =
+        tradedCandles.stream().mapToLong(CandlestickTradeData::getEndTime).summaryStatistics();
+
     return IntegrityViolationDetail.builder()
         .integrityViolations(integrityViolations)
-        .numCandlesticksAnalyzed(trimmedList.size())
+        .numCandlesticksAnalyzed(tradedCandles.size())
+        .firstCandleAnalyzed(tradedCandles.isEmpty() ? null : candleTimes.getMin())
+        .lastCandleAnalyzed(tradedCandles.isEmpty() ? null : candleTimes.getMax())
         .build();
   }
 
@@ -82,12 +135,17 @@ public class RuleService {
    */
   private void runRuleChecks(
       CandlestickTradeData candlestick, List<IntegrityViolation> integrityViolations) {
+    CandleEvaluationEvent event = CandleEvaluationEvent.start();
+    int violationsBefore = integrityViolations.size();
+    // Built once for the reducing rules, null if the values need the BigDecimal reductions
+    TradeWindow window = TradeWindow.of(candlestick.getTrades());
     // We only want to perform validation on candlesticks when there is trade data present
     validateOpenPrice(candlestick, integrityViolations);
     validateClosePrice(candlestick, integrityViolations);
-    validateHighPrice(candlestick, integrityViolations);
-    validateLowPrice(candlestick, integrityViolations);
-    validateVolume(candlestick, integrityViolations);
+    validateHighPrice(candlestick, window, integrityViolations);
+    validateLowPrice(candlestick, window, integrityViolations);
+    validateVolume(candlestick, window, integrityViolations);
+    event.complete(candlestick, integrityViolations.size() - violationsBefore, nonNull(window));
   }
 
   /**
@@ -100,80 +158,100 @@ public class RuleService {
   private void candlestickHasCompleteTradeSet(CandlestickTradeData candlestick) {}
 
   private void validateVolume(
-      CandlestickTradeData candlestickSummary, List<IntegrityViolation> integrityViolations) {
+      CandlestickTradeData candlestickSummary,
+      TradeWindow window,
+      List<IntegrityViolation> integrityViolations) {
     // If we have at least one trade and the sum of all trade volume does not equal the listed
     // volume on the candlestick, we have a break
 
     // Volume on Candlestick is round to 5 DP, where trade quantity is much higher precision
     BigDecimal tradeVolume =
-        candlestickSummary.getTrades().stream()
-            .map(TradesData::getTradeQuantity)
-            .reduce(BigDecimal.ZERO, BigDecimal::add)
+        (nonNull(window)
+                ? window.totalQuantity()
+                : candlestickSummary.getTrades().stream()
+                    .map(TradesData::getTradeQuantity)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add))
             .setScale(5, RoundingMode.HALF_UP);
 
     BigDecimal candleStickVolume =
         candlestickSummary.getCandlestick().getVolume().setScale(5, RoundingMode.HALF_UP);
 
     if (!tradeVolume.equals(candleStickVolume)) {
-      log.warn(
-          "Candlestick integrity violation found, total volume of trades did not equal volume listed on candlestick. Candlestick Volume {}, tradeVolume {}",
-          candleStickVolume,
-          tradeVolume);
+      reportBreak(candlestickSummary, ValidationRule.VOLUME, candleStickVolume, tradeVolume);
       integrityViolations.add(
           IntegrityViolation.builder()
               .candleStickTradeData(candlestickSummary)
               .rule(ValidationRule.VOLUME.getRuleBreak())
+              .validationRule(ValidationRule.VOLUME)
               .tradesVolume(tradeVolume)
               .build());
+    } else {
+      deviationSketches.recordMatch(candlestickSummary, ValidationRule.VOLUME);
     }
   }
 
   private void validateLowPrice(
-      CandlestickTradeData candlestickSummary, List<IntegrityViolation> integrityViolations) {
+      CandlestickTradeData candlestickSummary,
+      TradeWindow window,
+      List<IntegrityViolation> integrityViolations) {
     // If we have at least one trade in this interval and Candlestick Low is not equal to Minimum
     // Trade Price, we have a break
     TradesData lowestTrade =
-        Collections.min(
-            candlestickSummary.getTrades(), Comparator.comparing(TradesData::getTradePrice));
+        nonNull(window)
+            ? candlestickSummary.getTrades().get(window.lowestPriceIndex())
+            : Collections.min(
+                candlestickSummary.getTrades(), Comparator.comparing(TradesData::getTradePrice));
     // Big decimal compareTo return -1 if calling object is less that parameter, 0 if equal, 1 if
     // greater
     // Using this method will account for any scaling differences
     if (lowestTrade.getTradePrice().compareTo(candlestickSummary.getCandlestick().getLow()) != 0) {
-      log.warn(
-          "Candlestick integrity violation found, Lowest price of a trade did not equal Low price listed on candlestick. Candlestick {}, trade {}",
+      reportBreak(
           candlestickSummary,
-          lowestTrade);
+          ValidationRule.LOW,
+          candlestickSummary.getCandlestick().getLow(),
+          lowestTrade.getTradePrice());
       integrityViolations.add(
           IntegrityViolation.builder()
               .candleStickTradeData(candlestickSummary)
               .rule(ValidationRule.LOW.getRuleBreak())
+              .validationRule(ValidationRule.LOW)
               .trade(lowestTrade)
               .build());
+    } else {
+      deviationSketches.recordMatch(candlestickSummary, ValidationRule.LOW);
     }
   }
 
   private void validateHighPrice(
-      CandlestickTradeData candlestickSummary, List<IntegrityViolation> integrityViolations) {
+      CandlestickTradeData candlestickSummary,
+      TradeWindow window,
+      List<IntegrityViolation> integrityViolations) {
     // If we have at least one trade in this interval and Candlestick High is not equal to Max Trade
     // Price, we have a break
     TradesData highestTrade =
-        Collections.max(
-            candlestickSummary.getTrades(), Comparator.comparing(TradesData::getTradePrice));
+        nonNull(window)
+            ? candlestickSummary.getTrades().get(window.highestPriceIndex())
+            : Collections.max(
+                candlestickSummary.getTrades(), Comparator.comparing(TradesData::getTradePrice));
     // Big decimal compareTo return -1 if calling object is less that parameter, 0 if equal, 1 if
     // greater
     // Using this method will account for any scaling differences
     if (highestTrade.getTradePrice().compareTo(candlestickSummary.getCandlestick().getHigh())
         != 0) {
-      log.warn(
-          "Candlestick integrity violation found, Highest price of a trade did not equal High price listed on candlestick. Candlestick {}, trade {}",
+      reportBreak(
           candlestickSummary,
-          highestTrade);
+          ValidationRule.HIGH,
+          candlestickSummary.getCandlestick().getHigh(),
+          highestTrade.getTradePrice());
       integrityViolations.add(
           IntegrityViolation.builder()
               .candleStickTradeData(candlestickSummary)
               .rule(ValidationRule.HIGH.getRuleBreak())
+              .validationRule(ValidationRule.HIGH)
               .trade(highestTrade)
               .build());
+    } else {
+      deviationSketches.recordMatch(candlestickSummary, ValidationRule.HIGH);
     }
   }
 
@@ -187,20 +265,31 @@ public class RuleService {
     // greater
     // Using this method will account for any scaling differences
     if (handleDuplicateTimestampCloseTrades(
-        candlestickSummary.getTrades(), candlestickSummary.getCandlestick()))
-      if (closeTrade.getTradePrice().compareTo(candlestickSummary.getCandlestick().getClose())
-          != 0) {
-        log.warn(
-            "Candlestick integrity violation found, newest trade did not equal Close price listed on candlestick {}, trade: {}",
-            candlestickSummary,
-            closeTrade);
-        integrityViolations.add(
-            IntegrityViolation.builder()
-                .candleStickTradeData(candlestickSummary)
-                .rule(ValidationRule.CLOSE.getRuleBreak())
-                .trade(closeTrade)
-                .build());
-      }
+            candlestickSummary.getTrades(), candlestickSummary.getCandlestick())
+        && closeTrade.getTradePrice().compareTo(candlestickSummary.getCandlestick().getClose())
+            != 0) {
+      reportBreak(
+          candlestickSummary,
+          ValidationRule.CLOSE,
+          candlestickSummary.getCandlestick().getClose(),
+          closeTrade.getTradePrice());
+      integrityViolations.add(
+          IntegrityViolation.builder()
+              .candleStickTradeData(candlestickSummary)
+              .rule(ValidationRule.CLOSE.getRuleBreak())
+              .validationRule(ValidationRule.CLOSE)
+              .trade(closeTrade)
+              .build());
+    } else {
+      deviationSketches.recordMatch(candlestickSummary, ValidationRule.CLOSE);
+    }
+  }
+
+  // Logged and charged to the rule's deviation sketch by how far the trades are from the candle
+  private void reportBreak(
+      CandlestickTradeData candlestick, ValidationRule rule, BigDecimal expected, BigDecimal actual) {
+    violationLogger.report(candlestick, rule, expected, actual);
+    deviationSketches.recordBreak(candlestick, rule, expected, actual);
   }
 
   // The list of trades is already sorted by Timestamp in the IntegrityService class.
@@ -221,16 +310,20 @@ public class RuleService {
 
     if (handleDuplicateTimestampOpenTrades(
         candlestickSummary.getTrades(), candlestickSummary.getCandlestick())) {
-      log.warn(
-          "Candlestick integrity violation found, oldest trade did not equal Open price listed on candlestick {}, trade: {}",
+      reportBreak(
           candlestickSummary,
+          ValidationRule.OPEN,
+          candlestickSummary.getCandlestick().getOpen(),
           candlestickSummary.getTrades().get(0).getTradePrice());
       integrityViolations.add(
           IntegrityViolation.builder()
               .candleStickTradeData(candlestickSummary)
               .rule(ValidationRule.OPEN.getRuleBreak())
+              .validationRule(ValidationRule.OPEN)
               .trade(candlestickSummary.getTrades().get(0))
               .build());
+    } else {
+      deviationSketches.recordMatch(candlestickSummary, ValidationRule.OPEN);
     }
   }
 
@@ -253,9 +346,9 @@ public class RuleService {
     else if (openTrade.getTradeTimestamp().equals(tradeData.get(1).getTradeTimestamp())) {
       List<TradesData> equalTimeStampList =
               getSortedTradesGivenTimestamp(tradeData, openTrade.getTradeTimestamp());
-      log.info(
-          "Found a candlestick that has two or more trades booked at the same time for Open Price. Will check price of both. Candlestick: {}, numTrades: {}",
-          candleStickData, equalTimeStampList.size());
+      log.debug(
+          "Found a candlestick that has two or more trades booked at the same time for Open Price. Will check price of both. Candlestick end time: {}, numTrades: {}",
+          candleStickData.getEndTime(), equalTimeStampList.size());
       return equalTimeStampList
               .get(equalTimeStampList.size() - 1)
               .getTradePrice()
@@ -282,9 +375,9 @@ public class RuleService {
         .equals(trades.get(trades.size() - 2).getTradeTimestamp())) {
       List<TradesData> equalTimeStampList =
           getSortedTradesGivenTimestamp(trades, closeTrade.getTradeTimestamp());
-      log.info(
-          "Found a candlestick that has two or more trades booked at the same time for Open Price. Will select the max price for open. Candlestick: {}, numtrades {}",
-          candlestick,
+      log.debug(
+          "Found a candlestick that has two or more trades booked at the same time for Open Price. Will select the max price for open. Candlestick end time: {}, numtrades {}",
+          candlestick.getEndTime(),
           equalTimeStampList.size());
       return equalTimeStampList
               .get(equalTimeStampList.size() - 1)
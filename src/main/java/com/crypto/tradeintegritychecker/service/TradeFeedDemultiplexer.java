@@ -0,0 +1,67 @@
+package com.crypto.tradeintegritychecker.service;
+
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.TradeResult;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Splits the all-instrument get-trades feed into one {@link GetTradesResponse} per instrument, so
+ * a batch over many instruments can be served by a single upstream trades request
+ */
+@Slf4j
+@Component
+public class TradeFeedDemultiplexer {
+
+  /**
+   * Partitions the feed by instrument name in a single pass. Every requested instrument gets an
+   * entry, instruments without any trades in the feed get an empty partition, and trades for
+   * instruments that were not requested are dropped. A missing or empty feed leaves every
+   * partition empty
+   */
+  public Map<String, GetTradesResponse> partition(
+      GetTradesResponse allInstrumentTrades, Collection<String> instrumentNames) {
+    Map<String, List<TradesData>> partitions = new HashMap<>();
+    instrumentNames.forEach(instrument -> partitions.put(instrument, new ArrayList<>()));
+
+    int dropped = 0;
+    if (!isNull(allInstrumentTrades)
+        && !isNull(allInstrumentTrades.getResult())
+        && !isNull(allInstrumentTrades.getResult().getData())) {
+      for (TradesData trade : allInstrumentTrades.getResult().getData()) {
+        List<TradesData> partition = partitions.get(trade.getInstrumentName());
+        if (partition != null) {
+          partition.add(trade);
+        } else {
+          dropped++;
+        }
+      }
+    }
+    log.info(
+        "Partitioned all-instrument trades feed into {} instruments, {} trades were for instruments outside the batch",
+        partitions.size(),
+        dropped);
+
+    Map<String, GetTradesResponse> responses = new HashMap<>();
+    partitions.forEach((instrument, trades) -> responses.put(instrument, toResponse(instrument, trades)));
+    return responses;
+  }
+
+  private GetTradesResponse toResponse(String instrumentName, List<TradesData> trades) {
+    TradeResult result = new TradeResult();
+    result.setInstrumentName(instrumentName);
+    result.setData(trades);
+    GetTradesResponse response = new GetTradesResponse();
+    response.setResult(result);
+    return response;
+  }
+}
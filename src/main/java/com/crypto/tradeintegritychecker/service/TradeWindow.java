@@ -0,0 +1,142 @@
+package com.crypto.tradeintegritychecker.service;
+
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static java.util.Objects.isNull;
+
+/**
+ * One candle's trade prices and quantities as primitive fixed point columns, each value scaled by
+ * the largest scale seen in its column. The HIGH, LOW and VOLUME rules reduce over these with
+ * plain counted loops instead of comparing and adding one {@link BigDecimal} at a time, and
+ * HotSpot can vectorize the loops on CPUs that support it.
+ *
+ * <p>The columns are exact, so the rules reach the same verdicts as the {@link BigDecimal}
+ * reductions. A candle whose values cannot be held exactly - too many digits, or a total quantity
+ * that could overflow - gets no window, and the caller falls back to those reductions
+ */
+final class TradeWindow {
+
+  // Largest scale whose power of ten fits in a long
+  private static final int MAX_SCALE = 18;
+  private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+  static {
+    POWERS_OF_TEN[0] = 1;
+    for (int i = 1; i <= MAX_SCALE; i++) {
+      POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+  }
+
+  private final long[] prices;
+  private final long[] quantities;
+  private final int quantityScale;
+
+  private TradeWindow(long[] prices, long[] quantities, int quantityScale) {
+    this.prices = prices;
+    this.quantities = quantities;
+    this.quantityScale = quantityScale;
+  }
+
+  /** @return the window, or null when the trades cannot be represented exactly */
+  static TradeWindow of(List<TradesData> trades) {
+    int size = trades.size();
+    int priceScale = 0;
+    int quantityScale = 0;
+    for (int i = 0; i < size; i++) {
+      TradesData trade = trades.get(i);
+      if (isNull(trade.getTradePrice()) || isNull(trade.getTradeQuantity())) {
+        return null;
+      }
+      priceScale = Math.max(priceScale, trade.getTradePrice().scale());
+      quantityScale = Math.max(quantityScale, trade.getTradeQuantity().scale());
+    }
+    if (size == 0 || priceScale > MAX_SCALE || quantityScale > MAX_SCALE) {
+      return null;
+    }
+
+    long[] prices = new long[size];
+    long[] quantities = new long[size];
+    long largestQuantity = 0;
+    try {
+      for (int i = 0; i < size; i++) {
+        TradesData trade = trades.get(i);
+        prices[i] = scaled(trade.getTradePrice(), priceScale);
+        quantities[i] = scaled(trade.getTradeQuantity(), quantityScale);
+        largestQuantity = Math.max(largestQuantity, Math.abs(quantities[i]));
+      }
+    } catch (ArithmeticException e) {
+      return null;
+    }
+    // Guarantees the unchecked sum below cannot overflow
+    if (largestQuantity > Long.MAX_VALUE / size) {
+      return null;
+    }
+    return new TradeWindow(prices, quantities, quantityScale);
+  }
+
+  /** Index of the first trade at the lowest price, as {@code Collections.min} would pick */
+  int lowestPriceIndex() {
+    return indexOf(prices, min(prices));
+  }
+
+  /** Index of the first trade at the highest price, as {@code Collections.max} would pick */
+  int highestPriceIndex() {
+    return indexOf(prices, max(prices));
+  }
+
+  /** Exact sum of the trade quantities, at the largest scale among them */
+  BigDecimal totalQuantity() {
+    return BigDecimal.valueOf(sum(quantities), quantityScale);
+  }
+
+  // Loops are kept free of branches and calls so that they stay vectorizable
+
+  private static long min(long[] values) {
+    long min = Long.MAX_VALUE;
+    for (int i = 0; i < values.length; i++) {
+      min = Math.min(min, values[i]);
+    }
+    return min;
+  }
+
+  private static long max(long[] values) {
+    long max = Long.MIN_VALUE;
+    for (int i = 0; i < values.length; i++) {
+      max = Math.max(max, values[i]);
+    }
+    return max;
+  }
+
+  private static long sum(long[] values) {
+    long sum = 0;
+    for (int i = 0; i < values.length; i++) {
+      sum += values[i];
+    }
+    return sum;
+  }
+
+  private static int indexOf(long[] values, long value) {
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] == value) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Moving the point yields a compact zero-scale value whose long is read without inflating a
+   * BigInteger, far cheaper than {@code unscaledValue()}
+   */
+  private static long scaled(BigDecimal value, int scale) {
+    int shift = scale - value.scale();
+    if (shift > MAX_SCALE) {
+      throw new ArithmeticException("Scale difference too large for a long");
+    }
+    long unscaled = value.movePointRight(value.scale()).longValueExact();
+    return Math.multiplyExact(unscaled, POWERS_OF_TEN[shift]);
+  }
+}
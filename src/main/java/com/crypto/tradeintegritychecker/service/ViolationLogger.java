@@ -0,0 +1,141 @@
+package com.crypto.tradeintegritychecker.service;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.integrity.CandlestickTradeData;
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Logs rule breaks as one compact key=value line holding only the fields needed to find the
+ * candle again, instead of the whole candle and its trades. Each instrument and rule may log a
+ * limited number of breaks per window, the rest are counted and reported as a single summary line
+ * when the window rolls over, so a bad data day cannot flood the log or the evaluating threads.
+ *
+ * <p>Breaks go to the {@value #LOGGER_NAME} logger, which can be routed or silenced separately;
+ * when it is disabled reporting a break costs a single check
+ */
+@Component
+public class ViolationLogger {
+
+  public static final String LOGGER_NAME = "integrity.violations";
+
+  private static final Logger log = LoggerFactory.getLogger(LOGGER_NAME);
+
+  private final int maxPerWindow;
+  private final long windowNanos;
+  private final Duration window;
+  private final Map<String, Window[]> windows = new ConcurrentHashMap<>();
+
+  public ViolationLogger(IntegrityCheckerProperties properties) {
+    this.maxPerWindow = properties.getViolationLog().getMaxPerWindow();
+    this.window = properties.getViolationLog().getWindow();
+    this.windowNanos = window.toNanos();
+  }
+
+  public void report(
+      CandlestickTradeData candle, ValidationRule rule, BigDecimal expected, BigDecimal actual) {
+    if (!log.isWarnEnabled()) {
+      return;
+    }
+    String instrument = candle.getInstrument();
+    Window limit = windowFor(instrument, rule);
+    if (!limit.tryAcquire(System.nanoTime())) {
+      return;
+    }
+    log.warn(
+        "integrity_violation instrument={} timeframe={} rule={} candle_end={} expected={} actual={} trades={}",
+        instrument,
+        candle.getTimeframe(),
+        rule,
+        candle.getEndTime(),
+        expected,
+        actual,
+        candle.getTrades().size());
+  }
+
+  /** Reports every count still waiting for its window to roll over */
+  @PreDestroy
+  public void flushSuppressed() {
+    windows.forEach(
+        (instrument, rules) -> {
+          for (Window limit : rules) {
+            if (limit != null) {
+              limit.flush();
+            }
+          }
+        });
+  }
+
+  private Window windowFor(String instrument, ValidationRule rule) {
+    Window[] rules =
+        windows.computeIfAbsent(String.valueOf(instrument), key -> new Window[ValidationRule.values().length]);
+    Window limit = rules[rule.ordinal()];
+    if (limit == null) {
+      synchronized (rules) {
+        limit = rules[rule.ordinal()];
+        if (limit == null) {
+          limit = new Window(instrument, rule, System.nanoTime());
+          rules[rule.ordinal()] = limit;
+        }
+      }
+    }
+    return limit;
+  }
+
+  private final class Window {
+
+    private final String instrument;
+    private final ValidationRule rule;
+    private final AtomicInteger logged = new AtomicInteger();
+    private final AtomicLong suppressed = new AtomicLong();
+    private volatile long startedAt;
+
+    private Window(String instrument, ValidationRule rule, long startedAt) {
+      this.instrument = instrument;
+      this.rule = rule;
+      this.startedAt = startedAt;
+    }
+
+    boolean tryAcquire(long now) {
+      if (now - startedAt >= windowNanos) {
+        roll(now);
+      }
+      if (logged.incrementAndGet() <= maxPerWindow) {
+        return true;
+      }
+      suppressed.incrementAndGet();
+      return false;
+    }
+
+    private synchronized void roll(long now) {
+      if (now - startedAt < windowNanos) {
+        return;
+      }
+      flush();
+      logged.set(0);
+      startedAt = now;
+    }
+
+    void flush() {
+      long count = suppressed.getAndSet(0);
+      if (count > 0) {
+        log.warn(
+            "integrity_violations_suppressed instrument={} rule={} count={} window={}",
+            instrument,
+            rule,
+            count,
+            window);
+      }
+    }
+  }
+}
@@ -0,0 +1,255 @@
+package com.crypto.tradeintegritychecker.sketch;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch with relative error guarantees, after DDSketch. Positive values are
+ * counted in logarithmically sized bins, bin {@code i} holding values in {@code (gamma^(i-1),
+ * gamma^i]} with {@code gamma = (1 + a) / (1 - a)}, so any quantile is answered to within a
+ * relative error of {@code a}. Values too small to bin are counted as zero.
+ *
+ * <p>At most {@code maxBins} bins are kept. When the values span more than that, the lowest bins
+ * are collapsed together, so small deviations lose resolution before large ones do. Two sketches
+ * with the same relative accuracy merge exactly, whichever order values were added in.
+ *
+ * <p>Not thread safe
+ */
+public class DeviationSketch {
+
+  private static final double MIN_INDEXABLE = 1e-12;
+  private static final int MIN_LENGTH = 32;
+
+  private final double relativeAccuracy;
+  private final int maxBins;
+  private final double gamma;
+  private final double logGamma;
+
+  private long[] counts;
+  private int offset;
+  private int lowestIndex;
+  private int highestIndex;
+  private long binned;
+
+  private long count;
+  private long zeroCount;
+  private double sum;
+  private double min;
+  private double max;
+
+  public DeviationSketch(double relativeAccuracy, int maxBins) {
+    if (relativeAccuracy <= 0 || relativeAccuracy >= 1) {
+      throw new IllegalArgumentException("Relative accuracy must be between 0 and 1");
+    }
+    if (maxBins < 1) {
+      throw new IllegalArgumentException("A sketch needs at least one bin");
+    }
+    this.relativeAccuracy = relativeAccuracy;
+    this.maxBins = maxBins;
+    this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+    this.logGamma = Math.log(gamma);
+  }
+
+  /** Restores a sketch from its serialised form, as produced by the getters */
+  @JsonCreator
+  public DeviationSketch(
+      @JsonProperty("relativeAccuracy") double relativeAccuracy,
+      @JsonProperty("maxBins") int maxBins,
+      @JsonProperty("count") long count,
+      @JsonProperty("zeroCount") long zeroCount,
+      @JsonProperty("sum") double sum,
+      @JsonProperty("min") double min,
+      @JsonProperty("max") double max,
+      @JsonProperty("lowestIndex") int lowestIndex,
+      @JsonProperty("bins") long[] bins) {
+    this(relativeAccuracy, maxBins);
+    this.count = count;
+    this.zeroCount = zeroCount;
+    this.sum = sum;
+    this.min = min;
+    this.max = max;
+    if (bins != null) {
+      for (int i = 0; i < bins.length; i++) {
+        if (bins[i] > 0) {
+          addToBin(lowestIndex + i, bins[i]);
+        }
+      }
+    }
+  }
+
+  public void add(double value) {
+    if (value < 0 || Double.isNaN(value)) {
+      throw new IllegalArgumentException("Deviations are never negative: " + value);
+    }
+    if (count == 0) {
+      min = value;
+      max = value;
+    } else {
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    }
+    count++;
+    sum += value;
+    if (value < MIN_INDEXABLE) {
+      zeroCount++;
+    } else {
+      addToBin((int) Math.ceil(Math.log(value) / logGamma), 1);
+    }
+  }
+
+  public void merge(DeviationSketch other) {
+    if (Double.compare(relativeAccuracy, other.relativeAccuracy) != 0) {
+      throw new IllegalArgumentException(
+          "Cannot merge sketches with relative accuracy "
+              + relativeAccuracy
+              + " and "
+              + other.relativeAccuracy);
+    }
+    if (other.count == 0) {
+      return;
+    }
+    if (count == 0) {
+      min = other.min;
+      max = other.max;
+    } else {
+      min = Math.min(min, other.min);
+      max = Math.max(max, other.max);
+    }
+    count += other.count;
+    zeroCount += other.zeroCount;
+    sum += other.sum;
+    if (other.binned > 0) {
+      for (int index = other.lowestIndex; index <= other.highestIndex; index++) {
+        long binCount = other.counts[index - other.offset];
+        if (binCount > 0) {
+          addToBin(index, binCount);
+        }
+      }
+    }
+  }
+
+  /** @return the value at quantile {@code q}, 0 for an empty sketch */
+  public double quantile(double q) {
+    if (q < 0 || q > 1) {
+      throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+    }
+    if (count == 0) {
+      return 0;
+    }
+    double rank = q * (count - 1);
+    if (rank < zeroCount) {
+      return min;
+    }
+    long seen = zeroCount;
+    for (int index = lowestIndex; index <= highestIndex; index++) {
+      seen += counts[index - offset];
+      if (seen > rank) {
+        // The point of the bin equally far, relatively, from both of its bounds
+        double value = 2 * Math.pow(gamma, index) / (gamma + 1);
+        return Math.max(min, Math.min(max, value));
+      }
+    }
+    return max;
+  }
+
+  public DeviationSketch copy() {
+    DeviationSketch copy = new DeviationSketch(relativeAccuracy, maxBins);
+    copy.merge(this);
+    return copy;
+  }
+
+  public double getRelativeAccuracy() {
+    return relativeAccuracy;
+  }
+
+  public int getMaxBins() {
+    return maxBins;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getZeroCount() {
+    return zeroCount;
+  }
+
+  public double getSum() {
+    return sum;
+  }
+
+  public double getMin() {
+    return min;
+  }
+
+  public double getMax() {
+    return max;
+  }
+
+  @JsonIgnore
+  public double getMean() {
+    return count == 0 ? 0 : sum / count;
+  }
+
+  /** Index of the first of {@link #getBins()} */
+  public int getLowestIndex() {
+    return binned == 0 ? 0 : lowestIndex;
+  }
+
+  /** Counts of the bins from the lowest to the highest non-empty one */
+  public long[] getBins() {
+    if (binned == 0) {
+      return new long[0];
+    }
+    return Arrays.copyOfRange(counts, lowestIndex - offset, highestIndex - offset + 1);
+  }
+
+  /** The number of bins currently spanned, never more than the configured maximum */
+  @JsonIgnore
+  public int getBinCount() {
+    return binned == 0 ? 0 : highestIndex - lowestIndex + 1;
+  }
+
+  private void addToBin(int index, long binCount) {
+    if (binned == 0) {
+      lowestIndex = index;
+      highestIndex = index;
+    }
+    int newLowest = Math.min(lowestIndex, index);
+    int newHighest = Math.max(highestIndex, index);
+    if (newHighest - newLowest + 1 > maxBins) {
+      newLowest = newHighest - maxBins + 1;
+      index = Math.max(index, newLowest);
+    }
+    if (counts == null
+        || newLowest < offset
+        || newHighest >= offset + counts.length
+        || newLowest > lowestIndex) {
+      resize(newLowest, newHighest);
+    }
+    lowestIndex = newLowest;
+    highestIndex = newHighest;
+    counts[index - offset] += binCount;
+    binned += binCount;
+  }
+
+  // Reallocates around the new range with some slack either side, folding any bins below the new
+  // lowest index into it
+  private void resize(int newLowest, int newHighest) {
+    int span = newHighest - newLowest + 1;
+    int grown = Math.max(MIN_LENGTH, counts == null ? 0 : counts.length * 2);
+    int length = Math.min(maxBins, Math.max(span, grown));
+    int newOffset = newLowest - (length - span) / 2;
+    long[] resized = new long[length];
+    if (binned > 0) {
+      for (int index = lowestIndex; index <= highestIndex; index++) {
+        resized[Math.max(index, newLowest) - newOffset] += counts[index - offset];
+      }
+    }
+    counts = resized;
+    offset = newOffset;
+  }
+}
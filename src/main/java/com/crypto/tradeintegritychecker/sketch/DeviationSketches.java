@@ -0,0 +1,221 @@
+package com.crypto.tradeintegritychecker.sketch;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.integrity.CandlestickTradeData;
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.recording.Replay;
+import com.crypto.tradeintegritychecker.registry.InstrumentRegistry;
+import com.crypto.tradeintegritychecker.registry.InstrumentState;
+import com.crypto.tradeintegritychecker.registry.StateKey;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Per instrument, timeframe and rule sketches of how far candles deviate from their trades. Every
+ * rule evaluation is recorded, so the distributions cover all analysed candles at a fixed size per
+ * key, and sketches exported from other runs or nodes can be merged in. Evaluations of a
+ * {@link Replay} are not recorded.
+ *
+ * <p>Each instrument's sketches are held in the {@link InstrumentRegistry}, so they count against
+ * its memory budget and are dropped along with the rest of an evicted instrument's state
+ */
+@Component
+public class DeviationSketches {
+
+  private static final StateKey<InstrumentSketches> SKETCH_STATE =
+      StateKey.of("deviation-sketches", InstrumentSketches.class);
+
+  // Map entry, key, counters and the sketch's own fields, excluding its bins
+  private static final long ENTRY_OVERHEAD_BYTES = 240;
+
+  private static final Comparator<KeyedDeviationSketch> ORDER =
+      Comparator.comparing(KeyedDeviationSketch::getInstrumentName)
+          .thenComparing(KeyedDeviationSketch::getTimeframe)
+          .thenComparing(KeyedDeviationSketch::getRule);
+
+  private final double relativeAccuracy;
+  private final int maxBins;
+  private final InstrumentRegistry instrumentRegistry;
+
+  public DeviationSketches(
+      IntegrityCheckerProperties properties, InstrumentRegistry instrumentRegistry) {
+    this.relativeAccuracy = properties.getDeviations().getRelativeAccuracy();
+    this.maxBins = properties.getDeviations().getMaxBins();
+    this.instrumentRegistry = instrumentRegistry;
+  }
+
+  /** Records a rule the candle passed */
+  public void recordMatch(CandlestickTradeData candle, ValidationRule rule) {
+    if (Replay.isActive() || isNull(candle.getInstrument())) {
+      return;
+    }
+    InstrumentSketches sketches = sketchesFor(candle.getInstrument());
+    synchronized (sketches) {
+      sketches.add(candle.getTimeframe(), rule, 0, false);
+    }
+  }
+
+  /** Records a rule the candle broke, by the relative difference of the two values */
+  public void recordBreak(
+      CandlestickTradeData candle, ValidationRule rule, BigDecimal expected, BigDecimal actual) {
+    if (Replay.isActive() || isNull(candle.getInstrument())) {
+      return;
+    }
+    double deviation = relativeDeviation(expected, actual);
+    InstrumentSketches sketches = sketchesFor(candle.getInstrument());
+    synchronized (sketches) {
+      sketches.add(candle.getTimeframe(), rule, deviation, true);
+    }
+  }
+
+  public List<DeviationSummary> summaries(String instrumentName) {
+    List<DeviationSummary> summaries = new ArrayList<>();
+    for (KeyedDeviationSketch keyed : export()) {
+      if (!isNull(instrumentName) && !instrumentName.equals(keyed.getInstrumentName())) {
+        continue;
+      }
+      DeviationSketch sketch = keyed.getSketch();
+      summaries.add(
+          DeviationSummary.builder()
+              .instrumentName(keyed.getInstrumentName())
+              .timeframe(keyed.getTimeframe())
+              .rule(keyed.getRule())
+              .numCandlesticksAnalyzed(sketch.getCount())
+              .numIntegrityBreaks(keyed.getIntegrityBreaks())
+              .mean(sketch.getMean())
+              .max(sketch.getMax())
+              .p50(sketch.quantile(0.5))
+              .p90(sketch.quantile(0.9))
+              .p99(sketch.quantile(0.99))
+              .p999(sketch.quantile(0.999))
+              .build());
+    }
+    return summaries;
+  }
+
+  /** Copies of every sketch, for another node or a later run to merge */
+  public List<KeyedDeviationSketch> export() {
+    List<KeyedDeviationSketch> exported = new ArrayList<>();
+    instrumentRegistry
+        .states(SKETCH_STATE)
+        .forEach(
+            (instrumentName, sketches) -> {
+              synchronized (sketches) {
+                sketches.entries.forEach(
+                    (key, entry) ->
+                        exported.add(
+                            new KeyedDeviationSketch(
+                                instrumentName,
+                                key.timeframe,
+                                key.rule,
+                                entry.integrityBreaks,
+                                entry.sketch.copy())));
+              }
+            });
+    exported.sort(ORDER);
+    return exported;
+  }
+
+  public void merge(List<KeyedDeviationSketch> sketches) {
+    for (KeyedDeviationSketch keyed : sketches) {
+      InstrumentSketches instrumentSketches = sketchesFor(keyed.getInstrumentName());
+      synchronized (instrumentSketches) {
+        instrumentSketches.merge(keyed);
+      }
+    }
+  }
+
+  private InstrumentSketches sketchesFor(String instrumentName) {
+    return instrumentRegistry.acquire(
+        instrumentName, SKETCH_STATE, () -> new InstrumentSketches(relativeAccuracy, maxBins));
+  }
+
+  // Relative to the candle's value, or absolute when the candle's value is 0
+  static double relativeDeviation(BigDecimal expected, BigDecimal actual) {
+    if (isNull(expected) || isNull(actual)) {
+      return 0;
+    }
+    double candleValue = expected.doubleValue();
+    double difference = Math.abs(actual.doubleValue() - candleValue);
+    return candleValue == 0 ? difference : difference / Math.abs(candleValue);
+  }
+
+  @Value
+  private static class Key {
+
+    Timeframe timeframe;
+    ValidationRule rule;
+  }
+
+  private static class Entry {
+
+    private final DeviationSketch sketch;
+    private long integrityBreaks;
+    private int bins;
+
+    private Entry(DeviationSketch sketch) {
+      this.sketch = sketch;
+    }
+  }
+
+  /** One instrument's sketches, guarded by synchronizing on the instance */
+  private static class InstrumentSketches implements InstrumentState {
+
+    private final double relativeAccuracy;
+    private final int maxBins;
+    private final Map<Key, Entry> entries = new HashMap<>();
+    private volatile long estimatedBytes;
+
+    private InstrumentSketches(double relativeAccuracy, int maxBins) {
+      this.relativeAccuracy = relativeAccuracy;
+      this.maxBins = maxBins;
+    }
+
+    private void add(Timeframe timeframe, ValidationRule rule, double deviation, boolean broken) {
+      Entry entry = entryFor(timeframe, rule);
+      entry.sketch.add(deviation);
+      if (broken) {
+        entry.integrityBreaks++;
+      }
+      remeasure(entry);
+    }
+
+    private void merge(KeyedDeviationSketch keyed) {
+      Entry entry = entryFor(keyed.getTimeframe(), keyed.getRule());
+      entry.sketch.merge(keyed.getSketch());
+      entry.integrityBreaks += keyed.getIntegrityBreaks();
+      remeasure(entry);
+    }
+
+    private Entry entryFor(Timeframe timeframe, ValidationRule rule) {
+      return entries.computeIfAbsent(
+          new Key(timeframe, rule),
+          key -> {
+            estimatedBytes += ENTRY_OVERHEAD_BYTES;
+            return new Entry(new DeviationSketch(relativeAccuracy, maxBins));
+          });
+    }
+
+    // Each bin is one long count
+    private void remeasure(Entry entry) {
+      int bins = entry.sketch.getBinCount();
+      estimatedBytes += 8L * (bins - entry.bins);
+      entry.bins = bins;
+    }
+
+    @Override
+    public long estimatedBytes() {
+      return estimatedBytes;
+    }
+  }
+}
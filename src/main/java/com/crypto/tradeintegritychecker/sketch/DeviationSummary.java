@@ -0,0 +1,27 @@
+package com.crypto.tradeintegritychecker.sketch;
+
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Distribution of the relative deviation between a candle's value and the value derived from its
+ * trades, for one instrument, timeframe and rule. Candles that pass a rule deviate by 0
+ */
+@Data
+@Builder
+public class DeviationSummary {
+
+  private String instrumentName;
+  private Timeframe timeframe;
+  private ValidationRule rule;
+  private long numCandlesticksAnalyzed;
+  private long numIntegrityBreaks;
+  private double mean;
+  private double max;
+  private double p50;
+  private double p90;
+  private double p99;
+  private double p999;
+}
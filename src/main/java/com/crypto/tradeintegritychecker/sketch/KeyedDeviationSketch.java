@@ -0,0 +1,20 @@
+package com.crypto.tradeintegritychecker.sketch;
+
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A sketch and its break counter, as exported by one node for merging into another */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class KeyedDeviationSketch {
+
+  private String instrumentName;
+  private Timeframe timeframe;
+  private ValidationRule rule;
+  private long integrityBreaks;
+  private DeviationSketch sketch;
+}
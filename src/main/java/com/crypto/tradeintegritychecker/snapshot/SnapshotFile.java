@@ -0,0 +1,200 @@
+package com.crypto.tradeintegritychecker.snapshot;
+
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.trades.Side;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import com.crypto.tradeintegritychecker.stream.StreamSnapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary snapshot format: a header, then each stream's marks, candles and trades, all deflated,
+ * followed by a CRC32 of the uncompressed content. A snapshot is written to a temporary file,
+ * forced to disk and atomically moved over the previous one, so a crash at any point leaves either
+ * the old snapshot or the new one, never a mixture
+ */
+public final class SnapshotFile {
+
+  static final int MAGIC = 0x49435353;
+  static final int VERSION = 1;
+
+  private SnapshotFile() {}
+
+  public static void write(Path file, StateSnapshot snapshot) throws IOException {
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel =
+        FileChannel.open(
+            temp,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      OutputStream fileOut = Channels.newOutputStream(channel);
+      CRC32 crc = new CRC32();
+      DeflaterOutputStream deflated = new DeflaterOutputStream(new BufferedOutputStream(fileOut));
+      DataOutputStream out = new DataOutputStream(new CheckedOutputStream(deflated, crc));
+      writeSnapshot(out, snapshot);
+      out.flush();
+      // The checksum itself is not part of the checked content
+      new DataOutputStream(deflated).writeLong(crc.getValue());
+      deflated.finish();
+      deflated.flush();
+      channel.force(true);
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  public static StateSnapshot read(Path file) throws IOException {
+    try (InputStream fileIn = Files.newInputStream(file)) {
+      CRC32 crc = new CRC32();
+      InflaterInputStream inflated = new InflaterInputStream(new BufferedInputStream(fileIn));
+      DataInputStream in = new DataInputStream(new CheckedInputStream(inflated, crc));
+      StateSnapshot snapshot = readSnapshot(in);
+      long expected = new DataInputStream(inflated).readLong();
+      if (expected != crc.getValue()) {
+        throw new IOException("Snapshot " + file + " failed its checksum");
+      }
+      return snapshot;
+    }
+  }
+
+  private static void writeSnapshot(DataOutputStream out, StateSnapshot snapshot)
+      throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    out.writeLong(snapshot.getTakenAt());
+    out.writeUTF(snapshot.getTimeframe().getTimeframeString());
+    out.writeInt(snapshot.getStreams().size());
+    for (StreamSnapshot stream : snapshot.getStreams()) {
+      out.writeUTF(stream.getInstrumentName());
+      out.writeLong(stream.getWatermark());
+      out.writeLong(stream.getCoverageStart());
+      out.writeLong(stream.getLastEvaluated());
+      out.writeLong(stream.getGapStart());
+      out.writeInt(stream.getCandles().size());
+      for (CandleStickData candle : stream.getCandles()) {
+        writeLong(out, candle.getEndTime());
+        writeDecimal(out, candle.getOpen());
+        writeDecimal(out, candle.getHigh());
+        writeDecimal(out, candle.getLow());
+        writeDecimal(out, candle.getClose());
+        writeDecimal(out, candle.getVolume());
+      }
+      out.writeInt(stream.getTrades().size());
+      for (TradesData trade : stream.getTrades()) {
+        writeLong(out, trade.getTradeId());
+        writeLong(out, trade.getTradeTimestamp());
+        writeLong(out, trade.getDataTime());
+        writeDecimal(out, trade.getTradePrice());
+        writeDecimal(out, trade.getTradeQuantity());
+        out.writeByte(trade.getSide() == null ? -1 : trade.getSide().ordinal());
+      }
+    }
+  }
+
+  private static StateSnapshot readSnapshot(DataInputStream in) throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a state snapshot");
+    }
+    int version = in.readInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported state snapshot version " + version);
+    }
+    long takenAt = in.readLong();
+    Timeframe timeframe = Timeframe.getTimeframeFromString(in.readUTF());
+    int streamCount = in.readInt();
+    List<StreamSnapshot> streams = new ArrayList<>(streamCount);
+    for (int s = 0; s < streamCount; s++) {
+      String instrumentName = in.readUTF();
+      long watermark = in.readLong();
+      long coverageStart = in.readLong();
+      long lastEvaluated = in.readLong();
+      long gapStart = in.readLong();
+      int candleCount = in.readInt();
+      List<CandleStickData> candles = new ArrayList<>(candleCount);
+      for (int i = 0; i < candleCount; i++) {
+        CandleStickData candle = new CandleStickData();
+        candle.setEndTime(readLong(in));
+        candle.setOpen(readDecimal(in));
+        candle.setHigh(readDecimal(in));
+        candle.setLow(readDecimal(in));
+        candle.setClose(readDecimal(in));
+        candle.setVolume(readDecimal(in));
+        candles.add(candle);
+      }
+      int tradeCount = in.readInt();
+      List<TradesData> trades = new ArrayList<>(tradeCount);
+      for (int i = 0; i < tradeCount; i++) {
+        TradesData trade = new TradesData();
+        trade.setTradeId(readLong(in));
+        trade.setTradeTimestamp(readLong(in));
+        trade.setDataTime(readLong(in));
+        trade.setTradePrice(readDecimal(in));
+        trade.setTradeQuantity(readDecimal(in));
+        byte side = in.readByte();
+        trade.setSide(side < 0 ? null : Side.values()[side]);
+        trades.add(trade);
+      }
+      streams.add(
+          new StreamSnapshot(
+              instrumentName, watermark, coverageStart, lastEvaluated, gapStart, candles, trades));
+    }
+    return new StateSnapshot(takenAt, timeframe, streams);
+  }
+
+  private static void writeLong(DataOutputStream out, Long value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeLong(value);
+    }
+  }
+
+  private static Long readLong(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readLong() : null;
+  }
+
+  private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+    if (value == null) {
+      out.writeByte(-1);
+      return;
+    }
+    byte[] unscaled = value.unscaledValue().toByteArray();
+    if (unscaled.length >= 0xFF) {
+      throw new IOException("Decimal too large for a snapshot: " + value);
+    }
+    out.writeByte(unscaled.length);
+    out.write(unscaled);
+    out.writeInt(value.scale());
+  }
+
+  private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+    int length = in.readUnsignedByte();
+    if (length == 0xFF) {
+      return null;
+    }
+    byte[] unscaled = new byte[length];
+    in.readFully(unscaled);
+    return new BigDecimal(new BigInteger(unscaled), in.readInt());
+  }
+}
@@ -0,0 +1,16 @@
+package com.crypto.tradeintegritychecker.snapshot;
+
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.stream.StreamSnapshot;
+import lombok.Value;
+
+import java.util.List;
+
+/** Everything saved by one snapshot, the streams all belonging to the one streamed timeframe */
+@Value
+public class StateSnapshot {
+
+  long takenAt;
+  Timeframe timeframe;
+  List<StreamSnapshot> streams;
+}
@@ -0,0 +1,120 @@
+package com.crypto.tradeintegritychecker.snapshot;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.stream.StreamSnapshot;
+import com.crypto.tradeintegritychecker.stream.StreamingIntegrityEvaluator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically snapshots the streaming buffers to a local file and restores them on startup,
+ * before the stream connects or requests are served. A restored node only has to backfill the
+ * trades it missed while it was down, rather than rebuilding every instrument from scratch.
+ *
+ * <p>A missing, unreadable or corrupt snapshot, or one taken for a different timeframe, is logged
+ * and ignored, and the node starts cold as it did before
+ */
+@Slf4j
+@Component
+public class StateSnapshotter {
+
+  private static final String SNAPSHOT_FILENAME = "state.snapshot";
+
+  private final IntegrityCheckerProperties.Snapshot config;
+  private final StreamingIntegrityEvaluator evaluator;
+  private final Path snapshotFile;
+  private ScheduledExecutorService scheduler;
+
+  public StateSnapshotter(
+      IntegrityCheckerProperties properties, StreamingIntegrityEvaluator evaluator) {
+    this.config = properties.getSnapshot();
+    this.evaluator = evaluator;
+    this.snapshotFile = Paths.get(config.getDirectory(), SNAPSHOT_FILENAME);
+  }
+
+  @PostConstruct
+  public void init() throws IOException {
+    if (!config.isEnabled()) {
+      return;
+    }
+    Files.createDirectories(snapshotFile.getParent());
+    restore();
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "state-snapshot");
+              thread.setDaemon(true);
+              return thread;
+            });
+    long interval = config.getInterval().toMillis();
+    scheduler.scheduleWithFixedDelay(
+        this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /** Takes a final snapshot once the stream has been stopped */
+  @PreDestroy
+  public void shutdown() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      snapshotQuietly();
+    }
+  }
+
+  public void snapshot() throws IOException {
+    long started = System.nanoTime();
+    List<StreamSnapshot> streams = evaluator.snapshot();
+    SnapshotFile.write(
+        snapshotFile,
+        new StateSnapshot(System.currentTimeMillis(), evaluator.getTimeframe(), streams));
+    log.debug(
+        "Snapshot of {} instrument streams written in {} ms",
+        streams.size(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+  }
+
+  void restore() {
+    if (!Files.exists(snapshotFile)) {
+      return;
+    }
+    long started = System.nanoTime();
+    StateSnapshot snapshot;
+    try {
+      snapshot = SnapshotFile.read(snapshotFile);
+    } catch (IOException | RuntimeException e) {
+      log.warn("Ignoring unreadable state snapshot {}: {}", snapshotFile, e.toString());
+      return;
+    }
+    if (snapshot.getTimeframe() != evaluator.getTimeframe()) {
+      log.info(
+          "Ignoring state snapshot taken for timeframe {}, streaming {} now",
+          snapshot.getTimeframe().getTimeframeString(),
+          evaluator.getTimeframe().getTimeframeString());
+      return;
+    }
+    evaluator.restore(snapshot.getStreams());
+    log.info(
+        "Restored {} instrument streams from a snapshot taken {} s ago in {} ms",
+        snapshot.getStreams().size(),
+        TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - snapshot.getTakenAt()),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+  }
+
+  private void snapshotQuietly() {
+    try {
+      snapshot();
+    } catch (IOException | RuntimeException e) {
+      log.warn("Unable to write state snapshot {}: {}", snapshotFile, e.toString());
+    }
+  }
+}
@@ -0,0 +1,293 @@
+package com.crypto.tradeintegritychecker.stream;
+
+import com.crypto.tradeintegritychecker.client.CryptoClient;
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import org.springframework.web.reactive.socket.client.WebSocketClient;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Subscribes to the exchange's trade and candlestick channels for the configured instruments and
+ * feeds every message to the {@link StreamingIntegrityEvaluator}. The connection is re-established
+ * with exponential back-off whenever it drops or goes idle, and after every reconnect the REST
+ * endpoints are used to backfill whatever may have been missed in between. Failed backfills are
+ * retried with the same back-off before the instrument's gap is given up on.
+ *
+ * <p>Only dropped connections are treated as gaps. The channels carry no sequence numbers, so a
+ * message the exchange skips while the connection stays up cannot be detected here
+ */
+@Slf4j
+@Component
+public class MarketDataStreamClient implements SmartLifecycle {
+
+  private static final String HEARTBEAT = "public/heartbeat";
+  private static final String RESPOND_HEARTBEAT = "public/respond-heartbeat";
+  private static final String TRADE_CHANNEL = "trade";
+  private static final String CANDLESTICK_CHANNEL = "candlestick";
+
+  private static final TypeReference<List<TradesData>> TRADES_TYPE =
+      new TypeReference<List<TradesData>>() {};
+  private static final TypeReference<List<CandleStickData>> CANDLES_TYPE =
+      new TypeReference<List<CandleStickData>>() {};
+
+  private final IntegrityCheckerProperties.Stream config;
+  private final StreamingIntegrityEvaluator evaluator;
+  private final CryptoClient cryptoClient;
+  private final ObjectMapper objectMapper;
+  private final WebSocketClient webSocketClient = new ReactorNettyWebSocketClient();
+
+  private final AtomicBoolean running = new AtomicBoolean();
+  private final AtomicLong requestId = new AtomicLong();
+  private final AtomicLong disconnectedAt = new AtomicLong(-1);
+  private volatile Duration reconnectDelay;
+  private Scheduler messageScheduler;
+  private Disposable connection;
+  private volatile Disposable backfill;
+
+  public MarketDataStreamClient(
+      IntegrityCheckerProperties properties,
+      StreamingIntegrityEvaluator evaluator,
+      CryptoClient cryptoClient,
+      ObjectMapper objectMapper) {
+    this.config = properties.getStream();
+    this.evaluator = evaluator;
+    this.cryptoClient = cryptoClient;
+    this.objectMapper = objectMapper;
+    this.reconnectDelay = config.getInitialReconnectDelay();
+  }
+
+  @Override
+  public void start() {
+    if (!config.isEnabled() || config.getInstruments().isEmpty()) {
+      return;
+    }
+    if (!running.compareAndSet(false, true)) {
+      return;
+    }
+    log.info(
+        "Starting market data stream from {} for Instruments: {} using timeframe: {}",
+        config.getUrl(),
+        config.getInstruments(),
+        config.getTimeframe());
+    // Messages are handled one at a time, off the network event loop
+    messageScheduler = Schedulers.newSingle("market-data-stream");
+    connection =
+        Mono.defer(this::connectOnce)
+            .onErrorResume(
+                e -> {
+                  log.warn("Market data stream failed: {}", e.toString());
+                  return Mono.empty();
+                })
+            .then(Mono.defer(this::awaitReconnect))
+            .repeat(running::get)
+            .subscribe();
+  }
+
+  @Override
+  public void stop() {
+    if (running.compareAndSet(true, false)) {
+      connection.dispose();
+      disposeBackfill();
+      messageScheduler.dispose();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running.get();
+  }
+
+  private Mono<Void> connectOnce() {
+    // State restored from a snapshot has a gap up to now, just like a dropped connection
+    boolean reconnecting = disconnectedAt.get() >= 0 || evaluator.takeRestoredGaps();
+    return webSocketClient
+        .execute(URI.create(config.getUrl()), session -> handleSession(session, reconnecting))
+        .doFinally(signal -> markDisconnected());
+  }
+
+  private Mono<Void> handleSession(WebSocketSession session, boolean reconnecting) {
+    log.info("Connected to market data stream {}", config.getUrl());
+    Sinks.Many<String> outbound = Sinks.many().unicast().onBackpressureBuffer();
+
+    Mono<Void> send =
+        session.send(
+            Mono.delay(config.getSubscribeDelay())
+                .map(tick -> subscribeRequest())
+                .concatWith(outbound.asFlux())
+                .map(session::textMessage));
+
+    Mono<Void> receive =
+        session
+            .receive()
+            .timeout(config.getIdleTimeout())
+            .map(WebSocketMessage::getPayloadAsText)
+            .publishOn(messageScheduler)
+            .doOnNext(payload -> handleMessage(payload, outbound))
+            .then();
+
+    if (reconnecting) {
+      // Runs once the new subscription is live, so stream and backfill overlap rather than leave a hole
+      disposeBackfill();
+      backfill =
+          Mono.delay(config.getSubscribeDelay().multipliedBy(2))
+              .thenMany(Flux.defer(this::backfill))
+              .subscribe();
+    }
+    // The outbound only completes once the session has closed, so the session lasts until the
+    // inbound completes or either side fails
+    return Mono.firstWithSignal(send.then(Mono.never()), receive);
+  }
+
+  private void handleMessage(String payload, Sinks.Many<String> outbound) {
+    try {
+      JsonNode message = objectMapper.readTree(payload);
+      if (HEARTBEAT.equals(message.path("method").asText())) {
+        outbound.tryEmitNext(heartbeatResponse(message.path("id").asLong()));
+        return;
+      }
+      JsonNode result = message.path("result");
+      String channel = result.path("channel").asText();
+      String instrumentName = result.path("instrument_name").asText();
+      if (TRADE_CHANNEL.equals(channel)) {
+        evaluator.onTrades(instrumentName, objectMapper.convertValue(result.path("data"), TRADES_TYPE));
+      } else if (CANDLESTICK_CHANNEL.equals(channel)) {
+        evaluator.onCandles(
+            instrumentName, objectMapper.convertValue(result.path("data"), CANDLES_TYPE));
+      }
+      // A message arrived, so the connection is healthy again
+      reconnectDelay = config.getInitialReconnectDelay();
+    } catch (JsonProcessingException | IllegalArgumentException e) {
+      log.warn("Ignoring unreadable market data stream message: {}", e.getMessage());
+    }
+  }
+
+  private void markDisconnected() {
+    if (disconnectedAt.compareAndSet(-1, System.currentTimeMillis())) {
+      config.getInstruments().forEach(evaluator::onDisconnected);
+    }
+  }
+
+  private void disposeBackfill() {
+    Disposable previous = backfill;
+    if (!isNull(previous)) {
+      previous.dispose();
+    }
+  }
+
+  private Mono<Long> awaitReconnect() {
+    Duration delay = reconnectDelay;
+    Duration doubled = delay.multipliedBy(2);
+    reconnectDelay = doubled.compareTo(config.getMaxReconnectDelay()) > 0 ? config.getMaxReconnectDelay() : doubled;
+    if (running.get()) {
+      log.info("Reconnecting to market data stream in {} ms", delay.toMillis());
+    }
+    return Mono.delay(delay);
+  }
+
+  private Flux<Void> backfill() {
+    // A drop from here on opens a gap of its own, backfilled after the next reconnect
+    disconnectedAt.set(-1);
+    return Flux.fromIterable(config.getInstruments()).concatMap(this::backfill);
+  }
+
+  /**
+   * Fetches the instrument's recent trades and candles until it succeeds or runs out of retries.
+   * Giving up closes the gap as not analysed, so the instrument's later candles are evaluated again
+   */
+  private Mono<Void> backfill(String instrument) {
+    return Mono.<Void>fromRunnable(
+            () -> {
+              GetTradesResponse trades = cryptoClient.getTradesByInstrument(instrument);
+              CandleStickResponse candles =
+                  cryptoClient.getCandlestickData(instrument, evaluator.getTimeframe());
+              evaluator.onBackfill(instrument, tradesOf(trades), candlesOf(candles));
+            })
+        .subscribeOn(Schedulers.boundedElastic())
+        .retryWhen(
+            Retry.backoff(config.getBackfillRetries(), config.getInitialReconnectDelay())
+                .maxBackoff(config.getMaxReconnectDelay())
+                .doBeforeRetry(
+                    retry ->
+                        log.warn(
+                            "Unable to backfill Instrument: {} after reconnecting, retrying: {}",
+                            instrument,
+                            retry.failure().toString())))
+        .onErrorResume(
+            e -> {
+              Throwable cause = Exceptions.isRetryExhausted(e) ? e.getCause() : e;
+              log.warn("Giving up backfilling Instrument: {}: {}", instrument, cause.toString());
+              evaluator.onBackfillFailed(instrument);
+              return Mono.empty();
+            });
+  }
+
+  private String subscribeRequest() {
+    List<String> channels =
+        config.getInstruments().stream()
+            .flatMap(
+                instrument ->
+                    Stream.of(
+                        TRADE_CHANNEL + "." + instrument,
+                        CANDLESTICK_CHANNEL + "." + config.getTimeframe() + "." + instrument))
+            .collect(Collectors.toList());
+    ObjectNode request = objectMapper.createObjectNode();
+    request.put("id", requestId.incrementAndGet());
+    request.put("method", "subscribe");
+    ArrayNode channelNodes = request.putObject("params").putArray("channels");
+    channels.forEach(channelNodes::add);
+    request.put("nonce", System.currentTimeMillis());
+    return request.toString();
+  }
+
+  private String heartbeatResponse(long id) {
+    ObjectNode response = objectMapper.createObjectNode();
+    response.put("id", id);
+    response.put("method", RESPOND_HEARTBEAT);
+    return response.toString();
+  }
+
+  private List<TradesData> tradesOf(GetTradesResponse response) {
+    return isNull(response) || isNull(response.getResult()) || isNull(response.getResult().getData())
+        ? Collections.emptyList()
+        : response.getResult().getData();
+  }
+
+  private List<CandleStickData> candlesOf(CandleStickResponse response) {
+    return isNull(response) || isNull(response.getResult()) || isNull(response.getResult().getData())
+        ? Collections.emptyList()
+        : response.getResult().getData();
+  }
+}
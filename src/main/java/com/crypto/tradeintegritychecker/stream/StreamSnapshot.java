@@ -0,0 +1,23 @@
+package com.crypto.tradeintegritychecker.stream;
+
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * One instrument's streaming buffers at a point in time. The marks are candle or trade times in
+ * epoch milliseconds, {@link Long#MIN_VALUE} when not yet known
+ */
+@Value
+public class StreamSnapshot {
+
+  String instrumentName;
+  long watermark;
+  long coverageStart;
+  long lastEvaluated;
+  long gapStart;
+  List<CandleStickData> candles;
+  List<TradesData> trades;
+}
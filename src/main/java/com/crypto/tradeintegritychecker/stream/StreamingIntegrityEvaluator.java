@@ -0,0 +1,421 @@
+package com.crypto.tradeintegritychecker.stream;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.integrity.CandlestickTradeData;
+import com.crypto.tradeintegritychecker.model.integrity.IntegrityCheckCompletedEvent;
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.integrity.IntegrityViolationDetail;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import com.crypto.tradeintegritychecker.registry.InstrumentRegistry;
+import com.crypto.tradeintegritychecker.registry.InstrumentState;
+import com.crypto.tradeintegritychecker.registry.StateKey;
+import com.crypto.tradeintegritychecker.service.RuleService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Assembles streamed trades and candlesticks per instrument and evaluates each candle once it has
+ * closed. Unlike the REST path, the stream sees every trade, so every candle from the first full
+ * one after subscribing can be validated - except across a connection gap, where trades may have
+ * been missed until a backfill proves otherwise. A gap that cannot be backfilled, or that stays open
+ * longer than the configured maximum, is given up on and its candles are skipped as not analysed
+ *
+ * <p>Readiness is driven by the timestamps in the data rather than the wall clock, so a replayed
+ * capture evaluates exactly as the live feed would
+ *
+ * <p>Buffers are held in the {@link InstrumentRegistry}. If an instrument's buffers are evicted,
+ * coverage restarts from the next trades streamed for it, just as after subscribing
+ */
+@Slf4j
+@Component
+public class StreamingIntegrityEvaluator {
+
+  private static final StateKey<InstrumentStream> STREAM_STATE =
+      StateKey.of("stream", InstrumentStream.class);
+
+  private final RuleService ruleService;
+  private final ApplicationEventPublisher eventPublisher;
+
+  private final Timeframe timeframe;
+  private final long evaluationDelayMillis;
+  private final long maxGapMillis;
+  private final InstrumentRegistry instrumentRegistry;
+  private final AtomicBoolean restoredWithGaps = new AtomicBoolean();
+
+  public StreamingIntegrityEvaluator(
+      RuleService ruleService,
+      ApplicationEventPublisher eventPublisher,
+      InstrumentRegistry instrumentRegistry,
+      IntegrityCheckerProperties properties) {
+    this.ruleService = ruleService;
+    this.eventPublisher = eventPublisher;
+    this.instrumentRegistry = instrumentRegistry;
+    this.timeframe = Timeframe.getTimeframeFromString(properties.getStream().getTimeframe());
+    this.evaluationDelayMillis = properties.getStream().getEvaluationDelay().toMillis();
+    this.maxGapMillis = properties.getStream().getMaxGap().toMillis();
+  }
+
+  public Timeframe getTimeframe() {
+    return timeframe;
+  }
+
+  public void onTrades(String instrumentName, List<TradesData> trades) {
+    InstrumentStream stream = stream(instrumentName);
+    synchronized (stream) {
+      stream.addTrades(trades);
+    }
+    evaluateReadyCandles(instrumentName, stream);
+  }
+
+  public void onCandles(String instrumentName, List<CandleStickData> candles) {
+    InstrumentStream stream = stream(instrumentName);
+    synchronized (stream) {
+      candles.forEach(stream::addCandle);
+    }
+    evaluateReadyCandles(instrumentName, stream);
+  }
+
+  /**
+   * The stream dropped, so trades after the latest data received may be lost. Gaps are kept in
+   * data time, like the coverage they are compared against
+   */
+  public void onDisconnected(String instrumentName) {
+    InstrumentStream stream = stream(instrumentName);
+    synchronized (stream) {
+      stream.openGap(stream.watermark);
+    }
+  }
+
+  /** Trades after this point, in data time, may be lost, so candles from here on are held back */
+  public void onDisconnected(String instrumentName, long disconnectedAt) {
+    InstrumentStream stream = stream(instrumentName);
+    synchronized (stream) {
+      stream.openGap(disconnectedAt);
+    }
+  }
+
+  /**
+   * Merges REST data fetched after reconnecting. If the backfilled trades reach back past the
+   * start of the gap then nothing was lost, otherwise coverage restarts after the oldest
+   * backfilled trade
+   */
+  public void onBackfill(
+      String instrumentName, List<TradesData> trades, List<CandleStickData> candles) {
+    InstrumentStream stream = stream(instrumentName);
+    synchronized (stream) {
+      candles.forEach(stream::addCandle);
+      stream.closeGap(trades);
+    }
+    evaluateReadyCandles(instrumentName, stream);
+  }
+
+  /** The gap could not be backfilled, it is given up on up to the latest data received */
+  public void onBackfillFailed(String instrumentName) {
+    InstrumentStream stream = stream(instrumentName);
+    synchronized (stream) {
+      stream.abandonGap(stream.watermark);
+    }
+    evaluateReadyCandles(instrumentName, stream);
+  }
+
+  /**
+   * The gap could not be backfilled, so trades up to the failure may be missing for good. Candles
+   * before then are skipped as not analysed and coverage restarts after it
+   */
+  public void onBackfillFailed(String instrumentName, long failedAt) {
+    InstrumentStream stream = stream(instrumentName);
+    synchronized (stream) {
+      stream.abandonGap(failedAt);
+    }
+    evaluateReadyCandles(instrumentName, stream);
+  }
+
+  /** Copies the buffers of every instrument, each taken under its own lock */
+  public List<StreamSnapshot> snapshot() {
+    List<StreamSnapshot> snapshots = new ArrayList<>();
+    instrumentRegistry
+        .states(STREAM_STATE)
+        .forEach(
+            (instrumentName, stream) -> {
+              synchronized (stream) {
+                snapshots.add(stream.snapshot(instrumentName));
+              }
+            });
+    return snapshots;
+  }
+
+  /**
+   * Reloads buffers saved by {@link #snapshot()}. Trades after each instrument's newest saved
+   * timestamp were never seen, so that point is treated as a connection gap until a backfill
+   * closes it
+   */
+  public void restore(List<StreamSnapshot> snapshots) {
+    for (StreamSnapshot snapshot : snapshots) {
+      InstrumentStream stream = stream(snapshot.getInstrumentName());
+      synchronized (stream) {
+        stream.restore(snapshot);
+      }
+      restoredWithGaps.set(true);
+    }
+  }
+
+  /** True once after {@link #restore} opened gaps, which the first connection should backfill */
+  public boolean takeRestoredGaps() {
+    return restoredWithGaps.getAndSet(false);
+  }
+
+  private void evaluateReadyCandles(String streamedName, InstrumentStream stream) {
+    // Every candle built for the instrument shares the registry's copy of its name
+    String instrumentName = instrumentRegistry.intern(streamedName);
+    List<CandlestickTradeData> readyCandles;
+    synchronized (stream) {
+      readyCandles = stream.takeReadyCandles(instrumentName, timeframe);
+    }
+    if (readyCandles.isEmpty()) {
+      return;
+    }
+    IntegrityViolationDetail detail = ruleService.evaluateCompleteCandles(readyCandles);
+    IntegritySummary summary =
+        IntegritySummary.builder()
+            .numIntegrityBreaks(detail.getIntegrityViolations().size())
+            .dataIntegrityBreaks(detail.getIntegrityViolations())
+            .numCandlesticks(readyCandles.size())
+            .numTrades(readyCandles.stream().mapToInt(candle -> candle.getTrades().size()).sum())
+            .numCandlesticksAnalyzed(detail.getNumCandlesticksAnalyzed())
+            .firstCandleAnalyzed(detail.getFirstCandleAnalyzed())
+            .lastCandleAnalyzed(detail.getLastCandleAnalyzed())
+            .build();
+    log.info(
+        "Streamed evaluation of {} closed candles for Instrument: {} found {} integrity breaks",
+        readyCandles.size(),
+        instrumentName,
+        summary.getNumIntegrityBreaks());
+    eventPublisher.publishEvent(
+        new IntegrityCheckCompletedEvent(
+            instrumentName, timeframe, System.currentTimeMillis(), summary));
+  }
+
+  private InstrumentStream stream(String instrumentName) {
+    return instrumentRegistry.acquire(
+        instrumentName,
+        STREAM_STATE,
+        () ->
+            new InstrumentStream(
+                timeframe.getTimeframeMillis(), evaluationDelayMillis, maxGapMillis));
+  }
+
+  /** Per-instrument buffers, guarded by synchronizing on the instance */
+  private static class InstrumentStream implements InstrumentState {
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    // Approximate retained sizes, including the map entries that hold them
+    private static final long BASE_BYTES = 256;
+    private static final long CANDLE_BYTES = 320;
+    private static final long TRADE_BYTES = 360;
+
+    private final long interval;
+    private final long evaluationDelay;
+    private final long maxGap;
+
+    private final NavigableMap<Long, CandleStickData> candles = new TreeMap<>();
+    // Keyed by trade timestamp then trade id, so replays and backfills are de-duplicated
+    private final NavigableMap<Long, Map<Long, TradesData>> tradesByTime = new TreeMap<>();
+
+    // Newest timestamp observed in either channel
+    private long watermark = NONE;
+    // First candle with a complete set of trades, unknown until the first trades arrive
+    private long coverageStart = NONE;
+    private long lastEvaluated = NONE;
+    private long gapStart = NONE;
+
+    private int bufferedTrades;
+    private volatile long estimatedBytes = BASE_BYTES;
+
+    private InstrumentStream(long interval, long evaluationDelay, long maxGap) {
+      this.interval = interval;
+      this.evaluationDelay = evaluationDelay;
+      this.maxGap = maxGap;
+    }
+
+    private void addTrades(List<TradesData> trades) {
+      long oldest = Long.MAX_VALUE;
+      for (TradesData trade : trades) {
+        oldest = Math.min(oldest, trade.getTradeTimestamp());
+        addTrade(trade);
+      }
+      if (coverageStart == NONE && oldest != Long.MAX_VALUE) {
+        // The candle holding the first streamed trade may have started before we subscribed
+        coverageStart = candleStart(oldest) + interval;
+      }
+    }
+
+    private void addTrade(TradesData trade) {
+      long timestamp = trade.getTradeTimestamp();
+      watermark = Math.max(watermark, timestamp);
+      if (lastEvaluated != NONE && timestamp < lastEvaluated + interval) {
+        return;
+      }
+      if (tradesByTime
+              .computeIfAbsent(timestamp, t -> new HashMap<>())
+              .put(trade.getTradeId(), trade)
+          == null) {
+        bufferedTrades++;
+        updateEstimate();
+      }
+    }
+
+    private void addCandle(CandleStickData candle) {
+      watermark = Math.max(watermark, candle.getEndTime());
+      if (lastEvaluated != NONE && candle.getEndTime() <= lastEvaluated) {
+        return;
+      }
+      // Later pushes for the same candle carry its latest values
+      candles.put(candle.getEndTime(), candle);
+      updateEstimate();
+    }
+
+    private void openGap(long disconnectedAt) {
+      // Nothing received yet, so there is no coverage for a gap to interrupt
+      if (gapStart == NONE && disconnectedAt != NONE) {
+        gapStart = disconnectedAt;
+      }
+    }
+
+    private void closeGap(List<TradesData> backfilledTrades) {
+      if (gapStart == NONE) {
+        backfilledTrades.forEach(this::addTrade);
+        return;
+      }
+      long oldest = backfilledTrades.stream()
+          .mapToLong(TradesData::getTradeTimestamp)
+          .min()
+          .orElse(Long.MAX_VALUE);
+      backfilledTrades.forEach(this::addTrade);
+
+      // An empty backfill means nothing traded recently, so nothing can have been missed either
+      if (oldest != Long.MAX_VALUE && oldest > candleStart(gapStart)) {
+        log.warn(
+            "Backfill did not reach the start of the stream gap, candles before {} cannot be validated",
+            candleStart(oldest) + interval);
+        coverageStart = Math.max(coverageStart, candleStart(oldest) + interval);
+      }
+      gapStart = NONE;
+    }
+
+    private void abandonGap(long until) {
+      if (gapStart == NONE || until == NONE) {
+        return;
+      }
+      long resumeAt = candleStart(until) + interval;
+      log.warn(
+          "Stream gap was not backfilled, candles from {} before {} are not analysed",
+          candleStart(gapStart),
+          resumeAt);
+      coverageStart = Math.max(coverageStart, resumeAt);
+      gapStart = NONE;
+    }
+
+    private List<CandlestickTradeData> takeReadyCandles(String instrumentName, Timeframe timeframe) {
+      if (watermark == NONE || coverageStart == NONE) {
+        return Collections.emptyList();
+      }
+      if (gapStart != NONE && watermark - gapStart > maxGap) {
+        // Held back this long, the candles are skipped rather than buffered without bound
+        abandonGap(watermark);
+      }
+      long readyBefore = watermark - evaluationDelay - interval;
+      List<CandlestickTradeData> ready = new ArrayList<>();
+
+      Iterator<Map.Entry<Long, CandleStickData>> iterator = candles.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<Long, CandleStickData> entry = iterator.next();
+        long start = entry.getKey();
+        if (start > readyBefore || (gapStart != NONE && start + interval > gapStart)) {
+          break;
+        }
+        iterator.remove();
+        if (start < coverageStart) {
+          continue;
+        }
+        List<TradesData> trades = new ArrayList<>();
+        tradesByTime.subMap(start, true, start + interval, false)
+            .values()
+            .forEach(byId -> trades.addAll(byId.values()));
+        trades.sort(
+            Comparator.comparing(TradesData::getTradeTimestamp)
+                .thenComparing(TradesData::getTradeId));
+        ready.add(
+            CandlestickTradeData.builder()
+                .instrument(instrumentName)
+                .timeframe(timeframe)
+                .candlestick(entry.getValue())
+                .endTime(start)
+                .trades(trades)
+                .build());
+        lastEvaluated = start;
+      }
+      if (lastEvaluated != NONE) {
+        Map<Long, Map<Long, TradesData>> evaluated =
+            tradesByTime.headMap(lastEvaluated + interval, false);
+        evaluated.values().forEach(byId -> bufferedTrades -= byId.size());
+        evaluated.clear();
+      }
+      updateEstimate();
+      return ready;
+    }
+
+    @Override
+    public long estimatedBytes() {
+      return estimatedBytes;
+    }
+
+    private StreamSnapshot snapshot(String instrumentName) {
+      List<TradesData> trades = new ArrayList<>(bufferedTrades);
+      tradesByTime.values().forEach(byId -> trades.addAll(byId.values()));
+      return new StreamSnapshot(
+          instrumentName,
+          watermark,
+          coverageStart,
+          lastEvaluated,
+          gapStart,
+          new ArrayList<>(candles.values()),
+          trades);
+    }
+
+    private void restore(StreamSnapshot snapshot) {
+      watermark = Math.max(watermark, snapshot.getWatermark());
+      coverageStart = snapshot.getCoverageStart();
+      lastEvaluated = snapshot.getLastEvaluated();
+      gapStart = snapshot.getGapStart();
+      snapshot.getCandles().forEach(this::addCandle);
+      snapshot.getTrades().forEach(this::addTrade);
+      if (snapshot.getWatermark() != NONE) {
+        openGap(snapshot.getWatermark());
+      }
+      updateEstimate();
+    }
+
+    private void updateEstimate() {
+      estimatedBytes = BASE_BYTES + candles.size() * CANDLE_BYTES + bufferedTrades * TRADE_BYTES;
+    }
+
+    private long candleStart(long timestamp) {
+      return Math.floorDiv(timestamp, interval) * interval;
+    }
+  }
+}
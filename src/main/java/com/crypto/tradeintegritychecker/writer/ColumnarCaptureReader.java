@@ -0,0 +1,144 @@
+package com.crypto.tradeintegritychecker.writer;
+
+import com.crypto.tradeintegritychecker.model.response.MarketDataCapture;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResult;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.Side;
+import com.crypto.tradeintegritychecker.model.response.trades.TradeResult;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a capture written by {@link ColumnarCaptureWriter} back into the same response objects the
+ * upstream client returns, so it can be fed straight into an integrity run. Prices and volumes
+ * come back numerically equal, at the largest scale seen in their column
+ */
+public class ColumnarCaptureReader implements Closeable {
+
+  private final DataInputStream in;
+  private final Inflater inflater = new Inflater();
+
+  public ColumnarCaptureReader(InputStream in) {
+    this.in = new DataInputStream(in);
+  }
+
+  public MarketDataCapture readCapture() throws IOException {
+    if (in.readInt() != ColumnarCodec.MAGIC) {
+      throw new IOException("Not a columnar capture");
+    }
+    byte version = in.readByte();
+    if (version != ColumnarCodec.VERSION) {
+      throw new IOException("Unsupported columnar capture version " + version);
+    }
+    CandleStickResult candleResult = new CandleStickResult();
+    candleResult.setInstrumentName(ColumnarCodec.readNullableUtf(in));
+    candleResult.setInterval(ColumnarCodec.readNullableUtf(in));
+    candleResult.setDepth(in.readInt());
+    TradeResult tradeResult = new TradeResult();
+    tradeResult.setInstrumentName(ColumnarCodec.readNullableUtf(in));
+
+    List<CandleStickData> candles = in.readBoolean() ? new ArrayList<>() : null;
+    List<TradesData> trades = in.readBoolean() ? new ArrayList<>() : null;
+    for (byte blockType = in.readByte();
+        blockType != ColumnarCodec.END_OF_CAPTURE;
+        blockType = in.readByte()) {
+      int rows = in.readInt();
+      DataInputStream columns = readBlock();
+      if (blockType == ColumnarCodec.CANDLE_BLOCK) {
+        readCandleBlock(columns, rows, candles);
+      } else if (blockType == ColumnarCodec.TRADE_BLOCK) {
+        readTradeBlock(columns, rows, trades);
+      } else {
+        throw new IOException("Unknown columnar capture block type " + blockType);
+      }
+    }
+    candleResult.setData(candles);
+    tradeResult.setData(trades);
+
+    CandleStickResponse candleResponse = new CandleStickResponse();
+    candleResponse.setResult(candleResult);
+    GetTradesResponse tradesResponse = new GetTradesResponse();
+    tradesResponse.setResult(tradeResult);
+    return new MarketDataCapture(candleResponse, tradesResponse);
+  }
+
+  @Override
+  public void close() throws IOException {
+    inflater.end();
+    in.close();
+  }
+
+  private DataInputStream readBlock() throws IOException {
+    byte[] raw = new byte[in.readInt()];
+    byte[] compressed = new byte[in.readInt()];
+    in.readFully(compressed);
+    inflater.reset();
+    inflater.setInput(compressed);
+    try {
+      int inflated = 0;
+      while (inflated < raw.length && !inflater.finished()) {
+        inflated += inflater.inflate(raw, inflated, raw.length - inflated);
+      }
+      if (inflated != raw.length) {
+        throw new IOException("Truncated columnar capture block");
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("Corrupt columnar capture block", e);
+    }
+    return new DataInputStream(new ByteArrayInputStream(raw));
+  }
+
+  private void readCandleBlock(DataInputStream columns, int rows, List<CandleStickData> candles)
+      throws IOException {
+    Long[] endTimes = ColumnarCodec.readLongColumn(columns, rows);
+    BigDecimal[] opens = ColumnarCodec.readDecimalColumn(columns, rows);
+    BigDecimal[] highs = ColumnarCodec.readDecimalColumn(columns, rows);
+    BigDecimal[] lows = ColumnarCodec.readDecimalColumn(columns, rows);
+    BigDecimal[] closes = ColumnarCodec.readDecimalColumn(columns, rows);
+    BigDecimal[] volumes = ColumnarCodec.readDecimalColumn(columns, rows);
+    for (int row = 0; row < rows; row++) {
+      CandleStickData candle = new CandleStickData();
+      candle.setEndTime(endTimes[row]);
+      candle.setOpen(opens[row]);
+      candle.setHigh(highs[row]);
+      candle.setLow(lows[row]);
+      candle.setClose(closes[row]);
+      candle.setVolume(volumes[row]);
+      candles.add(candle);
+    }
+  }
+
+  private void readTradeBlock(DataInputStream columns, int rows, List<TradesData> trades)
+      throws IOException {
+    Long[] timestamps = ColumnarCodec.readLongColumn(columns, rows);
+    Long[] tradeIds = ColumnarCodec.readLongColumn(columns, rows);
+    Long[] dataTimes = ColumnarCodec.readLongColumn(columns, rows);
+    BigDecimal[] prices = ColumnarCodec.readDecimalColumn(columns, rows);
+    BigDecimal[] quantities = ColumnarCodec.readDecimalColumn(columns, rows);
+    Side[] sides = ColumnarCodec.readSideColumn(columns, rows);
+    String[] instrumentNames = ColumnarCodec.readStringColumn(columns, rows);
+    for (int row = 0; row < rows; row++) {
+      TradesData trade = new TradesData();
+      trade.setTradeTimestamp(timestamps[row]);
+      trade.setTradeId(tradeIds[row]);
+      trade.setDataTime(dataTimes[row]);
+      trade.setTradePrice(prices[row]);
+      trade.setTradeQuantity(quantities[row]);
+      trade.setSide(sides[row]);
+      trade.setInstrumentName(instrumentNames[row]);
+      trades.add(trade);
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package com.crypto.tradeintegritychecker.writer;
+
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResult;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Writes a candlestick/trade capture as compressed column blocks. Rows are encoded and flushed
+ * one block at a time, so only a single block is ever held in memory. Read back with {@link
+ * ColumnarCaptureReader}
+ */
+public class ColumnarCaptureWriter implements Closeable {
+
+  private final DataOutputStream out;
+  private final ByteArrayOutputStream rawBlock = new ByteArrayOutputStream();
+  private final ByteArrayOutputStream compressedBlock = new ByteArrayOutputStream();
+  // Small integer columns compress well even at the fastest level
+  private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+  public ColumnarCaptureWriter(OutputStream out) {
+    this.out = new DataOutputStream(out);
+  }
+
+  public void writeCapture(CandleStickResponse candles, GetTradesResponse trades)
+      throws IOException {
+    CandleStickResult candleResult = candles.getResult();
+    out.writeInt(ColumnarCodec.MAGIC);
+    out.writeByte(ColumnarCodec.VERSION);
+    ColumnarCodec.writeNullableUtf(out, candleResult.getInstrumentName());
+    ColumnarCodec.writeNullableUtf(out, candleResult.getInterval());
+    out.writeInt(candleResult.getDepth());
+    ColumnarCodec.writeNullableUtf(out, trades.getResult().getInstrumentName());
+
+    List<CandleStickData> candleData = candleResult.getData();
+    List<TradesData> tradeData = trades.getResult().getData();
+    out.writeBoolean(!isNull(candleData));
+    out.writeBoolean(!isNull(tradeData));
+    if (!isNull(candleData)) {
+      for (int from = 0; from < candleData.size(); from += ColumnarCodec.BLOCK_ROWS) {
+        writeCandleBlock(candleData.subList(from, Math.min(candleData.size(), from + ColumnarCodec.BLOCK_ROWS)));
+      }
+    }
+    if (!isNull(tradeData)) {
+      for (int from = 0; from < tradeData.size(); from += ColumnarCodec.BLOCK_ROWS) {
+        writeTradeBlock(tradeData.subList(from, Math.min(tradeData.size(), from + ColumnarCodec.BLOCK_ROWS)));
+      }
+    }
+    out.writeByte(ColumnarCodec.END_OF_CAPTURE);
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    deflater.end();
+    out.close();
+  }
+
+  private void writeCandleBlock(List<CandleStickData> rows) throws IOException {
+    DataOutputStream columns = startBlock();
+    ColumnarCodec.writeLongColumn(columns, column(rows, CandleStickData::getEndTime));
+    ColumnarCodec.writeDecimalColumn(columns, column(rows, CandleStickData::getOpen));
+    ColumnarCodec.writeDecimalColumn(columns, column(rows, CandleStickData::getHigh));
+    ColumnarCodec.writeDecimalColumn(columns, column(rows, CandleStickData::getLow));
+    ColumnarCodec.writeDecimalColumn(columns, column(rows, CandleStickData::getClose));
+    ColumnarCodec.writeDecimalColumn(columns, column(rows, CandleStickData::getVolume));
+    finishBlock(ColumnarCodec.CANDLE_BLOCK, rows.size(), columns);
+  }
+
+  private void writeTradeBlock(List<TradesData> rows) throws IOException {
+    DataOutputStream columns = startBlock();
+    ColumnarCodec.writeLongColumn(columns, column(rows, TradesData::getTradeTimestamp));
+    ColumnarCodec.writeLongColumn(columns, column(rows, TradesData::getTradeId));
+    ColumnarCodec.writeLongColumn(columns, column(rows, TradesData::getDataTime));
+    ColumnarCodec.writeDecimalColumn(columns, column(rows, TradesData::getTradePrice));
+    ColumnarCodec.writeDecimalColumn(columns, column(rows, TradesData::getTradeQuantity));
+    ColumnarCodec.writeSideColumn(columns, column(rows, TradesData::getSide));
+    ColumnarCodec.writeStringColumn(columns, column(rows, TradesData::getInstrumentName));
+    finishBlock(ColumnarCodec.TRADE_BLOCK, rows.size(), columns);
+  }
+
+  private DataOutputStream startBlock() {
+    rawBlock.reset();
+    return new DataOutputStream(rawBlock);
+  }
+
+  private void finishBlock(byte blockType, int rows, DataOutputStream columns) throws IOException {
+    columns.flush();
+    compressedBlock.reset();
+    deflater.reset();
+    try (DeflaterOutputStream compressor = new DeflaterOutputStream(compressedBlock, deflater)) {
+      rawBlock.writeTo(compressor);
+    }
+    out.writeByte(blockType);
+    out.writeInt(rows);
+    out.writeInt(rawBlock.size());
+    out.writeInt(compressedBlock.size());
+    compressedBlock.writeTo(out);
+  }
+
+  private static <T, C> List<C> column(List<T> rows, Function<T, C> attribute) {
+    return rows.stream().map(attribute).collect(Collectors.toList());
+  }
+}
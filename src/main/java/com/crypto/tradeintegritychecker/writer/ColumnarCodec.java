@@ -0,0 +1,241 @@
+package com.crypto.tradeintegritychecker.writer;
+
+import com.crypto.tradeintegritychecker.model.response.trades.Side;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column encodings shared by {@link ColumnarCaptureWriter} and {@link ColumnarCaptureReader}.
+ *
+ * <p>Every column starts with a flag saying whether it holds nulls, followed by one presence byte
+ * per row if it does. Longs are stored as zig-zag varint deltas from the previous value, so
+ * ascending timestamps and ids take one or two bytes each. Decimals are stored as fixed-point
+ * longs at the column's largest scale, delta encoded the same way, falling back to text for
+ * values too large for a long
+ */
+final class ColumnarCodec {
+
+  static final int MAGIC = 0x49434331;
+  static final byte VERSION = 1;
+
+  static final byte END_OF_CAPTURE = 0;
+  static final byte CANDLE_BLOCK = 1;
+  static final byte TRADE_BLOCK = 2;
+
+  /** Rows per compressed block, large enough to compress well and small enough to stream */
+  static final int BLOCK_ROWS = 4096;
+
+  private static final byte FIXED_POINT = 0;
+  private static final byte TEXT = 1;
+
+  private static final byte NO_SIDE = 0;
+  private static final byte BUY = 1;
+  private static final byte SELL = 2;
+
+  private ColumnarCodec() {}
+
+  static void writeLongColumn(DataOutput out, List<Long> values) throws IOException {
+    writePresence(out, values);
+    long previous = 0;
+    for (Long value : values) {
+      if (value != null) {
+        writeSignedVarLong(out, value - previous);
+        previous = value;
+      }
+    }
+  }
+
+  static Long[] readLongColumn(DataInput in, int rows) throws IOException {
+    boolean[] present = readPresence(in, rows);
+    Long[] values = new Long[rows];
+    long previous = 0;
+    for (int row = 0; row < rows; row++) {
+      if (present[row]) {
+        previous += readSignedVarLong(in);
+        values[row] = previous;
+      }
+    }
+    return values;
+  }
+
+  static void writeDecimalColumn(DataOutput out, List<BigDecimal> values) throws IOException {
+    writePresence(out, values);
+    int scale = 0;
+    for (BigDecimal value : values) {
+      if (value != null) {
+        scale = Math.max(scale, value.scale());
+      }
+    }
+    long[] unscaled = new long[values.size()];
+    try {
+      for (int row = 0; row < values.size(); row++) {
+        BigDecimal value = values.get(row);
+        if (value != null) {
+          // Raising the scale is exact, only the magnitude can fail to fit
+          unscaled[row] = value.setScale(scale).unscaledValue().longValueExact();
+        }
+      }
+    } catch (ArithmeticException e) {
+      out.writeByte(TEXT);
+      for (BigDecimal value : values) {
+        if (value != null) {
+          out.writeUTF(value.toString());
+        }
+      }
+      return;
+    }
+    out.writeByte(FIXED_POINT);
+    writeVarLong(out, scale);
+    long previous = 0;
+    for (int row = 0; row < values.size(); row++) {
+      if (values.get(row) != null) {
+        writeSignedVarLong(out, unscaled[row] - previous);
+        previous = unscaled[row];
+      }
+    }
+  }
+
+  static BigDecimal[] readDecimalColumn(DataInput in, int rows) throws IOException {
+    boolean[] present = readPresence(in, rows);
+    BigDecimal[] values = new BigDecimal[rows];
+    if (in.readByte() == TEXT) {
+      for (int row = 0; row < rows; row++) {
+        if (present[row]) {
+          values[row] = new BigDecimal(in.readUTF());
+        }
+      }
+      return values;
+    }
+    int scale = (int) readVarLong(in);
+    long previous = 0;
+    for (int row = 0; row < rows; row++) {
+      if (present[row]) {
+        previous += readSignedVarLong(in);
+        values[row] = BigDecimal.valueOf(previous, scale);
+      }
+    }
+    return values;
+  }
+
+  static void writeSideColumn(DataOutput out, List<Side> values) throws IOException {
+    for (Side side : values) {
+      out.writeByte(side == null ? NO_SIDE : side == Side.BUY ? BUY : SELL);
+    }
+  }
+
+  static Side[] readSideColumn(DataInput in, int rows) throws IOException {
+    Side[] values = new Side[rows];
+    for (int row = 0; row < rows; row++) {
+      byte side = in.readByte();
+      values[row] = side == NO_SIDE ? null : side == BUY ? Side.BUY : Side.SELL;
+    }
+    return values;
+  }
+
+  /** Dictionary encoded, instrument names repeat on every row of the all-instrument feed */
+  static void writeStringColumn(DataOutput out, List<String> values) throws IOException {
+    writePresence(out, values);
+    Map<String, Integer> dictionary = new HashMap<>();
+    List<String> entries = new ArrayList<>();
+    for (String value : values) {
+      if (value != null && !dictionary.containsKey(value)) {
+        dictionary.put(value, entries.size());
+        entries.add(value);
+      }
+    }
+    writeVarLong(out, entries.size());
+    for (String entry : entries) {
+      out.writeUTF(entry);
+    }
+    for (String value : values) {
+      if (value != null) {
+        writeVarLong(out, dictionary.get(value));
+      }
+    }
+  }
+
+  static String[] readStringColumn(DataInput in, int rows) throws IOException {
+    boolean[] present = readPresence(in, rows);
+    String[] entries = new String[(int) readVarLong(in)];
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = in.readUTF();
+    }
+    String[] values = new String[rows];
+    for (int row = 0; row < rows; row++) {
+      if (present[row]) {
+        values[row] = entries[(int) readVarLong(in)];
+      }
+    }
+    return values;
+  }
+
+  static void writeNullableUtf(DataOutput out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  static String readNullableUtf(DataInput in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  static void writeVarLong(DataOutput out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  static long readVarLong(DataInput in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = in.readByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint in columnar capture");
+  }
+
+  private static void writeSignedVarLong(DataOutput out, long value) throws IOException {
+    writeVarLong(out, (value << 1) ^ (value >> 63));
+  }
+
+  private static long readSignedVarLong(DataInput in) throws IOException {
+    long zigZag = readVarLong(in);
+    return (zigZag >>> 1) ^ -(zigZag & 1);
+  }
+
+  private static void writePresence(DataOutput out, List<?> values) throws IOException {
+    boolean hasNulls = values.contains(null);
+    out.writeBoolean(hasNulls);
+    if (hasNulls) {
+      for (Object value : values) {
+        out.writeBoolean(value != null);
+      }
+    }
+  }
+
+  private static boolean[] readPresence(DataInput in, int rows) throws IOException {
+    boolean[] present = new boolean[rows];
+    if (!in.readBoolean()) {
+      Arrays.fill(present, true);
+      return present;
+    }
+    for (int row = 0; row < rows; row++) {
+      present[row] = in.readBoolean();
+    }
+    return present;
+  }
+}
@@ -0,0 +1,79 @@
+package com.crypto.tradeintegritychecker.writer;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.response.MarketDataCapture;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Compact alternative to the CSV output of {@link CsvFileWriter}. Each run's candlesticks and
+ * trades go to a single columnar capture in the same output folder, which can later be reloaded
+ * and re-evaluated without calling upstream
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ColumnarFileWriter {
+
+  public static final String CAPTURE_EXTENSION = ".icc";
+
+  private final IntegrityCheckerProperties properties;
+  private final OutputFiles outputFiles;
+
+  public void writeCapture(CandleStickResponse candleStickResponse, GetTradesResponse tradeList) {
+    if (!properties.getExport().isColumnar() || isNull(candleStickResponse.getResult())) {
+      return;
+    }
+    String fileTime = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+    Path file =
+        Paths.get(
+            CsvFileWriter.OUTPUT_FOLDER,
+            "Capture"
+                + candleStickResponse.getResult().getInstrumentName()
+                + fileTime
+                + CAPTURE_EXTENSION);
+    try {
+      Files.createDirectories(file.getParent());
+      try (ColumnarCaptureWriter writer =
+          new ColumnarCaptureWriter(new BufferedOutputStream(Files.newOutputStream(file)))) {
+        writer.writeCapture(candleStickResponse, tradeList);
+      }
+    } catch (IOException e) {
+      log.error("Unable to write file {}", file, e);
+    }
+  }
+
+  /**
+   * Reloads a capture from the output folder
+   *
+   * @param fileName a capture file name, without any directory
+   */
+  public MarketDataCapture readCapture(String fileName) throws IOException {
+    if (!fileName.endsWith(CAPTURE_EXTENSION)) {
+      throw new IllegalArgumentException("Not a capture: " + fileName);
+    }
+    return readCapture(outputFiles.resolve(fileName));
+  }
+
+  /** Reloads a capture from anywhere on disk, e.g. one recorded elsewhere and handed to a batch run */
+  public MarketDataCapture readCapture(Path file) throws IOException {
+    try (ColumnarCaptureReader reader =
+        new ColumnarCaptureReader(new BufferedInputStream(Files.newInputStream(file)))) {
+      return reader.readCapture();
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package com.crypto.tradeintegritychecker.writer;
 
+import com.crypto.tradeintegritychecker.flightrecorder.CsvWriteEvent;
 import com.crypto.tradeintegritychecker.model.integrity.CandlestickTradeData;
 import com.crypto.tradeintegritychecker.model.integrity.IntegrityViolation;
 import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
@@ -31,7 +32,7 @@ public class CsvFileWriter {
       "CandleStickEndTime,open,close,high,low,volume,TradeTimestamp,tradeEpochTime,tradePrice,tradeQuantity,side,tradeId";
   private static final String SUMMARY_FILENAME = "SummaryFile";
 
-  private static final String OUTPUT_FOLDER = "testOutput/";
+  static final String OUTPUT_FOLDER = "testOutput/";
 
   private static final String CSV_EXTENSION = ".csv";
 
@@ -51,6 +52,7 @@ public class CsvFileWriter {
   }
 
   private void writeTradeFile(String tradesFileName, GetTradesResponse tradeList) {
+    CsvWriteEvent event = CsvWriteEvent.start();
     StringBuilder sb = new StringBuilder().append(TRADES_HEADER).append(LINE_END);
 
     File file = new File(tradesFileName);
@@ -76,17 +78,25 @@ public class CsvFileWriter {
                     .append(LINE_END);
               });
 
+      boolean written = false;
       try (FileWriter writer = new FileWriter(OUTPUT_FOLDER + tradesFileName)) {
         writer.write(sb.toString());
+        written = true;
       } catch (IOException e) {
         log.error("Unable to write file {}", tradesFileName);
       }
+      event.complete(
+          tradesFileName,
+          tradeList.getResult().getInstrumentName(),
+          tradeList.getResult().getData().size(),
+          sb.length(),
+          written);
     }
   }
 
   private void writeCandlestickFile(
       String candlestickFileName, CandleStickResponse candleStickResponseList) {
-
+    CsvWriteEvent event = CsvWriteEvent.start();
     StringBuilder sb = new StringBuilder().append(CANDLESTICK_HEADER).append(LINE_END);
     File file = new File(candlestickFileName);
     if (nonNull(candleStickResponseList.getResult().getData())) {
@@ -109,15 +119,24 @@ public class CsvFileWriter {
                     .append(candleStickData.getVolume())
                     .append(LINE_END);
               });
+      boolean written = false;
       try (FileWriter writer = new FileWriter(OUTPUT_FOLDER + file)) {
         writer.write(sb.toString());
+        written = true;
       } catch (IOException e) {
         log.error("Unable to write file {}", candlestickFileName);
       }
+      event.complete(
+          candlestickFileName,
+          candleStickResponseList.getResult().getInstrumentName(),
+          candleStickResponseList.getResult().getData().size(),
+          sb.length(),
+          written);
     }
   }
 
   public void writeIntegrityViolationsToFile(List<IntegrityViolation> integrityViolations) {
+    CsvWriteEvent event = CsvWriteEvent.start();
     LocalDateTime runDateTime = LocalDateTime.now();
     String fileTime = runDateTime.format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
     StringBuilder sb = new StringBuilder().append(SUMMARY_HEADER).append(LINE_END);
@@ -135,11 +154,24 @@ public class CsvFileWriter {
                       candleStickCsv,
                       integrityViolation));
             });
+    boolean written = false;
     try (FileWriter writer = new FileWriter(OUTPUT_FOLDER + file)) {
       writer.write(sb.toString());
+      written = true;
     } catch (IOException e) {
       log.error("unable to write integrity violation summary file");
     }
+    // One row per trade of each violating candle, every violation belongs to the same instrument
+    event.complete(
+        file.getName(),
+        integrityViolations.isEmpty()
+            ? null
+            : integrityViolations.get(0).getCandleStickTradeData().getInstrument(),
+        integrityViolations.stream()
+            .mapToInt(violation -> violation.getCandleStickTradeData().getTrades().size())
+            .sum(),
+        sb.length(),
+        written);
   }
 
   private String getCsvTradeData(
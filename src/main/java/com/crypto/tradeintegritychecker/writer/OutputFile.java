@@ -0,0 +1,12 @@
+package com.crypto.tradeintegritychecker.writer;
+
+import lombok.Value;
+
+/** A file produced by one of the writers, as listed for download */
+@Value
+public class OutputFile {
+
+  String name;
+  long size;
+  long lastModified;
+}
@@ -0,0 +1,72 @@
+package com.crypto.tradeintegritychecker.writer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The folder the CSV and capture writers output to. Files are only ever resolved by bare name, so
+ * nothing outside the folder can be reached through it
+ */
+@Service
+public class OutputFiles {
+
+  private final Path folder;
+
+  @Autowired
+  public OutputFiles() {
+    this(Paths.get(CsvFileWriter.OUTPUT_FOLDER));
+  }
+
+  public OutputFiles(Path folder) {
+    this.folder = folder.toAbsolutePath().normalize();
+  }
+
+  /** @return every output file, newest first */
+  public List<OutputFile> list() throws IOException {
+    if (!Files.isDirectory(folder)) {
+      return Collections.emptyList();
+    }
+    try (Stream<Path> files = Files.list(folder)) {
+      return files
+          .filter(Files::isRegularFile)
+          .map(this::describe)
+          .sorted(Comparator.comparingLong(OutputFile::getLastModified).reversed())
+          .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * @param fileName a file name, without any directory
+   * @throws NoSuchFileException if there is no such file directly inside the output folder
+   */
+  public Path resolve(String fileName) throws NoSuchFileException {
+    Path file = folder.resolve(fileName).normalize();
+    if (!folder.equals(file.getParent()) || !Files.isRegularFile(file)) {
+      throw new NoSuchFileException(fileName);
+    }
+    return file;
+  }
+
+  private OutputFile describe(Path file) {
+    try {
+      return new OutputFile(
+          file.getFileName().toString(),
+          Files.size(file),
+          Files.getLastModifiedTime(file).toMillis());
+    } catch (IOException e) {
+      // Deleted while listing, report it as empty rather than failing the whole listing
+      return new OutputFile(file.getFileName().toString(), 0, 0);
+    }
+  }
+}
@@ -0,0 +1,92 @@
+package com.crypto.tradeintegritychecker.accounting;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.execution.CheckerExecutor;
+import com.crypto.tradeintegritychecker.execution.TaskScope;
+import com.crypto.tradeintegritychecker.model.integrity.StageCost;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestCostTest {
+
+    private static final int ONE_MB = 1024 * 1024;
+
+    private final CheckerExecutor checkerExecutor = new CheckerExecutor(new IntegrityCheckerProperties());
+
+    @AfterEach
+    public void tearDown() {
+        checkerExecutor.shutdown();
+    }
+
+    @Test
+    public void onlyStagesThatRanAreReported() {
+        RequestCost cost = new RequestCost();
+        try (RequestCost.Scope scope = RequestCost.enter(cost);
+             RequestCost.Measurement measurement = RequestCost.measure(CostStage.GROUP)) {
+            allocate();
+        }
+        // Outside the scope nothing is charged
+        try (RequestCost.Measurement measurement = RequestCost.measure(CostStage.RULES)) {
+            allocate();
+        }
+
+        List<StageCost> costs = cost.snapshot();
+        assertThat(costs).extracting(StageCost::getStage).containsExactly("group");
+        assertThat(costs.get(0).getAllocatedBytes()).isGreaterThanOrEqualTo(ONE_MB);
+        assertThat(cost.toServerTiming())
+                .matches("group;dur=\\d+\\.\\d;desc=\"cpu=\\d+\\.\\dms alloc=\\d+B\", total;dur=\\d+\\.\\d");
+    }
+
+    @Test
+    public void forksAreChargedToTheCallersAccount() throws Exception {
+        RequestCost cost = new RequestCost();
+        try (RequestCost.Scope scope = RequestCost.enter(cost);
+             TaskScope taskScope = checkerExecutor.openScope(Duration.ofSeconds(10))) {
+            taskScope.fork(this::measuredFetch);
+            taskScope.fork(this::measuredFetch);
+            taskScope.join();
+        }
+
+        StageCost fetch = cost.snapshot().get(0);
+        assertThat(fetch.getStage()).isEqualTo("fetch");
+        assertThat(fetch.getAllocatedBytes()).isGreaterThanOrEqualTo(2L * ONE_MB);
+        // The two fetches overlapped, so the stage took about as long as one of them
+        assertThat(fetch.getWallMs()).isBetween(200.0, 390.0);
+    }
+
+    @Test
+    public void signalsDeliveredOnAnotherThreadAreCharged() {
+        RequestCost cost = new RequestCost();
+        Flux<Integer> delivered = Flux.range(0, 4).publishOn(Schedulers.single());
+
+        cost.measureSignals(delivered, CostStage.FETCH)
+                .map(i -> allocate().length)
+                .blockLast();
+
+        StageCost fetch = cost.snapshot().get(0);
+        assertThat(fetch.getAllocatedBytes()).isGreaterThanOrEqualTo(4L * ONE_MB);
+        // The waiting thread accounts for wall time, signals only add CPU and allocation
+        assertThat(fetch.getWallMs()).isZero();
+    }
+
+    private Object measuredFetch() throws InterruptedException {
+        try (RequestCost.Measurement measurement = RequestCost.measure(CostStage.FETCH)) {
+            allocate();
+            Thread.sleep(200);
+        }
+        return null;
+    }
+
+    private static byte[] allocate() {
+        byte[] bytes = new byte[ONE_MB];
+        bytes[ONE_MB - 1] = 1;
+        return bytes;
+    }
+}
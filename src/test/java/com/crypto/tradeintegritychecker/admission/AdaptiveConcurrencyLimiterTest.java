@@ -0,0 +1,90 @@
+package com.crypto.tradeintegritychecker.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    private long now;
+
+    private final AdaptiveConcurrencyLimiter limiter =
+            new AdaptiveConcurrencyLimiter(20, 2, 100, 1.5, 0.2, Duration.ofMinutes(1), () -> now);
+
+    @Test
+    public void requestsOverTheLimitAreRejectedUntilAPermitIsReturned() {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquireAll();
+
+        assertThat(permits).hasSize(20);
+        assertThat(limiter.tryAcquire()).isNull();
+
+        permits.get(0).release();
+        assertThat(limiter.tryAcquire()).isNotNull();
+    }
+
+    @Test
+    public void limitGrowsWhileLatencyHoldsSteady() {
+        for (int round = 0; round < 20; round++) {
+            completeRound(10);
+        }
+
+        assertThat(limiter.getLimit()).isGreaterThan(20);
+    }
+
+    @Test
+    public void limitShrinksOnceRequestsStartToQueue() {
+        for (int round = 0; round < 20; round++) {
+            completeRound(10);
+        }
+        int steadyLimit = limiter.getLimit();
+
+        for (int round = 0; round < 5; round++) {
+            completeRound(40);
+        }
+
+        assertThat(limiter.getLimit()).isLessThan(steadyLimit / 2);
+        assertThat(limiter.getRetryAfterSeconds()).isEqualTo(1);
+    }
+
+    @Test
+    public void barelyUsedLimitDoesNotGrow() {
+        for (int i = 0; i < 100; i++) {
+            AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+            now += TimeUnit.MILLISECONDS.toNanos(10);
+            permit.release();
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(20);
+    }
+
+    @Test
+    public void failuresCutTheLimitDownToTheMinimum() {
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire().drop();
+        }
+
+        assertThat(limiter.getLimit()).isEqualTo(2);
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    // Saturates the limiter, then completes every request after the given latency
+    private void completeRound(long latencyMillis) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = acquireAll();
+        now += TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::release);
+    }
+
+    private List<AdaptiveConcurrencyLimiter.Permit> acquireAll() {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        AdaptiveConcurrencyLimiter.Permit permit;
+        while ((permit = limiter.tryAcquire()) != null) {
+            permits.add(permit);
+        }
+        return permits;
+    }
+}
@@ -0,0 +1,66 @@
+package com.crypto.tradeintegritychecker.admission;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdmissionInterceptorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AdmissionInterceptor interceptor;
+
+    @BeforeEach
+    public void setup() {
+        IntegrityCheckerProperties properties = new IntegrityCheckerProperties();
+        properties.getAdmission().setInteractive(new IntegrityCheckerProperties.ConcurrencyLimit(1, 1, 1));
+        properties.getAdmission().setBatch(new IntegrityCheckerProperties.ConcurrencyLimit(1, 1, 1));
+        interceptor = new AdmissionInterceptor(properties, meterRegistry);
+    }
+
+    @Test
+    public void requestOverTheLimitIsShedWithRetryAfter() throws Exception {
+        MockHttpServletRequest admitted = request("/run-checker/ETH_CRO/1m");
+        assertThat(interceptor.preHandle(admitted, new MockHttpServletResponse(), null)).isTrue();
+
+        MockHttpServletResponse shedResponse = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(request("/run-checker/BTC_USDT/1m"), shedResponse, null)).isFalse();
+
+        assertThat(shedResponse.getStatus()).isEqualTo(503);
+        assertThat(shedResponse.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(meterRegistry.get("integrity.admission.rejected").tag("class", "interactive").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void batchAndInteractiveTrafficHaveSeparateLimits() throws Exception {
+        assertThat(interceptor.preHandle(request("/run-checker/batch/1m"), new MockHttpServletResponse(), null))
+                .isTrue();
+
+        assertThat(interceptor.preHandle(request("/run-checker/ETH_CRO/1m"), new MockHttpServletResponse(), null))
+                .isTrue();
+        assertThat(interceptor.preHandle(request("/run-checker/batch/5m"), new MockHttpServletResponse(), null))
+                .isFalse();
+    }
+
+    @Test
+    public void permitIsReturnedWhenTheRequestCompletes() throws Exception {
+        MockHttpServletRequest first = request("/run-checker/ETH_CRO/1m");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(first, response, null);
+        interceptor.afterCompletion(first, response, null, null);
+
+        assertThat(interceptor.getLimiter(AdmissionInterceptor.TrafficClass.INTERACTIVE).getInFlight()).isZero();
+        assertThat(interceptor.preHandle(request("/run-checker/ETH_CRO/1m"), new MockHttpServletResponse(), null))
+                .isTrue();
+    }
+
+    private MockHttpServletRequest request(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+}
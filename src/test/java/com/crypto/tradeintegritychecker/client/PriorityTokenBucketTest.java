@@ -0,0 +1,70 @@
+package com.crypto.tradeintegritychecker.client;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PriorityTokenBucketTest {
+
+    @Test
+    public void interactiveCallerOvertakesQueuedBackgroundCaller() throws Exception {
+        PriorityTokenBucket bucket = new PriorityTokenBucket(2, 1);
+        // Drain the burst so that both callers below have to queue
+        bucket.acquire(UpstreamPriority.BACKGROUND);
+
+        List<UpstreamPriority> grantOrder = new CopyOnWriteArrayList<>();
+        Thread background = acquireInThread(bucket, UpstreamPriority.BACKGROUND, grantOrder);
+        awaitQueueDepth(bucket, 1);
+        Thread interactive = acquireInThread(bucket, UpstreamPriority.INTERACTIVE, grantOrder);
+
+        background.join(5000);
+        interactive.join(5000);
+        assertThat(grantOrder).containsExactly(UpstreamPriority.INTERACTIVE, UpstreamPriority.BACKGROUND);
+        assertThat(bucket.getQueueDepth()).isZero();
+    }
+
+    @Test
+    public void burstIsGrantedWithoutWaiting() throws Exception {
+        PriorityTokenBucket bucket = new PriorityTokenBucket(1, 3);
+        long waited = 0;
+        for (int i = 0; i < 3; i++) {
+            waited += bucket.acquire(UpstreamPriority.BACKGROUND);
+        }
+        assertThat(waited).isLessThan(100_000_000L);
+    }
+
+    @Test
+    public void callerGivesUpItsPlaceWhenTheTimeoutPasses() throws Exception {
+        PriorityTokenBucket bucket = new PriorityTokenBucket(0.1, 1);
+        bucket.acquire(UpstreamPriority.BACKGROUND);
+
+        long waited = bucket.acquire(UpstreamPriority.INTERACTIVE, TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertThat(waited).isEqualTo(-1);
+        assertThat(bucket.getQueueDepth()).isZero();
+    }
+
+    private Thread acquireInThread(PriorityTokenBucket bucket, UpstreamPriority priority,
+                                   List<UpstreamPriority> grantOrder) {
+        Thread thread = new Thread(() -> {
+            try {
+                bucket.acquire(priority);
+                grantOrder.add(priority);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private void awaitQueueDepth(PriorityTokenBucket bucket, int depth) throws InterruptedException {
+        for (int i = 0; i < 100 && bucket.getQueueDepth() < depth; i++) {
+            Thread.sleep(5);
+        }
+    }
+}
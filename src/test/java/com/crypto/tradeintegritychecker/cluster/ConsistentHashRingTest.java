@@ -0,0 +1,76 @@
+package com.crypto.tradeintegritychecker.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsistentHashRingTest {
+
+    private static final List<String> THREE_NODES =
+            Arrays.asList("http://localhost:8080", "http://localhost:8081", "http://localhost:8082");
+    private static final String FOURTH_NODE = "http://localhost:8083";
+    private static final List<String> INSTRUMENTS = IntStream.range(0, 4000)
+            .mapToObj(i -> "INST" + i + "_USDT")
+            .collect(Collectors.toList());
+
+    @Test
+    public void ownershipIsIndependentOfMembershipOrder() {
+        ConsistentHashRing ring = new ConsistentHashRing(THREE_NODES, 128);
+        ConsistentHashRing reordered = new ConsistentHashRing(
+                Arrays.asList(THREE_NODES.get(2), THREE_NODES.get(0), THREE_NODES.get(1)), 128);
+
+        INSTRUMENTS.forEach(instrument ->
+                assertThat(reordered.ownerOf(instrument)).isEqualTo(ring.ownerOf(instrument)));
+    }
+
+    @Test
+    public void addingANodeOnlyMovesInstrumentsToThatNode() {
+        Map<String, String> before = owners(new ConsistentHashRing(THREE_NODES, 128));
+        Map<String, String> after = owners(new ConsistentHashRing(fourNodes(), 128));
+
+        long moved = INSTRUMENTS.stream()
+                .filter(instrument -> !before.get(instrument).equals(after.get(instrument)))
+                .peek(instrument -> assertThat(after.get(instrument)).isEqualTo(FOURTH_NODE))
+                .count();
+
+        // Roughly a quarter of the instruments should move to the new node
+        assertThat(moved).isBetween(INSTRUMENTS.size() / 8L, INSTRUMENTS.size() * 3 / 8L);
+    }
+
+    @Test
+    public void removingANodeOnlyMovesThatNodesInstruments() {
+        Map<String, String> before = owners(new ConsistentHashRing(fourNodes(), 128));
+        Map<String, String> after = owners(new ConsistentHashRing(THREE_NODES, 128));
+
+        INSTRUMENTS.stream()
+                .filter(instrument -> !before.get(instrument).equals(FOURTH_NODE))
+                .forEach(instrument -> assertThat(after.get(instrument)).isEqualTo(before.get(instrument)));
+        assertThat(after.values()).doesNotContain(FOURTH_NODE);
+    }
+
+    @Test
+    public void emptyRingHasNoOwner() {
+        assertThat(new ConsistentHashRing(Collections.emptyList(), 128).ownerOf("ETH_CRO")).isNull();
+    }
+
+    private List<String> fourNodes() {
+        List<String> nodes = new ArrayList<>(THREE_NODES);
+        nodes.add(FOURTH_NODE);
+        return nodes;
+    }
+
+    private Map<String, String> owners(ConsistentHashRing ring) {
+        Map<String, String> owners = new HashMap<>();
+        INSTRUMENTS.forEach(instrument -> owners.put(instrument, ring.ownerOf(instrument)));
+        return owners;
+    }
+}
@@ -0,0 +1,123 @@
+package com.crypto.tradeintegritychecker.cluster;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Forwards checks and batches to a local stand-in for the owning node, which answers each
+ * instrument differently
+ */
+public class ShardForwarderTest {
+
+    private final AtomicReference<String> forwardedHeader = new AtomicReference<>();
+
+    private DisposableServer owner;
+    private ShardForwarder shardForwarder;
+
+    @BeforeEach
+    public void setup() {
+        owner = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes
+                        .get("/run-checker/ETH_CRO/1m", (request, response) -> {
+                            forwardedHeader.set(request.requestHeaders().get(ShardForwarder.FORWARDED_HEADER));
+                            return response
+                                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                    .header(HttpHeaders.CONNECTION, "keep-alive")
+                                    .sendString(Mono.just("{\"numIntegrityBreaks\":5}"));
+                        })
+                        .get("/run-checker/UNKNOWN/1m", (request, response) -> response
+                                .status(HttpStatus.BAD_REQUEST.value())
+                                .header(HttpHeaders.CONTENT_TYPE, MediaType.TEXT_PLAIN_VALUE)
+                                .sendString(Mono.just("Unknown instrument")))
+                        .get("/run-checker/SHED/1m", (request, response) -> response
+                                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                                .header(HttpHeaders.RETRY_AFTER, "2")
+                                .send())
+                        .get("/run-checker/HUNG/1m", (request, response) -> Mono.never())
+                        .get("/run-checker/batch/1m", (request, response) ->
+                                request.uri().contains("FAILING")
+                                        ? response.status(HttpStatus.INTERNAL_SERVER_ERROR.value()).send()
+                                        : response.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                                        .sendString(Mono.just("{\"ETH_CRO\":{\"numIntegrityBreaks\":5}}"))))
+                .bindNow();
+
+        IntegrityCheckerProperties properties = new IntegrityCheckerProperties();
+        properties.getSharding().setForwardTimeout(Duration.ofSeconds(2));
+        shardForwarder = new ShardForwarder(properties);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        owner.disposeNow();
+    }
+
+    @Test
+    public void ownersResponsesAreRelayedWhateverTheirStatus() {
+        ResponseEntity<byte[]> evaluated = forward("ETH_CRO");
+        assertThat(evaluated.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(evaluated.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(new String(evaluated.getBody(), StandardCharsets.UTF_8)).isEqualTo("{\"numIntegrityBreaks\":5}");
+        assertThat(forwardedHeader.get()).isEqualTo("true");
+        // Transport headers belong to the owner's connection and are not relayed
+        assertThat(evaluated.getHeaders().containsKey(HttpHeaders.CONNECTION)).isFalse();
+
+        ResponseEntity<byte[]> rejected = forward("UNKNOWN");
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(new String(rejected.getBody(), StandardCharsets.UTF_8)).isEqualTo("Unknown instrument");
+
+        ResponseEntity<byte[]> shed = forward("SHED");
+        assertThat(shed.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(shed.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("2");
+    }
+
+    @Test
+    public void ownersThatDoNotAnswerAreGivenUpOn() {
+        assertThat(forward("HUNG").getStatusCode()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT);
+
+        String unreachable = "http://localhost:" + owner.port();
+        owner.disposeNow();
+        ResponseEntity<byte[]> response =
+                shardForwarder.forwardCheck(unreachable, "ETH_CRO", "1m", null, false, null);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY);
+    }
+
+    @Test
+    public void batchesFailWithTheOwnersStatus() {
+        Map<String, JsonNode> summaries = shardForwarder.forwardBatch(ownerUrl(), List.of("ETH_CRO"), "1m");
+        assertThat(summaries.get("ETH_CRO").get("numIntegrityBreaks").asInt()).isEqualTo(5);
+
+        assertThatThrownBy(() -> shardForwarder.forwardBatch(ownerUrl(), List.of("FAILING"), "1m"))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR));
+    }
+
+    private ResponseEntity<byte[]> forward(String instrumentName) {
+        return shardForwarder.forwardCheck(ownerUrl(), instrumentName, "1m", null, false, null);
+    }
+
+    private String ownerUrl() {
+        return "http://localhost:" + owner.port();
+    }
+}
@@ -0,0 +1,137 @@
+package com.crypto.tradeintegritychecker.codec;
+
+import com.crypto.tradeintegritychecker.model.integrity.CandlestickTradeData;
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.integrity.IntegrityViolation;
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.trades.Side;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class IntegritySummaryDecoderTest {
+
+    // Configured as the checker's message converters are
+    private final ObjectMapper smile = new ObjectMapper(IntegritySummaryDecoder.smileFactory());
+    private final ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+    private final ObjectMapper json = new ObjectMapper();
+
+    private final IntegritySummaryDecoder decoder = new IntegritySummaryDecoder();
+
+    @Test
+    public void everyFormatAndEncodingDecodesToTheSameSummary() throws IOException {
+        IntegritySummary summary = summary(5, 50);
+
+        assertThat(decoder.decode(smile.writeValueAsBytes(summary), IntegritySummaryDecoder.SMILE, null))
+                .isEqualTo(summary);
+        assertThat(decoder.decode(cbor.writeValueAsBytes(summary), IntegritySummaryDecoder.CBOR, "identity"))
+                .isEqualTo(summary);
+        assertThat(decoder.decode(json.writeValueAsBytes(summary), "application/json;charset=UTF-8", null))
+                .isEqualTo(summary);
+        assertThat(decoder.decode(gzip(smile.writeValueAsBytes(summary)), IntegritySummaryDecoder.SMILE, "gzip"))
+                .isEqualTo(summary);
+    }
+
+    @Test
+    public void binaryAndCompressedResponsesAreSeveralTimesSmaller() throws IOException {
+        IntegritySummary summary = summary(5, 50);
+        byte[] plainJson = json.writeValueAsBytes(summary);
+        byte[] smileBody = smile.writeValueAsBytes(summary);
+
+        assertThat(smileBody.length).isLessThan(plainJson.length * 2 / 3);
+        assertThat(cbor.writeValueAsBytes(summary).length).isLessThan(plainJson.length);
+        assertThat(gzip(smileBody).length).isLessThan(plainJson.length / 4);
+    }
+
+    @Test
+    public void batchResponsesDecodeByType() throws IOException {
+        Map<String, IntegritySummary> batch = Collections.singletonMap("ETH_CRO", summary(1, 3));
+
+        Map<String, IntegritySummary> decoded = decoder.decode(
+                new ByteArrayInputStream(gzip(smile.writeValueAsBytes(batch))),
+                IntegritySummaryDecoder.SMILE, "gzip",
+                new TypeReference<Map<String, IntegritySummary>>() {});
+
+        assertThat(decoded).isEqualTo(batch);
+    }
+
+    @Test
+    public void unknownFieldsAreIgnoredAndUnknownFormatsRejected() throws IOException {
+        byte[] newerSummary = "{\"numIntegrityBreaks\":2,\"someNewField\":[1,2]}".getBytes();
+
+        assertThat(decoder.decode(newerSummary, null, null).getNumIntegrityBreaks()).isEqualTo(2);
+        assertThatThrownBy(() -> decoder.decode(newerSummary, "text/csv", null))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> decoder.decode(newerSummary, IntegritySummaryDecoder.JSON, "br"))
+                .isInstanceOf(IOException.class);
+    }
+
+    // A summary shaped like the checker's, with every break carrying its candle's trades
+    static IntegritySummary summary(int violations, int tradesPerCandle) {
+        List<IntegrityViolation> breaks = new ArrayList<>();
+        for (int v = 0; v < violations; v++) {
+            long endTime = 1633833420000L + v * 60_000L;
+            List<TradesData> trades = new ArrayList<>();
+            for (int t = 0; t < tradesPerCandle; t++) {
+                TradesData trade = new TradesData();
+                trade.setTradeId(1950000000000000000L + v * 1000L + t);
+                trade.setTradeTimestamp(endTime + t * 100L);
+                trade.setTradePrice(BigDecimal.valueOf(3245_250 + t * 25, 3));
+                trade.setTradeQuantity(BigDecimal.valueOf(1_000 + t * 7, 6));
+                trade.setSide(t % 2 == 0 ? Side.BUY : Side.SELL);
+                trades.add(trade);
+            }
+            CandleStickData candle = new CandleStickData();
+            candle.setEndTime(endTime);
+            candle.setOpen(new BigDecimal("3245.250"));
+            candle.setClose(new BigDecimal("3246.475"));
+            candle.setHigh(new BigDecimal("3246.475"));
+            candle.setLow(new BigDecimal("3245.250"));
+            candle.setVolume(new BigDecimal("0.058575"));
+            breaks.add(IntegrityViolation.builder()
+                    .candleStickTradeData(CandlestickTradeData.builder()
+                            .instrument("ETH_CRO")
+                            .timeframe(Timeframe.ONE_MINUTE)
+                            .candlestick(candle)
+                            .endTime(endTime)
+                            .trades(trades)
+                            .build())
+                    .rule("HIGH")
+                    .validationRule(ValidationRule.HIGH)
+                    .trade(trades.get(trades.size() - 1))
+                    .build());
+        }
+        return IntegritySummary.builder()
+                .numIntegrityBreaks(breaks.size())
+                .numTrades(violations * tradesPerCandle)
+                .numCandlesticks(violations + 2)
+                .numCandlesticksAnalyzed(violations)
+                .dataIntegrityBreaks(breaks)
+                .build();
+    }
+
+    static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(body);
+        }
+        return compressed.toByteArray();
+    }
+}
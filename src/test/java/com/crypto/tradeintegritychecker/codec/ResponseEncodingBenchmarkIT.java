@@ -0,0 +1,50 @@
+package com.crypto.tradeintegritychecker.codec;
+
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Size and serialization time of a large summary in each response format, with and without gzip.
+ * Not part of the regular build, run with {@code mvn test -Dtest=ResponseEncodingBenchmarkIT}
+ */
+@Slf4j
+public class ResponseEncodingBenchmarkIT {
+
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int MEASURED_ROUNDS = 200;
+
+    private final IntegritySummary summary = IntegritySummaryDecoderTest.summary(100, 200);
+    private final IntegritySummaryDecoder decoder = new IntegritySummaryDecoder();
+
+    @Test
+    public void compareFormats() throws IOException {
+        measure("JSON", new ObjectMapper(), IntegritySummaryDecoder.JSON);
+        measure("Smile", new ObjectMapper(IntegritySummaryDecoder.smileFactory()), IntegritySummaryDecoder.SMILE);
+        measure("CBOR", new ObjectMapper(new CBORFactory()), IntegritySummaryDecoder.CBOR);
+    }
+
+    private void measure(String format, ObjectMapper mapper, String contentType) throws IOException {
+        byte[] body = mapper.writeValueAsBytes(summary);
+        for (int round = 0; round < WARMUP_ROUNDS; round++) {
+            mapper.writeValueAsBytes(summary);
+        }
+        long started = System.nanoTime();
+        for (int round = 0; round < MEASURED_ROUNDS; round++) {
+            body = mapper.writeValueAsBytes(summary);
+        }
+        long encodeNanos = (System.nanoTime() - started) / MEASURED_ROUNDS;
+        byte[] compressed = IntegritySummaryDecoderTest.gzip(body);
+
+        assertThat(decoder.decode(compressed, contentType, "gzip")).isEqualTo(summary);
+        log.info("{}: {} bytes, {} bytes gzipped, {} us to serialize",
+                format, body.length, compressed.length, TimeUnit.NANOSECONDS.toMicros(encodeNanos));
+    }
+}
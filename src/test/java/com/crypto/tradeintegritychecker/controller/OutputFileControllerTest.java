@@ -0,0 +1,124 @@
+package com.crypto.tradeintegritychecker.controller;
+
+import com.crypto.tradeintegritychecker.writer.OutputFiles;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class OutputFileControllerTest {
+
+    private static final String CSV = "CandleStickEndTime,open,close,high,low,volume\n"
+            + "2021-10-10T12:41,0.12,0.13,0.14,0.11,1000\n";
+
+    @TempDir
+    Path tempDir;
+
+    private Path outputFolder;
+    private Path csvFile;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        outputFolder = Files.createDirectory(tempDir.resolve("testOutput"));
+        csvFile = Files.write(outputFolder.resolve("CandleSticks20211010124100.csv"),
+                CSV.getBytes(StandardCharsets.UTF_8));
+        mockMvc = MockMvcBuilders.standaloneSetup(new OutputFileController(new OutputFiles(outputFolder))).build();
+    }
+
+    @Test
+    public void listsOutputFiles() throws Exception {
+        mockMvc.perform(get("/files"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("CandleSticks20211010124100.csv"))
+                .andExpect(jsonPath("$[0].size").value(CSV.length()));
+    }
+
+    @Test
+    public void servesByteRanges() throws Exception {
+        mockMvc.perform(get("/files/CandleSticks20211010124100.csv").header(HttpHeaders.RANGE, "bytes=0-17"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 0-17/" + CSV.length()))
+                .andExpect(content().string("CandleStickEndTime"));
+    }
+
+    @Test
+    public void handsPlainDownloadsToTomcatSendfile() throws Exception {
+        mockMvc.perform(get("/files/CandleSticks20211010124100.csv")
+                        .requestAttr(OutputFileController.SENDFILE_SUPPORT, Boolean.TRUE)
+                        .header(HttpHeaders.RANGE, "bytes=19-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, CSV.length() - 19))
+                .andExpect(request().attribute(OutputFileController.SENDFILE_FILENAME, csvFile.toString()))
+                .andExpect(request().attribute(OutputFileController.SENDFILE_START, 19L))
+                .andExpect(request().attribute(OutputFileController.SENDFILE_END, (long) CSV.length()))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    public void gzipsCsvForClientsThatAcceptIt() throws Exception {
+        MvcResult started = mockMvc.perform(get("/files/CandleSticks20211010124100.csv")
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+
+        try (GZIPInputStream gzip = new GZIPInputStream(
+                new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            assertThat(new String(gzip.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(CSV);
+        }
+    }
+
+    @Test
+    public void csvIsNotGzippedForClientsThatRefuseIt() throws Exception {
+        for (String acceptEncoding : new String[] {"gzip;q=0, deflate", "deflate, *;q=0", "identity"}) {
+            MvcResult started = mockMvc.perform(get("/files/CandleSticks20211010124100.csv")
+                            .header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+
+            mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                    .andExpect(content().string(CSV));
+        }
+    }
+
+    @Test
+    public void unknownFilesAreNotFound() throws Exception {
+        mockMvc.perform(get("/files/Trades20211010124100.csv"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void filesOutsideTheOutputFolderCannotBeResolved() throws Exception {
+        Files.write(tempDir.resolve("outside.csv"), CSV.getBytes(StandardCharsets.UTF_8));
+
+        assertThatThrownBy(() -> new OutputFiles(outputFolder).resolve("../outside.csv"))
+                .isInstanceOf(NoSuchFileException.class);
+    }
+}
@@ -0,0 +1,139 @@
+package com.crypto.tradeintegritychecker.execution;
+
+import com.crypto.tradeintegritychecker.client.UpstreamPriority;
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TaskScopeTest {
+
+    private final CheckerExecutor checkerExecutor = new CheckerExecutor(new IntegrityCheckerProperties());
+
+    @AfterEach
+    public void tearDown() {
+        checkerExecutor.shutdown();
+    }
+
+    @Test
+    public void failingForkCancelsItsSiblings() throws Exception {
+        CountDownLatch siblingStarted = new CountDownLatch(1);
+        CountDownLatch siblingInterrupted = new CountDownLatch(1);
+        try (TaskScope scope = checkerExecutor.openScope(Duration.ofSeconds(10))) {
+            scope.fork(() -> {
+                siblingStarted.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    siblingInterrupted.countDown();
+                }
+                return null;
+            });
+            scope.fork(() -> {
+                // Fail only once the sibling is running, so it has to be interrupted rather than
+                // cancelled before it starts
+                siblingStarted.await(5, TimeUnit.SECONDS);
+                throw new IllegalStateException("upstream unavailable");
+            });
+
+            assertThatThrownBy(scope::join)
+                    .isInstanceOf(ExecutionException.class)
+                    .hasCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(siblingInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void nestedForksRunOnAPoolOfTheirOwn() throws Exception {
+        CheckerExecutor singleThread = new CheckerExecutor(poolOf(1, 1));
+        try (TaskScope checks = singleThread.openScope(Duration.ofSeconds(5))) {
+            Future<Boolean> fetchedElsewhere = checks.fork(() -> {
+                Thread checkThread = Thread.currentThread();
+                try (TaskScope fetches = singleThread.openScope(Duration.ofSeconds(5))) {
+                    Future<Thread> fetch = fetches.fork(Thread::currentThread);
+                    fetches.join();
+                    return fetch.get() != checkThread;
+                }
+            });
+
+            checks.join();
+            assertThat(fetchedElsewhere.get()).isTrue();
+        } finally {
+            singleThread.shutdown();
+        }
+    }
+
+    @Test
+    public void forksBeyondTheQueueAreRejected() throws Exception {
+        CheckerExecutor singleThread = new CheckerExecutor(poolOf(1, 1));
+        CountDownLatch release = new CountDownLatch(1);
+        try (TaskScope scope = singleThread.openScope(Duration.ofSeconds(5))) {
+            Thread forkingThread = Thread.currentThread();
+            Future<Thread> running = scope.fork(() -> {
+                release.await(5, TimeUnit.SECONDS);
+                return Thread.currentThread();
+            });
+            Future<Thread> queued = scope.fork(Thread::currentThread);
+
+            assertThatThrownBy(() -> scope.fork(Thread::currentThread))
+                    .isInstanceOf(RejectedExecutionException.class);
+            release.countDown();
+            scope.join();
+            assertThat(running.get()).isNotSameAs(forkingThread);
+            assertThat(queued.get()).isNotSameAs(forkingThread);
+        } finally {
+            singleThread.shutdown();
+        }
+    }
+
+    @Test
+    public void forksRunUnderTheScopeDeadline() throws Exception {
+        try (TaskScope scope = checkerExecutor.openScope(Duration.ofSeconds(5))) {
+            Future<Duration> remaining = scope.fork(() -> Deadline.current().remaining());
+            scope.join();
+
+            assertThat(remaining.get()).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    public void forksRunningPastTheDeadlineAreCancelled() throws Exception {
+        try (TaskScope scope = checkerExecutor.openScope(Duration.ofMillis(100))) {
+            Future<String> slow = scope.fork(() -> {
+                Thread.sleep(10_000);
+                return "too late";
+            });
+
+            assertThatThrownBy(scope::join).isInstanceOf(TimeoutException.class);
+            assertThat(slow.isCancelled()).isTrue();
+        }
+    }
+
+    @Test
+    public void forksInheritTheUpstreamPriority() throws Exception {
+        try (UpstreamPriority.Scope priority = UpstreamPriority.INTERACTIVE.enter();
+             TaskScope scope = checkerExecutor.openScope()) {
+            Future<UpstreamPriority> forkPriority = scope.fork(UpstreamPriority::current);
+            scope.join();
+
+            assertThat(forkPriority.get()).isEqualTo(UpstreamPriority.INTERACTIVE);
+        }
+    }
+
+    private static IntegrityCheckerProperties poolOf(int threads, int queueCapacity) {
+        IntegrityCheckerProperties properties = new IntegrityCheckerProperties();
+        properties.getExecution().setPlatformPoolSize(threads);
+        properties.getExecution().setPlatformQueueCapacity(queueCapacity);
+        return properties;
+    }
+}
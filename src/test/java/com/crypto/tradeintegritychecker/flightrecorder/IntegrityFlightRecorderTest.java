@@ -0,0 +1,106 @@
+package com.crypto.tradeintegritychecker.flightrecorder;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.integrity.CandlestickTradeData;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.trades.Side;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import com.crypto.tradeintegritychecker.registry.InstrumentRegistry;
+import com.crypto.tradeintegritychecker.service.RuleService;
+import com.crypto.tradeintegritychecker.service.ViolationLogger;
+import com.crypto.tradeintegritychecker.sketch.DeviationSketches;
+import com.crypto.tradeintegritychecker.writer.CsvFileWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IntegrityFlightRecorderTest {
+
+    private static final String CANDLE_EVALUATION = "com.crypto.tradeintegritychecker.CandleEvaluation";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void bundledProfileIsLayeredOverTheDefaults() throws Exception {
+        Map<String, String> settings = IntegrityFlightRecorder.settings();
+
+        assertThat(settings).containsEntry(CANDLE_EVALUATION + "#enabled", "true");
+        assertThat(settings).containsEntry(CANDLE_EVALUATION + "#threshold", "1 ms");
+        assertThat(settings).containsEntry("com.crypto.tradeintegritychecker.UpstreamFetch#enabled", "true");
+        // The JDK's own events are still recorded
+        assertThat(settings).containsKey("jdk.GarbageCollection#enabled");
+    }
+
+    @Test
+    public void candleEvaluationsAreRecordedWithTheirInstrumentAndViolations() throws Exception {
+        IntegrityCheckerProperties properties = new IntegrityCheckerProperties();
+        RuleService ruleService = new RuleService(
+                new CsvFileWriter(), new ViolationLogger(properties), new DeviationSketches(properties,
+                        new InstrumentRegistry(properties, new SimpleMeterRegistry())));
+        Path recordingFile = tempDir.resolve("rules.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(CandleEvaluationEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+            ruleService.evaluateCompleteCandles(Arrays.asList(
+                    candle(60_000L, new BigDecimal("12")),
+                    // The highest trade was 12, so the HIGH rule breaks
+                    candle(120_000L, new BigDecimal("13"))));
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile).stream()
+                .filter(event -> event.getEventType().getName().equals(CANDLE_EVALUATION))
+                .collect(Collectors.toList());
+        assertThat(events).extracting(event -> event.getString("instrument")).containsOnly("ETH_CRO");
+        assertThat(events).extracting(event -> event.getString("timeframe")).containsOnly("1m");
+        assertThat(events).extracting(event -> event.getInt("trades")).containsOnly(2);
+        assertThat(events).extracting(event -> event.getInt("violations")).containsExactly(0, 1);
+        assertThat(events).extracting(event -> event.getBoolean("fixedPointWindow")).containsOnly(true);
+    }
+
+    private CandlestickTradeData candle(long endTime, BigDecimal high) {
+        CandleStickData candlestick = new CandleStickData();
+        candlestick.setEndTime(endTime);
+        candlestick.setOpen(new BigDecimal("10"));
+        candlestick.setClose(new BigDecimal("12"));
+        candlestick.setHigh(high);
+        candlestick.setLow(new BigDecimal("10"));
+        candlestick.setVolume(new BigDecimal("3"));
+        return CandlestickTradeData.builder()
+                .instrument("ETH_CRO")
+                .timeframe(Timeframe.ONE_MINUTE)
+                .endTime(endTime)
+                .candlestick(candlestick)
+                .trades(Arrays.asList(
+                        trade(endTime, "10", "1"),
+                        trade(endTime + 10, "12", "2")))
+                .build();
+    }
+
+    private TradesData trade(long timestamp, String price, String quantity) {
+        TradesData trade = new TradesData();
+        trade.setTradeId(timestamp);
+        trade.setTradeTimestamp(timestamp);
+        trade.setTradePrice(new BigDecimal(price));
+        trade.setTradeQuantity(new BigDecimal(quantity));
+        trade.setSide(Side.BUY);
+        return trade;
+    }
+}
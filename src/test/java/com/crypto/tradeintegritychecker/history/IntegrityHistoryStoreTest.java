@@ -0,0 +1,120 @@
+package com.crypto.tradeintegritychecker.history;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.integrity.CandlestickTradeData;
+import com.crypto.tradeintegritychecker.model.integrity.IntegrityCheckCompletedEvent;
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.integrity.IntegrityViolation;
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IntegrityHistoryStoreTest {
+
+    @TempDir
+    Path historyDirectory;
+
+    private final IntegrityCheckerProperties properties = new IntegrityCheckerProperties();
+
+    @Test
+    public void runsSurviveRestartAndAreQueryableByRange() throws Exception {
+        IntegrityHistoryStore store = openStore();
+        store.onIntegrityCheckCompleted(completedRun(1_000L, violation(ValidationRule.VOLUME, 60_000L),
+                violation(ValidationRule.HIGH, 120_000L)));
+        // Overlapping run reports the VOLUME break on the same candle again
+        store.onIntegrityCheckCompleted(completedRun(2_000L, violation(ValidationRule.VOLUME, 60_000L),
+                violation(ValidationRule.VOLUME, 180_000L)));
+        store.close();
+
+        IntegrityHistoryStore reopened = openStore();
+        HistoryAggregate aggregate = reopened.aggregate("BTC_USDT", Timeframe.ONE_MINUTE, 0, Long.MAX_VALUE);
+
+        assertThat(aggregate.getNumRuns()).isEqualTo(2);
+        assertThat(aggregate.getIntegrityBreaksByRule()).containsEntry(ValidationRule.VOLUME, 2)
+                .containsEntry(ValidationRule.HIGH, 1);
+        assertThat(reopened.findViolations("BTC_USDT", Timeframe.ONE_MINUTE, ValidationRule.VOLUME, 100_000L, 200_000L))
+                .extracting(ViolationRecord::getCandleTime).containsExactly(180_000L);
+        assertThat(reopened.findRuns("BTC_USDT", Timeframe.ONE_MINUTE, 1_500L, 3_000L)).hasSize(1);
+        assertThat(reopened.findRuns("ETH_CRO", Timeframe.ONE_MINUTE, 0, Long.MAX_VALUE)).isEmpty();
+        reopened.close();
+    }
+
+    @Test
+    public void breaksAreClearedByALaterRunOverTheirCandle() throws Exception {
+        IntegrityHistoryStore store = openStore();
+        store.onIntegrityCheckCompleted(completedRun(1_000L, 60_000L, 180_000L,
+                violation(ValidationRule.VOLUME, 60_000L), violation(ValidationRule.HIGH, 180_000L)));
+        // The later run analyzes the VOLUME break's candle again and finds nothing wrong with it
+        store.onIntegrityCheckCompleted(completedRun(2_000L, 0L, 120_000L));
+        store.close();
+
+        IntegrityHistoryStore reopened = openStore();
+        assertThat(reopened.findViolations("BTC_USDT", Timeframe.ONE_MINUTE, null, 0, Long.MAX_VALUE))
+                .extracting(ViolationRecord::getRule).containsExactly(ValidationRule.HIGH);
+        reopened.close();
+    }
+
+    @Test
+    public void runsPastTheRetentionAreDroppedAndCompactedAway() throws Exception {
+        properties.getHistory().setRetention(Duration.ofMinutes(1));
+        IntegrityHistoryStore store = openStore();
+        store.onIntegrityCheckCompleted(completedRun(0L, violation(ValidationRule.VOLUME, 60_000L)));
+        store.onIntegrityCheckCompleted(completedRun(30_000L));
+        store.onIntegrityCheckCompleted(completedRun(120_000L));
+
+        assertThat(store.findRuns("BTC_USDT", Timeframe.ONE_MINUTE, 0, Long.MAX_VALUE))
+                .extracting(IntegrityRunRecord::getEvaluatedAt).containsExactly(120_000L);
+        assertThat(store.findViolations("BTC_USDT", Timeframe.ONE_MINUTE, null, 0, Long.MAX_VALUE)).isEmpty();
+        store.close();
+        assertThat(Files.readAllLines(historyDirectory.resolve("integrity-history.jsonl"))).hasSize(1);
+
+        // The run limit applies on top of the retention
+        properties.getHistory().setMaxRuns(1);
+        IntegrityHistoryStore reopened = openStore();
+        reopened.onIntegrityCheckCompleted(completedRun(150_000L));
+        assertThat(reopened.findRuns("BTC_USDT", Timeframe.ONE_MINUTE, 0, Long.MAX_VALUE))
+                .extracting(IntegrityRunRecord::getEvaluatedAt).containsExactly(150_000L);
+        reopened.close();
+    }
+
+    private IntegrityHistoryStore openStore() throws Exception {
+        properties.getHistory().setEnabled(true);
+        properties.getHistory().setDirectory(historyDirectory.toString());
+        IntegrityHistoryStore store = new IntegrityHistoryStore(properties, new ObjectMapper());
+        store.open();
+        return store;
+    }
+
+    private IntegrityCheckCompletedEvent completedRun(long evaluatedAt, IntegrityViolation... violations) {
+        return completedRun(evaluatedAt, null, null, violations);
+    }
+
+    private IntegrityCheckCompletedEvent completedRun(long evaluatedAt, Long firstCandle, Long lastCandle,
+                                                      IntegrityViolation... violations) {
+        IntegritySummary summary = IntegritySummary.builder()
+                .numIntegrityBreaks(violations.length)
+                .numCandlesticksAnalyzed(5)
+                .firstCandleAnalyzed(firstCandle)
+                .lastCandleAnalyzed(lastCandle)
+                .dataIntegrityBreaks(Arrays.asList(violations))
+                .build();
+        return new IntegrityCheckCompletedEvent("BTC_USDT", Timeframe.ONE_MINUTE, evaluatedAt, summary);
+    }
+
+    private IntegrityViolation violation(ValidationRule rule, long candleTime) {
+        return IntegrityViolation.builder()
+                .validationRule(rule)
+                .rule(rule.getRuleBreak())
+                .candleStickTradeData(CandlestickTradeData.builder().endTime(candleTime).build())
+                .build();
+    }
+}
@@ -2,14 +2,22 @@ package com.crypto.tradeintegritychecker.integration;
 
 
 import com.crypto.tradeintegritychecker.client.CryptoClient;
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.execution.CheckerExecutor;
 import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
 import com.crypto.tradeintegritychecker.model.request.Timeframe;
 import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
 import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.registry.InstrumentRegistry;
+import com.crypto.tradeintegritychecker.service.CandlestickFetchPlanner;
 import com.crypto.tradeintegritychecker.service.IntegrityService;
 import com.crypto.tradeintegritychecker.service.RuleService;
+import com.crypto.tradeintegritychecker.service.ViolationLogger;
+import com.crypto.tradeintegritychecker.sketch.DeviationSketches;
 import com.crypto.tradeintegritychecker.util.JsonParser;
+import com.crypto.tradeintegritychecker.writer.ColumnarFileWriter;
 import com.crypto.tradeintegritychecker.writer.CsvFileWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -18,6 +26,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.Mockito.when;
@@ -34,6 +43,12 @@ public class IntegrityCheckMockedAPIDataIT {
     @Mock
     private CryptoClient cryptoClientMock;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ColumnarFileWriter columnarFileWriter;
+
     @InjectMocks
     private IntegrityService integrityService;
 
@@ -41,7 +56,15 @@ public class IntegrityCheckMockedAPIDataIT {
     private CsvFileWriter csvFileWriter = new CsvFileWriter();
 
     @Spy
-    private RuleService ruleService = new RuleService(csvFileWriter);
+    private RuleService ruleService = new RuleService(csvFileWriter,
+            new ViolationLogger(new IntegrityCheckerProperties()), new DeviationSketches(new IntegrityCheckerProperties(),
+            new InstrumentRegistry(new IntegrityCheckerProperties(), new SimpleMeterRegistry())));
+
+    @Spy
+    private CandlestickFetchPlanner fetchPlanner = new CandlestickFetchPlanner(new IntegrityCheckerProperties());
+
+    @Spy
+    private CheckerExecutor checkerExecutor = new CheckerExecutor(new IntegrityCheckerProperties());
 
     private CandleStickResponse candleStickResponse;
     private GetTradesResponse getTradesResponse;
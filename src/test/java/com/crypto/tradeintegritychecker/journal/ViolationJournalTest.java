@@ -0,0 +1,144 @@
+package com.crypto.tradeintegritychecker.journal;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.integrity.CandlestickTradeData;
+import com.crypto.tradeintegritychecker.model.integrity.IntegrityCheckCompletedEvent;
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.integrity.IntegrityViolation;
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ViolationJournalTest {
+
+    private static final long CANDLE_END_TIME = 1633833840000L;
+
+    @TempDir
+    Path directory;
+
+    private IntegrityCheckerProperties properties;
+    private ViolationJournal journal;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        properties = new IntegrityCheckerProperties();
+        properties.getJournal().setEnabled(true);
+        properties.getJournal().setDirectory(directory.toString());
+        properties.getJournal().setSegmentRecords(4);
+        properties.getJournal().setRetainedSegments(2);
+        journal = new ViolationJournal(properties);
+        journal.open();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        journal.close();
+    }
+
+    @Test
+    public void violationsArePublishedWithTheirOffendingValues() throws IOException {
+        CandleStickData candle = new CandleStickData();
+        candle.setEndTime(CANDLE_END_TIME);
+        candle.setHigh(new BigDecimal("0.51230"));
+        candle.setVolume(new BigDecimal("12.5"));
+        TradesData highestTrade = new TradesData();
+        highestTrade.setTradePrice(new BigDecimal("0.5124"));
+        CandlestickTradeData candlestickTradeData = CandlestickTradeData.builder()
+                .instrument("ETH_CRO")
+                .endTime(CANDLE_END_TIME)
+                .candlestick(candle)
+                .build();
+        IntegritySummary summary = IntegritySummary.builder()
+                .dataIntegrityBreaks(Arrays.asList(
+                        IntegrityViolation.builder()
+                                .candleStickTradeData(candlestickTradeData)
+                                .validationRule(ValidationRule.HIGH)
+                                .trade(highestTrade)
+                                .build(),
+                        IntegrityViolation.builder()
+                                .candleStickTradeData(candlestickTradeData)
+                                .validationRule(ValidationRule.VOLUME)
+                                .tradesVolume(new BigDecimal("12.40000"))
+                                .build()))
+                .build();
+        JournalTailer tailer = JournalTailer.fromStart(directory);
+
+        journal.onIntegrityCheckCompleted(
+                new IntegrityCheckCompletedEvent("ETH_CRO", Timeframe.ONE_MINUTE, 42L, summary));
+
+        List<JournalEntry> entries = new ArrayList<>();
+        assertThat(tailer.poll(entries::add, 10)).isEqualTo(2);
+        assertThat(entries.get(0)).isEqualTo(new JournalEntry(0, 42L, "ETH_CRO", Timeframe.ONE_MINUTE,
+                ValidationRule.HIGH, CANDLE_END_TIME, new BigDecimal("0.5123"), new BigDecimal("0.5124")));
+        assertThat(entries.get(1).getRule()).isEqualTo(ValidationRule.VOLUME);
+        assertThat(entries.get(1).getExpected()).isEqualByComparingTo("12.5");
+        assertThat(entries.get(1).getActual()).isEqualByComparingTo("12.4");
+    }
+
+    @Test
+    public void tailerPicksUpAppendsOnceCaughtUp() throws IOException {
+        JournalTailer tailer = JournalTailer.fromStart(directory);
+        List<JournalEntry> entries = new ArrayList<>();
+        assertThat(tailer.poll(entries::add, 10)).isZero();
+
+        append(3);
+        assertThat(tailer.poll(entries::add, 2)).isEqualTo(2);
+        assertThat(tailer.poll(entries::add, 10)).isEqualTo(1);
+        assertThat(tailer.poll(entries::add, 10)).isZero();
+
+        // Crosses into the second segment
+        append(3);
+        assertThat(tailer.poll(entries::add, 10)).isEqualTo(3);
+        assertThat(entries).extracting(JournalEntry::getSequence).containsExactly(0L, 1L, 2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    public void oldSegmentsAreRemovedOnRotation() throws IOException {
+        append(10);
+
+        assertThat(ViolationJournal.listSegments(directory)).hasSize(2);
+        List<JournalEntry> entries = new ArrayList<>();
+        JournalTailer.fromStart(directory).poll(entries::add, 100);
+        assertThat(entries).extracting(JournalEntry::getSequence).containsExactly(4L, 5L, 6L, 7L, 8L, 9L);
+    }
+
+    @Test
+    public void reopenedJournalContinuesTheSequence() throws IOException {
+        append(6);
+        journal.close();
+
+        journal = new ViolationJournal(properties);
+        journal.open();
+        JournalTailer latest = JournalTailer.fromLatest(directory);
+
+        assertThat(journal.getNextSequence()).isEqualTo(6);
+        assertThat(latest.getNextSequence()).isEqualTo(6);
+        assertThat(append(1)).isEqualTo(6);
+        List<JournalEntry> entries = new ArrayList<>();
+        assertThat(latest.poll(entries::add, 10)).isEqualTo(1);
+        assertThat(entries.get(0).getSequence()).isEqualTo(6);
+    }
+
+    private long append(int count) throws IOException {
+        long sequence = -1;
+        for (int i = 0; i < count; i++) {
+            sequence = journal.append("BTC_USDT", Timeframe.FIVE_MINUTES, ValidationRule.LOW,
+                    CANDLE_END_TIME + i, 1L, BigDecimal.ONE, null);
+        }
+        return sequence;
+    }
+}
@@ -0,0 +1,105 @@
+package com.crypto.tradeintegritychecker.marketdata;
+
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.Side;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import com.crypto.tradeintegritychecker.util.JsonParser;
+import com.crypto.tradeintegritychecker.writer.ColumnarCaptureWriter;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LocalMarketDataSourceTest {
+
+    private final ObjectMapper objectMapper =
+            new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void jsonAndCsvFilesAreServedByInstrument() throws IOException {
+        Files.copy(Paths.get("src/test/resources/candlesticks.json"),
+                directory.resolve("ETH_CRO.1m.candlesticks.json"));
+        Files.copy(Paths.get("src/test/resources/trades.json"), directory.resolve("ETH_CRO.trades.json"));
+        Files.write(directory.resolve("BTC_USDT.5m.candlesticks.csv"), List.of(
+                "endTime,open,close,high,low,volume",
+                "1633833300000,54910.5,54923.1,54950,54900.2,1.25",
+                "1633833600000,54923.1,54880,54930,54870.5,0.75",
+                ""));
+        Files.write(directory.resolve("BTC_USDT.trades.csv"), List.of(
+                "tradeTimestamp,tradePrice,tradeQuantity,side,tradeId",
+                "1633833601000,54925.5,0.5,SELL,101",
+                "1633833602000,54880,0.25,BUY,102"));
+        FileMarketDataSource source = new FileMarketDataSource(directory, objectMapper);
+
+        assertThat(source.getCandlestickData("ETH_CRO", Timeframe.ONE_MINUTE).getResult().getData())
+                .hasSameSizeAs(new JsonParser().parseCandlestickFromFile().getResult().getData());
+        CandleStickResponse candles = source.getCandlestickData("BTC_USDT", Timeframe.FIVE_MINUTES);
+        assertThat(candles.getResult().getInterval()).isEqualTo("5m");
+        assertThat(candles.getResult().getData()).extracting(CandleStickData::getHigh)
+                .containsExactly(new BigDecimal("54950"), new BigDecimal("54930"));
+        // Sources holding the whole window keep the latest candles when asked for fewer
+        assertThat(source.getCandlestickData("BTC_USDT", Timeframe.FIVE_MINUTES, 1).getResult().getData())
+                .extracting(CandleStickData::getEndTime).containsExactly(1633833600000L);
+
+        List<TradesData> trades = source.getTradesByInstrument("BTC_USDT").getResult().getData();
+        assertThat(trades).extracting(TradesData::getSide).containsExactly(Side.SELL, Side.BUY);
+        assertThat(trades).extracting(TradesData::getTradeId).containsExactly(101L, 102L);
+
+        GetTradesResponse feed = source.getTrades();
+        assertThat(feed.getResult().getData()).extracting(TradesData::getInstrumentName)
+                .containsOnly("ETH_CRO", "BTC_USDT")
+                .hasSize(trades.size() + new JsonParser().parseTradesData().getResult().getData().size());
+
+        assertThatThrownBy(() -> source.getTradesByInstrument("SHIB_USDC"))
+                .isInstanceOf(UncheckedIOException.class);
+    }
+
+    @Test
+    public void eachInstrumentIsServedFromItsLatestCapture() throws IOException {
+        JsonParser parser = new JsonParser();
+        CandleStickResponse candles = parser.parseCandlestickFromFile();
+        GetTradesResponse trades = parser.parseTradesData();
+        GetTradesResponse fewerTrades = parser.parseTradesData();
+        fewerTrades.getResult().setData(trades.getResult().getData().subList(0, 5));
+        writeCapture("CaptureETH_CRO20211010090000.icc", candles, fewerTrades);
+        writeCapture("CaptureETH_CRO20211010100000.icc", candles, trades);
+        CaptureDirectoryMarketDataSource source = new CaptureDirectoryMarketDataSource(directory);
+
+        assertThat(source.getCandlestickData("ETH_CRO", Timeframe.ONE_MINUTE).getResult().getData())
+                .hasSameSizeAs(candles.getResult().getData());
+        assertThat(source.getTradesByInstrument("ETH_CRO").getResult().getData())
+                .hasSameSizeAs(trades.getResult().getData());
+        assertThat(source.getTrades().getResult().getData()).extracting(TradesData::getInstrumentName)
+                .containsOnly("ETH_CRO");
+
+        assertThatThrownBy(() -> source.getCandlestickData("ETH_CRO", Timeframe.FIVE_MINUTES))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> source.getCandlestickData("BTC_USDT", Timeframe.ONE_MINUTE))
+                .isInstanceOf(UncheckedIOException.class);
+    }
+
+    private void writeCapture(String fileName, CandleStickResponse candles, GetTradesResponse trades)
+            throws IOException {
+        try (ColumnarCaptureWriter writer =
+                     new ColumnarCaptureWriter(Files.newOutputStream(directory.resolve(fileName)))) {
+            writer.writeCapture(candles, trades);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.crypto.tradeintegritychecker.marketdata;
+
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResult;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.TradeResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ReadAheadMarketDataSourceTest {
+
+    private static final List<String> INSTRUMENTS = Arrays.asList("ETH_CRO", "BTC_USDT", "MATIC_BTC", "SHIB_USDC");
+
+    private final CountingSource delegate = new CountingSource();
+    private final ReadAheadMarketDataSource source = new ReadAheadMarketDataSource(delegate, 1);
+
+    @AfterEach
+    public void tearDown() {
+        source.shutdown();
+    }
+
+    @Test
+    public void nextInstrumentIsFetchedWhileTheCurrentOneIsEvaluated() throws Exception {
+        try (MarketDataSource.ReadAhead plan = source.readAhead(
+                INSTRUMENTS, Timeframe.ONE_MINUTE, EnumSet.allOf(MarketDataSource.DataType.class))) {
+            // Planning the batch starts on the instrument after the first
+            delegate.awaitFetches("BTC_USDT", 2);
+
+            source.getTradesByInstrument("ETH_CRO");
+            source.getCandlestickData("ETH_CRO", Timeframe.ONE_MINUTE);
+            assertThat(delegate.fetches).doesNotContainKey("MATIC_BTC");
+
+            // Taking the read-ahead data moves the window on by one instrument
+            assertThat(source.getTradesByInstrument("BTC_USDT").getResult().getInstrumentName())
+                    .isEqualTo("BTC_USDT");
+            source.getCandlestickData("BTC_USDT", Timeframe.ONE_MINUTE);
+            delegate.awaitFetches("MATIC_BTC", 2);
+            assertThat(delegate.fetches).doesNotContainKey("SHIB_USDC");
+        }
+
+        // Nothing was fetched twice, and what the batch never took was dropped
+        assertThat(delegate.fetches.get("ETH_CRO").get()).isEqualTo(2);
+        assertThat(delegate.fetches.get("BTC_USDT").get()).isEqualTo(2);
+        assertThat(source.pendingFetches()).isZero();
+    }
+
+    @Test
+    public void dataReadAheadIsOnlyHandedToItsOwnBatch() throws Exception {
+        ExecutorService otherCaller = Executors.newSingleThreadExecutor();
+        try (MarketDataSource.ReadAhead plan = source.readAhead(
+                INSTRUMENTS, Timeframe.ONE_MINUTE, EnumSet.of(MarketDataSource.DataType.TRADES))) {
+            delegate.awaitFetches("BTC_USDT", 1);
+
+            // A caller outside the batch fetches for itself and leaves the batch's window alone
+            otherCaller.submit(() -> source.getTradesByInstrument("BTC_USDT")).get(5, TimeUnit.SECONDS);
+            assertThat(delegate.fetches.get("BTC_USDT").get()).isEqualTo(2);
+            assertThat(delegate.fetches).doesNotContainKey("MATIC_BTC");
+            assertThat(source.pendingFetches()).isEqualTo(1);
+
+            // The batch still gets the data fetched for it
+            source.getTradesByInstrument("BTC_USDT");
+            assertThat(delegate.fetches.get("BTC_USDT").get()).isEqualTo(2);
+            delegate.awaitFetches("MATIC_BTC", 1);
+        } finally {
+            otherCaller.shutdownNow();
+        }
+        assertThat(ReadAheadContext.current()).isNull();
+    }
+
+    @Test
+    public void onlyTheRequestedDataIsReadAheadAndFailuresReachTheCaller() throws Exception {
+        delegate.failing = "BTC_USDT";
+        try (MarketDataSource.ReadAhead plan = source.readAhead(
+                INSTRUMENTS, Timeframe.ONE_MINUTE, EnumSet.of(MarketDataSource.DataType.TRADES))) {
+            delegate.awaitFetches("BTC_USDT", 1);
+
+            assertThatThrownBy(() -> source.getTradesByInstrument("BTC_USDT"))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("No trades for BTC_USDT");
+            // Planned windows are never read ahead
+            source.getCandlestickData("BTC_USDT", Timeframe.ONE_MINUTE, 10);
+        }
+        assertThat(delegate.fetches.get("BTC_USDT").get()).isEqualTo(2);
+    }
+
+    /** Counts every fetch by instrument */
+    private static class CountingSource implements MarketDataSource {
+
+        private final Map<String, AtomicInteger> fetches = new ConcurrentHashMap<>();
+        private volatile String failing;
+
+        @Override
+        public CandleStickResponse getCandlestickData(String instrumentName, Timeframe timeframe) {
+            count(instrumentName);
+            CandleStickResult result = new CandleStickResult();
+            result.setInstrumentName(instrumentName);
+            result.setInterval(timeframe.getTimeframeString());
+            CandleStickResponse response = new CandleStickResponse();
+            response.setResult(result);
+            return response;
+        }
+
+        @Override
+        public GetTradesResponse getTradesByInstrument(String instrumentName) {
+            count(instrumentName);
+            if (instrumentName.equals(failing)) {
+                throw new IllegalStateException("No trades for " + instrumentName);
+            }
+            TradeResult result = new TradeResult();
+            result.setInstrumentName(instrumentName);
+            GetTradesResponse response = new GetTradesResponse();
+            response.setResult(result);
+            return response;
+        }
+
+        @Override
+        public GetTradesResponse getTrades() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void count(String instrumentName) {
+            fetches.computeIfAbsent(instrumentName, name -> new AtomicInteger()).incrementAndGet();
+        }
+
+        void awaitFetches(String instrumentName, int expected) throws InterruptedException {
+            long giveUpAt = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (fetches.getOrDefault(instrumentName, new AtomicInteger()).get() < expected) {
+                assertThat(System.nanoTime()).isLessThan(giveUpAt);
+                Thread.sleep(5);
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.crypto.tradeintegritychecker.pipeline;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RingBufferTest {
+
+    private static final int EVENTS = 10_000;
+    // Spinning consumers need a core each, otherwise they starve the producer
+    private static final int CONSUMERS =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    @ParameterizedTest
+    @EnumSource(IntegrityCheckerProperties.WaitStrategyType.class)
+    public void everyEventIsConsumedExactlyOnce(IntegrityCheckerProperties.WaitStrategyType waitStrategy)
+            throws Exception {
+        RingBuffer<long[]> ring = new RingBuffer<>(64, () -> new long[1], WaitStrategy.create(waitStrategy));
+        AtomicLongArray deliveries = new AtomicLongArray(EVENTS);
+
+        List<Thread> consumers = new ArrayList<>();
+        for (int i = 0; i < CONSUMERS; i++) {
+            Thread consumer = new Thread(() -> {
+                try {
+                    while (ring.consume(slot -> deliveries.incrementAndGet((int) slot[0]))) {
+                        // Keep consuming until halted and drained
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            consumer.start();
+            consumers.add(consumer);
+        }
+
+        for (int i = 0; i < EVENTS; i++) {
+            long event = i;
+            ring.publish(slot -> slot[0] = event);
+        }
+        ring.halt();
+        for (Thread consumer : consumers) {
+            consumer.join(10_000);
+            assertThat(consumer.isAlive()).isFalse();
+        }
+
+        for (int i = 0; i < EVENTS; i++) {
+            assertThat(deliveries.get(i)).as("deliveries of event %d", i).isEqualTo(1);
+        }
+        assertThat(ring.getDepth()).isZero();
+    }
+
+    @Test
+    public void slotsAreReusedRatherThanAllocated() throws Exception {
+        RingBuffer<long[]> ring = new RingBuffer<>(4, () -> new long[1],
+                WaitStrategy.create(IntegrityCheckerProperties.WaitStrategyType.BLOCKING));
+        Set<long[]> seenSlots = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        for (int i = 0; i < 20; i++) {
+            ring.publish(slot -> slot[0]++);
+            ring.consume(seenSlots::add);
+        }
+
+        assertThat(seenSlots).hasSize(4);
+        assertThat(seenSlots).allSatisfy(slot -> assertThat(slot[0]).isEqualTo(5));
+    }
+
+    @Test
+    public void capacityMustBeAPowerOfTwo() {
+        assertThatThrownBy(() -> new RingBuffer<>(48, () -> new long[1],
+                WaitStrategy.create(IntegrityCheckerProperties.WaitStrategyType.BLOCKING)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
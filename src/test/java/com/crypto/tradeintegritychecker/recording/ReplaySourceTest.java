@@ -0,0 +1,132 @@
+package com.crypto.tradeintegritychecker.recording;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.service.IntegrityService;
+import com.crypto.tradeintegritychecker.service.TradeFeedDemultiplexer;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReplaySourceTest {
+
+    private static final String INSTRUMENT = "ETH_CRO";
+    private static final String CANDLESTICK_REQUEST =
+            "/v2/public/get-candlestick?instrument_name=ETH_CRO&timeframe=1m";
+    private static final String TRADES_REQUEST = "/v2/public/get-trades?instrument_name=ETH_CRO";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final IntegrityService integrityService = mock(IntegrityService.class);
+
+    @TempDir
+    Path tempDir;
+
+    private Path recordings;
+    private ReplaySource replaySource;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        recordings = Files.createDirectory(tempDir.resolve("recordings"));
+        IntegrityCheckerProperties properties = new IntegrityCheckerProperties();
+        properties.getRecording().setDirectory(recordings.toString());
+        replaySource = new ReplaySource(integrityService, new TradeFeedDemultiplexer(), objectMapper, properties);
+        when(integrityService.evaluateFetchedData(eq(INSTRUMENT), eq(Timeframe.ONE_MINUTE), any(), any()))
+                .thenReturn(IntegritySummary.builder().numIntegrityBreaks(5).build());
+    }
+
+    @Test
+    public void recordedResponsesAreReplayedAsOneEvaluation() throws Exception {
+        Path capture = writeCapture("upstream.capture.gz", 0);
+
+        ReplayReport report = replaySource.replay(capture.getFileName().toString(), 0);
+
+        assertThat(report.getResponsesReplayed()).isEqualTo(2);
+        assertThat(report.getEvaluations()).isEqualTo(1);
+        assertThat(report.getIntegrityBreaks()).isEqualTo(5);
+        verify(integrityService).evaluateFetchedData(eq(INSTRUMENT), eq(Timeframe.ONE_MINUTE),
+                any(CandleStickResponse.class), any(GetTradesResponse.class));
+    }
+
+    @Test
+    public void replayedEvaluationsAreMarkedAsReplays() throws Exception {
+        AtomicBoolean replayed = new AtomicBoolean();
+        when(integrityService.evaluateFetchedData(eq(INSTRUMENT), eq(Timeframe.ONE_MINUTE), any(), any()))
+                .thenAnswer(invocation -> {
+                    replayed.set(Replay.isActive());
+                    return IntegritySummary.builder().numIntegrityBreaks(5).build();
+                });
+
+        replaySource.replay(writeCapture("upstream.capture.gz", 0), 0);
+
+        assertThat(replayed).isTrue();
+        assertThat(Replay.isActive()).isFalse();
+    }
+
+    @Test
+    public void speedScalesTheRecordedGaps() throws Exception {
+        // Responses recorded 2 seconds apart, replayed 10 times faster
+        Path capture = writeCapture("slow.capture.gz", 2000);
+
+        ReplayReport report = replaySource.replay(capture, 10);
+
+        assertThat(report.getElapsedMillis()).isBetween(190L, 1900L);
+    }
+
+    @Test
+    public void truncatedCaptureIsReadUpToItsLastCompleteRecord() throws Exception {
+        Path capture = writeCapture("upstream.capture.gz", 0);
+        byte[] bytes = Files.readAllBytes(capture);
+        Path truncated = recordings.resolve("truncated.capture.gz");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 32));
+
+        ReplayReport report = replaySource.replay(truncated, 0);
+
+        assertThat(report.getResponsesReplayed()).isEqualTo(1);
+        assertThat(report.getEvaluations()).isZero();
+    }
+
+    @Test
+    public void capturesOutsideTheRecordingDirectoryAreRejected() throws Exception {
+        Files.move(writeCapture("upstream.capture.gz", 0), tempDir.resolve("outside.capture.gz"));
+
+        assertThatThrownBy(() -> replaySource.replay("../outside.capture.gz", 0))
+                .isInstanceOf(NoSuchFileException.class);
+    }
+
+    private Path writeCapture(String fileName, long gapMillis) throws IOException {
+        Path capture = recordings.resolve(fileName);
+        long recordedAt = 1633833840000L;
+        try (OutputStream out = Files.newOutputStream(capture);
+             CaptureLogWriter writer = new CaptureLogWriter(out)) {
+            writer.append(new RecordedResponse(recordedAt, CANDLESTICK_REQUEST, resource("candlesticks.json")));
+            writer.append(new RecordedResponse(recordedAt + gapMillis, TRADES_REQUEST, resource("trades.json")));
+        }
+        return capture;
+    }
+
+    private byte[] resource(String name) throws IOException {
+        return getClass().getClassLoader().getResourceAsStream(name).readAllBytes();
+    }
+}
@@ -0,0 +1,99 @@
+package com.crypto.tradeintegritychecker.registry;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InstrumentRegistryTest {
+
+    private static final StateKey<FixedState> STATE = StateKey.of("fixed", FixedState.class);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private InstrumentRegistry registry;
+
+    @BeforeEach
+    public void setup() {
+        IntegrityCheckerProperties properties = new IntegrityCheckerProperties();
+        properties.getRegistry().setMemoryBudget(DataSize.ofBytes(4_000));
+        registry = new InstrumentRegistry(properties, meterRegistry);
+    }
+
+    @Test
+    public void stateIsCreatedOnceAndReused() {
+        FixedState first = registry.acquire("ETH_CRO", STATE, () -> new FixedState(100));
+        FixedState second = registry.acquire("ETH_CRO", STATE, () -> new FixedState(100));
+
+        assertThat(second).isSameAs(first);
+        assertThat(registry.getInstrumentCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void leastRecentlyCheckedInstrumentsAreEvictedOverBudget() {
+        registry.acquire("ETH_CRO", STATE, () -> new FixedState(1_000));
+        FixedState evicted = registry.acquire("BTC_USDT", STATE, () -> new FixedState(1_000));
+        registry.acquire("ETH_CRO", STATE, () -> new FixedState(1_000));
+        registry.acquire("CRO_USDC", STATE, () -> new FixedState(1_000));
+
+        // Fourth instrument pushes the total over 4000 bytes, BTC_USDT was checked least recently
+        registry.acquire("SOL_USDT", STATE, () -> new FixedState(1_000));
+
+        assertThat(registry.getUsedBytes()).isLessThanOrEqualTo(4_000);
+        assertThat(registry.getInstrumentCount()).isEqualTo(3);
+        assertThat(registry.acquire("BTC_USDT", STATE, () -> new FixedState(1_000))).isNotSameAs(evicted);
+        assertThat(meterRegistry.get("integrity.instruments.evictions").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void grownStateIsChargedAtTheNextCheck() {
+        FixedState state = registry.acquire("ETH_CRO", STATE, () -> new FixedState(100));
+        registry.acquire("BTC_USDT", STATE, () -> new FixedState(100));
+        long before = registry.getUsedBytes();
+
+        state.bytes = 3_000;
+        registry.acquire("ETH_CRO", STATE, () -> new FixedState(100));
+
+        assertThat(registry.getUsedBytes()).isEqualTo(before + 2_900);
+        assertThat(meterRegistry.get("integrity.instruments.state.bytes").gauge().value())
+                .isEqualTo(registry.getUsedBytes());
+    }
+
+    @Test
+    public void theInstrumentBeingCheckedIsNeverEvicted() {
+        FixedState huge = registry.acquire("ETH_CRO", STATE, () -> new FixedState(10_000));
+
+        assertThat(registry.acquire("ETH_CRO", STATE, () -> new FixedState(1))).isSameAs(huge);
+        assertThat(registry.getOccupancy()).isGreaterThan(1);
+    }
+
+    @Test
+    public void idsAndNamesResolveUntilEviction() {
+        String name = new String("ETH_CRO");
+        int id = registry.idOf(name);
+
+        assertThat(registry.idOf("ETH_CRO")).isEqualTo(id);
+        assertThat(registry.intern(new String("ETH_CRO"))).isSameAs(name);
+        assertThat(registry.nameOf(id)).isSameAs(name);
+
+        registry.evict("ETH_CRO");
+        assertThat(registry.nameOf(id)).isNull();
+        assertThat(registry.idOf("ETH_CRO")).isNotEqualTo(id);
+    }
+
+    private static class FixedState implements InstrumentState {
+
+        private volatile long bytes;
+
+        private FixedState(long bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public long estimatedBytes() {
+            return bytes;
+        }
+    }
+}
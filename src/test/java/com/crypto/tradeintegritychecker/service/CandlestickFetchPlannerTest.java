@@ -0,0 +1,45 @@
+package com.crypto.tradeintegritychecker.service;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.request.CandlestickFetchPlan;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.util.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Uses the stubbed ETH_CRO data, where 200 trades span roughly 7 minutes of the 600 returned 1m candles
+ */
+public class CandlestickFetchPlannerTest {
+
+    private static final long NEWEST_TRADE = 1633833894136L;
+
+    private final CandlestickFetchPlanner planner = new CandlestickFetchPlanner(new IntegrityCheckerProperties());
+    private final JsonParser parser = new JsonParser();
+
+    @Test
+    public void planCoversTradesPlusMargin() {
+        GetTradesResponse trades = parser.parseTradesData();
+
+        CandlestickFetchPlan plan = planner.plan(Timeframe.ONE_MINUTE, trades.getResult().getData(), NEWEST_TRADE);
+
+        // Oldest trade falls in the 1633833420000 candle, newest in 1633833840000, each widened by 2 candles
+        assertThat(plan.getWindowStart()).isEqualTo(1633833300000L);
+        assertThat(plan.getWindowEnd()).isEqualTo(1633833960000L);
+        assertThat(plan.getDepth()).isEqualTo(10);
+    }
+
+    @Test
+    public void trimDiscardsCandlesOutsideWindow() {
+        GetTradesResponse trades = parser.parseTradesData();
+        CandleStickResponse candles = parser.parseCandlestickFromFile();
+        CandlestickFetchPlan plan = planner.plan(Timeframe.ONE_MINUTE, trades.getResult().getData(), NEWEST_TRADE);
+
+        CandleStickResponse trimmed = planner.trimToPlan(candles, plan);
+
+        assertThat(trimmed.getResult().getData()).hasSize(10);
+    }
+}
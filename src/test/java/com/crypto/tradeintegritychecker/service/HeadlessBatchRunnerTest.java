@@ -0,0 +1,78 @@
+package com.crypto.tradeintegritychecker.service;
+
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.MarketDataCapture;
+import com.crypto.tradeintegritychecker.recording.ReplaySource;
+import com.crypto.tradeintegritychecker.writer.ColumnarFileWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.DefaultApplicationArguments;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class HeadlessBatchRunnerTest {
+
+    @Mock
+    private BatchIntegrityService batchIntegrityService;
+
+    @Mock
+    private IntegrityService integrityService;
+
+    @Mock
+    private ColumnarFileWriter columnarFileWriter;
+
+    @Mock
+    private ReplaySource replaySource;
+
+    @InjectMocks
+    private HeadlessBatchRunner runner;
+
+    @Test
+    public void exitsCleanWhenNoInstrumentHasBreaks() {
+        Map<String, IntegritySummary> summaries = new LinkedHashMap<>();
+        summaries.put("ETH_CRO", summary(0));
+        summaries.put("BTC_USDT", summary(0));
+        when(batchIntegrityService.evaluateDataIntegrity(Arrays.asList("ETH_CRO", "BTC_USDT"), Timeframe.FIVE_MINUTES))
+                .thenReturn(summaries);
+
+        int exitCode = runner.run(new DefaultApplicationArguments("--instruments=ETH_CRO,BTC_USDT", "--interval=5m"));
+
+        assertThat(exitCode).isEqualTo(HeadlessBatchRunner.EXIT_CLEAN);
+    }
+
+    @Test
+    public void exitsWithBreaksStatusWhenACaptureHasBreaks() throws Exception {
+        MarketDataCapture capture = new MarketDataCapture(null, null);
+        when(columnarFileWriter.readCapture(Paths.get("recorded/ETH_CRO.icc"))).thenReturn(capture);
+        when(integrityService.evaluateCapture(capture)).thenReturn(summary(5));
+
+        int exitCode = runner.run(new DefaultApplicationArguments("--captures=recorded/ETH_CRO.icc"));
+
+        assertThat(exitCode).isEqualTo(HeadlessBatchRunner.EXIT_INTEGRITY_BREAKS);
+    }
+
+    @Test
+    public void exitsFailedWithoutAnythingToCheck() {
+        assertThat(runner.run(new DefaultApplicationArguments())).isEqualTo(HeadlessBatchRunner.EXIT_FAILED);
+    }
+
+    private IntegritySummary summary(int integrityBreaks) {
+        return IntegritySummary.builder()
+                .numIntegrityBreaks(integrityBreaks)
+                .numCandlesticksAnalyzed(6)
+                .dataIntegrityBreaks(Collections.emptyList())
+                .build();
+    }
+}
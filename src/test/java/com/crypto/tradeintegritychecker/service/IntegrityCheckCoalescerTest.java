@@ -0,0 +1,163 @@
+package com.crypto.tradeintegritychecker.service;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.execution.CheckerExecutor;
+import com.crypto.tradeintegritychecker.execution.Deadline;
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that concurrent requests for the same instrument/timeframe share a single evaluation,
+ * and that each caller's budget only limits its own wait for it
+ */
+@ExtendWith(MockitoExtension.class)
+public class IntegrityCheckCoalescerTest {
+
+    private static final int CALLERS = 8;
+
+    @Mock
+    private IntegrityService integrityService;
+
+    private final CheckerExecutor checkerExecutor = new CheckerExecutor(new IntegrityCheckerProperties());
+    private IntegrityCheckCoalescer coalescer;
+
+    @BeforeEach
+    public void setup() {
+        coalescer = new IntegrityCheckCoalescer(integrityService, checkerExecutor, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        checkerExecutor.shutdown();
+    }
+
+    @Test
+    public void concurrentCallersShareOneEvaluation() throws Exception {
+        IntegritySummary summary = IntegritySummary.builder()
+                .dataIntegrityBreaks(Collections.emptyList())
+                .build();
+        CountDownLatch evaluationStarted = new CountDownLatch(1);
+        CountDownLatch releaseEvaluation = new CountDownLatch(1);
+        when(integrityService.evaluateDataIntegrity(eq("ETH_CRO"), eq(Timeframe.ONE_MINUTE), any(IntegrityService.FetchProgress.class))).thenAnswer(invocation -> {
+            evaluationStarted.countDown();
+            releaseEvaluation.await(5, TimeUnit.SECONDS);
+            return summary;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        try {
+            List<Future<IntegritySummary>> results = new ArrayList<>();
+            results.add(executor.submit(() -> coalescer.evaluateDataIntegrity("ETH_CRO", Timeframe.ONE_MINUTE)));
+            assertThat(evaluationStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 1; i < CALLERS; i++) {
+                results.add(executor.submit(() -> coalescer.evaluateDataIntegrity("ETH_CRO", Timeframe.ONE_MINUTE)));
+            }
+            // Give the followers a chance to join before the leader completes
+            Thread.sleep(200);
+            releaseEvaluation.countDown();
+
+            for (Future<IntegritySummary> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(summary);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(integrityService, times(1)).evaluateDataIntegrity(eq("ETH_CRO"), eq(Timeframe.ONE_MINUTE), any(IntegrityService.FetchProgress.class));
+        assertThat(coalescer.getCoalescingRatio()).isEqualTo((CALLERS - 1) / (double) CALLERS);
+    }
+
+    @Test
+    public void aShortBudgetLeaderDoesNotTruncateUnboundedJoiners() throws Exception {
+        IntegritySummary summary = IntegritySummary.builder()
+                .dataIntegrityBreaks(Collections.emptyList())
+                .build();
+        IntegritySummary partial = IntegritySummary.builder()
+                .dataIntegrityBreaks(Collections.emptyList())
+                .build();
+        GetTradesResponse trades = new GetTradesResponse();
+        List<Deadline> evaluationDeadlines = new CopyOnWriteArrayList<>();
+        List<Thread> evaluationThreads = new CopyOnWriteArrayList<>();
+        CountDownLatch releaseEvaluation = new CountDownLatch(1);
+        when(integrityService.evaluateDataIntegrity(eq("ETH_CRO"), eq(Timeframe.ONE_MINUTE), any(IntegrityService.FetchProgress.class)))
+                .thenAnswer(invocation -> {
+                    evaluationDeadlines.add(Deadline.current());
+                    evaluationThreads.add(Thread.currentThread());
+                    invocation.getArgument(2, IntegrityService.FetchProgress.class).trades(trades);
+                    releaseEvaluation.await(5, TimeUnit.SECONDS);
+                    return summary;
+                });
+        when(integrityService.partialSummary(eq("ETH_CRO"), isNull(), same(trades))).thenReturn(partial);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            AtomicReference<Thread> leaderThread = new AtomicReference<>();
+            Future<IntegritySummary> leader = executor.submit(() -> {
+                leaderThread.set(Thread.currentThread());
+                try (Deadline.Scope scope = Deadline.enter(Deadline.after(Duration.ofMillis(50)))) {
+                    return coalescer.evaluateDataIntegrity("ETH_CRO", Timeframe.ONE_MINUTE);
+                }
+            });
+
+            // The leader gives up once its own budget has run out, with the trades fetched so far
+            assertThat(leader.get(5, TimeUnit.SECONDS)).isSameAs(partial);
+            assertThat(evaluationDeadlines.get(0)).isNotNull();
+            assertThat(evaluationThreads.get(0)).isNotSameAs(leaderThread.get());
+
+            // The leader's evaluation cannot outlast its budget, so an unbounded caller starts its own
+            Future<IntegritySummary> joiner =
+                    executor.submit(() -> coalescer.evaluateDataIntegrity("ETH_CRO", Timeframe.ONE_MINUTE));
+            releaseEvaluation.countDown();
+            assertThat(joiner.get(5, TimeUnit.SECONDS)).isSameAs(summary);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(evaluationDeadlines).hasSize(2);
+        assertThat(evaluationDeadlines.get(1)).isNull();
+        assertThat(coalescer.getCoalescingRatio()).isEqualTo(0);
+    }
+
+    @Test
+    public void sequentialCallersEvaluateIndependently() {
+        IntegritySummary summary = IntegritySummary.builder()
+                .dataIntegrityBreaks(Collections.emptyList())
+                .build();
+        when(integrityService.evaluateDataIntegrity(eq("ETH_CRO"), eq(Timeframe.ONE_MINUTE), any(IntegrityService.FetchProgress.class))).thenReturn(summary);
+
+        coalescer.evaluateDataIntegrity("ETH_CRO", Timeframe.ONE_MINUTE);
+        coalescer.evaluateDataIntegrity("ETH_CRO", Timeframe.ONE_MINUTE);
+
+        verify(integrityService, times(2)).evaluateDataIntegrity(eq("ETH_CRO"), eq(Timeframe.ONE_MINUTE), any(IntegrityService.FetchProgress.class));
+        assertThat(coalescer.getCoalescingRatio()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,146 @@
+package com.crypto.tradeintegritychecker.service;
+
+import com.crypto.tradeintegritychecker.client.CryptoClient;
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.execution.CheckerExecutor;
+import com.crypto.tradeintegritychecker.execution.Deadline;
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.registry.InstrumentRegistry;
+import com.crypto.tradeintegritychecker.sketch.DeviationSketches;
+import com.crypto.tradeintegritychecker.util.JsonParser;
+import com.crypto.tradeintegritychecker.writer.ColumnarFileWriter;
+import com.crypto.tradeintegritychecker.writer.CsvFileWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * A check given a latency budget should come back within it, with a partial summary, however slow
+ * the upstream is
+ */
+public class IntegrityServiceDeadlineTest {
+
+    private final IntegrityCheckerProperties properties = new IntegrityCheckerProperties();
+    private final CryptoClient cryptoClient = mock(CryptoClient.class);
+    private final CheckerExecutor checkerExecutor = new CheckerExecutor(properties);
+
+    private IntegrityService integrityService;
+    private CandleStickResponse candleStickResponse;
+    private GetTradesResponse getTradesResponse;
+
+    @BeforeEach
+    public void setup() {
+        JsonParser parser = new JsonParser();
+        candleStickResponse = parser.parseCandlestickFromFile();
+        getTradesResponse = parser.parseTradesData();
+        CsvFileWriter csvFileWriter = new CsvFileWriter();
+        RuleService ruleService = new RuleService(csvFileWriter,
+                new ViolationLogger(properties), new DeviationSketches(properties,
+                        new InstrumentRegistry(properties, new SimpleMeterRegistry())));
+        integrityService = new IntegrityService(csvFileWriter, mock(ColumnarFileWriter.class), cryptoClient,
+                ruleService, new CandlestickFetchPlanner(properties), mock(ApplicationEventPublisher.class),
+                checkerExecutor);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        checkerExecutor.shutdown();
+    }
+
+    @Test
+    public void hungUpstreamCallIsCancelledAndReportedAsMissing() throws Exception {
+        CountDownLatch tradesCancelled = new CountDownLatch(1);
+        when(cryptoClient.getCandlestickData("ETH_CRO", Timeframe.ONE_MINUTE)).thenReturn(candleStickResponse);
+        when(cryptoClient.getTradesByInstrument("ETH_CRO")).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                tradesCancelled.countDown();
+            }
+            return getTradesResponse;
+        });
+
+        long started = System.nanoTime();
+        IntegritySummary summary;
+        try (Deadline.Scope deadline = Deadline.enter(Deadline.after(Duration.ofMillis(200)))) {
+            summary = integrityService.evaluateDataIntegrity("ETH_CRO", Timeframe.ONE_MINUTE);
+        }
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(2));
+        assertThat(summary.isPartial()).isTrue();
+        assertThat(summary.getMissingData()).containsExactly(IntegritySummary.MISSING_TRADES);
+        assertThat(summary.getNumCandlesticks()).isEqualTo(candleStickResponse.getResult().getDepth());
+        assertThat(summary.getNumCandlesticksAnalyzed()).isZero();
+        assertThat(tradesCancelled.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void plannedChecksAreBoundByTheCallTimeout() {
+        properties.getFetchPlanner().setEnabled(true);
+        properties.getExecution().setCallTimeout(Duration.ofMillis(200));
+        CheckerExecutor shortCalls = new CheckerExecutor(properties);
+        IntegrityService plannedService = new IntegrityService(new CsvFileWriter(), mock(ColumnarFileWriter.class),
+                cryptoClient, mock(RuleService.class), new CandlestickFetchPlanner(properties),
+                mock(ApplicationEventPublisher.class), shortCalls);
+        when(cryptoClient.getTradesByInstrument("ETH_CRO")).thenReturn(getTradesResponse);
+        when(cryptoClient.getCandlestickData(eq("ETH_CRO"), eq(Timeframe.ONE_MINUTE), anyInt()))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(10_000);
+                    return candleStickResponse;
+                });
+
+        long started = System.nanoTime();
+        try {
+            // No caller deadline, the hung candlestick fetch is still given up on
+            IntegritySummary summary = plannedService.evaluateDataIntegrity("ETH_CRO", Timeframe.ONE_MINUTE);
+
+            assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(2));
+            assertThat(summary.isPartial()).isTrue();
+            assertThat(summary.getMissingData()).containsExactly(IntegritySummary.MISSING_CANDLESTICKS);
+            assertThat(summary.getNumTrades()).isEqualTo(getTradesResponse.getResult().getData().size());
+        } finally {
+            shortCalls.shutdown();
+        }
+    }
+
+    @Test
+    public void candlesticksLeftWhenTheDeadlinePassesAreReportedAsNotAnalyzed() {
+        IntegritySummary summary;
+        try (Deadline.Scope deadline = Deadline.enter(Deadline.after(Duration.ZERO))) {
+            summary = integrityService.evaluateFetchedData(
+                    "ETH_CRO", Timeframe.ONE_MINUTE, candleStickResponse, getTradesResponse);
+        }
+
+        assertThat(summary.isPartial()).isTrue();
+        assertThat(summary.getMissingData()).isNull();
+        assertThat(summary.getNumCandlesticksAnalyzed()).isZero();
+        assertThat(summary.getNumCandlesticksNotAnalyzed()).isPositive();
+    }
+
+    @Test
+    public void checkWithoutABudgetIsComplete() {
+        when(cryptoClient.getCandlestickData("ETH_CRO", Timeframe.ONE_MINUTE)).thenReturn(candleStickResponse);
+        when(cryptoClient.getTradesByInstrument("ETH_CRO")).thenReturn(getTradesResponse);
+
+        IntegritySummary summary = integrityService.evaluateDataIntegrity("ETH_CRO", Timeframe.ONE_MINUTE);
+
+        assertThat(summary.isPartial()).isFalse();
+        assertThat(summary.getNumCandlesticksNotAnalyzed()).isZero();
+        assertThat(summary.getNumIntegrityBreaks()).isEqualTo(5);
+    }
+}
@@ -0,0 +1,105 @@
+package com.crypto.tradeintegritychecker.service;
+
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Times the HIGH, LOW and VOLUME reductions over a long, busy history - the BigDecimal reductions
+ * RuleService used to run against the {@link TradeWindow} kernels that replaced them. Not part of
+ * the regular build, run with {@code mvn test -Dtest=RuleKernelBenchmarkIT}
+ */
+@Slf4j
+public class RuleKernelBenchmarkIT {
+
+    private static final int CANDLES = 2_000;
+    private static final int TRADES_PER_CANDLE = 1_000;
+    private static final int WARMUP_ROUNDS = 10;
+    private static final int MEASURED_ROUNDS = 10;
+
+    @Test
+    public void kernelsAgainstBigDecimalReductions() {
+        List<List<TradesData>> history = history();
+
+        long bigDecimalNanos = 0;
+        long kernelNanos = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            long started = System.nanoTime();
+            long bigDecimalChecksum = bigDecimalReductions(history);
+            long bigDecimalRound = System.nanoTime() - started;
+
+            started = System.nanoTime();
+            long kernelChecksum = kernelReductions(history);
+            long kernelRound = System.nanoTime() - started;
+
+            assertThat(kernelChecksum).isEqualTo(bigDecimalChecksum);
+            if (round >= WARMUP_ROUNDS) {
+                bigDecimalNanos += bigDecimalRound;
+                kernelNanos += kernelRound;
+            }
+        }
+
+        long trades = (long) CANDLES * TRADES_PER_CANDLE * MEASURED_ROUNDS;
+        log.info("BigDecimal reductions: {} ms, {} ns per trade",
+                TimeUnit.NANOSECONDS.toMillis(bigDecimalNanos), bigDecimalNanos / trades);
+        log.info("TradeWindow kernels:   {} ms, {} ns per trade",
+                TimeUnit.NANOSECONDS.toMillis(kernelNanos), kernelNanos / trades);
+        log.info("Speed-up: {}", String.format("%.2fx", bigDecimalNanos / (double) kernelNanos));
+    }
+
+    private long bigDecimalReductions(List<List<TradesData>> history) {
+        long checksum = 0;
+        for (List<TradesData> trades : history) {
+            TradesData lowest = Collections.min(trades, Comparator.comparing(TradesData::getTradePrice));
+            TradesData highest = Collections.max(trades, Comparator.comparing(TradesData::getTradePrice));
+            BigDecimal volume = trades.stream()
+                    .map(TradesData::getTradeQuantity)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add)
+                    .setScale(5, RoundingMode.HALF_UP);
+            checksum += lowest.getTradeId() * 31 + highest.getTradeId() * 17 + volume.hashCode();
+        }
+        return checksum;
+    }
+
+    private long kernelReductions(List<List<TradesData>> history) {
+        long checksum = 0;
+        for (List<TradesData> trades : history) {
+            TradeWindow window = TradeWindow.of(trades);
+            TradesData lowest = trades.get(window.lowestPriceIndex());
+            TradesData highest = trades.get(window.highestPriceIndex());
+            BigDecimal volume = window.totalQuantity().setScale(5, RoundingMode.HALF_UP);
+            checksum += lowest.getTradeId() * 31 + highest.getTradeId() * 17 + volume.hashCode();
+        }
+        return checksum;
+    }
+
+    // Prices and quantities at the scales the exchange returns for a busy pair such as BTC_USDT
+    private List<List<TradesData>> history() {
+        Random random = new Random(42);
+        List<List<TradesData>> history = new ArrayList<>();
+        long tradeId = 0;
+        for (int candle = 0; candle < CANDLES; candle++) {
+            List<TradesData> trades = new ArrayList<>(TRADES_PER_CANDLE);
+            for (int i = 0; i < TRADES_PER_CANDLE; i++) {
+                TradesData trade = new TradesData();
+                trade.setTradeId(tradeId++);
+                trade.setTradePrice(BigDecimal.valueOf(4_500_000 + random.nextInt(20_000), 2));
+                trade.setTradeQuantity(BigDecimal.valueOf(1 + random.nextInt(1_000_000), 6));
+                trades.add(trade);
+            }
+            history.add(trades);
+        }
+        return history;
+    }
+}
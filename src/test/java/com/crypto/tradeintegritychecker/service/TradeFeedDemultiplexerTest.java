@@ -0,0 +1,76 @@
+package com.crypto.tradeintegritychecker.service;
+
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import com.crypto.tradeintegritychecker.util.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TradeFeedDemultiplexerTest {
+
+    private final TradeFeedDemultiplexer demultiplexer = new TradeFeedDemultiplexer();
+
+    @Test
+    public void partitionsFeedByInstrumentName() {
+        GetTradesResponse feed = new JsonParser().parseTradesData();
+
+        Map<String, GetTradesResponse> partitions =
+                demultiplexer.partition(feed, Arrays.asList("ETH_CRO", "BTC_USDT"));
+
+        assertThat(partitions).containsOnlyKeys("ETH_CRO", "BTC_USDT");
+        assertThat(partitions.get("ETH_CRO").getResult().getData()).hasSize(200);
+        assertThat(partitions.get("ETH_CRO").getResult().getInstrumentName()).isEqualTo("ETH_CRO");
+        assertThat(partitions.get("BTC_USDT").getResult().getData()).isEmpty();
+    }
+
+    @Test
+    public void instrumentsMissingFromTheFeedGetAnEmptyPartition() {
+        GetTradesResponse feed = new JsonParser().parseTradesData();
+
+        Map<String, GetTradesResponse> partitions =
+                demultiplexer.partition(feed, Arrays.asList("BTC_USDT", "CRO_USDC"));
+
+        assertThat(partitions).containsOnlyKeys("BTC_USDT", "CRO_USDC");
+        partitions.forEach((instrument, partition) -> {
+            assertThat(partition.getResult().getInstrumentName()).isEqualTo(instrument);
+            assertThat(partition.getResult().getData()).isNotNull().isEmpty();
+        });
+    }
+
+    @Test
+    public void tradesForInstrumentsOutsideTheBatchAreDropped() {
+        GetTradesResponse feed = new JsonParser().parseTradesData();
+        TradesData otherInstrument = feed.getResult().getData().get(0);
+        otherInstrument.setInstrumentName("BTC_USDT");
+
+        Map<String, GetTradesResponse> partitions =
+                demultiplexer.partition(feed, Collections.singletonList("ETH_CRO"));
+
+        assertThat(partitions).containsOnlyKeys("ETH_CRO");
+        assertThat(partitions.get("ETH_CRO").getResult().getData())
+                .hasSize(199)
+                .doesNotContain(otherInstrument)
+                .allSatisfy(trade -> assertThat(trade.getInstrumentName()).isEqualTo("ETH_CRO"));
+    }
+
+    @Test
+    public void anEmptyOrMissingFeedLeavesEveryPartitionEmpty() {
+        GetTradesResponse noResult = new GetTradesResponse();
+        GetTradesResponse noTrades = new JsonParser().parseTradesData();
+        noTrades.getResult().setData(Collections.emptyList());
+
+        for (GetTradesResponse feed : Arrays.asList(null, noResult, noTrades)) {
+            Map<String, GetTradesResponse> partitions =
+                    demultiplexer.partition(feed, Arrays.asList("ETH_CRO", "BTC_USDT"));
+
+            assertThat(partitions).containsOnlyKeys("ETH_CRO", "BTC_USDT");
+            assertThat(partitions.values()).allSatisfy(
+                    partition -> assertThat(partition.getResult().getData()).isNotNull().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.crypto.tradeintegritychecker.service;
+
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The primitive reductions must pick the same trades and totals as the BigDecimal reductions they
+ * replace, whatever mix of scales the exchange sends
+ */
+public class TradeWindowTest {
+
+    @Test
+    public void matchesTheBigDecimalReductionsAcrossMixedScales() {
+        Random random = new Random(7);
+        for (int candle = 0; candle < 500; candle++) {
+            List<TradesData> trades = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(300); i++) {
+                trades.add(trade(BigDecimal.valueOf(1_000 + random.nextInt(50), random.nextInt(6)),
+                        BigDecimal.valueOf(1 + random.nextInt(1_000_000), random.nextInt(9))));
+            }
+            TradeWindow window = TradeWindow.of(trades);
+
+            assertThat(window).isNotNull();
+            assertThat(trades.get(window.lowestPriceIndex()))
+                    .isSameAs(Collections.min(trades, Comparator.comparing(TradesData::getTradePrice)));
+            assertThat(trades.get(window.highestPriceIndex()))
+                    .isSameAs(Collections.max(trades, Comparator.comparing(TradesData::getTradePrice)));
+            assertThat(window.totalQuantity()).isEqualTo(trades.stream()
+                    .map(TradesData::getTradeQuantity)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add));
+        }
+    }
+
+    @Test
+    public void tiesResolveToTheFirstTradeAndTrailingZerosCompareEqual() {
+        List<TradesData> trades = Arrays.asList(
+                trade(new BigDecimal("0.5120"), BigDecimal.ONE),
+                trade(new BigDecimal("0.513"), BigDecimal.ONE),
+                trade(new BigDecimal("0.512"), BigDecimal.ONE),
+                trade(new BigDecimal("0.51300"), BigDecimal.ONE));
+
+        TradeWindow window = TradeWindow.of(trades);
+
+        assertThat(window.lowestPriceIndex()).isEqualTo(0);
+        assertThat(window.highestPriceIndex()).isEqualTo(1);
+    }
+
+    @Test
+    public void negativeScalesAreHeldExactly() {
+        List<TradesData> trades = Arrays.asList(
+                trade(new BigDecimal("4E+4"), new BigDecimal("1E+2")),
+                trade(new BigDecimal("39999.5"), new BigDecimal("0.25")));
+
+        TradeWindow window = TradeWindow.of(trades);
+
+        assertThat(window.highestPriceIndex()).isEqualTo(0);
+        assertThat(window.totalQuantity()).isEqualByComparingTo("100.25");
+    }
+
+    @Test
+    public void valuesThatDoNotFitInALongFallBack() {
+        assertThat(TradeWindow.of(Collections.singletonList(
+                trade(new BigDecimal("1.0000000000000000000001"), BigDecimal.ONE)))).isNull();
+        assertThat(TradeWindow.of(Collections.singletonList(
+                trade(new BigDecimal("123456789012345678901234"), BigDecimal.ONE)))).isNull();
+        assertThat(TradeWindow.of(Arrays.asList(
+                trade(BigDecimal.ONE, BigDecimal.valueOf(Long.MAX_VALUE / 2 + 1)),
+                trade(BigDecimal.ONE, BigDecimal.valueOf(Long.MAX_VALUE / 2 + 1))))).isNull();
+        assertThat(TradeWindow.of(Collections.singletonList(trade(BigDecimal.ONE, null)))).isNull();
+    }
+
+    private TradesData trade(BigDecimal price, BigDecimal quantity) {
+        TradesData trade = new TradesData();
+        trade.setTradePrice(price);
+        trade.setTradeQuantity(quantity);
+        return trade;
+    }
+}
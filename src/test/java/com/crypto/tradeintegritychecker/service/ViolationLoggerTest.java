@@ -0,0 +1,81 @@
+package com.crypto.tradeintegritychecker.service;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.integrity.CandlestickTradeData;
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ViolationLoggerTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger(ViolationLogger.LOGGER_NAME);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+    private final IntegrityCheckerProperties properties = new IntegrityCheckerProperties();
+
+    @BeforeEach
+    public void setup() {
+        appender.start();
+        logger.addAppender(appender);
+        properties.getViolationLog().setMaxPerWindow(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    public void breaksBeyondTheLimitAreCountedAndSummarised() {
+        ViolationLogger violationLogger = new ViolationLogger(properties);
+
+        for (int i = 0; i < 5; i++) {
+            violationLogger.report(candle("ETH_CRO", i), ValidationRule.HIGH, BigDecimal.ONE, BigDecimal.TEN);
+        }
+        // Each rule has its own budget
+        violationLogger.report(candle("ETH_CRO", 5), ValidationRule.LOW, BigDecimal.ONE, BigDecimal.TEN);
+        violationLogger.flushSuppressed();
+
+        assertThat(appender.list).extracting(ILoggingEvent::getFormattedMessage).containsExactly(
+                "integrity_violation instrument=ETH_CRO timeframe=ONE_MINUTE rule=HIGH candle_end=0 expected=1 actual=10 trades=0",
+                "integrity_violation instrument=ETH_CRO timeframe=ONE_MINUTE rule=HIGH candle_end=1 expected=1 actual=10 trades=0",
+                "integrity_violation instrument=ETH_CRO timeframe=ONE_MINUTE rule=LOW candle_end=5 expected=1 actual=10 trades=0",
+                "integrity_violations_suppressed instrument=ETH_CRO rule=HIGH count=3 window=PT1M");
+    }
+
+    @Test
+    public void suppressedCountIsReportedWhenTheWindowRolls() throws InterruptedException {
+        properties.getViolationLog().setWindow(Duration.ofMillis(50));
+        ViolationLogger violationLogger = new ViolationLogger(properties);
+
+        for (int i = 0; i < 3; i++) {
+            violationLogger.report(candle("BTC_USDT", i), ValidationRule.VOLUME, BigDecimal.ONE, BigDecimal.TEN);
+        }
+        Thread.sleep(60);
+        violationLogger.report(candle("BTC_USDT", 3), ValidationRule.VOLUME, BigDecimal.ONE, BigDecimal.TEN);
+
+        assertThat(appender.list).hasSize(4);
+        assertThat(appender.list.get(2).getFormattedMessage())
+                .startsWith("integrity_violations_suppressed instrument=BTC_USDT rule=VOLUME count=1");
+    }
+
+    private CandlestickTradeData candle(String instrument, long endTime) {
+        return CandlestickTradeData.builder()
+                .instrument(instrument)
+                .timeframe(Timeframe.ONE_MINUTE)
+                .endTime(endTime)
+                .trades(Collections.emptyList())
+                .build();
+    }
+}
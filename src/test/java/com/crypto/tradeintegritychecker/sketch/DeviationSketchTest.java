@@ -0,0 +1,97 @@
+package com.crypto.tradeintegritychecker.sketch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class DeviationSketchTest {
+
+    private static final double ACCURACY = 0.02;
+    private static final double[] QUANTILES = {0.0, 0.1, 0.5, 0.9, 0.99, 0.999, 1.0};
+
+    @Test
+    public void quantilesAreWithinTheRelativeAccuracy() {
+        double[] values = deviations(new Random(7), 100_000);
+        DeviationSketch sketch = new DeviationSketch(ACCURACY, 512);
+        Arrays.stream(values).forEach(sketch::add);
+
+        Arrays.sort(values);
+        for (double q : QUANTILES) {
+            double exact = values[(int) Math.floor(q * (values.length - 1))];
+            assertThat(sketch.quantile(q)).isCloseTo(exact, within(exact * ACCURACY + 1e-12));
+        }
+        assertThat(sketch.getCount()).isEqualTo(values.length);
+        assertThat(sketch.getZeroCount()).isEqualTo(Arrays.stream(values).filter(value -> value == 0).count());
+    }
+
+    @Test
+    public void mergedSketchesMatchASketchOfAllValues() {
+        double[] values = deviations(new Random(11), 20_000);
+        DeviationSketch all = new DeviationSketch(ACCURACY, 512);
+        DeviationSketch first = new DeviationSketch(ACCURACY, 512);
+        DeviationSketch second = new DeviationSketch(ACCURACY, 512);
+        for (int i = 0; i < values.length; i++) {
+            all.add(values[i]);
+            (i % 3 == 0 ? first : second).add(values[i]);
+        }
+
+        first.merge(second);
+
+        assertThat(first.getCount()).isEqualTo(all.getCount());
+        assertThat(first.getBins()).isEqualTo(all.getBins());
+        for (double q : QUANTILES) {
+            assertThat(first.quantile(q)).isEqualTo(all.quantile(q));
+        }
+    }
+
+    @Test
+    public void binsStayBoundedAndHighQuantilesKeepTheirAccuracy() {
+        DeviationSketch sketch = new DeviationSketch(ACCURACY, 64);
+        for (int exponent = -11; exponent <= 3; exponent++) {
+            for (int i = 0; i < 100; i++) {
+                sketch.add(Math.pow(10, exponent));
+            }
+        }
+
+        assertThat(sketch.getBinCount()).isLessThanOrEqualTo(64);
+        assertThat(sketch.quantile(0.99)).isCloseTo(1000, within(1000 * ACCURACY));
+        assertThat(sketch.quantile(0.9)).isCloseTo(100, within(100 * ACCURACY));
+    }
+
+    @Test
+    public void sketchSurvivesAJsonRoundTrip() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        DeviationSketch sketch = new DeviationSketch(ACCURACY, 512);
+        Arrays.stream(deviations(new Random(3), 1_000)).forEach(sketch::add);
+
+        DeviationSketch restored =
+                objectMapper.readValue(objectMapper.writeValueAsString(sketch), DeviationSketch.class);
+
+        assertThat(restored.getCount()).isEqualTo(sketch.getCount());
+        assertThat(restored.getMax()).isEqualTo(sketch.getMax());
+        for (double q : QUANTILES) {
+            assertThat(restored.quantile(q)).isEqualTo(sketch.quantile(q));
+        }
+    }
+
+    @Test
+    public void sketchesWithDifferentAccuracyCannotBeMerged() {
+        assertThatThrownBy(() -> new DeviationSketch(0.01, 512).merge(new DeviationSketch(0.02, 512)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Mostly exact matches, with a long tail of relative deviations from 1e-7 up to about 1
+    private double[] deviations(Random random, int count) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextInt(4) == 0 ? 0 : Math.exp(random.nextGaussian() * 3 - 9);
+        }
+        return values;
+    }
+}
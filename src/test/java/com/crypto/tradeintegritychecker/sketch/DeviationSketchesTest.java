@@ -0,0 +1,51 @@
+package com.crypto.tradeintegritychecker.sketch;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.integrity.CandlestickTradeData;
+import com.crypto.tradeintegritychecker.model.integrity.ValidationRule;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.registry.InstrumentRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeviationSketchesTest {
+
+    @Test
+    public void sketchesAreChargedToTheRegistryAndEvictedWithTheirInstrument() {
+        IntegrityCheckerProperties properties = new IntegrityCheckerProperties();
+        properties.getRegistry().setMemoryBudget(DataSize.ofBytes(1_000));
+        InstrumentRegistry registry = new InstrumentRegistry(properties, new SimpleMeterRegistry());
+        DeviationSketches sketches = new DeviationSketches(properties, registry);
+
+        // Each candle is recorded once per rule, growth is charged when the instrument is next seen
+        sketches.recordBreak(candle("ETH_CRO"), ValidationRule.VOLUME, BigDecimal.ONE, BigDecimal.TEN);
+        sketches.recordMatch(candle("ETH_CRO"), ValidationRule.HIGH);
+        long oneInstrument = registry.getUsedBytes();
+        assertThat(sketches.summaries("ETH_CRO")).extracting(DeviationSummary::getNumIntegrityBreaks)
+                .containsExactly(0L, 1L);
+
+        // Sketches for further instruments push the least recently checked one out of the budget
+        for (String instrumentName : new String[] {"BTC_USDT", "CRO_USDC"}) {
+            sketches.recordMatch(candle(instrumentName), ValidationRule.VOLUME);
+            sketches.recordMatch(candle(instrumentName), ValidationRule.HIGH);
+        }
+
+        assertThat(oneInstrument).isPositive();
+        assertThat(registry.getUsedBytes()).isLessThanOrEqualTo(1_000);
+        assertThat(sketches.summaries("ETH_CRO")).isEmpty();
+        assertThat(sketches.summaries(null)).extracting(DeviationSummary::getInstrumentName)
+                .containsExactly("BTC_USDT", "BTC_USDT", "CRO_USDC", "CRO_USDC");
+    }
+
+    private CandlestickTradeData candle(String instrumentName) {
+        return CandlestickTradeData.builder()
+                .instrument(instrumentName)
+                .timeframe(Timeframe.ONE_MINUTE)
+                .build();
+    }
+}
@@ -0,0 +1,135 @@
+package com.crypto.tradeintegritychecker.snapshot;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.request.Timeframe;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.trades.Side;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import com.crypto.tradeintegritychecker.registry.InstrumentRegistry;
+import com.crypto.tradeintegritychecker.service.RuleService;
+import com.crypto.tradeintegritychecker.stream.StreamSnapshot;
+import com.crypto.tradeintegritychecker.stream.StreamingIntegrityEvaluator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+public class StateSnapshotterTest {
+
+    private static final long CANDLE_START = 1633833780000L;
+
+    @TempDir
+    Path directory;
+
+    private IntegrityCheckerProperties properties;
+
+    @BeforeEach
+    public void setup() {
+        properties = new IntegrityCheckerProperties();
+        properties.getSnapshot().setEnabled(true);
+        properties.getSnapshot().setDirectory(directory.toString());
+    }
+
+    @Test
+    public void snapshotFileRoundTripsEveryField() throws IOException {
+        StateSnapshot snapshot = new StateSnapshot(42L, Timeframe.ONE_MINUTE, Collections.singletonList(
+                new StreamSnapshot("ETH_CRO", CANDLE_START + 1_000, CANDLE_START, Long.MIN_VALUE, Long.MIN_VALUE,
+                        Collections.singletonList(candle(CANDLE_START)),
+                        Arrays.asList(trade(1L, CANDLE_START + 500), trade(2L, CANDLE_START + 1_000)))));
+        Path file = directory.resolve("state.snapshot");
+
+        SnapshotFile.write(file, snapshot);
+
+        assertThat(SnapshotFile.read(file)).usingRecursiveComparison().isEqualTo(snapshot);
+        assertThat(Files.list(directory)).containsExactly(file);
+    }
+
+    @Test
+    public void corruptSnapshotIsRejected() throws IOException {
+        Path file = directory.resolve("state.snapshot");
+        SnapshotFile.write(file, new StateSnapshot(42L, Timeframe.ONE_MINUTE, Collections.singletonList(
+                new StreamSnapshot("ETH_CRO", 0, 0, 0, 0, Collections.singletonList(candle(CANDLE_START)),
+                        Collections.singletonList(trade(1L, CANDLE_START))))));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x10;
+        Files.write(file, bytes);
+
+        assertThatThrownBy(() -> SnapshotFile.read(file)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void restartedEvaluatorResumesFromTheSnapshotWithAGapToBackfill() throws IOException {
+        StreamingIntegrityEvaluator before = evaluator();
+        before.onTrades("ETH_CRO", Arrays.asList(trade(1L, CANDLE_START + 500), trade(2L, CANDLE_START + 61_000)));
+        before.onCandles("ETH_CRO", Collections.singletonList(candle(CANDLE_START + 60_000)));
+        StateSnapshotter snapshotter = new StateSnapshotter(properties, before);
+        snapshotter.init();
+        snapshotter.snapshot();
+        snapshotter.shutdown();
+
+        StreamingIntegrityEvaluator after = evaluator();
+        new StateSnapshotter(properties, after).init();
+
+        List<StreamSnapshot> restored = after.snapshot();
+        assertThat(restored).hasSize(1);
+        StreamSnapshot stream = restored.get(0);
+        StreamSnapshot original = before.snapshot().get(0);
+        assertThat(stream.getCoverageStart()).isEqualTo(original.getCoverageStart());
+        assertThat(stream.getTrades()).extracting(TradesData::getTradeId).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(stream.getCandles()).extracting(CandleStickData::getEndTime).containsExactly(CANDLE_START + 60_000);
+        // Nothing after the newest restored trade was seen, so the first connection must backfill
+        assertThat(stream.getGapStart()).isEqualTo(CANDLE_START + 61_000);
+        assertThat(after.takeRestoredGaps()).isTrue();
+        assertThat(after.takeRestoredGaps()).isFalse();
+    }
+
+    @Test
+    public void snapshotForAnotherTimeframeIsIgnored() throws IOException {
+        SnapshotFile.write(directory.resolve("state.snapshot"), new StateSnapshot(42L, Timeframe.FIVE_MINUTES,
+                Collections.singletonList(new StreamSnapshot("ETH_CRO", 0, 0, 0, 0,
+                        Collections.emptyList(), Collections.emptyList()))));
+        StreamingIntegrityEvaluator evaluator = evaluator();
+
+        new StateSnapshotter(properties, evaluator).init();
+
+        assertThat(evaluator.snapshot()).isEmpty();
+    }
+
+    private StreamingIntegrityEvaluator evaluator() {
+        return new StreamingIntegrityEvaluator(mock(RuleService.class), event -> {},
+                new InstrumentRegistry(properties, new SimpleMeterRegistry()), properties);
+    }
+
+    private CandleStickData candle(long endTime) {
+        CandleStickData candle = new CandleStickData();
+        candle.setEndTime(endTime);
+        candle.setOpen(new BigDecimal("0.51230"));
+        candle.setHigh(new BigDecimal("0.5130"));
+        candle.setLow(new BigDecimal("0.5120"));
+        candle.setClose(new BigDecimal("0.5125"));
+        candle.setVolume(new BigDecimal("1234.5"));
+        return candle;
+    }
+
+    private TradesData trade(long tradeId, long timestamp) {
+        TradesData trade = new TradesData();
+        trade.setTradeId(tradeId);
+        trade.setTradeTimestamp(timestamp);
+        trade.setTradePrice(new BigDecimal("0.5125"));
+        trade.setTradeQuantity(new BigDecimal("10.000"));
+        trade.setSide(Side.BUY);
+        return trade;
+    }
+}
@@ -0,0 +1,197 @@
+package com.crypto.tradeintegritychecker.stream;
+
+import com.crypto.tradeintegritychecker.client.CryptoClient;
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.integrity.IntegrityCheckCompletedEvent;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.registry.InstrumentRegistry;
+import com.crypto.tradeintegritychecker.service.RuleService;
+import com.crypto.tradeintegritychecker.service.ViolationLogger;
+import com.crypto.tradeintegritychecker.sketch.DeviationSketches;
+import com.crypto.tradeintegritychecker.util.JsonParser;
+import com.crypto.tradeintegritychecker.writer.CsvFileWriter;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replays the stubbed ETH_CRO trades and candlesticks through a local WebSocket stand-in for the
+ * exchange. The streamed evaluation should find the same 5 breaks as the REST based evaluation,
+ * including when the stand-in drops the connection part way through the replay
+ */
+public class MarketDataStreamClientTest {
+
+    private static final String INSTRUMENT = "ETH_CRO";
+    private static final long FIRST_TRADED_CANDLE = 1633833420000L;
+    private static final long LAST_TRADED_CANDLE = 1633833840000L;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final List<Object> publishedEvents = new CopyOnWriteArrayList<>();
+    private final List<String> subscribeRequests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final CryptoClient cryptoClient = Mockito.mock(CryptoClient.class);
+
+    // What the stand-in replays on each connection, every connection but the last is dropped after its replay
+    private volatile List<List<String>> replays;
+
+    private DisposableServer exchangeStandIn;
+    private MarketDataStreamClient streamClient;
+
+    @BeforeEach
+    public void setup() {
+        replays = Collections.singletonList(replayMessages());
+        exchangeStandIn = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.ws("/v2/market", (inbound, outbound) -> {
+                    int connection = connections.getAndIncrement();
+                    Sinks.Empty<Void> subscribed = Sinks.empty();
+                    // Every frame is read, cancelling the inbound would close the connection
+                    Mono<Void> receiving = inbound.receive().asString()
+                            .doOnNext(request -> {
+                                subscribeRequests.add(request);
+                                subscribed.tryEmitEmpty();
+                            })
+                            .then();
+                    List<String> messages = connection < replays.size()
+                            ? replays.get(connection)
+                            : Collections.emptyList();
+                    boolean dropped = connection < replays.size() - 1;
+                    // Wait for the subscribe request, then replay and either drop or hold the connection open
+                    Mono<Void> replaying = subscribed.asMono()
+                            .then(Mono.from(outbound.sendString(Flux.fromIterable(messages))))
+                            .then(dropped ? Mono.<Void>empty() : Mono.<Void>never());
+                    return Mono.firstWithSignal(receiving, replaying);
+                }))
+                .bindNow();
+
+        IntegrityCheckerProperties properties = new IntegrityCheckerProperties();
+        properties.getStream().setEnabled(true);
+        properties.getStream().setUrl("ws://localhost:" + exchangeStandIn.port() + "/v2/market");
+        properties.getStream().setInstruments(Collections.singletonList(INSTRUMENT));
+        properties.getStream().setSubscribeDelay(Duration.ZERO);
+        properties.getStream().setInitialReconnectDelay(Duration.ofMillis(10));
+
+        ApplicationEventPublisher eventPublisher = publishedEvents::add;
+        InstrumentRegistry instrumentRegistry = new InstrumentRegistry(properties, new SimpleMeterRegistry());
+        RuleService ruleService = new RuleService(
+                new CsvFileWriter(), new ViolationLogger(properties), new DeviationSketches(properties, instrumentRegistry));
+        StreamingIntegrityEvaluator evaluator = new StreamingIntegrityEvaluator(ruleService, eventPublisher,
+                instrumentRegistry, properties);
+        streamClient = new MarketDataStreamClient(properties, evaluator, cryptoClient, objectMapper);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        streamClient.stop();
+        exchangeStandIn.disposeNow();
+    }
+
+    @Test
+    public void streamedCandlesAreEvaluatedOnceClosed() throws Exception {
+        streamClient.start();
+
+        for (int i = 0; i < 100 && candlesticksAnalyzed() < 6; i++) {
+            Thread.sleep(100);
+        }
+
+        // The first traded candle is partial and the last is not closed yet, leaving 6 complete candles
+        assertThat(candlesticksAnalyzed()).isEqualTo(6);
+        assertThat(integrityBreaks()).isEqualTo(5);
+        assertThat(connections.get()).isEqualTo(1);
+        Mockito.verifyNoInteractions(cryptoClient);
+    }
+
+    @Test
+    public void droppedConnectionsAreReestablishedAndBackfilled() throws Exception {
+        List<String> messages = replayMessages();
+        // The trades and the first candles, then the connection drops before the rest of the candles
+        replays = List.of(messages.subList(0, 4), messages.subList(4, messages.size()));
+        JsonParser parser = new JsonParser();
+        // The first backfill attempt fails and is retried
+        Mockito.when(cryptoClient.getTradesByInstrument(INSTRUMENT))
+                .thenThrow(new IllegalStateException("Upstream unavailable"))
+                .thenReturn(parser.parseTradesData());
+        Mockito.when(cryptoClient.getCandlestickData(Mockito.eq(INSTRUMENT), Mockito.any()))
+                .thenReturn(parser.parseCandlestickFromFile());
+
+        streamClient.start();
+
+        for (int i = 0; i < 100 && (candlesticksAnalyzed() < 6 || backfillCalls() < 3); i++) {
+            Thread.sleep(100);
+        }
+
+        assertThat(connections.get()).isEqualTo(2);
+        assertThat(subscribeRequests).hasSize(2).allMatch(request -> request.contains("\"subscribe\""));
+        Mockito.verify(cryptoClient, Mockito.times(2)).getTradesByInstrument(INSTRUMENT);
+        // Every candle is evaluated once, whichever connection or the backfill delivered it
+        assertThat(candlesticksAnalyzed()).isEqualTo(6);
+        assertThat(integrityBreaks()).isEqualTo(5);
+    }
+
+    private int backfillCalls() {
+        return Mockito.mockingDetails(cryptoClient).getInvocations().size();
+    }
+
+    private int integrityBreaks() {
+        return publishedEvents.stream()
+                .mapToInt(event -> ((IntegrityCheckCompletedEvent) event).getSummary().getNumIntegrityBreaks())
+                .sum();
+    }
+
+    private int candlesticksAnalyzed() {
+        return publishedEvents.stream()
+                .mapToInt(event -> ((IntegrityCheckCompletedEvent) event).getSummary().getNumCandlesticksAnalyzed())
+                .sum();
+    }
+
+    private List<String> replayMessages() {
+        JsonParser parser = new JsonParser();
+        GetTradesResponse trades = parser.parseTradesData();
+        CandleStickResponse candlesticks = parser.parseCandlestickFromFile();
+
+        List<String> messages = new ArrayList<>();
+        messages.add(channelMessage("trade", "trade." + INSTRUMENT, trades.getResult().getData()));
+        for (CandleStickData candle : candlesticks.getResult().getData()) {
+            if (candle.getEndTime() >= FIRST_TRADED_CANDLE && candle.getEndTime() <= LAST_TRADED_CANDLE) {
+                messages.add(channelMessage("candlestick", "candlestick.1m." + INSTRUMENT,
+                        Collections.singletonList(candle)));
+            }
+        }
+        return messages;
+    }
+
+    private String channelMessage(String channel, String subscription, List<?> data) {
+        ObjectNode message = objectMapper.createObjectNode();
+        message.put("method", "subscribe");
+        ObjectNode result = message.putObject("result");
+        result.put("instrument_name", INSTRUMENT);
+        result.put("subscription", subscription);
+        result.put("channel", channel);
+        result.set("data", objectMapper.valueToTree(data));
+        return message.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package com.crypto.tradeintegritychecker.stream;
+
+import com.crypto.tradeintegritychecker.config.IntegrityCheckerProperties;
+import com.crypto.tradeintegritychecker.model.integrity.IntegrityCheckCompletedEvent;
+import com.crypto.tradeintegritychecker.model.integrity.IntegritySummary;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import com.crypto.tradeintegritychecker.registry.InstrumentRegistry;
+import com.crypto.tradeintegritychecker.service.RuleService;
+import com.crypto.tradeintegritychecker.service.ViolationLogger;
+import com.crypto.tradeintegritychecker.sketch.DeviationSketches;
+import com.crypto.tradeintegritychecker.util.JsonParser;
+import com.crypto.tradeintegritychecker.writer.CsvFileWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Streams the stubbed ETH_CRO trades and candlesticks straight into the evaluator, opening
+ * connection gaps part way through. Without a gap the 6 complete candles hold 5 breaks
+ */
+public class StreamingIntegrityEvaluatorTest {
+
+    private static final String INSTRUMENT = "ETH_CRO";
+    private static final long FIRST_TRADED_CANDLE = 1633833420000L;
+    private static final long LAST_TRADED_CANDLE = 1633833840000L;
+    private static final long MINUTE = 60_000L;
+
+    private final IntegrityCheckerProperties properties = new IntegrityCheckerProperties();
+    private final List<IntegritySummary> summaries = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void candlesAfterAGapAreHeldBackUntilItIsBackfilled() {
+        StreamingIntegrityEvaluator evaluator = evaluator();
+        evaluator.onTrades(INSTRUMENT, trades(0));
+        evaluator.onDisconnected(INSTRUMENT, FIRST_TRADED_CANDLE + 3 * MINUTE + 30_000);
+        evaluator.onCandles(INSTRUMENT, candles(0));
+
+        // Only the complete candles that closed before the gap started
+        assertThat(total(IntegritySummary::getNumCandlesticksAnalyzed)).isEqualTo(2);
+
+        // The backfilled trades reach back past the gap, so nothing was missed
+        evaluator.onBackfill(INSTRUMENT, trades(0), Collections.emptyList());
+        assertThat(total(IntegritySummary::getNumCandlesticksAnalyzed)).isEqualTo(6);
+        assertThat(total(IntegritySummary::getNumIntegrityBreaks)).isEqualTo(5);
+    }
+
+    @Test
+    public void gapsOpenAtTheLatestDataReceived() {
+        StreamingIntegrityEvaluator evaluator = evaluator();
+        evaluator.onTrades(INSTRUMENT, trades(0));
+        evaluator.onCandles(INSTRUMENT, candles(0));
+        int analyzedBeforeTheGap = total(IntegritySummary::getNumCandlesticksAnalyzed);
+
+        // Disconnected years after the stubbed data was traded, the gap still starts in data time,
+        // so the data streamed after reconnecting is held back until the gap is backfilled
+        evaluator.onDisconnected(INSTRUMENT);
+        long shift = 10 * MINUTE;
+        evaluator.onTrades(INSTRUMENT, trades(shift));
+        evaluator.onCandles(INSTRUMENT, candles(shift));
+        assertThat(total(IntegritySummary::getNumCandlesticksAnalyzed)).isEqualTo(analyzedBeforeTheGap);
+
+        evaluator.onBackfill(INSTRUMENT, trades(0), Collections.emptyList());
+        assertThat(total(IntegritySummary::getNumCandlesticksAnalyzed)).isGreaterThan(analyzedBeforeTheGap);
+    }
+
+    @Test
+    public void aFailedBackfillSkipsTheGapAsNotAnalysed() {
+        StreamingIntegrityEvaluator evaluator = evaluator();
+        evaluator.onTrades(INSTRUMENT, trades(0));
+        evaluator.onDisconnected(INSTRUMENT, FIRST_TRADED_CANDLE + 3 * MINUTE + 30_000);
+        evaluator.onCandles(INSTRUMENT, candles(0));
+
+        // Candles up to the one the failure fell in are skipped, the ones after it are evaluated
+        evaluator.onBackfillFailed(INSTRUMENT, FIRST_TRADED_CANDLE + 4 * MINUTE + 1);
+        assertThat(summaries).hasSize(2);
+        assertThat(total(IntegritySummary::getNumCandlesticks)).isEqualTo(4);
+    }
+
+    @Test
+    public void gapsOpenLongerThanTheMaximumAreGivenUpOn() {
+        properties.getStream().setMaxGap(Duration.ofMinutes(2));
+        StreamingIntegrityEvaluator evaluator = evaluator();
+        evaluator.onTrades(INSTRUMENT, trades(0));
+        evaluator.onDisconnected(INSTRUMENT, FIRST_TRADED_CANDLE + 3 * MINUTE + 30_000);
+        evaluator.onCandles(INSTRUMENT, candles(0));
+
+        // Data from the stream already runs past the maximum gap, so everything up to it is skipped
+        assertThat(summaries).isEmpty();
+
+        // Rather than being held back for good, later candles are evaluated once they have closed
+        long shift = 10 * MINUTE;
+        evaluator.onTrades(INSTRUMENT, trades(shift));
+        evaluator.onCandles(INSTRUMENT, candles(shift));
+        assertThat(summaries).hasSize(1);
+        assertThat(total(IntegritySummary::getNumCandlesticks)).isEqualTo(7);
+    }
+
+    private StreamingIntegrityEvaluator evaluator() {
+        InstrumentRegistry instrumentRegistry = new InstrumentRegistry(properties, new SimpleMeterRegistry());
+        RuleService ruleService = new RuleService(
+                new CsvFileWriter(), new ViolationLogger(properties), new DeviationSketches(properties, instrumentRegistry));
+        return new StreamingIntegrityEvaluator(ruleService,
+                event -> summaries.add(((IntegrityCheckCompletedEvent) event).getSummary()),
+                instrumentRegistry, properties);
+    }
+
+    private int total(ToIntFunction<IntegritySummary> count) {
+        return summaries.stream().mapToInt(count).sum();
+    }
+
+    /** The stubbed trades, moved later by the shift and given trade ids of their own */
+    private List<TradesData> trades(long shift) {
+        List<TradesData> trades = new JsonParser().parseTradesData().getResult().getData();
+        trades.forEach(trade -> {
+            trade.setTradeTimestamp(trade.getTradeTimestamp() + shift);
+            trade.setTradeId(trade.getTradeId() + shift);
+        });
+        return trades;
+    }
+
+    private List<CandleStickData> candles(long shift) {
+        return new JsonParser().parseCandlestickFromFile().getResult().getData().stream()
+                .filter(candle -> candle.getEndTime() >= FIRST_TRADED_CANDLE
+                        && candle.getEndTime() <= LAST_TRADED_CANDLE)
+                .peek(candle -> candle.setEndTime(candle.getEndTime() + shift))
+                .collect(Collectors.toList());
+    }
+}
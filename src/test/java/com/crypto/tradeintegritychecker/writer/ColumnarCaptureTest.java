@@ -0,0 +1,97 @@
+package com.crypto.tradeintegritychecker.writer;
+
+import com.crypto.tradeintegritychecker.model.response.MarketDataCapture;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickData;
+import com.crypto.tradeintegritychecker.model.response.candelstick.CandleStickResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.GetTradesResponse;
+import com.crypto.tradeintegritychecker.model.response.trades.TradesData;
+import com.crypto.tradeintegritychecker.util.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ColumnarCaptureTest {
+
+    private final JsonParser parser = new JsonParser();
+
+    @Test
+    public void captureRoundTripsTheStubbedResponses() throws Exception {
+        CandleStickResponse candles = parser.parseCandlestickFromFile();
+        GetTradesResponse trades = parser.parseTradesData();
+
+        byte[] capture = write(candles, trades);
+        MarketDataCapture reloaded = read(capture);
+
+        assertThat(reloaded.getCandles().getResult().getInstrumentName()).isEqualTo("ETH_CRO");
+        assertThat(reloaded.getCandles().getResult().getInterval()).isEqualTo("1m");
+        assertThat(reloaded.getCandles().getResult().getDepth()).isEqualTo(candles.getResult().getDepth());
+
+        List<CandleStickData> expectedCandles = candles.getResult().getData();
+        List<CandleStickData> reloadedCandles = reloaded.getCandles().getResult().getData();
+        assertThat(reloadedCandles).hasSameSizeAs(expectedCandles);
+        for (int i = 0; i < expectedCandles.size(); i++) {
+            assertThat(reloadedCandles.get(i))
+                    .usingRecursiveComparison()
+                    .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                    .isEqualTo(expectedCandles.get(i));
+        }
+
+        List<TradesData> expectedTrades = trades.getResult().getData();
+        List<TradesData> reloadedTrades = reloaded.getTrades().getResult().getData();
+        assertThat(reloadedTrades).hasSameSizeAs(expectedTrades);
+        for (int i = 0; i < expectedTrades.size(); i++) {
+            assertThat(reloadedTrades.get(i))
+                    .usingRecursiveComparison()
+                    .withComparatorForType(BigDecimal::compareTo, BigDecimal.class)
+                    .isEqualTo(expectedTrades.get(i));
+        }
+    }
+
+    @Test
+    public void captureIsAFractionOfTheUpstreamPayload() throws Exception {
+        long payloadBytes = Files.size(Paths.get("src/test/resources/candlesticks.json"))
+                + Files.size(Paths.get("src/test/resources/trades.json"));
+
+        byte[] capture = write(parser.parseCandlestickFromFile(), parser.parseTradesData());
+
+        assertThat(capture.length).isLessThan((int) (payloadBytes / 10));
+    }
+
+    @Test
+    public void nullsAndOversizedDecimalsSurvive() throws Exception {
+        CandleStickResponse candles = parser.parseCandlestickFromFile();
+        GetTradesResponse trades = parser.parseTradesData();
+        TradesData first = trades.getResult().getData().get(0);
+        first.setSide(null);
+        first.setTradeId(null);
+        first.setTradePrice(new BigDecimal("123456789012345678901234567890.5"));
+
+        TradesData reloaded = read(write(candles, trades)).getTrades().getResult().getData().get(0);
+
+        assertThat(reloaded.getSide()).isNull();
+        assertThat(reloaded.getTradeId()).isNull();
+        assertThat(reloaded.getTradePrice()).isEqualByComparingTo(first.getTradePrice());
+    }
+
+    private byte[] write(CandleStickResponse candles, GetTradesResponse trades) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ColumnarCaptureWriter writer = new ColumnarCaptureWriter(out)) {
+            writer.writeCapture(candles, trades);
+        }
+        return out.toByteArray();
+    }
+
+    private MarketDataCapture read(byte[] capture) throws IOException {
+        try (ColumnarCaptureReader reader = new ColumnarCaptureReader(new ByteArrayInputStream(capture))) {
+            return reader.readCapture();
+        }
+    }
+}